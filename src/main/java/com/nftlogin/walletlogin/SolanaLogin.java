@@ -1,12 +1,38 @@
 package com.nftlogin.walletlogin;
 
+import com.nftlogin.walletlogin.api.SolanaLoginApi;
+import com.nftlogin.walletlogin.api.SolanaLoginService;
 import com.nftlogin.walletlogin.commands.*;
 import com.nftlogin.walletlogin.database.DatabaseManager;
+import com.nftlogin.walletlogin.database.RetentionTask;
+import com.nftlogin.walletlogin.limbo.LimboManager;
 import com.nftlogin.walletlogin.listeners.PlayerLoginListener;
+import com.nftlogin.walletlogin.listeners.PreAuthGuardListener;
+import com.nftlogin.walletlogin.metrics.LatencyHistogram;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.nftlogin.walletlogin.metrics.PrometheusExporter;
+import com.nftlogin.walletlogin.metrics.RollingStats;
+import com.nftlogin.walletlogin.metrics.TickProfiler;
+import com.nftlogin.walletlogin.placeholders.PlaceholderSnapshots;
+import com.nftlogin.walletlogin.placeholders.SolanaLoginExpansion;
 import com.nftlogin.walletlogin.session.SessionManager;
+import com.nftlogin.walletlogin.session.WalletCache;
+import com.nftlogin.walletlogin.solana.OwnershipCache;
+import com.nftlogin.walletlogin.solana.OwnershipSyncTask;
+import com.nftlogin.walletlogin.solana.OwnershipWebhook;
+import com.nftlogin.walletlogin.solana.SolanaRpcClient;
+import com.nftlogin.walletlogin.utils.BlockingExecutor;
 import org.bukkit.ChatColor;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.event.Event;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
 import java.sql.SQLException;
 import java.util.logging.Level;
 
@@ -14,36 +40,110 @@ public final class SolanaLogin extends JavaPlugin {
 
     private DatabaseManager databaseManager;
     private SessionManager sessionManager;
+    private MetricsRegistry metrics;
+    private PrometheusExporter metricsExporter;
+    private RollingStats rollingStats;
+    private TickProfiler tickProfiler;
+    private WalletCache walletCache;
+    private RetentionTask retentionTask;
+    private BlockingExecutor blockingExecutor;
+    private SolanaRpcClient solanaRpc;
+    private OwnershipCache ownershipCache;
+    private OwnershipSyncTask ownershipSync;
+    private OwnershipWebhook ownershipWebhook;
+    private SolanaLoginApi api;
+    private PlaceholderSnapshots placeholderSnapshots;
+    private PreAuthGuardListener preAuthGuard;
+    private LimboManager limbo;
+
+    public SolanaLogin() {
+        super();
+    }
+
+    /**
+     * Constructor used to load the plugin outside of a running server,
+     * for example by the join-storm load harness in the test sources.
+     */
+    protected SolanaLogin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onEnable() {
         // Save default config if it doesn't exist
         saveDefaultConfig();
 
+        // Initialize metrics before anything that records into them
+        metrics = new MetricsRegistry();
+        tickProfiler = new TickProfiler(this);
+        startMetricsExporter();
+
+        // Blocking database and web server calls run here rather than on the main thread
+        blockingExecutor = new BlockingExecutor(this);
+        initSolanaRpc();
+
         // Initialize session manager
         sessionManager = new SessionManager(this);
 
         // Initialize database
         initDatabase();
+        initOwnershipCache();
+        walletCache = new WalletCache(this);
+
+        // Other plugins look players up through this rather than through the database;
+        // Bukkit unregisters it when the plugin is disabled
+        api = new SolanaLoginService(this);
+        getServer().getServicesManager().register(SolanaLoginApi.class, api, this, ServicePriority.Normal);
 
         // Register event listeners
         getServer().getPluginManager().registerEvents(new PlayerLoginListener(this), this);
+        preAuthGuard = new PreAuthGuardListener(this);
+        getServer().getPluginManager().registerEvents(preAuthGuard, this);
+        limbo = LimboManager.fromConfig(this);
+        if (limbo != null) {
+            getServer().getPluginManager().registerEvents(limbo, this);
+        }
+        registerPlaceholders();
 
         // Register commands
-        getCommand("register").setExecutor(new RegisterCommand(this));
-        getCommand("login").setExecutor(new LoginCommand(this));
-        getCommand("changepassword").setExecutor(new ChangePasswordCommand(this));
-        getCommand("logout").setExecutor(new LogoutCommand(this));
-        getCommand("connectwallet").setExecutor(new ConnectWalletCommand(this));
-        getCommand("disconnectwallet").setExecutor(new DisconnectWalletCommand(this));
-        getCommand("walletinfo").setExecutor(new WalletInfoCommand(this));
-        getCommand("solanalogin").setExecutor(new AdminCommand(this));
+        registerCommand("register", new RegisterCommand(this));
+        registerCommand("login", new LoginCommand(this));
+        registerCommand("changepassword", new ChangePasswordCommand(this));
+        registerCommand("logout", new LogoutCommand(this));
+        registerCommand("connectwallet", new ConnectWalletCommand(this));
+        registerCommand("disconnectwallet", new DisconnectWalletCommand(this));
+        registerCommand("walletinfo", new WalletInfoCommand(this));
+        registerCommand("solanalogin", new AdminCommand(this));
+
+        startStatsSampler();
+        tickProfiler.start();
+        retentionTask = new RetentionTask(this);
+        retentionTask.start();
+        if (ownershipCache != null) {
+            ownershipSync = OwnershipSyncTask.fromConfig(this, ownershipCache);
+            ownershipSync.start(this);
+        }
 
         getLogger().info("SolanaLogin plugin has been enabled!");
     }
 
     @Override
     public void onDisable() {
+        if (metricsExporter != null) {
+            metricsExporter.stop();
+        }
+        if (ownershipWebhook != null) {
+            ownershipWebhook.stop();
+        }
+        if (limbo != null) {
+            limbo.releaseAll();
+        }
+
+        // Let queued writes finish before the connection goes away
+        if (blockingExecutor != null) {
+            blockingExecutor.shutdown(5000);
+        }
+
         // Close database connection
         if (databaseManager != null) {
             try {
@@ -60,29 +160,233 @@ public final class SolanaLogin extends JavaPlugin {
     @Override
     public void reloadConfig() {
         super.reloadConfig();
+        if (placeholderSnapshots != null) {
+            placeholderSnapshots.clear();
+        }
+        if (preAuthGuard != null) {
+            preAuthGuard.reload();
+        }
         getLogger().info("Configuration reloaded.");
     }
 
+    private void registerPlaceholders() {
+        if (getServer().getPluginManager().getPlugin("PlaceholderAPI") == null) {
+            return;
+        }
+        placeholderSnapshots = new PlaceholderSnapshots(this);
+        getServer().getPluginManager().registerEvents(placeholderSnapshots, this);
+        new SolanaLoginExpansion(this, placeholderSnapshots).register();
+        getLogger().info("Registered PlaceholderAPI placeholders.");
+    }
+
     private void initDatabase() {
         try {
             databaseManager = new DatabaseManager(this);
             databaseManager.connect();
             databaseManager.createTables();
-            getLogger().info("Database connection established successfully.");
+            databaseManager.loadWalletIndex();
+            databaseManager.loadRegisteredIndex();
+            getLogger().info("Database connection established successfully (" +
+                    databaseManager.getBackend().getName() + ").");
         } catch (SQLException e) {
             getLogger().log(Level.SEVERE, "Failed to initialize database", e);
             getServer().getPluginManager().disablePlugin(this);
         }
     }
 
+    private void initSolanaRpc() {
+        try {
+            solanaRpc = SolanaRpcClient.fromConfig(this);
+        } catch (MalformedURLException e) {
+            getLogger().log(Level.WARNING, "Invalid solana.rpc-url; on-chain checks are disabled", e);
+        }
+    }
+
+    private void initOwnershipCache() {
+        if (!getConfig().getBoolean("nft-gating.enabled", false) || solanaRpc == null || databaseManager == null) {
+            return;
+        }
+
+        ownershipCache = OwnershipCache.fromConfig(this, solanaRpc);
+        if (getConfig().getBoolean("nft-gating.persist", true)) {
+            // Start from the last known results rather than checking every wallet again
+            blockingExecutor.execute(() -> {
+                long start = System.currentTimeMillis();
+                if (databaseManager.forEachOwnership(ownershipCache::warm)) {
+                    getLogger().info(String.format("Loaded NFT ownership of %,d wallets in %d ms",
+                            ownershipCache.size(), System.currentTimeMillis() - start));
+                }
+            });
+        }
+        startOwnershipWebhook();
+    }
+
+    private void startOwnershipWebhook() {
+        if (!getConfig().getBoolean("nft-gating.webhook.enabled", false)) {
+            return;
+        }
+
+        String bindAddress = getConfig().getString("nft-gating.webhook.bind-address", "127.0.0.1");
+        int port = getConfig().getInt("nft-gating.webhook.port", 9465);
+        String path = getConfig().getString("nft-gating.webhook.path", "/webhook");
+        try {
+            ownershipWebhook = new OwnershipWebhook(ownershipCache,
+                    address -> databaseManager.getWalletIndex().getOwner(address),
+                    getConfig().getString("nft-gating.webhook.auth-token", ""), metrics);
+            ownershipWebhook.start(bindAddress, port, path);
+            getLogger().info("Ownership webhook listening on http://" + bindAddress + ":" + port + path);
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to start ownership webhook", e);
+            ownershipWebhook = null;
+        }
+    }
+
+    private void startMetricsExporter() {
+        if (!getConfig().getBoolean("metrics.enabled", false)) {
+            return;
+        }
+
+        String bindAddress = getConfig().getString("metrics.bind-address", "127.0.0.1");
+        int port = getConfig().getInt("metrics.port", 9464);
+        try {
+            metricsExporter = new PrometheusExporter(metrics);
+            metricsExporter.start(bindAddress, port);
+            getLogger().info("Metrics endpoint listening on http://" + bindAddress + ":" + port + "/metrics");
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Failed to start metrics endpoint", e);
+            metricsExporter = null;
+        }
+    }
+
+    private void registerCommand(String name, CommandExecutor executor) {
+        getCommand(name).setExecutor(new ProfiledCommandExecutor(executor, tickProfiler, name));
+    }
+
+    private void startStatsSampler() {
+        rollingStats = new RollingStats();
+        rollingStats.trackCounter("Logins", () -> metrics.getValue("solanalogin_logins_total",
+                "result", "success"));
+        rollingStats.trackCounter("Failed logins", () -> metrics.getValue("solanalogin_logins_total",
+                "result", "failure"));
+        rollingStats.trackCounter("Registrations", () -> metrics.getValue("solanalogin_registrations_total",
+                "result", "success"));
+        rollingStats.trackCounter("Wallet connections", () -> metrics.getValue(
+                "solanalogin_wallet_connections_total", "result", "success"));
+        rollingStats.trackCounter("DB queries", () -> {
+            long total = 0;
+            for (LatencyHistogram histogram : metrics.findHistograms("solanalogin_db_query_seconds").values()) {
+                total += histogram.getCount();
+            }
+            return total;
+        });
+
+        long intervalTicks = RollingStats.SAMPLE_INTERVAL_SECONDS * 20L;
+        getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
+            // Query timers are created lazily, so pick up new operations on every sample
+            metrics.findHistograms("solanalogin_password_hash_seconds").forEach((labels, histogram) ->
+                    rollingStats.trackHistogram("Password " + labelValue(labels), histogram));
+            metrics.findHistograms("solanalogin_db_query_seconds").forEach((labels, histogram) ->
+                    rollingStats.trackHistogram("DB " + labelValue(labels), histogram));
+            rollingStats.sample();
+        }, intervalTicks, intervalTicks);
+    }
+
+    private static String labelValue(String labels) {
+        int start = labels.indexOf('"');
+        int end = labels.lastIndexOf('"');
+        return start >= 0 && end > start ? labels.substring(start + 1, end) : labels;
+    }
+
     public DatabaseManager getDatabaseManager() {
         return databaseManager;
     }
 
+    public SolanaLoginApi getApi() {
+        return api;
+    }
+
+    public PreAuthGuardListener getPreAuthGuard() {
+        return preAuthGuard;
+    }
+
+    /**
+     * Gets the limbo players wait in until they log in.
+     *
+     * @return The limbo, or null if {@code limbo.enabled} is off
+     */
+    public LimboManager getLimbo() {
+        return limbo;
+    }
+
     public SessionManager getSessionManager() {
         return sessionManager;
     }
 
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public RollingStats getRollingStats() {
+        return rollingStats;
+    }
+
+    public TickProfiler getTickProfiler() {
+        return tickProfiler;
+    }
+
+    public WalletCache getWalletCache() {
+        return walletCache;
+    }
+
+    public RetentionTask getRetentionTask() {
+        return retentionTask;
+    }
+
+    public BlockingExecutor getBlockingExecutor() {
+        return blockingExecutor;
+    }
+
+    /**
+     * Gets the Solana RPC client.
+     *
+     * @return The client, or null if {@code solana.rpc-url} is invalid
+     */
+    public SolanaRpcClient getSolanaRpc() {
+        return solanaRpc;
+    }
+
+    /**
+     * Gets the NFT ownership cache.
+     *
+     * @return The cache, or null if NFT gating is off
+     */
+    public OwnershipCache getOwnershipCache() {
+        return ownershipCache;
+    }
+
+    /**
+     * Gets the task that re-checks the NFT ownership of every linked wallet.
+     *
+     * @return The task, or null if NFT gating is off
+     */
+    public OwnershipSyncTask getOwnershipSync() {
+        return ownershipSync;
+    }
+
+    /**
+     * Calls one of the plugin's events on the main thread. From another thread the event is
+     * scheduled for the next tick, unless the plugin is being disabled.
+     *
+     * @param event The event
+     */
+    public void callEvent(Event event) {
+        if (getServer().isPrimaryThread()) {
+            getServer().getPluginManager().callEvent(event);
+        } else if (isEnabled()) {
+            getServer().getScheduler().runTask(this, () -> getServer().getPluginManager().callEvent(event));
+        }
+    }
+
     public String formatMessage(String message) {
         String prefix = getConfig().getString("messages.prefix", "&8[&6SolanaLogin&8] &r");
         return ChatColor.translateAlternateColorCodes('&', prefix + message);
@@ -0,0 +1,94 @@
+package com.nftlogin.walletlogin.api;
+
+import com.nftlogin.walletlogin.database.WalletRecord;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The API other plugins use to ask SolanaLogin about players, instead of querying its database.
+ *
+ * Get it from Bukkit's services manager:
+ * <pre>
+ * SolanaLoginApi api = Bukkit.getServicesManager().load(SolanaLoginApi.class);
+ * </pre>
+ *
+ * Methods that return a value directly answer from memory and are safe to call on the main
+ * thread. Methods that return a future answer from memory when they can, in which case the
+ * future is already complete, and otherwise query the database in the background. Such futures
+ * complete on a SolanaLogin worker thread, so callbacks that touch the world must hop back to
+ * the main thread with the scheduler.
+ */
+public interface SolanaLoginApi {
+
+    /**
+     * Checks whether a player has logged in during their current session.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is online and authenticated
+     */
+    boolean isAuthenticated(UUID uuid);
+
+    /**
+     * Checks whether a player has registered an account.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is registered
+     */
+    CompletableFuture<Boolean> isRegistered(UUID uuid);
+
+    /**
+     * Gets a player's wallet if it is cached, which it is for every online player shortly after
+     * they join.
+     *
+     * @param uuid The player's UUID
+     * @return The wallet (empty if the player has none connected), or null if it isn't cached
+     */
+    Optional<WalletRecord> getCachedWallet(UUID uuid);
+
+    /**
+     * Gets a player's wallet, from the cache when it is there.
+     *
+     * @param uuid The player's UUID
+     * @return The wallet, or empty if the player doesn't have a wallet connected
+     */
+    CompletableFuture<Optional<WalletRecord>> getWallet(UUID uuid);
+
+    /**
+     * Gets the wallets of many players. Cached wallets are answered from memory and the rest
+     * are read with one query per few hundred players, so prefer this to calling
+     * {@link #getWallet(UUID)} in a loop.
+     *
+     * @param uuids The players' UUIDs
+     * @return The wallets of the players who have one connected
+     */
+    CompletableFuture<Map<UUID, WalletRecord>> getWallets(Collection<UUID> uuids);
+
+    /**
+     * Gets the player a wallet is linked to.
+     *
+     * @param walletAddress The wallet address
+     * @return The player's UUID, or empty if nobody has linked the wallet
+     */
+    Optional<UUID> getWalletOwner(String walletAddress);
+
+    /**
+     * Gets the gating NFT mints a wallet holds, if they were checked recently.
+     *
+     * @param walletAddress The wallet address
+     * @return The mints held, or empty if they aren't known yet or NFT gating is off
+     */
+    Optional<Set<String>> getCachedMints(String walletAddress);
+
+    /**
+     * Gets the gating NFT mints a wallet holds, checking on-chain unless they are cached.
+     *
+     * @param walletAddress The wallet address
+     * @return The mints held; none if NFT gating is off
+     */
+    CompletableFuture<Set<String>> getMints(String walletAddress);
+}
@@ -0,0 +1,113 @@
+package com.nftlogin.walletlogin.api;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.session.SessionManager;
+import com.nftlogin.walletlogin.session.WalletCache;
+import com.nftlogin.walletlogin.solana.OwnershipCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The implementation of {@link SolanaLoginApi} registered with the services manager.
+ *
+ * Reads go through the same wallet and ownership caches the plugin itself uses, and database
+ * queries run on the plugin's blocking executor, so third-party lookups share the plugin's
+ * connection and thread budget instead of adding their own.
+ */
+public class SolanaLoginService implements SolanaLoginApi {
+
+    private final SolanaLogin plugin;
+
+    public SolanaLoginService(SolanaLogin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public boolean isAuthenticated(UUID uuid) {
+        SessionManager sessions = plugin.getSessionManager();
+        if (!sessions.hasSession(uuid)) {
+            return false;
+        }
+        SessionManager.Session session = sessions.getSession(uuid);
+        return session != null && session.isAuthenticated();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isRegistered(UUID uuid) {
+        return plugin.getBlockingExecutor().submit(() -> plugin.getDatabaseManager().isPlayerRegistered(uuid));
+    }
+
+    @Override
+    public Optional<WalletRecord> getCachedWallet(UUID uuid) {
+        return plugin.getWalletCache().getIfLoaded(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Optional<WalletRecord>> getWallet(UUID uuid) {
+        WalletCache cache = plugin.getWalletCache();
+        Optional<WalletRecord> cached = cache.getIfLoaded(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return plugin.getBlockingExecutor().submit(() -> {
+            Optional<WalletRecord> wallet = plugin.getDatabaseManager().getWallet(uuid);
+            cache.cacheIfOnline(uuid, wallet);
+            return wallet;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, WalletRecord>> getWallets(Collection<UUID> uuids) {
+        WalletCache cache = plugin.getWalletCache();
+        Map<UUID, WalletRecord> found = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : uuids) {
+            Optional<WalletRecord> cached = cache.getIfLoaded(uuid);
+            if (cached == null) {
+                missing.add(uuid);
+            } else {
+                cached.ifPresent(wallet -> found.put(uuid, wallet));
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(found);
+        }
+
+        return plugin.getBlockingExecutor().submit(() -> {
+            Map<UUID, WalletRecord> loaded = plugin.getDatabaseManager().getWallets(missing);
+            for (UUID uuid : missing) {
+                cache.cacheIfOnline(uuid, Optional.ofNullable(loaded.get(uuid)));
+            }
+            found.putAll(loaded);
+            return found;
+        });
+    }
+
+    @Override
+    public Optional<UUID> getWalletOwner(String walletAddress) {
+        return plugin.getDatabaseManager().getWalletOwner(walletAddress);
+    }
+
+    @Override
+    public Optional<Set<String>> getCachedMints(String walletAddress) {
+        OwnershipCache ownership = plugin.getOwnershipCache();
+        return ownership == null ? Optional.empty() : ownership.getIfPresent(walletAddress);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getMints(String walletAddress) {
+        OwnershipCache ownership = plugin.getOwnershipCache();
+        return ownership == null ? CompletableFuture.completedFuture(Collections.emptySet())
+                : ownership.get(walletAddress);
+    }
+}
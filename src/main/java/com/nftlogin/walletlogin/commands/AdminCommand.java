@@ -1,19 +1,39 @@
 package com.nftlogin.walletlogin.commands;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.RetentionTask;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.metrics.LatencyHistogram;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.nftlogin.walletlogin.metrics.RollingStats;
+import com.nftlogin.walletlogin.metrics.TickProfiler;
+import com.nftlogin.walletlogin.session.WalletCache;
+import com.nftlogin.walletlogin.solana.OwnershipCache;
+import com.nftlogin.walletlogin.solana.OwnershipSyncTask;
+import com.nftlogin.walletlogin.solana.SolanaRpcClient;
+import com.nftlogin.walletlogin.transfer.AccountTransfer;
+import com.nftlogin.walletlogin.transfer.AccountTransferTask;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 public class AdminCommand implements CommandExecutor {
 
     private final SolanaLogin plugin;
+    private final AccountTransferTask transferTask;
 
     public AdminCommand(SolanaLogin plugin) {
         this.plugin = plugin;
+        this.transferTask = new AccountTransferTask(plugin);
     }
 
     @Override
@@ -33,7 +53,7 @@ public class AdminCommand implements CommandExecutor {
         String subCommand = args[0].toLowerCase();
 
         // Process the subcommand
-        return processSubCommand(sender, subCommand);
+        return processSubCommand(sender, subCommand, args);
     }
 
     /**
@@ -41,9 +61,10 @@ public class AdminCommand implements CommandExecutor {
      *
      * @param sender The command sender
      * @param subCommand The subcommand to process
+     * @param args The full command arguments
      * @return true if the command was processed successfully
      */
-    private boolean processSubCommand(CommandSender sender, String subCommand) {
+    private boolean processSubCommand(CommandSender sender, String subCommand, String[] args) {
         switch (subCommand) {
             case "reload":
                 plugin.reloadConfig();
@@ -54,6 +75,52 @@ public class AdminCommand implements CommandExecutor {
                 showPluginInfo(sender);
                 break;
 
+            case "stats":
+                showStats(sender);
+                break;
+
+            case "profiler":
+                if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+                    plugin.getTickProfiler().reset();
+                    sender.sendMessage(plugin.formatMessage("&aProfiler history cleared."));
+                } else {
+                    showProfiler(sender);
+                }
+                break;
+
+            case "import":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("&cUsage: /solanalogin import <file|authme> [batch-size]"));
+                    break;
+                }
+                try {
+                    int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : AccountTransfer.DEFAULT_BATCH_SIZE;
+                    transferTask.startImport(sender, args[1], Math.max(1, batchSize));
+                } catch (NumberFormatException e) {
+                    sender.sendMessage(plugin.formatMessage("&cBatch size must be a number."));
+                }
+                break;
+
+            case "export":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("&cUsage: /solanalogin export <file>"));
+                    break;
+                }
+                transferTask.startExport(sender, args[1]);
+                break;
+
+            case "lookup":
+                if (args.length < 2) {
+                    sender.sendMessage(plugin.formatMessage("&cUsage: /solanalogin lookup <address>"));
+                    break;
+                }
+                showWalletOwner(sender, args[1]);
+                break;
+
+            case "resync":
+                startOwnershipSync(sender);
+                break;
+
             default:
                 showHelp(sender);
                 break;
@@ -66,6 +133,38 @@ public class AdminCommand implements CommandExecutor {
         sender.sendMessage(plugin.formatMessage("&6=== SolanaLogin Admin Commands ==="));
         sender.sendMessage(plugin.formatMessage("&e/solanalogin reload &7- Reload the configuration"));
         sender.sendMessage(plugin.formatMessage("&e/solanalogin info &7- Show plugin information"));
+        sender.sendMessage(plugin.formatMessage("&e/solanalogin stats &7- Show live performance statistics"));
+        sender.sendMessage(plugin.formatMessage("&e/solanalogin profiler [reset] &7- Show main-thread time per tick"));
+        sender.sendMessage(plugin.formatMessage("&e/solanalogin import <file|authme> [batch-size] &7- Import accounts"));
+        sender.sendMessage(plugin.formatMessage("&e/solanalogin export <file> &7- Export accounts to CSV or JSON"));
+        sender.sendMessage(plugin.formatMessage("&e/solanalogin lookup <address> &7- Show who a wallet is linked to"));
+        sender.sendMessage(plugin.formatMessage("&e/solanalogin resync &7- Re-check the NFTs of every linked wallet"));
+    }
+
+    private void startOwnershipSync(CommandSender sender) {
+        OwnershipSyncTask sync = plugin.getOwnershipSync();
+        if (sync == null) {
+            sender.sendMessage(plugin.formatMessage("&cNFT gating is not enabled."));
+            return;
+        }
+        if (sync.isRunning()) {
+            sender.sendMessage(plugin.formatMessage("&cAn NFT ownership sync is already running."));
+            return;
+        }
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, sync);
+        sender.sendMessage(plugin.formatMessage("&aNFT ownership sync started; progress is logged to the console."));
+    }
+
+    private void showWalletOwner(CommandSender sender, String address) {
+        Optional<UUID> owner = plugin.getDatabaseManager().getWalletOwner(address);
+        if (!owner.isPresent()) {
+            sender.sendMessage(plugin.formatMessage("&eNo player has linked wallet &7" + address));
+            return;
+        }
+
+        String name = plugin.getServer().getOfflinePlayer(owner.get()).getName();
+        sender.sendMessage(plugin.formatMessage("&eWallet &7" + address + " &eis linked to &7"
+                + (name != null ? name + " (" + owner.get() + ")" : owner.get().toString())));
     }
 
     private void showPluginInfo(CommandSender sender) {
@@ -75,9 +174,23 @@ public class AdminCommand implements CommandExecutor {
 
         // Database info
         sender.sendMessage(plugin.formatMessage("&eDatabase: &7" +
-                plugin.getConfig().getString("database.host", "localhost") + ":" +
-                plugin.getConfig().getInt("database.port", 3306) + "/" +
-                plugin.getConfig().getString("database.database", "minecraft")));
+                plugin.getDatabaseManager().getBackend().getName()));
+        sender.sendMessage(plugin.formatMessage("&eBackground Calls: &7" +
+                plugin.getBlockingExecutor().getName()));
+        sender.sendMessage(plugin.formatMessage("&eRegistered Players: &7" +
+                plugin.getDatabaseManager().getRegisteredCount()));
+        sender.sendMessage(plugin.formatMessage("&eLinked Wallets: &7" +
+                plugin.getDatabaseManager().getWalletIndex().size()));
+        SolanaRpcClient rpc = plugin.getSolanaRpc();
+        if (rpc != null) {
+            sender.sendMessage(plugin.formatMessage("&eSolana RPC: &7" +
+                    rpc.getState().name().toLowerCase(Locale.ROOT) + ", " + rpc.getRequestCount() + " requests"));
+        }
+        RetentionTask retention = plugin.getRetentionTask();
+        if (retention != null && retention.getLastRun() > 0) {
+            sender.sendMessage(plugin.formatMessage("&eRetention: &7" + retention.getLastDeleted() +
+                    " old rows deleted at " + new SimpleDateFormat("HH:mm").format(new Date(retention.getLastRun()))));
+        }
 
         // Settings info
         sender.sendMessage(plugin.formatMessage("&eRequire Login: &7" +
@@ -91,20 +204,152 @@ public class AdminCommand implements CommandExecutor {
         int onlinePlayers = plugin.getServer().getOnlinePlayers().size();
         int authenticatedPlayers = 0;
         int walletConnectedPlayers = 0;
+        int walletsNotLoaded = 0;
 
+        // Wallet state comes from the cache only, so this never queries the database
+        WalletCache walletCache = plugin.getWalletCache();
         for (Player player : plugin.getServer().getOnlinePlayers()) {
             UUID uuid = player.getUniqueId();
             if (plugin.getSessionManager().hasSession(uuid) &&
                     plugin.getSessionManager().getSession(uuid).isAuthenticated()) {
                 authenticatedPlayers++;
             }
-            if (plugin.getDatabaseManager().hasWalletConnected(uuid)) {
+            Optional<WalletRecord> wallet = walletCache.getIfLoaded(uuid);
+            if (wallet == null) {
+                walletsNotLoaded++;
+            } else if (wallet.isPresent()) {
                 walletConnectedPlayers++;
             }
         }
 
         sender.sendMessage(plugin.formatMessage("&ePlayers Online: &7" + onlinePlayers));
         sender.sendMessage(plugin.formatMessage("&ePlayers Authenticated: &7" + authenticatedPlayers));
-        sender.sendMessage(plugin.formatMessage("&ePlayers with Wallets: &7" + walletConnectedPlayers));
+        sender.sendMessage(plugin.formatMessage("&ePlayers with Wallets: &7" + walletConnectedPlayers +
+                (walletsNotLoaded > 0 ? " &8(" + walletsNotLoaded + " still loading)" : "")));
+    }
+
+    /**
+     * Shows rolling throughput, latency percentiles, pool usage and cache hit ratios.
+     * Everything comes from in-memory metrics; nothing here touches the database.
+     *
+     * @param sender The command sender
+     */
+    private void showStats(CommandSender sender) {
+        RollingStats stats = plugin.getRollingStats();
+        MetricsRegistry metrics = plugin.getMetrics();
+
+        sender.sendMessage(plugin.formatMessage("&6=== SolanaLogin Stats (last minute) ==="));
+        sender.sendMessage(plugin.formatMessage(String.format("&eLogins: &7%.1f/min &8(%.1f failed)",
+                stats.getRatePerMinute("Logins"), stats.getRatePerMinute("Failed logins"))));
+        sender.sendMessage(plugin.formatMessage(String.format("&eRegistrations: &7%.1f/min",
+                stats.getRatePerMinute("Registrations"))));
+        sender.sendMessage(plugin.formatMessage(String.format("&eWallet connections: &7%.1f/min",
+                stats.getRatePerMinute("Wallet connections"))));
+        sender.sendMessage(plugin.formatMessage(String.format("&eDatabase queries: &7%.1f/min",
+                stats.getRatePerMinute("DB queries"))));
+
+        Map<String, long[]> windows = stats.getHistogramWindows();
+        if (windows.isEmpty()) {
+            sender.sendMessage(plugin.formatMessage("&eLatency: &7no recent activity"));
+        } else {
+            sender.sendMessage(plugin.formatMessage("&eLatency &8(p50 / p99, count)&e:"));
+            for (Map.Entry<String, long[]> entry : windows.entrySet()) {
+                long[] counts = entry.getValue();
+                sender.sendMessage(plugin.formatMessage(String.format("  &7%s: &f%s / %s &8(%d)",
+                        entry.getKey(),
+                        formatNanos(LatencyHistogram.percentile(counts, 0.5)),
+                        formatNanos(LatencyHistogram.percentile(counts, 0.99)),
+                        LatencyHistogram.total(counts))));
+            }
+        }
+
+        sender.sendMessage(plugin.formatMessage("&ePool: &7" +
+                metrics.getValue("solanalogin_db_queries_in_flight") + " queries in flight, " +
+                plugin.getServer().getScheduler().getActiveWorkers().size() + " async workers busy"));
+        sender.sendMessage(plugin.formatMessage("&ePending: &7" +
+                metrics.getValue("solanalogin_wallet_sessions_pending") + " wallet sessions, " +
+                metrics.getValue("solanalogin_kick_timers_pending") + " kick timers"));
+
+        WalletCache walletCache = plugin.getWalletCache();
+        long hits = walletCache.getHits();
+        long lookups = hits + walletCache.getMisses();
+        sender.sendMessage(plugin.formatMessage(String.format("&eWallet cache: &7%d entries, %.1f%% hit ratio",
+                walletCache.size(), lookups == 0 ? 0.0 : hits * 100.0 / lookups)));
+
+        OwnershipCache ownershipCache = plugin.getOwnershipCache();
+        if (ownershipCache != null) {
+            long ownershipHits = ownershipCache.getHits();
+            long ownershipLookups = ownershipHits + ownershipCache.getMisses();
+            sender.sendMessage(plugin.formatMessage(String.format("&eNFT ownership cache: &7%d entries, %.1f%% hit ratio",
+                    ownershipCache.size(), ownershipLookups == 0 ? 0.0 : ownershipHits * 100.0 / ownershipLookups)));
+        }
+        OwnershipSyncTask ownershipSync = plugin.getOwnershipSync();
+        if (ownershipSync != null && ownershipSync.getLastRun() > 0) {
+            sender.sendMessage(plugin.formatMessage("&eNFT ownership sync: &7" + ownershipSync.getLastChecked() +
+                    " wallets checked, " + ownershipSync.getLastChanged() + " changed at " +
+                    new SimpleDateFormat("HH:mm").format(new Date(ownershipSync.getLastRun()))));
+        }
+    }
+
+    /**
+     * Shows how much main-thread time the plugin used per tick, which handlers used it and
+     * the latest ticks that went over the budget.
+     *
+     * @param sender The command sender
+     */
+    private void showProfiler(CommandSender sender) {
+        TickProfiler profiler = plugin.getTickProfiler();
+        if (!profiler.isEnabled()) {
+            sender.sendMessage(plugin.formatMessage("&cThe tick profiler is disabled (profiler.enabled)."));
+            return;
+        }
+
+        long[] history = profiler.getTickHistory();
+        long total = 0;
+        long max = 0;
+        int overBudget = 0;
+        for (long tickNanos : history) {
+            total += tickNanos;
+            max = Math.max(max, tickNanos);
+            if (tickNanos > profiler.getBudgetNanos()) {
+                overBudget++;
+            }
+        }
+
+        sender.sendMessage(plugin.formatMessage("&6=== SolanaLogin Tick Profiler ==="));
+        sender.sendMessage(plugin.formatMessage(String.format("&eLast %d ticks: &7avg %s, max %s per tick",
+                history.length, formatNanos(history.length == 0 ? 0 : total / history.length), formatNanos(max))));
+        sender.sendMessage(plugin.formatMessage(String.format("&eOver budget (%s): &7%d ticks",
+                formatNanos(profiler.getBudgetNanos()), overBudget)));
+
+        sender.sendMessage(plugin.formatMessage("&eMain-thread time by source &8(total, calls, avg)&e:"));
+        for (Map.Entry<String, long[]> entry : profiler.getSourceTotals().entrySet()) {
+            long sourceNanos = entry.getValue()[0];
+            long calls = entry.getValue()[1];
+            sender.sendMessage(plugin.formatMessage(String.format("  &7%s: &f%s &8(%d, %s)",
+                    entry.getKey(), formatNanos(sourceNanos), calls, formatNanos(sourceNanos / calls))));
+        }
+
+        List<TickProfiler.SlowTick> slowTicks = profiler.getSlowTicks();
+        if (!slowTicks.isEmpty()) {
+            sender.sendMessage(plugin.formatMessage("&eRecent slow ticks:"));
+            SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm:ss");
+            for (TickProfiler.SlowTick slowTick : slowTicks) {
+                sender.sendMessage(plugin.formatMessage(String.format("  &7%s: &f%s &8(%s in %s)",
+                        timeFormat.format(new Date(slowTick.getTimestamp())),
+                        formatNanos(slowTick.getTotalNanos()),
+                        formatNanos(slowTick.getWorstSourceNanos()), slowTick.getWorstSource())));
+            }
+        }
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos >= 1_000_000_000L) {
+            return String.format("%.2fs", nanos / 1_000_000_000.0);
+        }
+        if (nanos >= 1_000_000L) {
+            return String.format("%.1fms", nanos / 1_000_000.0);
+        }
+        return String.format("%dus", nanos / 1_000L);
     }
 }
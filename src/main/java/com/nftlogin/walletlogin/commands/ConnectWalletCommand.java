@@ -1,6 +1,11 @@
 package com.nftlogin.walletlogin.commands;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.events.WalletLinkedEvent;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.session.LoginToken;
+import com.nftlogin.walletlogin.session.SessionManager;
 import com.nftlogin.walletlogin.utils.WalletValidator;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.ComponentBuilder;
@@ -19,14 +24,31 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 
 public class ConnectWalletCommand implements CommandExecutor {
 
     private final SolanaLogin plugin;
+    private final Counter connectionsStarted;
+    private final Counter successfulConnections;
+    private final Counter failedConnections;
+    private final Counter timedOutConnections;
+    private final Counter pendingConnections;
 
     public ConnectWalletCommand(SolanaLogin plugin) {
         this.plugin = plugin;
+        String help = "Wallet connection attempts by result";
+        this.connectionsStarted = plugin.getMetrics().counter("solanalogin_wallet_connections_total", help,
+                "result", "started");
+        this.successfulConnections = plugin.getMetrics().counter("solanalogin_wallet_connections_total", help,
+                "result", "success");
+        this.failedConnections = plugin.getMetrics().counter("solanalogin_wallet_connections_total", help,
+                "result", "failure");
+        this.timedOutConnections = plugin.getMetrics().counter("solanalogin_wallet_connections_total", help,
+                "result", "timeout");
+        this.pendingConnections = plugin.getMetrics().upDownCounter("solanalogin_wallet_sessions_pending",
+                "Wallet connections waiting for the web server");
     }
 
     @Override
@@ -77,16 +99,17 @@ public class ConnectWalletCommand implements CommandExecutor {
         }
 
         // Generate authentication data
-        String[] authData = generateAuthData(playerUuid);
-        String sessionId = authData[0];
-        String webServerUrl = authData[1];
-        String loginUrl = authData[2];
+        LoginToken token = generateLoginToken(playerUuid);
+        String webServerUrl = plugin.getConfig().getString("web-server.url", "http://localhost:3000");
+        String loginUrl = webServerUrl + "/login?session=" + token.getToken() + "&nonce=" + token.getNonce()
+                + "&player=" + token.getPlayerName();
 
         // Send login instructions to player
         sendLoginInstructions(player, loginUrl);
+        connectionsStarted.increment();
 
         // Start checking for wallet connection
-        startConnectionCheck(player, playerUuid, sessionId, webServerUrl);
+        startConnectionCheck(player, playerUuid, token, webServerUrl);
 
         return true;
     }
@@ -110,7 +133,7 @@ public class ConnectWalletCommand implements CommandExecutor {
         }
 
         // Check if player already has a wallet connected
-        Optional<String> existingWallet = plugin.getDatabaseManager().getWalletAddress(playerUuid);
+        Optional<WalletRecord> existingWallet = plugin.getWalletCache().get(playerUuid);
         if (existingWallet.isPresent()) {
             String message = plugin.getConfig().getString("messages.already-connected",
                     "You already have a wallet connected. Use /disconnectwallet first.");
@@ -122,32 +145,22 @@ public class ConnectWalletCommand implements CommandExecutor {
     }
 
     /**
-     * Generate authentication data for QR code login.
+     * Generate a signed login token for QR code login.
+     *
+     * The token carries the player, a nonce and its expiry, so the web server checks it with the
+     * shared key instead of either side storing a session.
      *
      * @param playerUuid The player's UUID
-     * @return Array containing [sessionId, webServerUrl, loginUrl]
+     * @return The login token
      */
-    private String[] generateAuthData(UUID playerUuid) {
+    private LoginToken generateLoginToken(UUID playerUuid) {
         // Get player name
         String playerName = plugin.getServer().getOfflinePlayer(playerUuid).getName();
         if (playerName == null) {
             playerName = playerUuid.toString();
         }
 
-        // Generate a nonce for secure authentication
-        String nonce = plugin.getSessionManager().generateAuthNonce(playerUuid);
-
-        // Generate a session ID
-        String sessionId = UUID.randomUUID().toString();
-        plugin.getSessionManager().storeAuthSession(playerUuid, sessionId);
-
-        // Get web server URL from config
-        String webServerUrl = plugin.getConfig().getString("web-server.url", "http://localhost:3000");
-
-        // Create login URL
-        String loginUrl = webServerUrl + "/login?session=" + sessionId + "&nonce=" + nonce + "&player=" + playerName;
-
-        return new String[] {sessionId, webServerUrl, loginUrl};
+        return plugin.getSessionManager().issueLoginToken(playerUuid, playerName);
     }
 
     /**
@@ -186,28 +199,49 @@ public class ConnectWalletCommand implements CommandExecutor {
      *
      * @param player The player
      * @param playerUuid The player's UUID
-     * @param sessionId The session ID
+     * @param token The login token
      * @param webServerUrl The web server URL
      */
-    private void startConnectionCheck(Player player, UUID playerUuid, String sessionId, String webServerUrl) {
+    private void startConnectionCheck(Player player, UUID playerUuid, LoginToken token, String webServerUrl) {
         int checkInterval = plugin.getConfig().getInt("web-server.check-interval", 5);
+        pendingConnections.increment();
         new BukkitRunnable() {
             private int attempts = 0;
             private final int maxAttempts = plugin.getConfig().getInt("web-server.qr-code-timeout", 300) / checkInterval;
+            private final AtomicBoolean checking = new AtomicBoolean();
+            private final AtomicBoolean pending = new AtomicBoolean(true);
 
             @Override
-            public void run() {
-                attempts++;
+            public synchronized void cancel() {
+                if (pending.compareAndSet(true, false)) {
+                    pendingConnections.decrement();
+                }
+                super.cancel();
+            }
 
+            @Override
+            public void run() {
                 // Check if player is still online
                 if (!player.isOnline()) {
                     this.cancel();
                     return;
                 }
 
-                checkWalletConnection(player, playerUuid, sessionId, webServerUrl, attempts, maxAttempts, this);
+                // The timer only hands the HTTP request to the blocking executor, skipping a
+                // round while the previous request is still waiting for the web server
+                if (!checking.compareAndSet(false, true)) {
+                    return;
+                }
+                int attempt = ++attempts;
+                plugin.getBlockingExecutor().execute(() -> {
+                    try {
+                        checkWalletConnection(player, playerUuid, token, webServerUrl, attempt, maxAttempts, this);
+                    } finally {
+                        checking.set(false);
+                    }
+                });
             }
-        }.runTaskTimerAsynchronously(plugin, checkInterval * 20L, checkInterval * 20L); // Convert seconds to ticks
+        }.runTaskTimer(plugin, checkInterval * 20L, checkInterval * 20L); // Convert seconds to ticks
     }
 
     /**
@@ -215,35 +249,35 @@ public class ConnectWalletCommand implements CommandExecutor {
      *
      * @param player The player
      * @param playerUuid The player's UUID
-     * @param sessionId The session ID
+     * @param token The login token
      * @param webServerUrl The web server URL
      * @param attempts The number of attempts so far
      * @param maxAttempts The maximum number of attempts
      * @param task The BukkitRunnable task
      */
-    private void checkWalletConnection(Player player, UUID playerUuid, String sessionId, String webServerUrl,
+    private void checkWalletConnection(Player player, UUID playerUuid, LoginToken token, String webServerUrl,
                                       int attempts, int maxAttempts, BukkitRunnable task) {
         try {
             // Check if player already has a wallet connected (might have been connected manually)
-            Optional<String> wallet = plugin.getDatabaseManager().getWalletAddress(playerUuid);
+            Optional<WalletRecord> wallet = plugin.getWalletCache().get(playerUuid);
             if (wallet.isPresent()) {
                 task.cancel();
                 return;
             }
 
             // Check web server for connection status
-            String responseStr = getConnectionStatus(sessionId, webServerUrl);
+            String responseStr = getConnectionStatus(token, webServerUrl);
 
             if (responseStr.contains("\"connected\":true")) {
-                handleSuccessfulConnection(player, playerUuid, responseStr, task);
+                handleSuccessfulConnection(player, playerUuid, token, responseStr, task);
             } else if (attempts >= maxAttempts) {
-                handleConnectionTimeout(player, playerUuid, task);
+                handleConnectionTimeout(player, task);
             }
         } catch (Exception e) {
             plugin.getLogger().log(Level.WARNING, "Error checking wallet connection status", e);
 
             if (attempts >= maxAttempts) {
-                handleConnectionTimeout(player, playerUuid, task);
+                handleConnectionTimeout(player, task);
             }
         }
     }
@@ -251,13 +285,13 @@ public class ConnectWalletCommand implements CommandExecutor {
     /**
      * Get the connection status from the web server.
      *
-     * @param sessionId The session ID
+     * @param token The login token
      * @param webServerUrl The web server URL
      * @return The response string
      * @throws IOException If an I/O error occurs
      */
-    private String getConnectionStatus(String sessionId, String webServerUrl) throws IOException {
-        URL url = new URL(webServerUrl + "/status?session=" + sessionId);
+    private String getConnectionStatus(LoginToken token, String webServerUrl) throws IOException {
+        URL url = new URL(webServerUrl + "/status?session=" + token.getToken());
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         connection.setRequestMethod("GET");
 
@@ -279,29 +313,51 @@ public class ConnectWalletCommand implements CommandExecutor {
      *
      * @param player The player
      * @param playerUuid The player's UUID
+     * @param token The login token, whose nonce makes repeated status responses harmless
      * @param responseStr The response string
      * @param task The BukkitRunnable task
      */
-    private void handleSuccessfulConnection(Player player, UUID playerUuid, String responseStr, BukkitRunnable task) {
+    private void handleSuccessfulConnection(Player player, UUID playerUuid, LoginToken token, String responseStr,
+                                            BukkitRunnable task) {
         // Extract wallet address
-        int startIndex = responseStr.indexOf("\"walletAddress\":") + 17;
-        int endIndex = responseStr.indexOf("\"", startIndex);
-        String walletAddress = responseStr.substring(startIndex, endIndex);
+        String walletAddress = getStringField(responseStr, "walletAddress");
+
+        // Only trust a wallet the web server signed with the shared key for this login
+        if (walletAddress == null || !plugin.getSessionManager().verifyWalletProof(token, walletAddress,
+                getStringField(responseStr, "proof"))) {
+            failedConnections.increment();
+            plugin.getLogger().warning("Web server reported a wallet for " + player.getName()
+                    + " without a valid proof; check that it uses the same token secret");
+            player.sendMessage(plugin.formatMessage("&cFailed to connect your wallet. Please try again later."));
+            task.cancel();
+            return;
+        }
 
         // Connect wallet in database
         String walletType = WalletValidator.getWalletType(walletAddress);
-        boolean success = plugin.getDatabaseManager().connectWallet(playerUuid, walletAddress, walletType);
+        Optional<UUID> owner = plugin.getDatabaseManager().getWalletOwner(walletAddress);
+        if (owner.isPresent() && !owner.get().equals(playerUuid)) {
+            failedConnections.increment();
+            String message = plugin.getConfig().getString("messages.wallet-already-linked",
+                    "&cThat wallet is already linked to another account.");
+            player.sendMessage(plugin.formatMessage(message));
+            task.cancel();
+            return;
+        }
 
-        if (success) {
-            // Mark wallet as verified since it was connected through direct wallet authentication
-            plugin.getDatabaseManager().setWalletVerified(playerUuid, true);
+        // Verified since it was connected through direct wallet authentication
+        boolean success = plugin.getDatabaseManager().linkVerifiedWallet(playerUuid, walletAddress, walletType,
+                token.getNonce());
 
-            // Update session
-            plugin.getSessionManager().getSession(playerUuid).setWalletVerified(true);
+        if (success) {
+            successfulConnections.increment();
+            WalletRecord wallet = new WalletRecord(walletAddress, walletType, true);
+            plugin.getWalletCache().put(playerUuid, wallet);
 
-            String successMessage = plugin.getConfig().getString("messages.wallet-connected",
-                    "Your Solana wallet has been successfully connected and verified!");
-            player.sendMessage(plugin.formatMessage(successMessage));
+            // This runs on a background thread, and the player may have left since the check
+            if (plugin.isEnabled()) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> notifyLinked(player, playerUuid, wallet));
+            }
 
             // Log the wallet connection
             if (plugin.getLogger().isLoggable(Level.INFO)) {
@@ -309,24 +365,64 @@ public class ConnectWalletCommand implements CommandExecutor {
                         player.getName(), walletType, walletAddress));
             }
         } else {
+            failedConnections.increment();
             player.sendMessage(plugin.formatMessage("&cFailed to connect your wallet. Please try again later."));
         }
 
-        // Clean up
-        plugin.getSessionManager().removeAuthSession(playerUuid);
         task.cancel();
     }
 
     /**
-     * Handle a connection timeout.
+     * Update the session of a player who linked a wallet and tell them, on the main thread.
      *
      * @param player The player
      * @param playerUuid The player's UUID
+     * @param wallet The linked wallet
+     */
+    private void notifyLinked(Player player, UUID playerUuid, WalletRecord wallet) {
+        if (!player.isOnline()) {
+            return;
+        }
+
+        // Update session
+        SessionManager.Session session = plugin.getSessionManager().getSession(playerUuid);
+        if (session != null) {
+            session.setWalletVerified(true);
+        }
+
+        String successMessage = plugin.getConfig().getString("messages.wallet-connected",
+                "Your Solana wallet has been successfully connected and verified!");
+        player.sendMessage(plugin.formatMessage(successMessage));
+        plugin.callEvent(new WalletLinkedEvent(player, wallet));
+    }
+
+    /**
+     * Get a string field from the web server's JSON response.
+     *
+     * @param response The response string
+     * @param field The field name
+     * @return The value, or null if the field is missing
+     */
+    private static String getStringField(String response, String field) {
+        String key = "\"" + field + "\":\"";
+        int startIndex = response.indexOf(key);
+        if (startIndex < 0) {
+            return null;
+        }
+        startIndex += key.length();
+        int endIndex = response.indexOf('"', startIndex);
+        return endIndex < 0 ? null : response.substring(startIndex, endIndex);
+    }
+
+    /**
+     * Handle a connection timeout.
+     *
+     * @param player The player
      * @param task The BukkitRunnable task
      */
-    private void handleConnectionTimeout(Player player, UUID playerUuid, BukkitRunnable task) {
+    private void handleConnectionTimeout(Player player, BukkitRunnable task) {
+        timedOutConnections.increment();
         player.sendMessage(plugin.formatMessage("&cWallet connection timed out. Please try again."));
-        plugin.getSessionManager().removeAuthSession(playerUuid);
         task.cancel();
     }
 }
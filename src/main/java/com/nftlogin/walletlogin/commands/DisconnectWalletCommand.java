@@ -1,6 +1,8 @@
 package com.nftlogin.walletlogin.commands;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.events.WalletUnlinkedEvent;
 import net.kyori.adventure.text.Component;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -49,7 +51,7 @@ public class DisconnectWalletCommand implements CommandExecutor {
         }
 
         // Check if player has a wallet connected
-        Optional<String> existingWallet = plugin.getDatabaseManager().getWalletAddress(playerUuid);
+        Optional<WalletRecord> existingWallet = plugin.getWalletCache().get(playerUuid);
         if (!existingWallet.isPresent()) {
             String message = plugin.getConfig().getString("messages.not-connected",
                     "You don't have a wallet connected.");
@@ -60,11 +62,14 @@ public class DisconnectWalletCommand implements CommandExecutor {
         // Disconnect the wallet
         boolean success = plugin.getDatabaseManager().disconnectWallet(playerUuid);
         if (success) {
+            plugin.getWalletCache().setNoWallet(playerUuid);
+
             // Note: removeVerificationCode is deprecated but kept for backward compatibility
 
             String message = plugin.getConfig().getString("messages.wallet-disconnected",
                     "Your Solana wallet has been disconnected.");
             player.sendMessage(plugin.formatMessage(message));
+            plugin.callEvent(new WalletUnlinkedEvent(player, existingWallet.get()));
 
             // Log the wallet disconnection
             if (plugin.getLogger().isLoggable(Level.INFO)) {
@@ -95,8 +100,10 @@ public class DisconnectWalletCommand implements CommandExecutor {
             player.sendMessage(plugin.formatMessage(String.format("&cYou have %d seconds to connect a wallet or you will be kicked.", timeout)));
 
             plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
-                // Check if the player is still online and hasn't connected a wallet
-                if (player.isOnline() && !plugin.getDatabaseManager().hasWalletConnected(playerUuid)) {
+                // Check if the player is still online and hasn't connected a wallet; connecting
+                // one updates the wallet cache
+                Optional<WalletRecord> current = plugin.getWalletCache().getIfLoaded(playerUuid);
+                if (player.isOnline() && (current == null || !current.isPresent())) {
                     // Using the modern kick API with Component
                     player.kick(Component.text(plugin.formatMessage(requiredMessage)));
                 }
@@ -1,19 +1,31 @@
 package com.nftlogin.walletlogin.commands;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.events.PlayerAuthenticatedEvent;
+import com.nftlogin.walletlogin.metrics.Counter;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 public class LoginCommand implements CommandExecutor {
 
     private final SolanaLogin plugin;
+    private final Counter successfulLogins;
+    private final Counter failedLogins;
+    private final Set<UUID> pendingLogins = ConcurrentHashMap.newKeySet();
 
     public LoginCommand(SolanaLogin plugin) {
         this.plugin = plugin;
+        this.successfulLogins = plugin.getMetrics().counter("solanalogin_logins_total",
+                "Login attempts by result", "result", "success");
+        this.failedLogins = plugin.getMetrics().counter("solanalogin_logins_total",
+                "Login attempts by result", "result", "failure");
     }
 
     @Override
@@ -34,14 +46,6 @@ public class LoginCommand implements CommandExecutor {
             return true;
         }
 
-        // Check if player is registered
-        if (!plugin.getDatabaseManager().isPlayerRegistered(player.getUniqueId())) {
-            String message = plugin.getConfig().getString("messages.register-required",
-                    "Please register with /register <password> <confirmPassword>");
-            player.sendMessage(plugin.formatMessage(message));
-            return true;
-        }
-
         // Check if the command has the correct number of arguments
         if (args.length != 1) {
             player.sendMessage(plugin.formatMessage("&cUsage: /login <password>"));
@@ -56,12 +60,67 @@ public class LoginCommand implements CommandExecutor {
             return true;
         }
 
+        // One password check at a time per player
+        UUID uuid = player.getUniqueId();
+        if (!pendingLogins.add(uuid)) {
+            return true;
+        }
+
+        // The database lookups and password hashing block, so they run in the background
         String password = args[0];
+        String ip = player.getAddress().getAddress().getHostAddress();
+        plugin.getBlockingExecutor().supply(() -> authenticate(uuid, password, ip), (result, failure) -> {
+            try {
+                if (player.isOnline()) {
+                    handleResult(player, failure == null ? result : Result.ERROR, ip);
+                }
+            } finally {
+                pendingLogins.remove(uuid);
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Checks a password and records the login, off the main thread.
+     */
+    private Result authenticate(UUID uuid, String password, String ip) {
+        if (!plugin.getDatabaseManager().isPlayerRegistered(uuid)
+                && !plugin.getDatabaseManager().isPlayerRegisteredInDatabase(uuid)) {
+            return Result.NOT_REGISTERED;
+        }
+        if (!plugin.getDatabaseManager().authenticatePlayer(uuid, password)) {
+            return Result.WRONG_PASSWORD;
+        }
+
+        // Update last login
+        plugin.getDatabaseManager().updateLastLogin(uuid, ip);
+        plugin.getDatabaseManager().saveSession(uuid, ip);
+        return Result.SUCCESS;
+    }
 
-        // Authenticate the player
-        boolean success = plugin.getDatabaseManager().authenticatePlayer(player.getUniqueId(), password);
+    /**
+     * Updates the player's session and tells them the result, on the main thread.
+     */
+    private void handleResult(Player player, Result result, String ip) {
+        if (result == Result.ERROR) {
+            String message = plugin.getConfig().getString("messages.login-error",
+                    "Your password could not be checked right now. Please try again.");
+            player.sendMessage(plugin.formatMessage(message));
+            return;
+        }
+
+        if (result == Result.NOT_REGISTERED) {
+            String message = plugin.getConfig().getString("messages.register-required",
+                    "Please register with /register <password> <confirmPassword>");
+            player.sendMessage(plugin.formatMessage(message));
+            return;
+        }
+
+        if (result == Result.SUCCESS) {
+            successfulLogins.increment();
 
-        if (success) {
             // Reset login attempts
             plugin.getSessionManager().resetLoginAttempts(player.getUniqueId());
 
@@ -71,20 +130,18 @@ public class LoginCommand implements CommandExecutor {
             }
             plugin.getSessionManager().getSession(player.getUniqueId()).setAuthenticated(true);
 
-            // Update last login
-            String ip = player.getAddress().getAddress().getHostAddress();
-            plugin.getDatabaseManager().updateLastLogin(player.getUniqueId(), ip);
-            plugin.getDatabaseManager().saveSession(player.getUniqueId(), ip);
-
             String message = plugin.getConfig().getString("messages.login-success",
                     "You have successfully logged in!");
             player.sendMessage(plugin.formatMessage(message));
+            plugin.callEvent(new PlayerAuthenticatedEvent(player, PlayerAuthenticatedEvent.Method.LOGIN));
 
             // Log login
             if (plugin.getLogger().isLoggable(Level.INFO)) {
                 plugin.getLogger().info(String.format("Player %s logged in from IP: %s", player.getName(), ip));
             }
         } else {
+            failedLogins.increment();
+
             // Record failed login attempt
             int attemptsLeft = plugin.getSessionManager().recordFailedLoginAttempt(player.getUniqueId());
 
@@ -96,10 +153,15 @@ public class LoginCommand implements CommandExecutor {
             // Log failed login attempt
             if (plugin.getLogger().isLoggable(Level.INFO)) {
                 plugin.getLogger().info(String.format("Failed login attempt for player %s from IP: %s (Attempts left: %d)",
-                        player.getName(), player.getAddress().getAddress().getHostAddress(), attemptsLeft));
+                        player.getName(), ip, attemptsLeft));
             }
         }
+    }
 
-        return true;
+    private enum Result {
+        SUCCESS,
+        WRONG_PASSWORD,
+        NOT_REGISTERED,
+        ERROR
     }
 }
@@ -1,6 +1,7 @@
 package com.nftlogin.walletlogin.commands;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.events.PlayerLoggedOutEvent;
 import net.kyori.adventure.text.Component;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -47,6 +48,7 @@ public class LogoutCommand implements CommandExecutor {
         plugin.getDatabaseManager().removeSession(player.getUniqueId());
 
         player.sendMessage(plugin.formatMessage("&aYou have been logged out."));
+        plugin.callEvent(new PlayerLoggedOutEvent(player));
 
         // If login is required, kick the player
         if (plugin.getConfig().getBoolean("settings.require-login", true)) {
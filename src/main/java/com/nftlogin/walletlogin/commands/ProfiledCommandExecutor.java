@@ -0,0 +1,32 @@
+package com.nftlogin.walletlogin.commands;
+
+import com.nftlogin.walletlogin.metrics.TickProfiler;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+/**
+ * Wraps a command executor and reports its main-thread time to the {@link TickProfiler}.
+ */
+public class ProfiledCommandExecutor implements CommandExecutor {
+
+    private final CommandExecutor delegate;
+    private final TickProfiler profiler;
+    private final String source;
+
+    public ProfiledCommandExecutor(CommandExecutor delegate, TickProfiler profiler, String commandName) {
+        this.delegate = delegate;
+        this.profiler = profiler;
+        this.source = "/" + commandName;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        long start = System.nanoTime();
+        try {
+            return delegate.onCommand(sender, command, label, args);
+        } finally {
+            profiler.record(source, start);
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package com.nftlogin.walletlogin.commands;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.events.PlayerAuthenticatedEvent;
+import com.nftlogin.walletlogin.metrics.Counter;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 public class RegisterCommand implements CommandExecutor {
 
     private final SolanaLogin plugin;
+    private final Counter successfulRegistrations;
+    private final Counter failedRegistrations;
+    private final Set<UUID> pendingRegistrations = ConcurrentHashMap.newKeySet();
 
     public RegisterCommand(SolanaLogin plugin) {
         this.plugin = plugin;
+        this.successfulRegistrations = plugin.getMetrics().counter("solanalogin_registrations_total",
+                "Registrations by result", "result", "success");
+        this.failedRegistrations = plugin.getMetrics().counter("solanalogin_registrations_total",
+                "Registrations by result", "result", "failure");
     }
 
     @Override
@@ -33,11 +45,10 @@ public class RegisterCommand implements CommandExecutor {
             return true;
         }
 
-        // Check if player is already registered
+        // Check if player is already registered; registrations through another server are
+        // caught by the write, which never replaces a password
         if (plugin.getDatabaseManager().isPlayerRegistered(player.getUniqueId())) {
-            String message = plugin.getConfig().getString("messages.already-registered",
-                    "You are already registered!");
-            player.sendMessage(plugin.formatMessage(message));
+            sendAlreadyRegistered(player);
             return true;
         }
 
@@ -89,10 +100,54 @@ public class RegisterCommand implements CommandExecutor {
             return true;
         }
 
-        // Register the player
-        boolean success = plugin.getDatabaseManager().registerPlayer(player, password);
+        // One registration at a time per player
+        UUID uuid = player.getUniqueId();
+        if (!pendingRegistrations.add(uuid)) {
+            return true;
+        }
+
+        // Password hashing and the database writes block, so they run in the background
+        plugin.getBlockingExecutor().supply(() -> register(player, password, ip), (result, failure) -> {
+            try {
+                if (player.isOnline()) {
+                    handleResult(player, failure == null ? result : Result.FAILED, ip);
+                }
+            } finally {
+                pendingRegistrations.remove(uuid);
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Registers a player and records the login, off the main thread.
+     */
+    private Result register(Player player, String password, String ip) {
+        UUID uuid = player.getUniqueId();
+        if (!plugin.getDatabaseManager().registerPlayer(player, password)) {
+            // Refused because the player registered through another server, or failed
+            return plugin.getDatabaseManager().isPlayerRegisteredInDatabase(uuid)
+                    ? Result.ALREADY_REGISTERED : Result.FAILED;
+        }
+
+        // Update last login
+        plugin.getDatabaseManager().updateLastLogin(uuid, ip);
+        return Result.SUCCESS;
+    }
+
+    /**
+     * Creates the player's session and tells them the result, on the main thread.
+     */
+    private void handleResult(Player player, Result result, String ip) {
+        if (result == Result.ALREADY_REGISTERED) {
+            sendAlreadyRegistered(player);
+            return;
+        }
+
+        if (result == Result.SUCCESS) {
+            successfulRegistrations.increment();
 
-        if (success) {
             // Record IP registration
             plugin.getSessionManager().recordIpRegistration(ip);
 
@@ -100,23 +155,33 @@ public class RegisterCommand implements CommandExecutor {
             plugin.getSessionManager().createSession(player);
             plugin.getSessionManager().getSession(player.getUniqueId()).setAuthenticated(true);
 
-            // Update last login
-            plugin.getDatabaseManager().updateLastLogin(player.getUniqueId(), ip);
-
             String message = plugin.getConfig().getString("messages.register-success",
                     "You have successfully registered! Please login with /login <password>");
             player.sendMessage(plugin.formatMessage(message));
+            plugin.callEvent(new PlayerAuthenticatedEvent(player, PlayerAuthenticatedEvent.Method.REGISTRATION));
 
             // Log registration
             if (plugin.getLogger().isLoggable(Level.INFO)) {
                 plugin.getLogger().info(String.format("Player %s registered from IP: %s", player.getName(), ip));
             }
         } else {
+            failedRegistrations.increment();
+
             String message = plugin.getConfig().getString("messages.register-fail",
                     "Registration failed. Please try again.");
             player.sendMessage(plugin.formatMessage(message));
         }
+    }
 
-        return true;
+    private void sendAlreadyRegistered(Player player) {
+        String message = plugin.getConfig().getString("messages.already-registered",
+                "You are already registered!");
+        player.sendMessage(plugin.formatMessage(message));
+    }
+
+    private enum Result {
+        SUCCESS,
+        ALREADY_REGISTERED,
+        FAILED
     }
 }
@@ -1,6 +1,7 @@
 package com.nftlogin.walletlogin.commands;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.WalletRecord;
 import com.nftlogin.walletlogin.utils.WalletValidator;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
@@ -47,10 +48,10 @@ public class WalletInfoCommand implements CommandExecutor {
             return true;
         }
 
-        // Get player's wallet address
-        Optional<String> walletAddress = plugin.getDatabaseManager().getWalletAddress(playerUuid);
+        // Get player's wallet address, type and verification status
+        Optional<WalletRecord> walletRecord = plugin.getWalletCache().get(playerUuid);
 
-        if (!walletAddress.isPresent()) {
+        if (!walletRecord.isPresent()) {
             String message = plugin.getConfig().getString("messages.not-connected",
                     "You don't have a wallet connected.");
             player.sendMessage(plugin.formatMessage(message));
@@ -58,14 +59,10 @@ public class WalletInfoCommand implements CommandExecutor {
         }
 
         // Display wallet information
-        String wallet = walletAddress.get();
-
-        // Get wallet type
-        Optional<String> walletTypeOpt = plugin.getDatabaseManager().getWalletType(playerUuid);
-        String walletType = walletTypeOpt.orElse(WalletValidator.getWalletType(wallet));
-
-        // Check if wallet is verified
-        boolean isVerified = plugin.getDatabaseManager().isWalletVerified(playerUuid);
+        String wallet = walletRecord.get().getAddress();
+        String walletType = walletRecord.get().getType() != null
+                ? walletRecord.get().getType() : WalletValidator.getWalletType(wallet);
+        boolean isVerified = walletRecord.get().isVerified();
 
         String message = plugin.getConfig().getString("messages.wallet-info",
                 "Your connected Solana wallet is: %wallet%")
@@ -0,0 +1,52 @@
+package com.nftlogin.walletlogin.database;
+
+import java.util.UUID;
+
+/**
+ * Immutable account as moved by bulk imports and exports: a player row and their wallet.
+ */
+public class AccountRecord {
+
+    private final UUID uuid;
+    private final String username;
+    private final String passwordHash;
+    private final String ip;
+    private final WalletRecord wallet;
+
+    /**
+     * Creates an account.
+     *
+     * @param uuid The player's UUID
+     * @param username The player's name
+     * @param passwordHash The stored hash in any format {@code PasswordUtils} recognises, or null
+     * @param ip The last known IP, or null
+     * @param wallet The connected wallet, or null
+     */
+    public AccountRecord(UUID uuid, String username, String passwordHash, String ip, WalletRecord wallet) {
+        this.uuid = uuid;
+        this.username = username;
+        this.passwordHash = passwordHash;
+        this.ip = ip;
+        this.wallet = wallet;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPasswordHash() {
+        return passwordHash;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public WalletRecord getWallet() {
+        return wallet;
+    }
+}
@@ -0,0 +1,18 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of an export, written one account at a time.
+ */
+public interface AccountSink extends Closeable {
+
+    /**
+     * Writes an account.
+     *
+     * @param account The account
+     * @throws IOException If the output can't be written
+     */
+    void write(AccountRecord account) throws IOException;
+}
@@ -0,0 +1,20 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Stream of accounts read one at a time, so an import never holds the whole input in memory.
+ */
+public interface AccountSource extends Closeable {
+
+    /**
+     * Reads the next account.
+     *
+     * @return The account, or null at the end of the input
+     * @throws IOException If a file can't be read or holds a malformed account
+     * @throws SQLException If a database can't be read
+     */
+    AccountRecord next() throws IOException, SQLException;
+}
@@ -0,0 +1,208 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of binary records in a memory-mapped file.
+ *
+ * Each record is stored as its length, a CRC32 of its payload and the payload. The length is
+ * written last, so a record interrupted by a crash reads as the end of the log; a record
+ * whose checksum doesn't match is treated the same way. Appends are plain memory writes;
+ * they reach the disk when the OS flushes the mapping or {@link #force()} is called.
+ *
+ * Not thread-safe: callers synchronize.
+ */
+public class AppendLog implements Closeable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    private final Path path;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int records;
+    private boolean dirty;
+
+    public AppendLog(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Maps the file, creating it if needed, and reads every intact record. A rewrite that was
+     * interrupted after its snapshot was complete is finished first.
+     *
+     * @param reader Called with each record's payload, in the order they were appended
+     * @throws IOException If the file can't be opened
+     */
+    public void open(Consumer<ByteBuffer> reader) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path snapshot = sibling(".snapshot");
+        if (Files.exists(snapshot)) {
+            Files.move(snapshot, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        load(reader);
+    }
+
+    private void load(Consumer<ByteBuffer> reader) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        map(Math.max(INITIAL_SIZE, channel.size()));
+
+        position = 0;
+        records = 0;
+        CRC32 crc = new CRC32();
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + HEADER_SIZE);
+            view.get(payload);
+            crc.reset();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+
+            reader.accept(ByteBuffer.wrap(payload));
+            position += HEADER_SIZE + length;
+            records++;
+        }
+
+        // Clear a torn record so later appends can't be mistaken for its continuation
+        if (position + 4 <= buffer.capacity()) {
+            buffer.putInt(position, 0);
+        }
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param payload The record
+     * @throws IOException If the file can't be grown
+     */
+    public void append(byte[] payload) throws IOException {
+        int end = position + HEADER_SIZE + payload.length;
+        if (end + 4 > buffer.capacity()) {
+            map(Math.max((long) buffer.capacity() * 2, end + 4L));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        ByteBuffer view = buffer.duplicate();
+        view.position(position + HEADER_SIZE);
+        view.put(payload);
+        buffer.putInt(end, 0);
+        buffer.putInt(position, payload.length);
+
+        position = end;
+        records++;
+        dirty = true;
+    }
+
+    /**
+     * Flushes appended records to the disk.
+     */
+    public void force() {
+        if (dirty) {
+            dirty = false;
+            buffer.force();
+        }
+    }
+
+    /**
+     * Replaces the log with the given records, for example a snapshot of the current state.
+     * The new file is written next to the old one and moved over it. Where the old file can't
+     * be replaced while it is mapped, as on Windows, the snapshot is copied into the mapping
+     * instead; {@link #open} finishes the copy if it is interrupted.
+     *
+     * @param snapshot The records of the new log
+     * @throws IOException If the new log can't be written
+     */
+    public void rewrite(List<byte[]> snapshot) throws IOException {
+        Path temp = sibling(".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            for (byte[] payload : snapshot) {
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+                record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        Path complete = sibling(".snapshot");
+        Files.move(temp, complete, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        close();
+        try {
+            Files.move(complete, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The old mapping is only released once it is garbage collected
+            load(payload -> { });
+            position = 0;
+            records = 0;
+            buffer.putInt(0, 0);
+            for (byte[] payload : snapshot) {
+                append(payload);
+            }
+            dirty = true;
+            force();
+            Files.delete(complete);
+            return;
+        }
+        load(payload -> { });
+    }
+
+    public int getRecordCount() {
+        return records;
+    }
+
+    public int getSize() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    private Path sibling(String suffix) {
+        return path.resolveSibling(path.getFileName() + suffix);
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Log " + path + " is too large to map");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+}
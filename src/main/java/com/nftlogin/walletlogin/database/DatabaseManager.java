@@ -1,137 +1,325 @@
 package com.nftlogin.walletlogin.database;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.metrics.LatencyHistogram;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
 import com.nftlogin.walletlogin.utils.PasswordUtils;
 
+import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
-import java.sql.*;
+import java.io.File;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 
+/**
+ * Entry point for everything the plugin stores.
+ *
+ * Rows are kept by a {@link StorageBackend} chosen with {@code database.type}; MySQL is
+ * wrapped in a {@link JournaledStorageBackend} unless {@code database.outage-journal.enabled}
+ * is off. This class hashes and verifies passwords, keeps the {@link WalletIndex} of linked
+ * wallets and the {@link RegisteredIndex} of registered players, and logs storage failures so
+ * callers only see false or empty results.
+ */
 public class DatabaseManager {
 
-    // SQL constants
-    private static final String CREATE_TABLE_IF_NOT_EXISTS = "CREATE TABLE IF NOT EXISTS ";
-    private static final String INSERT_INTO = "INSERT INTO ";
-    private static final String UPDATE = "UPDATE ";
-    private static final String DELETE_FROM = "DELETE FROM ";
-    private static final String SELECT = "SELECT ";
-    private static final String WALLETS_WHERE_UUID = "wallets WHERE uuid = ?";
-    private static final String PLAYERS_WHERE_UUID = "players WHERE uuid = ?";
     private static final String DEFAULT_PASSWORD = "password";
-    private static final String PASSWORD_COLUMN = "password";
 
     private final SolanaLogin plugin;
-    private Connection connection;
-    private final String host;
-    private final int port;
-    private final String database;
-    private final String username;
-    private final String password;
-    private final String tablePrefix;
+    private final StorageBackend backend;
+    private final LatencyHistogram hashTimer;
+    private final LatencyHistogram verifyTimer;
+    private volatile WalletIndex walletIndex = new WalletIndex();
+    private final Object walletChangesLock = new Object();
+    private Map<UUID, String> walletChanges;
+    private volatile RegisteredIndex registeredIndex;
+    private volatile RegisteredIndex loadingIndex;
 
     public DatabaseManager(SolanaLogin plugin) {
         this.plugin = plugin;
-        this.host = plugin.getConfig().getString("database.host", "localhost");
-        this.port = plugin.getConfig().getInt("database.port", 3306);
-        this.database = plugin.getConfig().getString("database.database", "minecraft");
-        this.username = plugin.getConfig().getString("database.username", "root");
-        this.password = plugin.getConfig().getString("database.password", DEFAULT_PASSWORD);
-        this.tablePrefix = plugin.getConfig().getString("database.table-prefix", "walletlogin_");
+        this.backend = createBackend(plugin);
+        MetricsRegistry metrics = plugin.getMetrics();
+        this.hashTimer = metrics.histogram("solanalogin_password_hash_seconds",
+                "Time spent in PBKDF2 password hashing", "operation", "hash");
+        this.verifyTimer = metrics.histogram("solanalogin_password_hash_seconds",
+                "Time spent in PBKDF2 password hashing", "operation", "verify");
+    }
+
+    /**
+     * Creates the storage backend selected in the config.
+     *
+     * @param plugin The plugin instance
+     * @return The backend, not yet connected
+     */
+    private static StorageBackend createBackend(SolanaLogin plugin) {
+        String type = plugin.getConfig().getString("database.type", "mysql").toLowerCase();
+        String tablePrefix = plugin.getConfig().getString("database.table-prefix", "walletlogin_");
+
+        switch (type) {
+            case "sqlite":
+                return new SqliteStorageBackend(
+                        new File(plugin.getDataFolder(), plugin.getConfig().getString("database.sqlite.file", "accounts.db")),
+                        tablePrefix, new QueryTracer(plugin));
+
+            case "log":
+                return new LogStorageBackend(
+                        new File(plugin.getDataFolder(), plugin.getConfig().getString("database.log.file", "accounts.log")),
+                        plugin.getConfig().getLong("database.log.sync-interval-ms", 1000));
+
+            case "memory":
+                return new LogStorageBackend(null, 0);
+
+            default:
+                if (!"mysql".equals(type)) {
+                    plugin.getLogger().warning("Unknown database type '" + type + "', using mysql");
+                }
+                StorageBackend mysql = new MySqlStorageBackend(
+                        plugin.getConfig().getString("database.host", "localhost"),
+                        plugin.getConfig().getInt("database.port", 3306),
+                        plugin.getConfig().getString("database.database", "minecraft"),
+                        plugin.getConfig().getString("database.username", "root"),
+                        plugin.getConfig().getString("database.password", DEFAULT_PASSWORD),
+                        tablePrefix, new QueryTracer(plugin));
+                return plugin.getConfig().getBoolean("database.outage-journal.enabled", true)
+                        ? createJournal(plugin, mysql) : mysql;
+        }
+    }
+
+    /**
+     * Wraps a remote database so logins keep working from a local copy while it is down.
+     *
+     * @param plugin The plugin instance
+     * @param primary The remote database
+     * @return The journaled backend
+     */
+    private static StorageBackend createJournal(SolanaLogin plugin, StorageBackend primary) {
+        FileConfiguration config = plugin.getConfig();
+        String prefix = "database.outage-journal.";
+
+        JournaledStorageBackend journaled = new JournaledStorageBackend(primary,
+                new File(plugin.getDataFolder(), config.getString(prefix + "snapshot-file", "snapshot.log")),
+                new File(plugin.getDataFolder(), config.getString(prefix + "file", "outage-journal.log")),
+                config.getLong(prefix + "sync-interval-ms", 1000),
+                config.getLong(prefix + "retry-interval-seconds", 5) * 1000L,
+                plugin.getLogger());
+
+        MetricsRegistry metrics = plugin.getMetrics();
+        metrics.gauge("solanalogin_db_degraded", "1 while the database is down and logins use the local snapshot",
+                () -> journaled.isDegraded() ? 1 : 0);
+        metrics.gauge("solanalogin_db_journal_pending", "Writes queued for the database during an outage",
+                journaled::getPendingWrites);
+        return journaled;
+    }
+
+    private String hashPassword(String password) {
+        long start = System.nanoTime();
+        try {
+            return PasswordUtils.hashPassword(password);
+        } finally {
+            hashTimer.recordSince(start);
+        }
+    }
+
+    private boolean verifyPassword(String password, String storedPassword) {
+        long start = System.nanoTime();
+        try {
+            return PasswordUtils.verifyPassword(password, storedPassword);
+        } finally {
+            verifyTimer.recordSince(start);
+        }
+    }
+
+    public StorageBackend getBackend() {
+        return backend;
     }
 
     public void connect() throws SQLException {
-        String url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false&allowPublicKeyRetrieval=true";
-        connection = DriverManager.getConnection(url, username, password);
+        backend.connect();
     }
 
     public void createTables() throws SQLException {
-        // Players table
-        String playersTable = CREATE_TABLE_IF_NOT_EXISTS + tablePrefix + "players (" +
-                "uuid VARCHAR(36) PRIMARY KEY, " +
-                "username VARCHAR(16) NOT NULL, " +
-                "password VARCHAR(255), " +
-                "ip VARCHAR(45), " +
-                "last_login TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
-                "registered_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")";
-
-        // Wallets table
-        String walletsTable = CREATE_TABLE_IF_NOT_EXISTS + tablePrefix + "wallets (" +
-                "uuid VARCHAR(36) PRIMARY KEY, " +
-                "wallet_address VARCHAR(255) NOT NULL, " +
-                "wallet_type VARCHAR(50), " +
-                "verified BOOLEAN DEFAULT FALSE, " +
-                "connected_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                "FOREIGN KEY (uuid) REFERENCES " + tablePrefix + "players(uuid) ON DELETE CASCADE" +
-                ")";
-
-        // Sessions table
-        String sessionsTable = CREATE_TABLE_IF_NOT_EXISTS + tablePrefix + "sessions (" +
-                "uuid VARCHAR(36) PRIMARY KEY, " +
-                "ip VARCHAR(45) NOT NULL, " +
-                "last_login TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                "FOREIGN KEY (uuid) REFERENCES " + tablePrefix + "players(uuid) ON DELETE CASCADE" +
-                ")";
-
-        try (Statement statement = connection.createStatement()) {
-            statement.execute(playersTable);
-            statement.execute(walletsTable);
-            statement.execute(sessionsTable);
+        backend.createTables();
+    }
+
+    /**
+     * Rebuilds the wallet index from the wallets table, reporting wallets linked to more than
+     * one player. The current index keeps answering until the new one replaces it, and wallets
+     * linked or disconnected during the scan are applied to the new index before it does.
+     */
+    public synchronized void loadWalletIndex() throws SQLException {
+        long start = System.currentTimeMillis();
+        int[] duplicates = new int[1];
+        WalletIndex index = new WalletIndex();
+        synchronized (walletChangesLock) {
+            walletChanges = new HashMap<>();
+        }
+        try {
+            backend.forEachWallet((uuid, address) -> {
+                UUID owner = index.link(uuid, address);
+                if (owner != null) {
+                    duplicates[0]++;
+                    plugin.getLogger().warning("Wallet " + address + " is linked to both " + owner + " and " + uuid);
+                }
+            });
+
+            synchronized (walletChangesLock) {
+                // The scan may have read these rows before they changed
+                for (Map.Entry<UUID, String> change : walletChanges.entrySet()) {
+                    if (change.getValue() == null) {
+                        index.unlink(change.getKey());
+                    } else {
+                        index.link(change.getKey(), change.getValue());
+                    }
+                }
+                walletIndex = index;
+            }
+        } finally {
+            synchronized (walletChangesLock) {
+                walletChanges = null;
+            }
+        }
+
+        plugin.getLogger().info(String.format("Indexed %,d wallets in %d ms", index.size(),
+                System.currentTimeMillis() - start));
+        if (duplicates[0] > 0) {
+            plugin.getLogger().warning(duplicates[0] + " wallets are linked to more than one player. "
+                    + "Disconnect the extra links so the unique index on the wallets table can be created.");
         }
     }
 
     /**
-     * Checks if a player is registered.
+     * Records a written wallet, or a disconnected one if the address is null, in the wallet index
+     * and in the changes a running {@link #loadWalletIndex()} applies to its new index.
+     */
+    private void indexWallet(UUID uuid, String walletAddress) {
+        synchronized (walletChangesLock) {
+            if (walletAddress == null) {
+                walletIndex.unlink(uuid);
+            } else {
+                walletIndex.link(uuid, walletAddress);
+            }
+            if (walletChanges != null) {
+                walletChanges.put(uuid, walletAddress);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index of registered players from the players table. Until it has loaded,
+     * {@link #isPlayerRegistered(UUID)} queries the database. Players registered during the
+     * scan are added to the new index as well, in case the scan had already passed them.
+     */
+    public synchronized void loadRegisteredIndex() throws SQLException {
+        long start = System.currentTimeMillis();
+        RegisteredIndex current = registeredIndex;
+        RegisteredIndex index = new RegisteredIndex(current == null ? 0 : current.size());
+        loadingIndex = index;
+        try {
+            backend.forEachRegisteredPlayer(index::add);
+            registeredIndex = index;
+        } finally {
+            loadingIndex = null;
+        }
+
+        plugin.getLogger().info(String.format("Indexed %,d registered players in %d ms", index.size(),
+                System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Gets the number of registered players in the index.
+     *
+     * @return The number of players, or 0 before the index has loaded
+     */
+    public int getRegisteredCount() {
+        RegisteredIndex index = registeredIndex;
+        return index == null ? 0 : index.size();
+    }
+
+    public WalletIndex getWalletIndex() {
+        return walletIndex;
+    }
+
+    /**
+     * Gets the player a wallet is linked to, without a query.
+     *
+     * @param walletAddress The wallet address
+     * @return The player's UUID, or empty if nobody has linked the wallet
+     */
+    public Optional<UUID> getWalletOwner(String walletAddress) {
+        return Optional.ofNullable(walletIndex.getOwner(walletAddress));
+    }
+
+    /**
+     * Checks if a player is registered, from the index once it has loaded. The index doesn't see
+     * players who registered on another server sharing the database since it loaded. Prompts and
+     * kick timers trust it; {@link #registerPlayer} never replaces a password, and logins confirm
+     * a negative answer with {@link #isPlayerRegisteredInDatabase(UUID)}.
      *
      * @param uuid The player's UUID
      * @return true if the player is registered, false otherwise
      */
     public boolean isPlayerRegistered(UUID uuid) {
-        String sql = SELECT + "password FROM " + tablePrefix + PLAYERS_WHERE_UUID;
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            ResultSet resultSet = statement.executeQuery();
+        RegisteredIndex index = registeredIndex;
+        return index == null ? isPlayerRegisteredInDatabase(uuid) : index.contains(uuid);
+    }
 
-            if (resultSet.next()) {
-                String storedPassword = resultSet.getString(PASSWORD_COLUMN);
-                return storedPassword != null && !storedPassword.isEmpty();
+    /**
+     * Checks if a player is registered with a query, adding them to the index if they are.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is registered, false otherwise
+     */
+    public boolean isPlayerRegisteredInDatabase(UUID uuid) {
+        try {
+            String storedPassword = backend.getPasswordHash(uuid);
+            boolean registered = storedPassword != null && !storedPassword.isEmpty();
+            if (registered) {
+                addRegistered(uuid);
             }
-
-            return false;
+            return registered;
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error checking if player is registered", e);
             return false;
         }
     }
 
+    private void addRegistered(UUID uuid) {
+        RegisteredIndex index = registeredIndex;
+        if (index != null) {
+            index.add(uuid);
+        }
+        RegisteredIndex loading = loadingIndex;
+        if (loading != null) {
+            loading.add(uuid);
+        }
+    }
+
     /**
      * Registers a new player.
      *
      * @param player The player
      * @param password The password
-     * @return true if registration was successful, false otherwise
+     * @return true if registration was successful, false if it failed or the player already has a password
      */
     public boolean registerPlayer(Player player, String password) {
-        String sql = INSERT_INTO + tablePrefix + "players (uuid, username, password, ip) VALUES (?, ?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE username = ?, password = ?, ip = ?";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            String hashedPassword = PasswordUtils.hashPassword(password);
-
-            statement.setString(1, player.getUniqueId().toString());
-            statement.setString(2, player.getName());
-            statement.setString(3, hashedPassword);
-            statement.setString(4, player.getAddress().getAddress().getHostAddress());
-            statement.setString(5, player.getName());
-            statement.setString(6, hashedPassword);
-            statement.setString(7, player.getAddress().getAddress().getHostAddress());
-
-            int updated = statement.executeUpdate();
-            return updated > 0;
+        String hashedPassword = hashPassword(password);
+
+        try {
+            boolean registered = backend.registerPlayer(player.getUniqueId(), player.getName(), hashedPassword,
+                    player.getAddress().getAddress().getHostAddress());
+            if (registered) {
+                addRegistered(player.getUniqueId());
+            }
+            return registered;
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error registering player", e);
             return false;
@@ -146,22 +334,28 @@ public class DatabaseManager {
      * @return true if authentication was successful, false otherwise
      */
     public boolean authenticatePlayer(UUID uuid, String password) {
-        String sql = SELECT + "password FROM " + tablePrefix + PLAYERS_WHERE_UUID;
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            ResultSet resultSet = statement.executeQuery();
+        String storedPassword;
 
-            if (resultSet.next()) {
-                String storedPassword = resultSet.getString(PASSWORD_COLUMN);
-                return PasswordUtils.verifyPassword(password, storedPassword);
-            }
-
-            return false;
+        try {
+            storedPassword = backend.getPasswordHash(uuid);
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error authenticating player", e);
             return false;
         }
+
+        if (storedPassword == null || !verifyPassword(password, storedPassword)) {
+            return false;
+        }
+
+        // Replace hashes imported from other plugins now that the password is known
+        if (PasswordUtils.needsRehash(storedPassword)) {
+            try {
+                backend.updatePassword(uuid, hashPassword(password));
+            } catch (SQLException e) {
+                plugin.getLogger().log(Level.SEVERE, "Error upgrading imported password hash", e);
+            }
+        }
+        return true;
     }
 
     /**
@@ -172,16 +366,10 @@ public class DatabaseManager {
      * @return true if the update was successful, false otherwise
      */
     public boolean updatePassword(UUID uuid, String newPassword) {
-        String sql = UPDATE + tablePrefix + "players SET password = ? WHERE uuid = ?";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            String hashedPassword = PasswordUtils.hashPassword(newPassword);
+        String hashedPassword = hashPassword(newPassword);
 
-            statement.setString(1, hashedPassword);
-            statement.setString(2, uuid.toString());
-
-            int updated = statement.executeUpdate();
-            return updated > 0;
+        try {
+            return backend.updatePassword(uuid, hashedPassword);
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error updating password", e);
             return false;
@@ -195,12 +383,8 @@ public class DatabaseManager {
      * @param ip The player's IP address
      */
     public void updateLastLogin(UUID uuid, String ip) {
-        String sql = UPDATE + tablePrefix + "players SET last_login = CURRENT_TIMESTAMP, ip = ? WHERE uuid = ?";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, ip);
-            statement.setString(2, uuid.toString());
-            statement.executeUpdate();
+        try {
+            backend.updateLastLogin(uuid, ip);
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error updating last login", e);
         }
@@ -213,14 +397,8 @@ public class DatabaseManager {
      * @param ip The player's IP address
      */
     public void saveSession(UUID uuid, String ip) {
-        String sql = INSERT_INTO + tablePrefix + "sessions (uuid, ip) VALUES (?, ?) " +
-                "ON DUPLICATE KEY UPDATE ip = ?, last_login = CURRENT_TIMESTAMP";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            statement.setString(2, ip);
-            statement.setString(3, ip);
-            statement.executeUpdate();
+        try {
+            backend.saveSession(uuid, ip);
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error saving session", e);
         }
@@ -232,27 +410,17 @@ public class DatabaseManager {
      * @param uuid The player's UUID
      */
     public void removeSession(UUID uuid) {
-        String sql = DELETE_FROM + tablePrefix + "sessions WHERE uuid = ?";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            statement.executeUpdate();
+        try {
+            backend.removeSession(uuid);
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error removing session", e);
         }
     }
 
     public void savePlayer(Player player) {
-        String sql = INSERT_INTO + tablePrefix + "players (uuid, username, ip) VALUES (?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE username = ?, ip = ?";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, player.getUniqueId().toString());
-            statement.setString(2, player.getName());
-            statement.setString(3, player.getAddress().getAddress().getHostAddress());
-            statement.setString(4, player.getName());
-            statement.setString(5, player.getAddress().getAddress().getHostAddress());
-            statement.executeUpdate();
+        try {
+            backend.savePlayer(player.getUniqueId(), player.getName(),
+                    player.getAddress().getAddress().getHostAddress());
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error saving player data", e);
         }
@@ -267,22 +435,56 @@ public class DatabaseManager {
      * @return true if the connection was successful, false otherwise
      */
     public boolean connectWallet(UUID uuid, String walletAddress, String walletType) {
-        String sql = INSERT_INTO + tablePrefix + "wallets (uuid, wallet_address, wallet_type) VALUES (?, ?, ?) " +
-                "ON DUPLICATE KEY UPDATE wallet_address = ?, wallet_type = ?, connected_at = CURRENT_TIMESTAMP";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            statement.setString(2, walletAddress);
-            statement.setString(3, walletType);
-            statement.setString(4, walletAddress);
-            statement.setString(5, walletType);
-
-            int updated = statement.executeUpdate();
-            return updated > 0;
+        return writeWallet(uuid, walletAddress, () -> backend.connectWallet(uuid, walletAddress, walletType));
+    }
+
+    /**
+     * Connects a wallet whose ownership the player has just proven, and marks it verified in
+     * the same write.
+     *
+     * The link ID makes the call idempotent: repeating a link that is still the player's wallet,
+     * such as when the web server reports the same login twice, returns true without writing.
+     *
+     * @param uuid The player's UUID
+     * @param walletAddress The wallet address
+     * @param walletType The wallet type
+     * @param linkId The auth session ID of the wallet login
+     * @return true if the wallet is linked and verified, false otherwise
+     */
+    public boolean linkVerifiedWallet(UUID uuid, String walletAddress, String walletType, String linkId) {
+        return writeWallet(uuid, walletAddress,
+                () -> backend.linkVerifiedWallet(uuid, walletAddress, walletType, linkId));
+    }
+
+    /**
+     * Writes a wallet after reserving it in the wallet index, so a wallet already linked to
+     * another player is refused without touching the database.
+     */
+    private boolean writeWallet(UUID uuid, String walletAddress, WalletWrite write) {
+        UUID owner = walletIndex.claim(walletAddress, uuid);
+        if (owner != null) {
+            plugin.getLogger().warning("Refused to link wallet " + walletAddress + " to " + uuid
+                    + ": it is already linked to " + owner);
+            return false;
+        }
+
+        boolean written = false;
+        try {
+            written = write.write();
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Linked through another server sharing the database
+            plugin.getLogger().warning("Refused to link wallet " + walletAddress + " to " + uuid
+                    + ": it is already linked to another player");
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error connecting wallet", e);
-            return false;
         }
+
+        if (written) {
+            indexWallet(uuid, walletAddress);
+        } else {
+            walletIndex.release(walletAddress, uuid);
+        }
+        return written;
     }
 
     /**
@@ -292,13 +494,12 @@ public class DatabaseManager {
      * @return true if the disconnection was successful, false otherwise
      */
     public boolean disconnectWallet(UUID uuid) {
-        String sql = DELETE_FROM + tablePrefix + WALLETS_WHERE_UUID;
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-
-            int updated = statement.executeUpdate();
-            return updated > 0;
+        try {
+            boolean disconnected = backend.disconnectWallet(uuid);
+            if (disconnected) {
+                indexWallet(uuid, null);
+            }
+            return disconnected;
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error disconnecting wallet", e);
             return false;
@@ -312,22 +513,7 @@ public class DatabaseManager {
      * @return The wallet address, or empty if the player doesn't have a wallet connected
      */
     public Optional<String> getWalletAddress(UUID uuid) {
-        String sql = SELECT + "wallet_address FROM " + tablePrefix + WALLETS_WHERE_UUID;
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                String walletAddress = resultSet.getString("wallet_address");
-                return Optional.ofNullable(walletAddress);
-            }
-
-            return Optional.empty();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error getting wallet address", e);
-            return Optional.empty();
-        }
+        return getWallet(uuid).map(WalletRecord::getAddress);
     }
 
     /**
@@ -337,22 +523,7 @@ public class DatabaseManager {
      * @return The wallet type, or empty if the player doesn't have a wallet connected
      */
     public Optional<String> getWalletType(UUID uuid) {
-        String sql = SELECT + "wallet_type FROM " + tablePrefix + WALLETS_WHERE_UUID;
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            ResultSet resultSet = statement.executeQuery();
-
-            if (resultSet.next()) {
-                String walletType = resultSet.getString("wallet_type");
-                return Optional.ofNullable(walletType);
-            }
-
-            return Optional.empty();
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error getting wallet type", e);
-            return Optional.empty();
-        }
+        return getWallet(uuid).map(WalletRecord::getType);
     }
 
     /**
@@ -373,14 +544,8 @@ public class DatabaseManager {
      * @return true if the update was successful, false otherwise
      */
     public boolean setWalletVerified(UUID uuid, boolean verified) {
-        String sql = UPDATE + tablePrefix + "wallets SET verified = ? WHERE uuid = ?";
-
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setBoolean(1, verified);
-            statement.setString(2, uuid.toString());
-
-            int updated = statement.executeUpdate();
-            return updated > 0;
+        try {
+            return backend.setWalletVerified(uuid, verified);
         } catch (SQLException e) {
             plugin.getLogger().log(Level.SEVERE, "Error setting wallet verification", e);
             return false;
@@ -394,26 +559,73 @@ public class DatabaseManager {
      * @return true if the wallet is verified, false otherwise
      */
     public boolean isWalletVerified(UUID uuid) {
-        String sql = SELECT + "verified FROM " + tablePrefix + WALLETS_WHERE_UUID;
+        return getWallet(uuid).map(WalletRecord::isVerified).orElse(false);
+    }
 
-        try (PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, uuid.toString());
-            ResultSet resultSet = statement.executeQuery();
+    /**
+     * Gets a player's wallet address, type and verification status in a single query.
+     *
+     * @param uuid The player's UUID
+     * @return The wallet, or empty if the player doesn't have a wallet connected
+     */
+    public Optional<WalletRecord> getWallet(UUID uuid) {
+        try {
+            return backend.getWallet(uuid);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error getting wallet", e);
+            return Optional.empty();
+        }
+    }
 
-            if (resultSet.next()) {
-                return resultSet.getBoolean("verified");
-            }
+    /**
+     * Gets the wallets of many players at once, in as few queries as possible.
+     *
+     * @param uuids The players' UUIDs
+     * @return The wallets of the players who have one connected, or an empty map if the lookup failed
+     */
+    public Map<UUID, WalletRecord> getWallets(Collection<UUID> uuids) {
+        try {
+            return backend.getWallets(uuids);
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error getting wallets", e);
+            return Collections.emptyMap();
+        }
+    }
 
-            return false;
+    /**
+     * Stores the results of NFT ownership checks, so the ownership cache starts warm after a restart.
+     *
+     * @param records The results
+     */
+    public void saveOwnership(List<OwnershipRecord> records) {
+        try {
+            backend.saveOwnership(records);
         } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Error checking wallet verification", e);
+            plugin.getLogger().log(Level.SEVERE, "Error saving NFT ownership", e);
+        }
+    }
+
+    /**
+     * Passes every stored NFT ownership result to a consumer.
+     *
+     * @param consumer Called with each result
+     * @return true if every result was read, false otherwise
+     */
+    public boolean forEachOwnership(Consumer<OwnershipRecord> consumer) {
+        try {
+            backend.forEachOwnership(consumer);
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error loading NFT ownership", e);
             return false;
         }
     }
 
     public void closeConnection() throws SQLException {
-        if (connection != null && !connection.isClosed()) {
-            connection.close();
-        }
+        backend.close();
+    }
+
+    private interface WalletWrite {
+        boolean write() throws SQLException;
     }
 }
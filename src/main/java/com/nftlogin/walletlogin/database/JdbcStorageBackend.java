@@ -0,0 +1,769 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+
+/**
+ * Storage backend for SQL databases reached through JDBC.
+ *
+ * The queries are shared; subclasses open connections and supply the few pieces of SQL
+ * that differ between databases, namely upserts and automatically updated timestamps.
+ * Every statement on the shared connection goes through the {@link QueryTracer}. Bulk imports
+ * and exports open a connection of their own, so their long transactions and streamed results
+ * never hold up logins, and bypass the tracer since each of their statements is slow by design.
+ */
+public abstract class JdbcStorageBackend implements StorageBackend {
+
+    // SQL constants
+    private static final String CREATE_TABLE_IF_NOT_EXISTS = "CREATE TABLE IF NOT EXISTS ";
+    private static final String UPDATE = "UPDATE ";
+    private static final String DELETE_FROM = "DELETE FROM ";
+    private static final String SELECT = "SELECT ";
+    private static final String WALLETS_WHERE_UUID = "wallets WHERE uuid = ?";
+    private static final String PLAYERS_WHERE_UUID = "players WHERE uuid = ?";
+    private static final String PASSWORD_COLUMN = "password";
+    private static final String[] PLAYER_COLUMNS = {"uuid", "username", "password", "ip"};
+    private static final String[] WALLET_COLUMNS = {"uuid", "wallet_address", "wallet_type", "verified"};
+    private static final String[] OWNERSHIP_COLUMNS = {"wallet_address", "mints", "checked_at"};
+    private static final int OWNERSHIP_BATCH_SIZE = 500;
+    private static final int WALLET_LOOKUP_BATCH_SIZE = 500;
+    private static final int EXPORT_PROGRESS_INTERVAL = 10_000;
+
+    protected final String tablePrefix;
+    protected final QueryTracer tracer;
+    protected Connection connection;
+
+    protected JdbcStorageBackend(String tablePrefix, QueryTracer tracer) {
+        this.tablePrefix = tablePrefix;
+        this.tracer = tracer;
+    }
+
+    /**
+     * Opens a new connection to the database.
+     *
+     * @return The connection
+     * @throws SQLException If the database can't be reached
+     */
+    protected abstract Connection openConnection() throws SQLException;
+
+    /**
+     * Gets the fetch size that makes the driver stream a large result instead of loading it whole.
+     *
+     * @return The fetch size for bulk exports
+     */
+    protected int streamingFetchSize() {
+        return 1000;
+    }
+
+    /**
+     * Builds an insert of several rows that updates the existing row when a primary key is taken.
+     * A row that conflicts on another unique index, such as a wallet address linked to another
+     * player, is left alone rather than overwritten.
+     *
+     * @param table The table name, without prefix
+     * @param columns The inserted columns, the first being the primary key
+     * @param rows The number of rows
+     * @param updatedColumns The columns to overwrite with the inserted values on conflict
+     * @param touchedColumns Timestamp columns to set to the current time on conflict
+     * @return The SQL, with one parameter per inserted column for each row in turn
+     */
+    protected abstract String upsert(String table, String[] columns, int rows, String[] updatedColumns,
+                                     String... touchedColumns);
+
+    /**
+     * Builds an insert that updates the existing row when the primary key is taken.
+     *
+     * @param table The table name, without prefix
+     * @param columns The inserted columns, the first being the primary key
+     * @param updatedColumns The columns to overwrite with the inserted values on conflict
+     * @param touchedColumns Timestamp columns to set to the current time on conflict
+     * @return The SQL, with one parameter per inserted column
+     */
+    protected String upsert(String table, String[] columns, String[] updatedColumns, String... touchedColumns) {
+        return upsert(table, columns, 1, updatedColumns, touchedColumns);
+    }
+
+    /**
+     * Starts an insert statement with one parameter per column and row.
+     *
+     * @param table The table name, without prefix
+     * @param columns The inserted columns
+     * @param rows The number of rows
+     * @return The SQL so far
+     */
+    protected StringBuilder insertInto(String table, String[] columns, int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tablePrefix).append(table)
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+        for (int row = 0; row < rows; row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+        }
+        return sql;
+    }
+
+    /**
+     * Gets an SQL expression for the time a number of seconds ago, given as its one parameter.
+     *
+     * @return The expression
+     */
+    protected abstract String secondsAgo();
+
+    /**
+     * Builds a delete of at most a given number of rows, the limit being the last parameter.
+     * The default selects the primary keys in a subquery, for databases without
+     * {@code DELETE ... LIMIT}.
+     *
+     * @param table The table name, without prefix
+     * @param where The condition, which may refer to the table by its prefixed name
+     * @return The SQL
+     */
+    protected String deleteLimited(String table, String where) {
+        return DELETE_FROM + tablePrefix + table + " WHERE uuid IN (SELECT uuid FROM " + tablePrefix + table +
+                " WHERE " + where + " LIMIT ?)";
+    }
+
+    /**
+     * Checks whether a statement failed because the primary key or a unique index already holds the value.
+     *
+     * @param e The exception
+     * @return true for a duplicate key
+     */
+    protected abstract boolean isUniqueViolation(SQLException e);
+
+    /**
+     * Checks whether a duplicate key reported by {@link #isUniqueViolation(SQLException)} is on the
+     * primary key rather than on another unique index.
+     *
+     * @param e The exception
+     * @param primaryKey The primary key column
+     * @return true if the primary key already holds the value
+     */
+    protected abstract boolean isPrimaryKeyViolation(SQLException e, String primaryKey);
+
+    /**
+     * Gets the column clause that makes a timestamp update itself whenever its row changes.
+     *
+     * @return The clause, or an empty string if the database has no such feature
+     */
+    protected abstract String onUpdateCurrentTimestamp();
+
+    @Override
+    public void connect() throws SQLException {
+        connection = openConnection();
+    }
+
+    @Override
+    public void createTables() throws SQLException {
+        // Players table
+        String playersTable = CREATE_TABLE_IF_NOT_EXISTS + tablePrefix + "players (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "username VARCHAR(16) NOT NULL, " +
+                "password VARCHAR(255), " +
+                "ip VARCHAR(45), " +
+                "last_login TIMESTAMP DEFAULT CURRENT_TIMESTAMP" + onUpdateCurrentTimestamp() + ", " +
+                "registered_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")";
+
+        // Wallets table
+        String walletsTable = CREATE_TABLE_IF_NOT_EXISTS + tablePrefix + "wallets (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "wallet_address VARCHAR(255) NOT NULL, " +
+                "wallet_type VARCHAR(50), " +
+                "verified BOOLEAN DEFAULT FALSE, " +
+                "connected_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "link_id VARCHAR(64), " +
+                "FOREIGN KEY (uuid) REFERENCES " + tablePrefix + "players(uuid) ON DELETE CASCADE" +
+                ")";
+
+        // Sessions table
+        String sessionsTable = CREATE_TABLE_IF_NOT_EXISTS + tablePrefix + "sessions (" +
+                "uuid VARCHAR(36) PRIMARY KEY, " +
+                "ip VARCHAR(45) NOT NULL, " +
+                "last_login TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                "FOREIGN KEY (uuid) REFERENCES " + tablePrefix + "players(uuid) ON DELETE CASCADE" +
+                ")";
+
+        // Last known NFT ownership per wallet, to warm the ownership cache after a restart
+        String ownershipTable = CREATE_TABLE_IF_NOT_EXISTS + tablePrefix + "nft_ownership (" +
+                "wallet_address VARCHAR(64) PRIMARY KEY, " +
+                "mints TEXT NOT NULL, " +
+                "checked_at BIGINT NOT NULL" +
+                ")";
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(playersTable);
+            statement.execute(walletsTable);
+            statement.execute(sessionsTable);
+            statement.execute(ownershipTable);
+        }
+
+        // Added after the first release
+        addColumnIfMissing("wallets", "link_id", "VARCHAR(64)");
+
+        // Let the retention deletes find old rows without scanning the tables
+        createIndexIfMissing("players", "last_login", false);
+        createIndexIfMissing("sessions", "last_login", false);
+
+        // A wallet can only be linked to one account. This fails while older data has duplicates,
+        // which the wallet index reports when it is loaded.
+        try {
+            createIndexIfMissing("wallets", "wallet_address", true);
+        } catch (SQLException e) {
+            tracer.getLogger().log(Level.WARNING, "Could not create the unique index on wallet addresses; "
+                    + "it is retried on the next start", e);
+        }
+    }
+
+    /**
+     * Adds a column to a table created by an older version of the plugin.
+     */
+    private void addColumnIfMissing(String table, String column, String definition) throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null,
+                tablePrefix + table, null)) {
+            while (columns.next()) {
+                if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                    return;
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + tablePrefix + table + " ADD COLUMN " + column + " " + definition);
+        }
+    }
+
+    /**
+     * Creates a single-column index, checking first since MySQL has no CREATE INDEX IF NOT EXISTS.
+     */
+    private void createIndexIfMissing(String table, String column, boolean unique) throws SQLException {
+        String index = tablePrefix + table + "_" + column;
+        try (ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), null,
+                tablePrefix + table, false, false)) {
+            while (indexes.next()) {
+                if (index.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + index + " ON " + tablePrefix + table +
+                    " (" + column + ")");
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (connection != null && !connection.isClosed()) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public String getPasswordHash(UUID uuid) throws SQLException {
+        String sql = SELECT + "password FROM " + tablePrefix + PLAYERS_WHERE_UUID;
+
+        try (PreparedStatement statement = tracer.prepare(connection, "getPasswordHash", sql)) {
+            statement.setString(1, uuid.toString());
+            ResultSet resultSet = statement.executeQuery();
+
+            return resultSet.next() ? resultSet.getString(PASSWORD_COLUMN) : null;
+        }
+    }
+
+    @Override
+    public boolean registerPlayer(UUID uuid, String username, String passwordHash, String ip) throws SQLException {
+        // Only a player without a password is updated, so a registration made through another
+        // server sharing the database is never overwritten
+        String sql = UPDATE + tablePrefix + "players SET username = ?, password = ?, ip = ?" +
+                " WHERE uuid = ? AND (password IS NULL OR password = '')";
+
+        try (PreparedStatement statement = tracer.prepare(connection, "registerPlayer", sql)) {
+            statement.setString(1, username);
+            statement.setString(2, passwordHash);
+            statement.setString(3, ip);
+            statement.setString(4, uuid.toString());
+            if (statement.executeUpdate() > 0) {
+                return true;
+            }
+        }
+
+        String insert = insertInto("players", PLAYER_COLUMNS, 1).toString();
+        try (PreparedStatement statement = tracer.prepare(connection, "registerPlayer", insert)) {
+            statement.setString(1, uuid.toString());
+            statement.setString(2, username);
+            statement.setString(3, passwordHash);
+            statement.setString(4, ip);
+            return statement.executeUpdate() > 0;
+        } catch (SQLException e) {
+            if (isUniqueViolation(e)) {
+                // The player has a password already
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean updatePassword(UUID uuid, String passwordHash) throws SQLException {
+        String sql = UPDATE + tablePrefix + "players SET password = ? WHERE uuid = ?";
+
+        try (PreparedStatement statement = tracer.prepare(connection, "updatePassword", sql)) {
+            statement.setString(1, passwordHash);
+            statement.setString(2, uuid.toString());
+
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public void updateLastLogin(UUID uuid, String ip) throws SQLException {
+        String sql = UPDATE + tablePrefix + "players SET last_login = CURRENT_TIMESTAMP, ip = ? WHERE uuid = ?";
+
+        try (PreparedStatement statement = tracer.prepare(connection, "updateLastLogin", sql)) {
+            statement.setString(1, ip);
+            statement.setString(2, uuid.toString());
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public void savePlayer(UUID uuid, String username, String ip) throws SQLException {
+        String sql = upsert("players", new String[] {"uuid", "username", "ip"}, new String[] {"username", "ip"},
+                "last_login");
+
+        try (PreparedStatement statement = tracer.prepare(connection, "savePlayer", sql)) {
+            statement.setString(1, uuid.toString());
+            statement.setString(2, username);
+            statement.setString(3, ip);
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public void saveSession(UUID uuid, String ip) throws SQLException {
+        String sql = upsert("sessions", new String[] {"uuid", "ip"}, new String[] {"ip"}, "last_login");
+
+        try (PreparedStatement statement = tracer.prepare(connection, "saveSession", sql)) {
+            statement.setString(1, uuid.toString());
+            statement.setString(2, ip);
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public void removeSession(UUID uuid) throws SQLException {
+        String sql = DELETE_FROM + tablePrefix + "sessions WHERE uuid = ?";
+
+        try (PreparedStatement statement = tracer.prepare(connection, "removeSession", sql)) {
+            statement.setString(1, uuid.toString());
+            statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public boolean connectWallet(UUID uuid, String walletAddress, String walletType) throws SQLException {
+        // The wallet login that set the link ID no longer describes the row
+        return writeWallet("connectWallet", uuid, null, new String[] {"wallet_address", "wallet_type", "link_id"},
+                walletAddress, walletType, null);
+    }
+
+    @Override
+    public boolean linkVerifiedWallet(UUID uuid, String walletAddress, String walletType, String linkId)
+            throws SQLException {
+        // Each statement writes the whole link, so the wallet is never stored connected but unverified
+        return writeWallet("linkVerifiedWallet", uuid, linkId,
+                new String[] {"wallet_address", "wallet_type", "verified", "link_id"},
+                walletAddress, walletType, true, linkId);
+    }
+
+    /**
+     * Updates a player's wallet row, or inserts it if there is none, in one transaction.
+     *
+     * Unlike an upsert, this only ever matches the row by UUID: on MySQL, an upsert would also
+     * match another player's row through the unique index on the address and overwrite it. Here
+     * an address linked to someone else, say through another server, fails the statement, and
+     * the failure is thrown as a {@link SQLIntegrityConstraintViolationException} whatever the
+     * driver reported. An insert that instead loses to a concurrent first link for the same
+     * player is retried as an update.
+     *
+     * @param linkId The link ID being written, or null; a row that already holds it is left alone
+     */
+    private boolean writeWallet(String operation, UUID uuid, String linkId, String[] columns, Object... values)
+            throws SQLException {
+        StringBuilder update = new StringBuilder(UPDATE).append(tablePrefix).append("wallets SET ");
+        for (String column : columns) {
+            update.append(column).append(" = ?, ");
+        }
+        update.append("connected_at = CURRENT_TIMESTAMP WHERE uuid = ?");
+
+        String[] insertedColumns = new String[columns.length + 1];
+        insertedColumns[0] = "uuid";
+        System.arraycopy(columns, 0, insertedColumns, 1, columns.length);
+        String insert = insertInto("wallets", insertedColumns, 1).toString();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tracer.transaction(connection, () -> {
+                    if (linkId != null && linkId.equals(getLinkId(operation, uuid))) {
+                        // A repeated report of a link that was already written
+                        return true;
+                    }
+
+                    try (PreparedStatement statement = tracer.prepare(connection, operation, update.toString())) {
+                        for (int i = 0; i < values.length; i++) {
+                            statement.setObject(i + 1, values[i]);
+                        }
+                        statement.setString(values.length + 1, uuid.toString());
+                        if (statement.executeUpdate() > 0) {
+                            return true;
+                        }
+                    }
+
+                    try (PreparedStatement statement = tracer.prepare(connection, operation, insert)) {
+                        statement.setString(1, uuid.toString());
+                        for (int i = 0; i < values.length; i++) {
+                            statement.setObject(i + 2, values[i]);
+                        }
+                        return statement.executeUpdate() > 0;
+                    }
+                });
+            } catch (SQLException e) {
+                if (!isUniqueViolation(e)) {
+                    throw e;
+                }
+                if (isPrimaryKeyViolation(e, "uuid")) {
+                    if (attempt == 1) {
+                        // Another thread or server inserted the player's row first, so update it
+                        continue;
+                    }
+                    throw new SQLException("Wallet row of " + uuid + " is being written concurrently", e);
+                }
+                if (e instanceof SQLIntegrityConstraintViolationException) {
+                    throw e;
+                }
+                throw new SQLIntegrityConstraintViolationException(e.getMessage(), e.getSQLState(),
+                        e.getErrorCode(), e);
+            }
+        }
+    }
+
+    /**
+     * Gets the link ID on a player's wallet row, within the caller's transaction.
+     */
+    private String getLinkId(String operation, UUID uuid) throws SQLException {
+        String sql = SELECT + "link_id FROM " + tablePrefix + WALLETS_WHERE_UUID;
+
+        try (PreparedStatement statement = tracer.prepare(connection, operation, sql)) {
+            statement.setString(1, uuid.toString());
+            ResultSet resultSet = statement.executeQuery();
+
+            return resultSet.next() ? resultSet.getString("link_id") : null;
+        }
+    }
+
+    @Override
+    public boolean disconnectWallet(UUID uuid) throws SQLException {
+        String sql = DELETE_FROM + tablePrefix + WALLETS_WHERE_UUID;
+
+        try (PreparedStatement statement = tracer.prepare(connection, "disconnectWallet", sql)) {
+            statement.setString(1, uuid.toString());
+
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public Optional<WalletRecord> getWallet(UUID uuid) throws SQLException {
+        String sql = SELECT + "wallet_address, wallet_type, verified FROM " + tablePrefix + WALLETS_WHERE_UUID;
+
+        try (PreparedStatement statement = tracer.prepare(connection, "getWallet", sql)) {
+            statement.setString(1, uuid.toString());
+            ResultSet resultSet = statement.executeQuery();
+
+            if (resultSet.next()) {
+                return Optional.of(new WalletRecord(resultSet.getString("wallet_address"),
+                        resultSet.getString("wallet_type"), resultSet.getBoolean("verified")));
+            }
+
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Map<UUID, WalletRecord> getWallets(Collection<UUID> uuids) throws SQLException {
+        List<UUID> all = new ArrayList<>(uuids);
+        Map<UUID, WalletRecord> wallets = new HashMap<>();
+        for (int start = 0; start < all.size(); start += WALLET_LOOKUP_BATCH_SIZE) {
+            List<UUID> batch = all.subList(start, Math.min(all.size(), start + WALLET_LOOKUP_BATCH_SIZE));
+            StringBuilder sql = new StringBuilder(SELECT).append("uuid, wallet_address, wallet_type, verified FROM ")
+                    .append(tablePrefix).append("wallets WHERE uuid IN (");
+            for (int i = 0; i < batch.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+
+            try (PreparedStatement statement = tracer.prepare(connection, "getWallets", sql.toString())) {
+                for (int i = 0; i < batch.size(); i++) {
+                    statement.setString(i + 1, batch.get(i).toString());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        wallets.put(UUID.fromString(resultSet.getString("uuid")),
+                                new WalletRecord(resultSet.getString("wallet_address"),
+                                        resultSet.getString("wallet_type"), resultSet.getBoolean("verified")));
+                    }
+                }
+            }
+        }
+        return wallets;
+    }
+
+    @Override
+    public boolean setWalletVerified(UUID uuid, boolean verified) throws SQLException {
+        String sql = UPDATE + tablePrefix + "wallets SET verified = ? WHERE uuid = ?";
+
+        try (PreparedStatement statement = tracer.prepare(connection, "setWalletVerified", sql)) {
+            statement.setBoolean(1, verified);
+            statement.setString(2, uuid.toString());
+
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    public void forEachWallet(BiConsumer<UUID, String> consumer) throws SQLException {
+        String sql = SELECT + "uuid, wallet_address FROM " + tablePrefix + "wallets";
+
+        try (Connection bulk = openConnection();
+             Statement statement = bulk.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(streamingFetchSize());
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    consumer.accept(UUID.fromString(resultSet.getString("uuid")),
+                            resultSet.getString("wallet_address"));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachRegisteredPlayer(Consumer<UUID> consumer) throws SQLException {
+        String sql = SELECT + "uuid FROM " + tablePrefix + "players WHERE password IS NOT NULL AND password <> ''";
+
+        try (Connection bulk = openConnection();
+             Statement statement = bulk.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(streamingFetchSize());
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    consumer.accept(UUID.fromString(resultSet.getString("uuid")));
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<String> getWalletAddressesAfter(String afterAddress, int limit) throws SQLException {
+        String sql = SELECT + "wallet_address FROM " + tablePrefix + "wallets WHERE wallet_address > ?" +
+                " ORDER BY wallet_address LIMIT ?";
+
+        try (PreparedStatement statement = tracer.prepare(connection, "getWalletAddressesAfter", sql)) {
+            statement.setString(1, afterAddress);
+            statement.setInt(2, limit);
+            List<String> addresses = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    addresses.add(resultSet.getString("wallet_address"));
+                }
+            }
+            return addresses;
+        }
+    }
+
+    @Override
+    public void saveOwnership(List<OwnershipRecord> records) throws SQLException {
+        for (int start = 0; start < records.size(); start += OWNERSHIP_BATCH_SIZE) {
+            List<OwnershipRecord> batch = records.subList(start, Math.min(records.size(), start + OWNERSHIP_BATCH_SIZE));
+            String sql = upsert("nft_ownership", OWNERSHIP_COLUMNS, batch.size(), new String[] {"mints", "checked_at"});
+
+            try (PreparedStatement statement = tracer.prepare(connection, "saveOwnership", sql)) {
+                int parameter = 1;
+                for (OwnershipRecord record : batch) {
+                    statement.setString(parameter++, record.getAddress());
+                    statement.setString(parameter++, String.join(",", record.getMints()));
+                    statement.setLong(parameter++, record.getCheckedAt());
+                }
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public void forEachOwnership(Consumer<OwnershipRecord> consumer) throws SQLException {
+        String sql = SELECT + "wallet_address, mints, checked_at FROM " + tablePrefix + "nft_ownership";
+
+        try (Connection bulk = openConnection();
+             Statement statement = bulk.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(streamingFetchSize());
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    String mints = resultSet.getString("mints");
+                    consumer.accept(new OwnershipRecord(resultSet.getString("wallet_address"),
+                            mints.isEmpty() ? new HashSet<>() : new HashSet<>(Arrays.asList(mints.split(","))),
+                            resultSet.getLong("checked_at")));
+                }
+            }
+        }
+    }
+
+    @Override
+    public int pruneSessions(long maxAgeSeconds, int limit) throws SQLException {
+        String sql = deleteLimited("sessions", "last_login < " + secondsAgo());
+
+        try (PreparedStatement statement = tracer.prepare(connection, "pruneSessions", sql)) {
+            statement.setLong(1, maxAgeSeconds);
+            statement.setInt(2, limit);
+            return statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public int pruneUnregisteredPlayers(long maxAgeSeconds, int limit) throws SQLException {
+        String players = tablePrefix + "players";
+        String sql = deleteLimited("players", "(password IS NULL OR password = '') AND last_login < " +
+                secondsAgo() + " AND NOT EXISTS (SELECT 1 FROM " + tablePrefix + "wallets w WHERE w.uuid = " + players + ".uuid)");
+
+        try (PreparedStatement statement = tracer.prepare(connection, "pruneUnregisteredPlayers", sql)) {
+            statement.setLong(1, maxAgeSeconds);
+            statement.setInt(2, limit);
+            return statement.executeUpdate();
+        }
+    }
+
+    @Override
+    public long importAccounts(AccountSource source, int batchSize, LongConsumer progress)
+            throws SQLException, IOException {
+        List<AccountRecord> batch = new ArrayList<>(batchSize);
+        long imported = 0;
+
+        try (Connection bulk = openConnection()) {
+            bulk.setAutoCommit(false);
+            AccountRecord account;
+            while ((account = source.next()) != null) {
+                batch.add(account);
+                if (batch.size() == batchSize) {
+                    imported += writeBatch(bulk, batch);
+                    progress.accept(imported);
+                }
+            }
+            if (!batch.isEmpty()) {
+                imported += writeBatch(bulk, batch);
+                progress.accept(imported);
+            }
+        }
+
+        return imported;
+    }
+
+    /**
+     * Writes a batch of accounts in one transaction, with one multi-row statement per table.
+     *
+     * @return The number of accounts written; the batch is cleared
+     */
+    private int writeBatch(Connection bulk, List<AccountRecord> batch) throws SQLException {
+        List<AccountRecord> withWallet = new ArrayList<>();
+        try {
+            String playersSql = upsert("players", PLAYER_COLUMNS, batch.size(),
+                    new String[] {"username", "password", "ip"});
+            try (PreparedStatement statement = bulk.prepareStatement(playersSql)) {
+                int parameter = 1;
+                for (AccountRecord account : batch) {
+                    statement.setString(parameter++, account.getUuid().toString());
+                    statement.setString(parameter++, account.getUsername());
+                    statement.setString(parameter++, account.getPasswordHash());
+                    statement.setString(parameter++, account.getIp());
+                    if (account.getWallet() != null) {
+                        withWallet.add(account);
+                    }
+                }
+                statement.executeUpdate();
+            }
+
+            if (!withWallet.isEmpty()) {
+                String walletsSql = upsert("wallets", WALLET_COLUMNS, withWallet.size(),
+                        new String[] {"wallet_address", "wallet_type", "verified"}, "connected_at");
+                try (PreparedStatement statement = bulk.prepareStatement(walletsSql)) {
+                    int parameter = 1;
+                    for (AccountRecord account : withWallet) {
+                        WalletRecord wallet = account.getWallet();
+                        statement.setString(parameter++, account.getUuid().toString());
+                        statement.setString(parameter++, wallet.getAddress());
+                        statement.setString(parameter++, wallet.getType());
+                        statement.setBoolean(parameter++, wallet.isVerified());
+                    }
+                    statement.executeUpdate();
+                }
+            }
+
+            bulk.commit();
+        } catch (SQLException e) {
+            bulk.rollback();
+            throw e;
+        }
+
+        int written = batch.size();
+        batch.clear();
+        return written;
+    }
+
+    @Override
+    public long exportAccounts(AccountSink sink, LongConsumer progress) throws SQLException, IOException {
+        String sql = SELECT + "p.uuid, p.username, p.password, p.ip, w.wallet_address, w.wallet_type, w.verified" +
+                " FROM " + tablePrefix + "players p LEFT JOIN " + tablePrefix + "wallets w ON w.uuid = p.uuid";
+        long exported = 0;
+
+        try (Connection bulk = openConnection();
+             Statement statement = bulk.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            statement.setFetchSize(streamingFetchSize());
+
+            try (ResultSet resultSet = statement.executeQuery(sql)) {
+                while (resultSet.next()) {
+                    String walletAddress = resultSet.getString("wallet_address");
+                    WalletRecord wallet = walletAddress == null ? null : new WalletRecord(walletAddress,
+                            resultSet.getString("wallet_type"), resultSet.getBoolean("verified"));
+                    sink.write(new AccountRecord(UUID.fromString(resultSet.getString("uuid")),
+                            resultSet.getString("username"), resultSet.getString(PASSWORD_COLUMN),
+                            resultSet.getString("ip"), wallet));
+
+                    if (++exported % EXPORT_PROGRESS_INTERVAL == 0) {
+                        progress.accept(exported);
+                    }
+                }
+            }
+        }
+
+        progress.accept(exported);
+        return exported;
+    }
+}
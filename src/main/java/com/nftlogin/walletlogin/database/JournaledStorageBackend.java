@@ -0,0 +1,628 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps logins working while the primary database is unreachable.
+ *
+ * Every row read from or written to the primary is copied to a local snapshot, a
+ * {@link LogStorageBackend}. When a call fails because the connection is gone, the backend
+ * switches to degraded mode: reads are answered from the snapshot, and writes are applied to
+ * the snapshot and queued in a memory-mapped journal. A background task reconnects every
+ * {@code retryIntervalMillis} and replays the journal in order before switching back, so the
+ * primary ends up with every write made during the outage. The journal survives restarts.
+ *
+ * Only players seen since the snapshot was started can log in during an outage, and writes
+ * replayed after an outage overwrite changes made to the same rows by other servers meanwhile.
+ */
+public class JournaledStorageBackend implements StorageBackend {
+
+    private static final byte REGISTER_PLAYER = 1;
+    private static final byte UPDATE_PASSWORD = 2;
+    private static final byte UPDATE_LAST_LOGIN = 3;
+    private static final byte SAVE_PLAYER = 4;
+    private static final byte SAVE_SESSION = 5;
+    private static final byte REMOVE_SESSION = 6;
+    private static final byte CONNECT_WALLET = 7;
+    private static final byte DISCONNECT_WALLET = 8;
+    private static final byte SET_WALLET_VERIFIED = 9;
+    private static final byte LINK_VERIFIED_WALLET = 10;
+
+    private final StorageBackend primary;
+    private final LogStorageBackend snapshot;
+    private final File journalFile;
+    private final long syncIntervalMillis;
+    private final long retryIntervalMillis;
+    private final Logger logger;
+    private final List<byte[]> pending = new ArrayList<>();
+    private AppendLog journal;
+    private ScheduledExecutorService executor;
+    private volatile boolean degraded;
+
+    /**
+     * Creates a journaled backend.
+     *
+     * @param primary The database to protect, not yet connected
+     * @param snapshotFile The local copy of the rows seen so far
+     * @param journalFile The queue of writes made during an outage
+     * @param syncIntervalMillis How often both files are flushed to disk, 0 to flush after every write
+     * @param retryIntervalMillis How often to try reconnecting during an outage
+     * @param logger Where outages and rejected writes are reported
+     */
+    public JournaledStorageBackend(StorageBackend primary, File snapshotFile, File journalFile,
+                                   long syncIntervalMillis, long retryIntervalMillis, Logger logger) {
+        this.primary = primary;
+        this.snapshot = new LogStorageBackend(snapshotFile, syncIntervalMillis, false);
+        this.journalFile = journalFile;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.logger = logger;
+    }
+
+    @Override
+    public String getName() {
+        return degraded ? primary.getName() + " [degraded, " + getPendingWrites() + " writes queued]"
+                : primary.getName();
+    }
+
+    /**
+     * Checks if the primary database is currently unreachable.
+     *
+     * @return true if reads come from the local snapshot and writes are queued
+     */
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    /**
+     * Gets the number of writes waiting to be replayed to the primary database.
+     *
+     * @return The number of queued writes
+     */
+    public synchronized int getPendingWrites() {
+        return pending.size();
+    }
+
+    @Override
+    public void connect() throws SQLException {
+        snapshot.connect();
+        synchronized (this) {
+            journal = new AppendLog(journalFile.toPath());
+            try {
+                journal.open(record -> {
+                    byte[] copy = new byte[record.remaining()];
+                    record.get(copy);
+                    pending.add(copy);
+                });
+            } catch (IOException e) {
+                throw new SQLException("Failed to open " + journalFile, e);
+            }
+        }
+
+        try {
+            primary.connect();
+            if (!pending.isEmpty()) {
+                logger.info("Replaying " + pending.size() + " writes queued during a database outage");
+                degraded = true;
+                primary.createTables();
+                replay();
+            }
+        } catch (SQLException e) {
+            if (!isConnectionFailure(e)) {
+                throw e;
+            }
+            degraded = true;
+            logger.log(Level.WARNING, "Could not reach " + primary.getName() + "; starting with "
+                    + pending.size() + " queued writes and serving logins from the local snapshot", e);
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SolanaLogin-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::retry, retryIntervalMillis, retryIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        if (syncIntervalMillis > 0) {
+            executor.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void createTables() throws SQLException {
+        if (!degraded) {
+            primary.createTables();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+        synchronized (this) {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new SQLException("Failed to close " + journalFile, e);
+                }
+                journal = null;
+            }
+        }
+        snapshot.close();
+        primary.close();
+    }
+
+    private synchronized void sync() {
+        if (journal != null) {
+            journal.force();
+        }
+    }
+
+    @Override
+    public String getPasswordHash(UUID uuid) throws SQLException {
+        if (!degraded) {
+            try {
+                String passwordHash = primary.getPasswordHash(uuid);
+                snapshot.cachePassword(uuid, passwordHash);
+                return passwordHash;
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        return snapshot.getPasswordHash(uuid);
+    }
+
+    @Override
+    public boolean registerPlayer(UUID uuid, String username, String passwordHash, String ip) throws SQLException {
+        return write(() -> primary.registerPlayer(uuid, username, passwordHash, ip),
+                () -> snapshot.registerPlayer(uuid, username, passwordHash, ip),
+                REGISTER_PLAYER, uuid, username, passwordHash, ip);
+    }
+
+    @Override
+    public boolean updatePassword(UUID uuid, String passwordHash) throws SQLException {
+        return write(() -> primary.updatePassword(uuid, passwordHash),
+                () -> snapshot.updatePassword(uuid, passwordHash),
+                UPDATE_PASSWORD, uuid, passwordHash);
+    }
+
+    @Override
+    public void updateLastLogin(UUID uuid, String ip) throws SQLException {
+        write(() -> {
+            primary.updateLastLogin(uuid, ip);
+            return true;
+        }, () -> {
+            snapshot.updateLastLogin(uuid, ip);
+            return true;
+        }, UPDATE_LAST_LOGIN, uuid, ip);
+    }
+
+    @Override
+    public void savePlayer(UUID uuid, String username, String ip) throws SQLException {
+        write(() -> {
+            primary.savePlayer(uuid, username, ip);
+            return true;
+        }, () -> {
+            snapshot.savePlayer(uuid, username, ip);
+            return true;
+        }, SAVE_PLAYER, uuid, username, ip);
+    }
+
+    @Override
+    public void saveSession(UUID uuid, String ip) throws SQLException {
+        write(() -> {
+            primary.saveSession(uuid, ip);
+            return true;
+        }, () -> {
+            snapshot.saveSession(uuid, ip);
+            return true;
+        }, SAVE_SESSION, uuid, ip);
+    }
+
+    @Override
+    public void removeSession(UUID uuid) throws SQLException {
+        write(() -> {
+            primary.removeSession(uuid);
+            return true;
+        }, () -> {
+            snapshot.removeSession(uuid);
+            return true;
+        }, REMOVE_SESSION, uuid);
+    }
+
+    @Override
+    public boolean connectWallet(UUID uuid, String walletAddress, String walletType) throws SQLException {
+        return write(() -> primary.connectWallet(uuid, walletAddress, walletType),
+                () -> snapshot.connectWallet(uuid, walletAddress, walletType),
+                CONNECT_WALLET, uuid, walletAddress, walletType);
+    }
+
+    @Override
+    public boolean linkVerifiedWallet(UUID uuid, String walletAddress, String walletType, String linkId)
+            throws SQLException {
+        return write(() -> primary.linkVerifiedWallet(uuid, walletAddress, walletType, linkId),
+                () -> snapshot.linkVerifiedWallet(uuid, walletAddress, walletType, linkId),
+                LINK_VERIFIED_WALLET, uuid, walletAddress, walletType, linkId);
+    }
+
+    @Override
+    public boolean disconnectWallet(UUID uuid) throws SQLException {
+        return write(() -> primary.disconnectWallet(uuid), () -> snapshot.disconnectWallet(uuid),
+                DISCONNECT_WALLET, uuid);
+    }
+
+    @Override
+    public Optional<WalletRecord> getWallet(UUID uuid) throws SQLException {
+        if (!degraded) {
+            try {
+                Optional<WalletRecord> wallet = primary.getWallet(uuid);
+                snapshot.cacheWallet(uuid, wallet);
+                return wallet;
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        return snapshot.getWallet(uuid);
+    }
+
+    @Override
+    public Map<UUID, WalletRecord> getWallets(Collection<UUID> uuids) throws SQLException {
+        if (!degraded) {
+            try {
+                Map<UUID, WalletRecord> wallets = primary.getWallets(uuids);
+                for (UUID uuid : uuids) {
+                    snapshot.cacheWallet(uuid, Optional.ofNullable(wallets.get(uuid)));
+                }
+                return wallets;
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        return snapshot.getWallets(uuids);
+    }
+
+    @Override
+    public boolean setWalletVerified(UUID uuid, boolean verified) throws SQLException {
+        return write(() -> primary.setWalletVerified(uuid, verified),
+                () -> snapshot.setWalletVerified(uuid, verified),
+                SET_WALLET_VERIFIED, uuid, Boolean.toString(verified));
+    }
+
+    @Override
+    public void forEachWallet(BiConsumer<UUID, String> consumer) throws SQLException {
+        if (!degraded) {
+            try {
+                primary.forEachWallet(consumer);
+                return;
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        snapshot.forEachWallet(consumer);
+    }
+
+    @Override
+    public void forEachRegisteredPlayer(Consumer<UUID> consumer) throws SQLException {
+        if (!degraded) {
+            try {
+                primary.forEachRegisteredPlayer(consumer);
+                return;
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        snapshot.forEachRegisteredPlayer(consumer);
+    }
+
+    @Override
+    public List<String> getWalletAddressesAfter(String afterAddress, int limit) throws SQLException {
+        if (!degraded) {
+            try {
+                return primary.getWalletAddressesAfter(afterAddress, limit);
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        return snapshot.getWalletAddressesAfter(afterAddress, limit);
+    }
+
+    @Override
+    public void saveOwnership(List<OwnershipRecord> records) throws SQLException {
+        // Ownership is a cache of the chain, so it isn't journaled: lost writes are just re-checked
+        if (!degraded) {
+            try {
+                primary.saveOwnership(records);
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        snapshot.saveOwnership(records);
+    }
+
+    @Override
+    public void forEachOwnership(Consumer<OwnershipRecord> consumer) throws SQLException {
+        if (!degraded) {
+            try {
+                primary.forEachOwnership(consumer);
+                return;
+            } catch (SQLException e) {
+                failOver(e);
+            }
+        }
+        snapshot.forEachOwnership(consumer);
+    }
+
+    @Override
+    public int pruneSessions(long maxAgeSeconds, int limit) throws SQLException {
+        // Maintenance waits until the primary is back and the queued writes are replayed
+        if (degraded) {
+            return 0;
+        }
+        snapshot.pruneSessions(maxAgeSeconds, limit);
+        return primary.pruneSessions(maxAgeSeconds, limit);
+    }
+
+    @Override
+    public int pruneUnregisteredPlayers(long maxAgeSeconds, int limit) throws SQLException {
+        if (degraded) {
+            return 0;
+        }
+        snapshot.pruneUnregisteredPlayers(maxAgeSeconds, limit);
+        return primary.pruneUnregisteredPlayers(maxAgeSeconds, limit);
+    }
+
+    @Override
+    public long importAccounts(AccountSource source, int batchSize, LongConsumer progress)
+            throws SQLException, IOException {
+        requireConnected();
+        return primary.importAccounts(source, batchSize, progress);
+    }
+
+    @Override
+    public long exportAccounts(AccountSink sink, LongConsumer progress) throws SQLException, IOException {
+        requireConnected();
+        return primary.exportAccounts(sink, progress);
+    }
+
+    /**
+     * Bulk operations go straight to the primary: they are far too large to queue.
+     */
+    private void requireConnected() throws SQLException {
+        if (degraded) {
+            throw new SQLException(primary.getName() + " is unreachable");
+        }
+    }
+
+    /**
+     * Writes to the primary and the snapshot, or to the snapshot and the journal during an outage.
+     *
+     * @return The primary's result, or the snapshot's during an outage
+     */
+    private boolean write(SqlCall primaryCall, SqlCall snapshotCall, byte type, UUID uuid, String... values)
+            throws SQLException {
+        while (true) {
+            if (!degraded) {
+                try {
+                    // A write the primary refused, like registering a registered player, isn't cached
+                    boolean result = primaryCall.call();
+                    if (result) {
+                        snapshotCall.call();
+                    }
+                    return result;
+                } catch (SQLException e) {
+                    failOver(e);
+                }
+            }
+
+            synchronized (this) {
+                // A replay may have finished since the check above; its journal is already cleared
+                if (degraded) {
+                    byte[] record = encode(type, uuid, values);
+                    try {
+                        journal.append(record);
+                        if (syncIntervalMillis <= 0) {
+                            journal.force();
+                        }
+                    } catch (IOException e) {
+                        throw new SQLException("Failed to write to " + journalFile, e);
+                    }
+                    pending.add(record);
+                    break;
+                }
+            }
+        }
+        return snapshotCall.call();
+    }
+
+    /**
+     * Switches to degraded mode if the primary's connection is gone, or rethrows anything else.
+     */
+    private void failOver(SQLException e) throws SQLException {
+        if (!isConnectionFailure(e)) {
+            throw e;
+        }
+        enterDegraded(e);
+    }
+
+    private synchronized void enterDegraded(SQLException cause) {
+        if (!degraded) {
+            degraded = true;
+            logger.log(Level.WARNING, "Lost the connection to " + primary.getName() +
+                    "; serving logins from the local snapshot and queueing writes until it is back", cause);
+        }
+    }
+
+    private static boolean isConnectionFailure(SQLException e) {
+        String state = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || e instanceof SQLRecoverableException || e instanceof SQLTimeoutException
+                || (state != null && state.startsWith("08"));
+    }
+
+    /**
+     * Reconnects to the primary during an outage and replays the queued writes.
+     */
+    private void retry() {
+        if (!degraded) {
+            return;
+        }
+
+        try {
+            primary.close();
+        } catch (SQLException e) {
+            // The old connection is broken anyway
+        }
+
+        try {
+            primary.connect();
+            primary.createTables();
+            replay();
+        } catch (SQLException e) {
+            logger.log(Level.FINE, "Database still unreachable", e);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Error replaying queued writes", e);
+        }
+    }
+
+    /**
+     * Applies the queued writes to the primary in order, then leaves degraded mode. Writes
+     * queued while replaying are replayed too; the journal is only cleared once it is empty.
+     */
+    private void replay() throws SQLException {
+        int replayed = 0;
+        try {
+            while (true) {
+                byte[] record;
+                synchronized (this) {
+                    if (replayed == pending.size()) {
+                        pending.clear();
+                        replayed = 0;
+                        journal.rewrite(Collections.emptyList());
+                        degraded = false;
+                        logger.info("Reconnected to " + primary.getName() + "; queued writes replayed");
+                        return;
+                    }
+                    record = pending.get(replayed);
+                }
+
+                try {
+                    apply(ByteBuffer.wrap(record));
+                } catch (SQLException e) {
+                    if (isConnectionFailure(e)) {
+                        throw e;
+                    }
+                    logger.log(Level.WARNING, "Dropping a queued write rejected by " + primary.getName(), e);
+                }
+                replayed++;
+            }
+        } catch (IOException e) {
+            throw new SQLException("Failed to clear " + journalFile, e);
+        } finally {
+            if (replayed > 0) {
+                forgetReplayed(replayed);
+            }
+        }
+    }
+
+    /**
+     * Removes writes that already reached the primary from the journal, after a failed replay.
+     */
+    private synchronized void forgetReplayed(int replayed) {
+        pending.subList(0, replayed).clear();
+        try {
+            journal.rewrite(pending);
+        } catch (IOException e) {
+            // The writes stay queued and are replayed again; they are all idempotent
+            logger.log(Level.WARNING, "Failed to shorten " + journalFile, e);
+        }
+    }
+
+    private void apply(ByteBuffer record) throws SQLException {
+        byte type = record.get();
+        UUID uuid = new UUID(record.getLong(), record.getLong());
+        switch (type) {
+            case REGISTER_PLAYER:
+                primary.registerPlayer(uuid, Records.readString(record), Records.readString(record),
+                        Records.readString(record));
+                break;
+            case UPDATE_PASSWORD:
+                primary.updatePassword(uuid, Records.readString(record));
+                break;
+            case UPDATE_LAST_LOGIN:
+                primary.updateLastLogin(uuid, Records.readString(record));
+                break;
+            case SAVE_PLAYER:
+                primary.savePlayer(uuid, Records.readString(record), Records.readString(record));
+                break;
+            case SAVE_SESSION:
+                primary.saveSession(uuid, Records.readString(record));
+                break;
+            case REMOVE_SESSION:
+                primary.removeSession(uuid);
+                break;
+            case CONNECT_WALLET:
+                primary.connectWallet(uuid, Records.readString(record), Records.readString(record));
+                break;
+            case DISCONNECT_WALLET:
+                primary.disconnectWallet(uuid);
+                break;
+            case SET_WALLET_VERIFIED:
+                primary.setWalletVerified(uuid, Boolean.parseBoolean(Records.readString(record)));
+                break;
+            case LINK_VERIFIED_WALLET:
+                primary.linkVerifiedWallet(uuid, Records.readString(record), Records.readString(record),
+                        Records.readString(record));
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private static byte[] encode(byte type, UUID uuid, String... values) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            for (String value : values) {
+                Records.writeString(out, value);
+            }
+        } catch (IOException e) {
+            // Writing to a byte array can't fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface SqlCall {
+        boolean call() throws SQLException;
+    }
+}
@@ -0,0 +1,594 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Storage backend that keeps every row in memory, for single-node servers and tests.
+ *
+ * With a file, every change is appended to a memory-mapped {@link AppendLog} as the full new
+ * state of the changed row, and the log is replayed on startup. The log is flushed to disk
+ * every {@code syncIntervalMillis} (or after every write when that is 0) and compacted into a
+ * snapshot once it holds far more records than there are rows. Without a file the store is
+ * purely in memory and starts empty.
+ */
+public class LogStorageBackend implements StorageBackend {
+
+    private static final byte PLAYER = 1;
+    private static final byte WALLET = 2;
+    private static final byte WALLET_REMOVED = 3;
+    private static final byte SESSION = 4;
+    private static final byte SESSION_REMOVED = 5;
+    private static final byte PLAYER_REMOVED = 6;
+    private static final byte OWNERSHIP = 7;
+
+    /**
+     * Ownership records are keyed by wallet address, not player, so their UUID slot is unused.
+     */
+    private static final UUID NO_UUID = new UUID(0, 0);
+
+    private static final int COMPACT_MIN_RECORDS = 10_000;
+
+    private final File file;
+    private final long syncIntervalMillis;
+    private final boolean enforceForeignKeys;
+    private final Map<UUID, PlayerRow> players = new HashMap<>();
+    private final Map<UUID, WalletRow> wallets = new HashMap<>();
+    private final Map<UUID, SessionRow> sessions = new HashMap<>();
+    private final Map<String, OwnershipRecord> ownership = new HashMap<>();
+    private AppendLog log;
+    private ScheduledExecutorService syncExecutor;
+
+    /**
+     * Creates a store backed by an append-only log.
+     *
+     * @param file The log file, or null for a purely in-memory store
+     * @param syncIntervalMillis How often to flush the log to disk, 0 to flush after every write
+     */
+    public LogStorageBackend(File file, long syncIntervalMillis) {
+        this(file, syncIntervalMillis, true);
+    }
+
+    /**
+     * Creates a store backed by an append-only log.
+     *
+     * @param file The log file, or null for a purely in-memory store
+     * @param syncIntervalMillis How often to flush the log to disk, 0 to flush after every write
+     * @param enforceForeignKeys Whether wallets and sessions need an existing player, as in SQL;
+     *                           a partial copy of another database can't always satisfy this
+     */
+    LogStorageBackend(File file, long syncIntervalMillis, boolean enforceForeignKeys) {
+        this.file = file;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.enforceForeignKeys = enforceForeignKeys;
+    }
+
+    @Override
+    public String getName() {
+        return file == null ? "In-memory" : "Append log (" + file.getName() + ")";
+    }
+
+    @Override
+    public synchronized void connect() throws SQLException {
+        if (file == null) {
+            return;
+        }
+
+        log = new AppendLog(file.toPath());
+        try {
+            log.open(this::apply);
+            compactIfNeeded();
+        } catch (IOException | RuntimeException e) {
+            throw new SQLException("Failed to open " + file, e);
+        }
+
+        if (syncIntervalMillis > 0) {
+            syncExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "SolanaLogin-log-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncExecutor.scheduleWithFixedDelay(this::sync, syncIntervalMillis, syncIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void createTables() {
+        // Nothing to create: the log holds its own structure
+    }
+
+    @Override
+    public synchronized void close() throws SQLException {
+        if (syncExecutor != null) {
+            syncExecutor.shutdown();
+            syncExecutor = null;
+        }
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                throw new SQLException("Failed to close " + file, e);
+            }
+            log = null;
+        }
+    }
+
+    private synchronized void sync() {
+        if (log != null) {
+            log.force();
+        }
+    }
+
+    @Override
+    public synchronized String getPasswordHash(UUID uuid) {
+        PlayerRow player = players.get(uuid);
+        return player == null ? null : player.passwordHash;
+    }
+
+    @Override
+    public synchronized boolean registerPlayer(UUID uuid, String username, String passwordHash, String ip)
+            throws SQLException {
+        PlayerRow existing = players.get(uuid);
+        if (existing != null && existing.passwordHash != null && !existing.passwordHash.isEmpty()) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        write(PLAYER, uuid, new PlayerRow(username, passwordHash, ip, now,
+                existing == null ? now : existing.registeredAt));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean updatePassword(UUID uuid, String passwordHash) throws SQLException {
+        PlayerRow existing = players.get(uuid);
+        if (existing == null) {
+            return false;
+        }
+        write(PLAYER, uuid, new PlayerRow(existing.username, passwordHash, existing.ip,
+                System.currentTimeMillis(), existing.registeredAt));
+        return true;
+    }
+
+    @Override
+    public synchronized void updateLastLogin(UUID uuid, String ip) throws SQLException {
+        PlayerRow existing = players.get(uuid);
+        if (existing != null) {
+            write(PLAYER, uuid, new PlayerRow(existing.username, existing.passwordHash, ip,
+                    System.currentTimeMillis(), existing.registeredAt));
+        }
+    }
+
+    @Override
+    public synchronized void savePlayer(UUID uuid, String username, String ip) throws SQLException {
+        PlayerRow existing = players.get(uuid);
+        long now = System.currentTimeMillis();
+        write(PLAYER, uuid, existing == null
+                ? new PlayerRow(username, null, ip, now, now)
+                : new PlayerRow(username, existing.passwordHash, ip, now, existing.registeredAt));
+    }
+
+    @Override
+    public synchronized void saveSession(UUID uuid, String ip) throws SQLException {
+        requirePlayer(uuid);
+        write(SESSION, uuid, new SessionRow(ip, System.currentTimeMillis()));
+    }
+
+    @Override
+    public synchronized void removeSession(UUID uuid) throws SQLException {
+        if (sessions.containsKey(uuid)) {
+            write(SESSION_REMOVED, uuid, null);
+        }
+    }
+
+    @Override
+    public synchronized boolean connectWallet(UUID uuid, String walletAddress, String walletType)
+            throws SQLException {
+        requirePlayer(uuid);
+        WalletRow existing = wallets.get(uuid);
+        write(WALLET, uuid, new WalletRow(walletAddress, walletType,
+                existing != null && existing.verified, System.currentTimeMillis()));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean linkVerifiedWallet(UUID uuid, String walletAddress, String walletType,
+                                                   String linkId) throws SQLException {
+        requirePlayer(uuid);
+        WalletRow existing = wallets.get(uuid);
+        if (existing == null || !existing.verified || !walletAddress.equals(existing.address)
+                || !Objects.equals(walletType, existing.type)) {
+            write(WALLET, uuid, new WalletRow(walletAddress, walletType, true, System.currentTimeMillis()));
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean disconnectWallet(UUID uuid) throws SQLException {
+        if (!wallets.containsKey(uuid)) {
+            return false;
+        }
+        write(WALLET_REMOVED, uuid, null);
+        return true;
+    }
+
+    @Override
+    public synchronized Optional<WalletRecord> getWallet(UUID uuid) {
+        WalletRow wallet = wallets.get(uuid);
+        return wallet == null ? Optional.empty()
+                : Optional.of(new WalletRecord(wallet.address, wallet.type, wallet.verified));
+    }
+
+    @Override
+    public synchronized Map<UUID, WalletRecord> getWallets(Collection<UUID> uuids) {
+        Map<UUID, WalletRecord> found = new HashMap<>();
+        for (UUID uuid : uuids) {
+            WalletRow wallet = wallets.get(uuid);
+            if (wallet != null) {
+                found.put(uuid, new WalletRecord(wallet.address, wallet.type, wallet.verified));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public synchronized boolean setWalletVerified(UUID uuid, boolean verified) throws SQLException {
+        WalletRow existing = wallets.get(uuid);
+        if (existing == null) {
+            return false;
+        }
+        write(WALLET, uuid, new WalletRow(existing.address, existing.type, verified, existing.connectedAt));
+        return true;
+    }
+
+    @Override
+    public synchronized void forEachWallet(BiConsumer<UUID, String> consumer) {
+        wallets.forEach((uuid, wallet) -> consumer.accept(uuid, wallet.address));
+    }
+
+    @Override
+    public synchronized void forEachRegisteredPlayer(Consumer<UUID> consumer) {
+        players.forEach((uuid, player) -> {
+            if (player.passwordHash != null && !player.passwordHash.isEmpty()) {
+                consumer.accept(uuid);
+            }
+        });
+    }
+
+    @Override
+    public synchronized List<String> getWalletAddressesAfter(String afterAddress, int limit) {
+        List<String> addresses = new ArrayList<>();
+        for (WalletRow wallet : wallets.values()) {
+            if (wallet.address.compareTo(afterAddress) > 0) {
+                addresses.add(wallet.address);
+            }
+        }
+        Collections.sort(addresses);
+        return addresses.size() > limit ? new ArrayList<>(addresses.subList(0, limit)) : addresses;
+    }
+
+    @Override
+    public synchronized void saveOwnership(List<OwnershipRecord> records) throws SQLException {
+        for (OwnershipRecord record : records) {
+            write(OWNERSHIP, NO_UUID, record);
+        }
+    }
+
+    @Override
+    public synchronized void forEachOwnership(Consumer<OwnershipRecord> consumer) {
+        ownership.values().forEach(consumer);
+    }
+
+    @Override
+    public synchronized int pruneSessions(long maxAgeSeconds, int limit) throws SQLException {
+        long cutoff = System.currentTimeMillis() - maxAgeSeconds * 1000;
+        List<UUID> expired = new ArrayList<>();
+        for (Map.Entry<UUID, SessionRow> entry : sessions.entrySet()) {
+            if (expired.size() == limit) {
+                break;
+            }
+            if (entry.getValue().lastLogin < cutoff) {
+                expired.add(entry.getKey());
+            }
+        }
+
+        for (UUID uuid : expired) {
+            write(SESSION_REMOVED, uuid, null);
+        }
+        return expired.size();
+    }
+
+    @Override
+    public synchronized int pruneUnregisteredPlayers(long maxAgeSeconds, int limit) throws SQLException {
+        long cutoff = System.currentTimeMillis() - maxAgeSeconds * 1000;
+        List<UUID> stale = new ArrayList<>();
+        for (Map.Entry<UUID, PlayerRow> entry : players.entrySet()) {
+            if (stale.size() == limit) {
+                break;
+            }
+            PlayerRow player = entry.getValue();
+            boolean registered = player.passwordHash != null && !player.passwordHash.isEmpty();
+            if (!registered && player.lastLogin < cutoff && !wallets.containsKey(entry.getKey())) {
+                stale.add(entry.getKey());
+            }
+        }
+
+        for (UUID uuid : stale) {
+            write(PLAYER_REMOVED, uuid, null);
+        }
+        return stale.size();
+    }
+
+    @Override
+    public long importAccounts(AccountSource source, int batchSize, LongConsumer progress)
+            throws SQLException, IOException {
+        long imported = 0;
+        AccountRecord account;
+        while ((account = source.next()) != null) {
+            importAccount(account);
+            if (++imported % batchSize == 0) {
+                progress.accept(imported);
+            }
+        }
+        progress.accept(imported);
+        return imported;
+    }
+
+    private synchronized void importAccount(AccountRecord account) throws SQLException {
+        PlayerRow existing = players.get(account.getUuid());
+        long now = System.currentTimeMillis();
+        write(PLAYER, account.getUuid(), new PlayerRow(account.getUsername(), account.getPasswordHash(),
+                account.getIp(), existing == null ? now : existing.lastLogin,
+                existing == null ? now : existing.registeredAt));
+
+        WalletRecord wallet = account.getWallet();
+        if (wallet != null) {
+            write(WALLET, account.getUuid(), new WalletRow(wallet.getAddress(), wallet.getType(),
+                    wallet.isVerified(), now));
+        }
+    }
+
+    @Override
+    public long exportAccounts(AccountSink sink, LongConsumer progress) throws IOException {
+        List<AccountRecord> accounts;
+        synchronized (this) {
+            accounts = new ArrayList<>(players.size());
+            players.forEach((uuid, player) -> {
+                WalletRow wallet = wallets.get(uuid);
+                accounts.add(new AccountRecord(uuid, player.username, player.passwordHash, player.ip,
+                        wallet == null ? null : new WalletRecord(wallet.address, wallet.type, wallet.verified)));
+            });
+        }
+
+        // Every row is in memory anyway; write them without holding the lock
+        for (AccountRecord account : accounts) {
+            sink.write(account);
+        }
+        progress.accept(accounts.size());
+        return accounts.size();
+    }
+
+    /**
+     * Stores a password hash read from another database, logging it only if it changed.
+     *
+     * @param uuid The player's UUID
+     * @param passwordHash The hash, or null if the player has none
+     */
+    synchronized void cachePassword(UUID uuid, String passwordHash) throws SQLException {
+        PlayerRow existing = players.get(uuid);
+        if (existing == null ? passwordHash == null : Objects.equals(existing.passwordHash, passwordHash)) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        write(PLAYER, uuid, existing == null
+                ? new PlayerRow(null, passwordHash, null, now, now)
+                : new PlayerRow(existing.username, passwordHash, existing.ip, existing.lastLogin,
+                        existing.registeredAt));
+    }
+
+    /**
+     * Stores a wallet read from another database, logging it only if it changed.
+     *
+     * @param uuid The player's UUID
+     * @param wallet The wallet, or empty if the player has none
+     */
+    synchronized void cacheWallet(UUID uuid, Optional<WalletRecord> wallet) throws SQLException {
+        WalletRow existing = wallets.get(uuid);
+        if (!wallet.isPresent()) {
+            if (existing != null) {
+                write(WALLET_REMOVED, uuid, null);
+            }
+            return;
+        }
+
+        WalletRecord record = wallet.get();
+        if (existing == null || !Objects.equals(existing.address, record.getAddress())
+                || !Objects.equals(existing.type, record.getType()) || existing.verified != record.isVerified()) {
+            write(WALLET, uuid, new WalletRow(record.getAddress(), record.getType(), record.isVerified(),
+                    existing == null ? System.currentTimeMillis() : existing.connectedAt));
+        }
+    }
+
+    /**
+     * Mirrors the foreign keys of the SQL schema, so this store accepts the same writes.
+     */
+    private void requirePlayer(UUID uuid) throws SQLException {
+        if (enforceForeignKeys && !players.containsKey(uuid)) {
+            throw new SQLException("No player with UUID " + uuid);
+        }
+    }
+
+    /**
+     * Logs a change and applies it to the in-memory tables.
+     */
+    private void write(byte type, UUID uuid, Object row) throws SQLException {
+        byte[] record = encode(type, uuid, row);
+        if (log != null) {
+            try {
+                log.append(record);
+                if (syncIntervalMillis <= 0) {
+                    log.force();
+                }
+                compactIfNeeded();
+            } catch (IOException e) {
+                throw new SQLException("Failed to write to " + file, e);
+            }
+        }
+        apply(ByteBuffer.wrap(record));
+    }
+
+    private void compactIfNeeded() throws IOException {
+        int liveRows = players.size() + wallets.size() + sessions.size() + ownership.size();
+        if (log.getRecordCount() < Math.max(COMPACT_MIN_RECORDS, liveRows * 4)) {
+            return;
+        }
+
+        List<byte[]> snapshot = new ArrayList<>(liveRows);
+        players.forEach((uuid, row) -> snapshot.add(encode(PLAYER, uuid, row)));
+        wallets.forEach((uuid, row) -> snapshot.add(encode(WALLET, uuid, row)));
+        sessions.forEach((uuid, row) -> snapshot.add(encode(SESSION, uuid, row)));
+        ownership.values().forEach(row -> snapshot.add(encode(OWNERSHIP, NO_UUID, row)));
+        log.rewrite(snapshot);
+    }
+
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        UUID uuid = new UUID(record.getLong(), record.getLong());
+        switch (type) {
+            case PLAYER:
+                players.put(uuid, new PlayerRow(Records.readString(record), Records.readString(record),
+                        Records.readString(record), record.getLong(), record.getLong()));
+                break;
+            case WALLET:
+                wallets.put(uuid, new WalletRow(Records.readString(record), Records.readString(record),
+                        record.get() != 0, record.getLong()));
+                break;
+            case WALLET_REMOVED:
+                wallets.remove(uuid);
+                break;
+            case SESSION:
+                sessions.put(uuid, new SessionRow(Records.readString(record), record.getLong()));
+                break;
+            case SESSION_REMOVED:
+                sessions.remove(uuid);
+                break;
+            case PLAYER_REMOVED:
+                // Like the SQL schema's ON DELETE CASCADE
+                players.remove(uuid);
+                wallets.remove(uuid);
+                sessions.remove(uuid);
+                break;
+            case OWNERSHIP:
+                String address = Records.readString(record);
+                Set<String> mints = new HashSet<>();
+                for (int count = record.getInt(); count > 0; count--) {
+                    mints.add(Records.readString(record));
+                }
+                ownership.put(address, new OwnershipRecord(address, mints, record.getLong()));
+                break;
+            default:
+                throw new IllegalStateException("Unknown record type " + type);
+        }
+    }
+
+    private static byte[] encode(byte type, UUID uuid, Object row) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+
+            if (row instanceof PlayerRow) {
+                PlayerRow player = (PlayerRow) row;
+                Records.writeString(out, player.username);
+                Records.writeString(out, player.passwordHash);
+                Records.writeString(out, player.ip);
+                out.writeLong(player.lastLogin);
+                out.writeLong(player.registeredAt);
+            } else if (row instanceof WalletRow) {
+                WalletRow wallet = (WalletRow) row;
+                Records.writeString(out, wallet.address);
+                Records.writeString(out, wallet.type);
+                out.writeByte(wallet.verified ? 1 : 0);
+                out.writeLong(wallet.connectedAt);
+            } else if (row instanceof SessionRow) {
+                SessionRow session = (SessionRow) row;
+                Records.writeString(out, session.ip);
+                out.writeLong(session.lastLogin);
+            } else if (row instanceof OwnershipRecord) {
+                OwnershipRecord owned = (OwnershipRecord) row;
+                Records.writeString(out, owned.getAddress());
+                out.writeInt(owned.getMints().size());
+                for (String mint : owned.getMints()) {
+                    Records.writeString(out, mint);
+                }
+                out.writeLong(owned.getCheckedAt());
+            }
+        } catch (IOException e) {
+            // Writing to a byte array can't fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static class PlayerRow {
+        private final String username;
+        private final String passwordHash;
+        private final String ip;
+        private final long lastLogin;
+        private final long registeredAt;
+
+        PlayerRow(String username, String passwordHash, String ip, long lastLogin, long registeredAt) {
+            this.username = username;
+            this.passwordHash = passwordHash;
+            this.ip = ip;
+            this.lastLogin = lastLogin;
+            this.registeredAt = registeredAt;
+        }
+    }
+
+    private static class WalletRow {
+        private final String address;
+        private final String type;
+        private final boolean verified;
+        private final long connectedAt;
+
+        WalletRow(String address, String type, boolean verified, long connectedAt) {
+            this.address = address;
+            this.type = type;
+            this.verified = verified;
+            this.connectedAt = connectedAt;
+        }
+    }
+
+    private static class SessionRow {
+        private final String ip;
+        private final long lastLogin;
+
+        SessionRow(String ip, long lastLogin) {
+            this.ip = ip;
+            this.lastLogin = lastLogin;
+        }
+    }
+}
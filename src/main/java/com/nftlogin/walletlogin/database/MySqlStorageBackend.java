@@ -0,0 +1,89 @@
+package com.nftlogin.walletlogin.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Storage backend for a MySQL or MariaDB server.
+ */
+public class MySqlStorageBackend extends JdbcStorageBackend {
+
+    private final String host;
+    private final int port;
+    private final String database;
+    private final String username;
+    private final String password;
+
+    public MySqlStorageBackend(String host, int port, String database, String username, String password,
+                               String tablePrefix, QueryTracer tracer) {
+        super(tablePrefix, tracer);
+        this.host = host;
+        this.port = port;
+        this.database = database;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL (" + host + ":" + port + "/" + database + ")";
+    }
+
+    @Override
+    protected Connection openConnection() throws SQLException {
+        String url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useSSL=false&allowPublicKeyRetrieval=true";
+        return DriverManager.getConnection(url, username, password);
+    }
+
+    @Override
+    protected int streamingFetchSize() {
+        // Connector/J only streams rows one by one with this special value
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    protected String upsert(String table, String[] columns, int rows, String[] updatedColumns,
+                            String... touchedColumns) {
+        // ON DUPLICATE KEY UPDATE fires on any unique index, so only update rows whose primary key matched
+        String samePrimaryKey = "IF(" + columns[0] + " = VALUES(" + columns[0] + "), ";
+        StringBuilder sql = insertInto(table, columns, rows).append(" ON DUPLICATE KEY UPDATE ");
+        for (int i = 0; i < updatedColumns.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(updatedColumns[i]).append(" = ").append(samePrimaryKey)
+                    .append("VALUES(").append(updatedColumns[i]).append("), ").append(updatedColumns[i]).append(')');
+        }
+        for (String column : touchedColumns) {
+            sql.append(", ").append(column).append(" = ").append(samePrimaryKey)
+                    .append("CURRENT_TIMESTAMP, ").append(column).append(')');
+        }
+        return sql.toString();
+    }
+
+    @Override
+    protected boolean isUniqueViolation(SQLException e) {
+        // ER_DUP_ENTRY
+        return e.getErrorCode() == 1062;
+    }
+
+    @Override
+    protected boolean isPrimaryKeyViolation(SQLException e, String primaryKey) {
+        // "Duplicate entry '...' for key 'PRIMARY'", qualified with the table name since MySQL 8.0.19
+        return e.getMessage() != null && e.getMessage().endsWith("PRIMARY'");
+    }
+
+    @Override
+    protected String secondsAgo() {
+        return "CURRENT_TIMESTAMP - INTERVAL ? SECOND";
+    }
+
+    @Override
+    protected String deleteLimited(String table, String where) {
+        // MySQL can't LIMIT a subquery used with IN, but supports DELETE ... LIMIT directly
+        return "DELETE FROM " + tablePrefix + table + " WHERE " + where + " LIMIT ?";
+    }
+
+    @Override
+    protected String onUpdateCurrentTimestamp() {
+        return " ON UPDATE CURRENT_TIMESTAMP";
+    }
+}
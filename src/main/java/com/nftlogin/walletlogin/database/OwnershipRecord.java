@@ -0,0 +1,43 @@
+package com.nftlogin.walletlogin.database;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Immutable result of an on-chain ownership check: which of the configured token mints a
+ * wallet held, and when that was checked.
+ */
+public class OwnershipRecord {
+
+    private final String address;
+    private final Set<String> mints;
+    private final long checkedAt;
+
+    public OwnershipRecord(String address, Set<String> mints, long checkedAt) {
+        this.address = address;
+        this.mints = Collections.unmodifiableSet(mints);
+        this.checkedAt = checkedAt;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    /**
+     * Gets the configured mints the wallet held.
+     *
+     * @return The mints, empty if it held none
+     */
+    public Set<String> getMints() {
+        return mints;
+    }
+
+    /**
+     * Gets when the wallet was checked.
+     *
+     * @return The time in milliseconds
+     */
+    public long getCheckedAt() {
+        return checkedAt;
+    }
+}
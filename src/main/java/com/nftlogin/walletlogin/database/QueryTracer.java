@@ -0,0 +1,283 @@
+package com.nftlogin.walletlogin.database;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.metrics.LatencyHistogram;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Times every statement issued by the database layer.
+ *
+ * {@link #prepare(Connection, String, String)} returns a statement that reports to the
+ * tracer when it is closed, so a normal try-with-resources block covers the whole round
+ * trip: prepare, execute and reading the results. Each operation gets its own latency
+ * histogram. Statements slower than {@code database.slow-query.threshold-ms} are counted
+ * and, for the configured sample of them, logged with their duration, row count and the
+ * plugin code that issued them.
+ *
+ * Each backend has a tracer of its own, and a statement also holds the tracer's lock until it
+ * is closed, so statements on the shared connection run one at a time. The connection serializes
+ * them anyway, but MySQL Connector/J 8 does it with {@code synchronized} blocks, and a virtual
+ * thread waiting to enter one pins its carrier thread; with a few dozen logins waiting, every
+ * carrier is pinned and the executor's web and RPC calls stall too. Waiting on the lock parks a
+ * virtual thread instead. Connector/J 9.0 and later use locks internally, so with a newer driver
+ * the lock is only an extra uncontended acquire per statement.
+ */
+public class QueryTracer {
+
+    private static final String PLUGIN_PACKAGE = "com.nftlogin.walletlogin.";
+    private static final String DATABASE_PACKAGE = PLUGIN_PACKAGE + "database.";
+
+    private final Logger logger;
+    private final MetricsRegistry metrics;
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Counter inFlight;
+    private final long slowThresholdNanos;
+    private final double slowSampleRate;
+    private final ReentrantLock connectionLock = new ReentrantLock();
+
+    public QueryTracer(SolanaLogin plugin) {
+        this(plugin.getLogger(), plugin.getMetrics(),
+                plugin.getConfig().getLong("database.slow-query.threshold-ms", 100),
+                plugin.getConfig().getDouble("database.slow-query.sample-rate", 1.0));
+    }
+
+    /**
+     * Creates a tracer outside the server, for example for the offline import tool.
+     *
+     * @param logger Where slow queries are logged
+     * @param metrics Where timings are recorded
+     * @param slowThresholdMillis The duration from which a query counts as slow
+     * @param slowSampleRate The fraction of slow queries to log
+     */
+    public QueryTracer(Logger logger, MetricsRegistry metrics, long slowThresholdMillis, double slowSampleRate) {
+        this.logger = logger;
+        this.metrics = metrics;
+        this.inFlight = metrics.upDownCounter("solanalogin_db_queries_in_flight",
+                "Database operations currently waiting on the connection");
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+        this.slowSampleRate = slowSampleRate;
+    }
+
+    /**
+     * Prepares a traced statement, waiting for the statements of other threads to be closed.
+     *
+     * @param connection The connection
+     * @param operation The operation name, normally the calling method's name
+     * @param sql The SQL
+     * @return A statement that records its timing when closed
+     * @throws SQLException If the statement can't be prepared
+     */
+    public PreparedStatement prepare(Connection connection, String operation, String sql) throws SQLException {
+        Trace trace = new Trace(operation);
+        connectionLock.lock();
+        try {
+            trace.statement = connection.prepareStatement(sql);
+        } catch (SQLException e) {
+            trace.failed = true;
+            trace.finish();
+            throw e;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(QueryTracer.class.getClassLoader(),
+                new Class<?>[] {PreparedStatement.class}, trace);
+    }
+
+    /**
+     * Runs several statements on the connection as one transaction, keeping the statements of
+     * other threads out until it is committed or rolled back.
+     *
+     * @param connection The connection
+     * @param transaction The statements, prepared through this tracer
+     * @return The transaction's result
+     * @throws SQLException If a statement fails, after rolling the transaction back
+     */
+    public <T> T transaction(Connection connection, Transaction<T> transaction) throws SQLException {
+        connectionLock.lock();
+        try {
+            connection.setAutoCommit(false);
+            try {
+                T result = transaction.run();
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the logger slow queries are reported to, which the backend also uses for its own warnings.
+     *
+     * @return The logger
+     */
+    public Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * Gets the latency histogram of a database operation.
+     *
+     * @param operation The operation name
+     * @return The histogram
+     */
+    public LatencyHistogram getTimer(String operation) {
+        LatencyHistogram timer = timers.get(operation);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(operation, op -> metrics.histogram(
+                    "solanalogin_db_query_seconds", "Latency of database operations", "operation", op));
+        }
+        return timer;
+    }
+
+    private void record(Trace trace, long elapsedNanos) {
+        getTimer(trace.operation).record(elapsedNanos);
+        if (trace.failed) {
+            metrics.counter("solanalogin_db_query_errors_total", "Database operations that threw an exception",
+                    "operation", trace.operation).increment();
+        }
+
+        if (elapsedNanos < slowThresholdNanos) {
+            return;
+        }
+        metrics.counter("solanalogin_db_slow_queries_total", "Database operations over the slow-query threshold",
+                "operation", trace.operation).increment();
+
+        if (slowSampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < slowSampleRate) {
+            logger.warning(String.format(Locale.ROOT, "Slow query: %s took %.1f ms (%s, %s) from %s on %s",
+                    trace.operation, elapsedNanos / 1_000_000.0,
+                    trace.rows < 0 ? "no result" : trace.rows + (trace.rows == 1 ? " row" : " rows"),
+                    trace.failed ? "failed" : "ok", findCaller(), Thread.currentThread().getName()));
+        }
+    }
+
+    /**
+     * Finds the plugin code that issued a query. Only called for slow queries, since
+     * capturing a stack trace is far more expensive than timing the statement.
+     *
+     * @return The calling class and method, or "unknown"
+     */
+    private static String findCaller() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(PLUGIN_PACKAGE) && !className.startsWith(DATABASE_PACKAGE)) {
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * The state of one statement, which is also the invocation handler of its proxy.
+     */
+    private class Trace implements InvocationHandler {
+        private final String operation;
+        private final long startNanos;
+        private PreparedStatement statement;
+        private int rows = -1;
+        private boolean failed;
+        private boolean finished;
+
+        Trace(String operation) {
+            this.operation = operation;
+            this.startNanos = System.nanoTime();
+            inFlight.increment();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("close".equals(name)) {
+                try {
+                    return method.invoke(statement, args);
+                } finally {
+                    finish();
+                }
+            }
+
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                if (name.startsWith("execute")) {
+                    failed = true;
+                }
+                throw e.getCause();
+            }
+
+            if (result instanceof ResultSet) {
+                rows = 0;
+                return Proxy.newProxyInstance(QueryTracer.class.getClassLoader(),
+                        new Class<?>[] {ResultSet.class}, new RowCounter((ResultSet) result));
+            }
+            if ("executeUpdate".equals(name)) {
+                rows = (Integer) result;
+            }
+            return result;
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                connectionLock.unlock();
+                inFlight.decrement();
+                record(this, System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * Counts the rows read from a result set.
+         */
+        private class RowCounter implements InvocationHandler {
+            private final ResultSet resultSet;
+
+            RowCounter(ResultSet resultSet) {
+                this.resultSet = resultSet;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                Object result;
+                try {
+                    result = method.invoke(resultSet, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                    rows++;
+                }
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Statements run by {@link #transaction(Connection, Transaction)}.
+     */
+    public interface Transaction<T> {
+        T run() throws SQLException;
+    }
+}
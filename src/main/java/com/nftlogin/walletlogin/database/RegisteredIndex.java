@@ -0,0 +1,145 @@
+package com.nftlogin.walletlogin.database;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory set of the UUIDs of registered players, so joins and kick timers can tell
+ * unregistered players apart without a query.
+ *
+ * Each UUID is stored as its two longs in one open-addressing table with linear probing,
+ * which takes 32 to 64 bytes per player against about 80 for a {@code HashSet<UUID>}, and no
+ * object per entry. Lookups take no lock: the table is an {@link AtomicLongArray} and a writer
+ * stores the second half of a UUID before the first, so a reader that matches the first half
+ * also sees the second, and a resize publishes a complete new table. The nil UUID marks empty
+ * slots, so it is kept in a flag of its own.
+ *
+ * Like the {@link WalletIndex}, the set only sees registrations made through this server.
+ * Joins trust a negative answer; registering never replaces a password already in the
+ * database, and logging in confirms a negative answer with a query.
+ */
+public class RegisteredIndex {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile AtomicLongArray table;
+    private volatile boolean containsNil;
+    private int size;
+
+    public RegisteredIndex() {
+        this(0);
+    }
+
+    /**
+     * Creates an index sized for a number of players.
+     *
+     * @param expected The number of players expected, so loading them doesn't resize
+     */
+    public RegisteredIndex(int expected) {
+        this.table = new AtomicLongArray(2 * capacityFor(expected));
+    }
+
+    private static int capacityFor(int entries) {
+        // Keep the table at most half full, so probes stay short
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Checks whether a player is registered.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is in the set
+     */
+    public boolean contains(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        if (most == 0 && least == 0) {
+            return containsNil;
+        }
+
+        AtomicLongArray slots = table;
+        int mask = (slots.length() >> 1) - 1;
+        for (int slot = hash(most, least) & mask; ; slot = (slot + 1) & mask) {
+            long slotMost = slots.get(slot << 1);
+            long slotLeast = slots.get((slot << 1) + 1);
+            if (slotMost == most && slotLeast == least) {
+                return true;
+            }
+            if (slotMost == 0 && slotLeast == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Adds a registered player.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player wasn't in the set yet
+     */
+    public synchronized boolean add(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        if (most == 0 && least == 0) {
+            boolean added = !containsNil;
+            containsNil = true;
+            return added;
+        }
+
+        if ((size + 1) * 2 > table.length() >> 1) {
+            resize();
+        }
+        if (insert(table, most, least)) {
+            size++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean insert(AtomicLongArray slots, long most, long least) {
+        int mask = (slots.length() >> 1) - 1;
+        for (int slot = hash(most, least) & mask; ; slot = (slot + 1) & mask) {
+            long slotMost = slots.get(slot << 1);
+            long slotLeast = slots.get((slot << 1) + 1);
+            if (slotMost == most && slotLeast == least) {
+                return false;
+            }
+            if (slotMost == 0 && slotLeast == 0) {
+                // A reader only matches once both halves are in
+                slots.set((slot << 1) + 1, least);
+                slots.set(slot << 1, most);
+                return true;
+            }
+        }
+    }
+
+    private void resize() {
+        AtomicLongArray old = table;
+        AtomicLongArray grown = new AtomicLongArray(old.length() * 2);
+        for (int i = 0; i < old.length(); i += 2) {
+            long most = old.get(i);
+            long least = old.get(i + 1);
+            if (most != 0 || least != 0) {
+                insert(grown, most, least);
+            }
+        }
+        table = grown;
+    }
+
+    private static int hash(long most, long least) {
+        // Offline-mode UUIDs share their version bits, so mix before taking the low bits
+        long h = most ^ least;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    public synchronized int size() {
+        return size + (containsNil ? 1 : 0);
+    }
+}
@@ -0,0 +1,120 @@
+package com.nftlogin.walletlogin.database;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.metrics.Counter;
+
+import java.sql.SQLException;
+import java.util.logging.Level;
+
+/**
+ * Periodically deletes rows nobody will read again, so the tables stop growing with every join.
+ *
+ * Expired sessions (older than {@code settings.session-timeout}) and players who joined but
+ * never registered or connected a wallet (older than {@code retention.unregistered-player-days})
+ * are deleted in batches of {@code retention.batch-size}, pausing between batches so the
+ * deletes never hold locks for long. Runs in the background every
+ * {@code retention.interval-minutes}.
+ */
+public class RetentionTask implements Runnable {
+
+    private static final long TICKS_PER_MINUTE = 20L * 60;
+
+    private final SolanaLogin plugin;
+    private final Counter sessionsDeleted;
+    private final Counter playersDeleted;
+    private volatile long lastRun;
+    private volatile long lastDeleted;
+
+    public RetentionTask(SolanaLogin plugin) {
+        this.plugin = plugin;
+        this.sessionsDeleted = plugin.getMetrics().counter("solanalogin_retention_rows_deleted_total",
+                "Rows deleted by the retention task", "table", "sessions");
+        this.playersDeleted = plugin.getMetrics().counter("solanalogin_retention_rows_deleted_total",
+                "Rows deleted by the retention task", "table", "players");
+    }
+
+    /**
+     * Schedules the task, if retention is enabled. The first run is a few minutes after startup.
+     */
+    public void start() {
+        if (!plugin.getConfig().getBoolean("retention.enabled", true)) {
+            return;
+        }
+        long interval = Math.max(1, plugin.getConfig().getLong("retention.interval-minutes", 360)) * TICKS_PER_MINUTE;
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this,
+                Math.min(interval, 5 * TICKS_PER_MINUTE), interval);
+    }
+
+    @Override
+    public void run() {
+        StorageBackend backend = plugin.getDatabaseManager().getBackend();
+        int batchSize = Math.max(1, plugin.getConfig().getInt("retention.batch-size", 500));
+        long pauseMillis = plugin.getConfig().getLong("retention.batch-pause-ms", 100);
+        long sessionAge = plugin.getConfig().getLong("settings.session-timeout", 1440) * 60;
+        long playerAge = plugin.getConfig().getLong("retention.unregistered-player-days", 30) * 24 * 60 * 60;
+        long start = System.currentTimeMillis();
+
+        try {
+            long sessions = prune(batchSize, pauseMillis, limit -> backend.pruneSessions(sessionAge, limit));
+            sessionsDeleted.add(sessions);
+
+            long players = 0;
+            if (playerAge > 0) {
+                players = prune(batchSize, pauseMillis, limit -> backend.pruneUnregisteredPlayers(playerAge, limit));
+                playersDeleted.add(players);
+            }
+
+            lastRun = System.currentTimeMillis();
+            lastDeleted = sessions + players;
+            if (lastDeleted > 0) {
+                plugin.getLogger().info(String.format(
+                        "Retention: deleted %,d expired sessions and %,d unregistered players in %.1f s",
+                        sessions, players, (lastRun - start) / 1000.0));
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().log(Level.SEVERE, "Error deleting old rows", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Deletes batches until one comes back short, or the plugin is disabled.
+     *
+     * @return The number of rows deleted
+     */
+    private long prune(int batchSize, long pauseMillis, Batch batch) throws SQLException, InterruptedException {
+        long deleted = 0;
+        while (plugin.isEnabled()) {
+            int count = batch.delete(batchSize);
+            deleted += count;
+            if (count < batchSize) {
+                break;
+            }
+            Thread.sleep(pauseMillis);
+        }
+        return deleted;
+    }
+
+    /**
+     * Gets when the last run finished.
+     *
+     * @return The time in milliseconds, or 0 if the task hasn't run yet
+     */
+    public long getLastRun() {
+        return lastRun;
+    }
+
+    /**
+     * Gets the number of rows the last run deleted.
+     *
+     * @return The number of rows
+     */
+    public long getLastDeleted() {
+        return lastDeleted;
+    }
+
+    private interface Batch {
+        int delete(int limit) throws SQLException;
+    }
+}
@@ -0,0 +1,89 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Storage backend for an embedded SQLite file in the plugin folder.
+ *
+ * Uses the SQLite driver bundled with the server. The database runs in WAL mode so reads
+ * don't block behind writes, with {@code synchronous=NORMAL}, which only risks the last
+ * transactions on power loss, never corruption.
+ */
+public class SqliteStorageBackend extends JdbcStorageBackend {
+
+    private final File file;
+
+    public SqliteStorageBackend(File file, String tablePrefix, QueryTracer tracer) {
+        super(tablePrefix, tracer);
+        this.file = file;
+    }
+
+    @Override
+    public String getName() {
+        return "SQLite (" + file.getName() + ")";
+    }
+
+    @Override
+    protected Connection openConnection() throws SQLException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new SQLException("Cannot create directory " + parent);
+        }
+
+        Connection sqlite = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement statement = sqlite.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("PRAGMA foreign_keys=ON");
+            statement.execute("PRAGMA busy_timeout=5000");
+            statement.execute("PRAGMA temp_store=MEMORY");
+            statement.execute("PRAGMA cache_size=-8000");
+        }
+        return sqlite;
+    }
+
+    @Override
+    protected String upsert(String table, String[] columns, int rows, String[] updatedColumns,
+                            String... touchedColumns) {
+        StringBuilder sql = insertInto(table, columns, rows)
+                .append(" ON CONFLICT(").append(columns[0]).append(") DO UPDATE SET ");
+        for (int i = 0; i < updatedColumns.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(updatedColumns[i])
+                    .append(" = excluded.").append(updatedColumns[i]);
+        }
+        for (String column : touchedColumns) {
+            sql.append(", ").append(column).append(" = CURRENT_TIMESTAMP");
+        }
+        // Rows that conflict on another unique index are skipped instead of failing the statement
+        return sql.append(" ON CONFLICT DO NOTHING").toString();
+    }
+
+    @Override
+    protected boolean isUniqueViolation(SQLException e) {
+        // SQLITE_CONSTRAINT_UNIQUE or _PRIMARYKEY, which older drivers report as the plain SQLITE_CONSTRAINT code
+        return e.getErrorCode() == 2067 || e.getErrorCode() == 1555 || (e.getErrorCode() == 19
+                && e.getMessage() != null && e.getMessage().contains("UNIQUE constraint failed"));
+    }
+
+    @Override
+    protected boolean isPrimaryKeyViolation(SQLException e, String primaryKey) {
+        // SQLITE_CONSTRAINT_PRIMARYKEY; the message names the column either way
+        return e.getErrorCode() == 1555
+                || (e.getMessage() != null && e.getMessage().contains("." + primaryKey + ")"));
+    }
+
+    @Override
+    protected String secondsAgo() {
+        // CURRENT_TIMESTAMP is stored as UTC text, which datetime() also produces
+        return "datetime('now', '-' || ? || ' seconds')";
+    }
+
+    @Override
+    protected String onUpdateCurrentTimestamp() {
+        return "";
+    }
+}
@@ -0,0 +1,219 @@
+package com.nftlogin.walletlogin.database;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Storage for player accounts, sessions and wallets, and the last known NFT ownership of wallets.
+ *
+ * {@link DatabaseManager} is the only caller apart from bulk imports and exports: it hashes
+ * passwords, logs failures and turns them into the false/empty results the rest of the plugin
+ * expects, so implementations only store and load rows and throw {@link SQLException} when
+ * they can't. Implementations must be safe to call from the main thread and from async tasks
+ * at the same time.
+ */
+public interface StorageBackend {
+
+    /**
+     * Gets the name shown in logs and {@code /solanalogin info}.
+     *
+     * @return The backend name
+     */
+    String getName();
+
+    /**
+     * Opens the connection or files backing the store.
+     */
+    void connect() throws SQLException;
+
+    /**
+     * Creates the tables, or any other structure the backend needs, if they don't exist.
+     */
+    void createTables() throws SQLException;
+
+    /**
+     * Releases the connection or files. Safe to call if {@link #connect()} failed.
+     */
+    void close() throws SQLException;
+
+    /**
+     * Gets a player's password hash.
+     *
+     * @param uuid The player's UUID
+     * @return The stored hash, or null if the player is unknown or has no password
+     * @throws SQLException If the lookup fails
+     */
+    String getPasswordHash(UUID uuid) throws SQLException;
+
+    /**
+     * Creates a player with a password, or sets the password, name and IP of an existing one
+     * that has no password yet.
+     *
+     * @return true if the player was registered, false if they already had a password
+     */
+    boolean registerPlayer(UUID uuid, String username, String passwordHash, String ip) throws SQLException;
+
+    /**
+     * Changes a player's password hash.
+     *
+     * @return true if the player exists and the password was changed
+     */
+    boolean updatePassword(UUID uuid, String passwordHash) throws SQLException;
+
+    /**
+     * Sets a player's last login time to now and records their IP.
+     */
+    void updateLastLogin(UUID uuid, String ip) throws SQLException;
+
+    /**
+     * Creates a player without a password, or updates the name and IP of an existing one.
+     */
+    void savePlayer(UUID uuid, String username, String ip) throws SQLException;
+
+    /**
+     * Creates or refreshes a player's session.
+     */
+    void saveSession(UUID uuid, String ip) throws SQLException;
+
+    /**
+     * Removes a player's session, if any.
+     */
+    void removeSession(UUID uuid) throws SQLException;
+
+    /**
+     * Connects a wallet, replacing any wallet the player already had.
+     *
+     * @return true if a row was written
+     */
+    boolean connectWallet(UUID uuid, String walletAddress, String walletType) throws SQLException;
+
+    /**
+     * Connects a wallet and marks it verified in a single atomic write, replacing any wallet
+     * the player already had. Repeating the call while the player's wallet still holds the link ID
+     * changes nothing and returns true.
+     *
+     * @param linkId Identifies the wallet login that proved ownership, such as its auth session ID
+     * @return true if the wallet is now linked and verified
+     */
+    boolean linkVerifiedWallet(UUID uuid, String walletAddress, String walletType, String linkId)
+            throws SQLException;
+
+    /**
+     * Removes a player's wallet.
+     *
+     * @return true if the player had a wallet
+     */
+    boolean disconnectWallet(UUID uuid) throws SQLException;
+
+    /**
+     * Gets a player's wallet.
+     *
+     * @return The wallet, or empty if the player doesn't have a wallet connected
+     */
+    Optional<WalletRecord> getWallet(UUID uuid) throws SQLException;
+
+    /**
+     * Gets the wallets of many players at once, in as few queries as possible.
+     *
+     * @return The wallets of the players who have one connected
+     */
+    Map<UUID, WalletRecord> getWallets(Collection<UUID> uuids) throws SQLException;
+
+    /**
+     * Sets whether a player's wallet is verified.
+     *
+     * @return true if the player has a wallet
+     */
+    boolean setWalletVerified(UUID uuid, boolean verified) throws SQLException;
+
+    /**
+     * Passes every linked wallet to a consumer, streaming rows rather than loading them all.
+     *
+     * @param consumer Called with each player's UUID and wallet address
+     */
+    void forEachWallet(BiConsumer<UUID, String> consumer) throws SQLException;
+
+    /**
+     * Passes the UUID of every player with a password to a consumer, streaming rows rather
+     * than loading them all.
+     *
+     * @param consumer Called with each registered player's UUID
+     */
+    void forEachRegisteredPlayer(Consumer<UUID> consumer) throws SQLException;
+
+    /**
+     * Gets a page of linked wallet addresses in ascending order, for walking every wallet in
+     * batches. Each page continues after the last address of the previous one, so it is found
+     * through the index on the address without skipping or repeating rows as others change.
+     *
+     * @param afterAddress The last address of the previous page, or an empty string for the first page
+     * @param limit The most addresses to return
+     * @return The addresses; fewer than the limit once the last page is reached
+     */
+    List<String> getWalletAddressesAfter(String afterAddress, int limit) throws SQLException;
+
+    /**
+     * Stores the results of ownership checks, replacing earlier results for the same wallets.
+     *
+     * @param records The results
+     */
+    void saveOwnership(List<OwnershipRecord> records) throws SQLException;
+
+    /**
+     * Passes every stored ownership result to a consumer, streaming rows rather than loading them all.
+     *
+     * @param consumer Called with each result
+     */
+    void forEachOwnership(Consumer<OwnershipRecord> consumer) throws SQLException;
+
+    /**
+     * Deletes some of the sessions whose last login is older than the given age.
+     *
+     * @param maxAgeSeconds The age from which a session has expired
+     * @param limit The most sessions to delete in this call
+     * @return The number of sessions deleted; less than the limit once none are left
+     */
+    int pruneSessions(long maxAgeSeconds, int limit) throws SQLException;
+
+    /**
+     * Deletes some of the players who never registered a password or connected a wallet and
+     * haven't joined for the given age.
+     *
+     * @param maxAgeSeconds The age from which such a player is deleted
+     * @param limit The most players to delete in this call
+     * @return The number of players deleted; less than the limit once none are left
+     */
+    int pruneUnregisteredPlayers(long maxAgeSeconds, int limit) throws SQLException;
+
+    /**
+     * Writes every account of a source, creating players and wallets or overwriting existing
+     * ones. Accounts are written in batches of {@code batchSize}, one transaction per batch where
+     * the backend supports it, so only one batch is held in memory at a time.
+     *
+     * @param source The accounts to import
+     * @param batchSize The number of accounts per batch
+     * @param progress Called after each batch with the number of accounts imported so far
+     * @return The number of accounts imported
+     * @throws IOException If the source can't be read
+     */
+    long importAccounts(AccountSource source, int batchSize, LongConsumer progress)
+            throws SQLException, IOException;
+
+    /**
+     * Writes every stored account to a sink, streaming rows rather than loading them all.
+     *
+     * @param sink The destination
+     * @param progress Called every few thousand accounts with the number exported so far
+     * @return The number of accounts exported
+     * @throws IOException If the sink can't be written
+     */
+    long exportAccounts(AccountSink sink, LongConsumer progress) throws SQLException, IOException;
+}
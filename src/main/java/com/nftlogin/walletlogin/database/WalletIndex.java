@@ -0,0 +1,146 @@
+package com.nftlogin.walletlogin.database;
+
+import com.nftlogin.walletlogin.utils.Base58;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory map from wallet address to the player it is linked to, for O(1) owner lookups
+ * and for refusing a wallet that is already linked before anything is written.
+ *
+ * Addresses are keyed by their 32 decoded bytes rather than the Base58 string, which keeps
+ * each entry small. Addresses that aren't 32-byte Base58 keys are keyed by their SHA-256.
+ * The index only sees links made through this server; the unique index on the wallets table
+ * catches anything it misses.
+ */
+public class WalletIndex {
+
+    private final Map<AddressKey, UUID> owners = new ConcurrentHashMap<>();
+    private final Map<UUID, AddressKey> addresses = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the player a wallet is linked to.
+     *
+     * @param address The wallet address
+     * @return The player's UUID, or null if nobody has linked it
+     */
+    public UUID getOwner(String address) {
+        return owners.get(AddressKey.of(address));
+    }
+
+    /**
+     * Reserves a wallet for a player before it is written to the database.
+     *
+     * @param address The wallet address
+     * @param uuid The player's UUID
+     * @return The other player the wallet is linked to, or null if the player may link it
+     */
+    public UUID claim(String address, UUID uuid) {
+        UUID owner = owners.putIfAbsent(AddressKey.of(address), uuid);
+        return owner == null || owner.equals(uuid) ? null : owner;
+    }
+
+    /**
+     * Releases a claim whose database write failed, unless the player already owned the wallet.
+     *
+     * @param address The wallet address
+     * @param uuid The player's UUID
+     */
+    public synchronized void release(String address, UUID uuid) {
+        AddressKey key = AddressKey.of(address);
+        if (!key.equals(addresses.get(uuid))) {
+            owners.remove(key, uuid);
+        }
+    }
+
+    /**
+     * Records that a player's wallet is now the given one, dropping their previous wallet.
+     *
+     * @param uuid The player's UUID
+     * @param address The wallet address
+     * @return The other player the wallet was already indexed for, or null
+     */
+    public synchronized UUID link(UUID uuid, String address) {
+        AddressKey key = AddressKey.of(address);
+        AddressKey previous = addresses.put(uuid, key);
+        if (previous != null && !previous.equals(key)) {
+            owners.remove(previous, uuid);
+        }
+        UUID owner = owners.putIfAbsent(key, uuid);
+        return owner == null || owner.equals(uuid) ? null : owner;
+    }
+
+    /**
+     * Removes a player's wallet from the index.
+     *
+     * @param uuid The player's UUID
+     */
+    public synchronized void unlink(UUID uuid) {
+        AddressKey key = addresses.remove(uuid);
+        if (key != null) {
+            owners.remove(key, uuid);
+        }
+    }
+
+    public int size() {
+        return owners.size();
+    }
+
+    /**
+     * A 32-byte address as four longs.
+     */
+    static final class AddressKey {
+
+        private final long a;
+        private final long b;
+        private final long c;
+        private final long d;
+
+        private AddressKey(ByteBuffer bytes) {
+            this.a = bytes.getLong();
+            this.b = bytes.getLong();
+            this.c = bytes.getLong();
+            this.d = bytes.getLong();
+        }
+
+        static AddressKey of(String address) {
+            byte[] bytes = Base58.decode(address);
+            if (bytes == null || bytes.length != 32) {
+                bytes = sha256(address);
+            }
+            return new AddressKey(ByteBuffer.wrap(bytes));
+        }
+
+        private static byte[] sha256(String address) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(address.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AddressKey)) {
+                return false;
+            }
+            AddressKey other = (AddressKey) o;
+            return a == other.a && b == other.b && c == other.c && d == other.d;
+        }
+
+        @Override
+        public int hashCode() {
+            // The bytes are a public key or a hash, so any of them is already well mixed
+            return (int) (a ^ (a >>> 32));
+        }
+    }
+}
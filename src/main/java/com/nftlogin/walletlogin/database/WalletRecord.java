@@ -0,0 +1,29 @@
+package com.nftlogin.walletlogin.database;
+
+/**
+ * Immutable snapshot of a row in the wallets table.
+ */
+public class WalletRecord {
+
+    private final String address;
+    private final String type;
+    private final boolean verified;
+
+    public WalletRecord(String address, String type, boolean verified) {
+        this.address = address;
+        this.type = type;
+        this.verified = verified;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isVerified() {
+        return verified;
+    }
+}
@@ -0,0 +1,49 @@
+package com.nftlogin.walletlogin.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called on the main thread once a player has logged in or registered, so other plugins can
+ * react to it instead of polling the session.
+ */
+public class PlayerAuthenticatedEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Method method;
+
+    public PlayerAuthenticatedEvent(Player player, Method method) {
+        super(player);
+        this.method = method;
+    }
+
+    /**
+     * Gets how the player authenticated.
+     *
+     * @return The method
+     */
+    public Method getMethod() {
+        return method;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+
+    /**
+     * How a player authenticated.
+     */
+    public enum Method {
+        /** With {@code /login} */
+        LOGIN,
+        /** With {@code /register}, which logs the new account in */
+        REGISTRATION
+    }
+}
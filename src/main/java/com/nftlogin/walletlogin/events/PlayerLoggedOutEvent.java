@@ -0,0 +1,27 @@
+package com.nftlogin.walletlogin.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called on the main thread when a player logs out with {@code /logout}, after their session
+ * has been removed and before they are kicked.
+ */
+public class PlayerLoggedOutEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    public PlayerLoggedOutEvent(Player player) {
+        super(player);
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,40 @@
+package com.nftlogin.walletlogin.events;
+
+import com.nftlogin.walletlogin.database.WalletRecord;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called on the main thread after a player has connected and verified a wallet, once it is
+ * saved and cached.
+ */
+public class WalletLinkedEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final WalletRecord wallet;
+
+    public WalletLinkedEvent(Player player, WalletRecord wallet) {
+        super(player);
+        this.wallet = wallet;
+    }
+
+    /**
+     * Gets the wallet the player linked.
+     *
+     * @return The wallet
+     */
+    public WalletRecord getWallet() {
+        return wallet;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
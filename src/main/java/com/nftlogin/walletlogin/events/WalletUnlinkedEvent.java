@@ -0,0 +1,39 @@
+package com.nftlogin.walletlogin.events;
+
+import com.nftlogin.walletlogin.database.WalletRecord;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * Called on the main thread after a player has disconnected their wallet.
+ */
+public class WalletUnlinkedEvent extends PlayerEvent {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final WalletRecord wallet;
+
+    public WalletUnlinkedEvent(Player player, WalletRecord wallet) {
+        super(player);
+        this.wallet = wallet;
+    }
+
+    /**
+     * Gets the wallet the player disconnected.
+     *
+     * @return The wallet, which is no longer linked to the player
+     */
+    public WalletRecord getWallet() {
+        return wallet;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -0,0 +1,181 @@
+package com.nftlogin.walletlogin.limbo;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.events.PlayerAuthenticatedEvent;
+import org.bukkit.Difficulty;
+import org.bukkit.GameRule;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.WorldCreator;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.spigotmc.event.player.PlayerSpawnLocationEvent;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parks players who haven't logged in in an empty void world until they do.
+ *
+ * A player waiting at spawn for {@code settings.login-timeout} seconds keeps the chunks around
+ * them loaded, is tracked by nearby entities and is sent world updates, which adds up during a
+ * join storm. Instead, players who need to log in spawn straight into the limbo world, so the
+ * chunks where they logged off are never loaded for them. Once they log in they are teleported
+ * back with an asynchronous chunk load. Where they came from is also kept in their persistent
+ * data, so players who leave without logging in are saved in the limbo without loading their old
+ * chunks, and spawn where they came from on their next join.
+ */
+public class LimboManager implements Listener {
+
+    private final SolanaLogin plugin;
+    private final World world;
+    private final NamespacedKey returnKey;
+    private final Map<UUID, Location> parked = new ConcurrentHashMap<>();
+
+    private LimboManager(SolanaLogin plugin, World world) {
+        this.plugin = plugin;
+        this.world = world;
+        this.returnKey = new NamespacedKey(plugin, "limbo_return");
+        plugin.getMetrics().gauge("solanalogin_limbo_players", "Players parked in the limbo world", parked::size);
+    }
+
+    /**
+     * Loads or creates the limbo world, if {@code limbo.enabled} is on.
+     *
+     * @param plugin The plugin
+     * @return The manager, or null if the limbo is off or the world could not be created
+     */
+    public static LimboManager fromConfig(SolanaLogin plugin) {
+        if (!plugin.getConfig().getBoolean("limbo.enabled", false)) {
+            return null;
+        }
+
+        String name = plugin.getConfig().getString("limbo.world", "solanalogin_limbo");
+        World world = new WorldCreator(name)
+                .generator(new VoidGenerator())
+                .environment(World.Environment.NORMAL)
+                .generateStructures(false)
+                .createWorld();
+        if (world == null) {
+            plugin.getLogger().warning("Could not create the limbo world " + name
+                    + "; players will wait for login where they are");
+            return null;
+        }
+
+        // Nothing in the limbo needs simulating or saving
+        world.setKeepSpawnInMemory(false);
+        world.setAutoSave(false);
+        world.setDifficulty(Difficulty.PEACEFUL);
+        world.setSpawnFlags(false, false);
+        world.setGameRule(GameRule.DO_DAYLIGHT_CYCLE, false);
+        world.setGameRule(GameRule.DO_WEATHER_CYCLE, false);
+        world.setGameRule(GameRule.DO_MOB_SPAWNING, false);
+        world.setGameRule(GameRule.DO_FIRE_TICK, false);
+        world.setGameRule(GameRule.RANDOM_TICK_SPEED, 0);
+        world.setGameRule(GameRule.ANNOUNCE_ADVANCEMENTS, false);
+        world.setSpawnLocation(0, VoidGenerator.PLATFORM_Y, 0);
+        return new LimboManager(plugin, world);
+    }
+
+    /**
+     * Checks whether a player is parked in the limbo.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is waiting in the limbo to log in
+     */
+    public boolean isParked(UUID uuid) {
+        return parked.containsKey(uuid);
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onSpawnLocation(PlayerSpawnLocationEvent event) {
+        Player player = event.getPlayer();
+        Location location = event.getSpawnLocation();
+        // Players who left while parked log on in the limbo; send them back where they came from
+        boolean inLimbo = location == null || world.equals(location.getWorld());
+        if (inLimbo) {
+            location = readReturn(player.getPersistentDataContainer());
+        }
+
+        if (!plugin.getPreAuthGuard().lockIfUnauthenticated(player.getUniqueId())) {
+            player.getPersistentDataContainer().remove(returnKey);
+            if (inLimbo) {
+                event.setSpawnLocation(location);
+            }
+            return;
+        }
+
+        parked.put(player.getUniqueId(), location);
+        player.getPersistentDataContainer().set(returnKey, PersistentDataType.STRING, writeReturn(location));
+        event.setSpawnLocation(new Location(world, 0.5, VoidGenerator.PLATFORM_Y, 0.5));
+        player.setCollidable(false);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAuthenticated(PlayerAuthenticatedEvent event) {
+        Player player = event.getPlayer();
+        Location location = parked.remove(player.getUniqueId());
+        if (location != null) {
+            player.getPersistentDataContainer().remove(returnKey);
+            player.setCollidable(true);
+            player.teleportAsync(location);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        // The player is saved in the limbo; the return location in their data brings them back
+        parked.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Puts every parked player back where they came from, when the plugin is disabled.
+     */
+    public void releaseAll() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            release(player);
+        }
+    }
+
+    private void release(Player player) {
+        Location location = parked.remove(player.getUniqueId());
+        if (location != null) {
+            // Synchronous, so the players aren't left in the limbo without the plugin
+            player.getPersistentDataContainer().remove(returnKey);
+            player.setCollidable(true);
+            player.teleport(location);
+        }
+    }
+
+    private static String writeReturn(Location location) {
+        return String.format(Locale.ROOT, "%s;%s;%s;%s;%s;%s", location.getX(), location.getY(), location.getZ(),
+                location.getYaw(), location.getPitch(), location.getWorld().getName());
+    }
+
+    /**
+     * Reads the location a player was parked from, or the main spawn if it is missing or its
+     * world is gone.
+     */
+    private Location readReturn(PersistentDataContainer data) {
+        String value = data.get(returnKey, PersistentDataType.STRING);
+        String[] parts = value == null ? new String[0] : value.split(";", 6);
+        World from = parts.length == 6 ? plugin.getServer().getWorld(parts[5]) : null;
+        if (from == null || world.equals(from)) {
+            return plugin.getServer().getWorlds().get(0).getSpawnLocation();
+        }
+        try {
+            return new Location(from, Double.parseDouble(parts[0]), Double.parseDouble(parts[1]),
+                    Double.parseDouble(parts[2]), Float.parseFloat(parts[3]), Float.parseFloat(parts[4]));
+        } catch (NumberFormatException e) {
+            return plugin.getServer().getWorlds().get(0).getSpawnLocation();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.nftlogin.walletlogin.limbo;
+
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.generator.ChunkGenerator;
+import org.bukkit.generator.WorldInfo;
+
+import java.util.Random;
+
+/**
+ * Generates an empty world with a single barrier block to stand on at the spawn point.
+ * Chunks have no terrain, caves, structures or mobs, so generating and ticking them costs
+ * next to nothing.
+ */
+public class VoidGenerator extends ChunkGenerator {
+
+    static final int PLATFORM_Y = 64;
+
+    @Override
+    public boolean shouldGenerateNoise() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateSurface() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateBedrock() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateCaves() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateDecorations() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateMobs() {
+        return false;
+    }
+
+    @Override
+    public boolean shouldGenerateStructures() {
+        return false;
+    }
+
+    @Override
+    public void generateSurface(WorldInfo worldInfo, Random random, int chunkX, int chunkZ, ChunkData chunkData) {
+        if (chunkX == 0 && chunkZ == 0) {
+            chunkData.setBlock(0, PLATFORM_Y - 1, 0, Material.BARRIER);
+        }
+    }
+
+    @Override
+    public Location getFixedSpawnLocation(World world, Random random) {
+        return new Location(world, 0.5, PLATFORM_Y, 0.5);
+    }
+}
@@ -1,6 +1,9 @@
 package com.nftlogin.walletlogin.listeners;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.metrics.TickProfiler;
 import net.kyori.adventure.text.Component;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
@@ -11,24 +14,43 @@ import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 public class PlayerLoginListener implements Listener {
 
     private final SolanaLogin plugin;
     private static final String LOGIN_TIMEOUT_CONFIG = "settings.login-timeout";
     private static final int DEFAULT_LOGIN_TIMEOUT = 60;
+    private final Counter pendingKickTimers;
+    private final Counter kicks;
+    private final TickProfiler profiler;
 
     public PlayerLoginListener(SolanaLogin plugin) {
         this.plugin = plugin;
+        this.pendingKickTimers = plugin.getMetrics().upDownCounter("solanalogin_kick_timers_pending",
+                "Kick timers scheduled for players that have not finished authenticating");
+        this.kicks = plugin.getMetrics().counter("solanalogin_kicks_total",
+                "Players kicked for not authenticating in time");
+        this.profiler = plugin.getTickProfiler();
     }
 
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerLogin(PlayerLoginEvent event) {
+        long start = System.nanoTime();
+        try {
+            handleLogin(event);
+        } finally {
+            profiler.record("onPlayerLogin", start);
+        }
+    }
+
+    private void handleLogin(PlayerLoginEvent event) {
         Player player = event.getPlayer();
 
-        // Save player data to database
-        plugin.getDatabaseManager().savePlayer(player);
+        // Save player data to database, without holding up the login
+        plugin.getBlockingExecutor().execute(() -> plugin.getDatabaseManager().savePlayer(player));
 
         // If login is required and player is not registered, we'll let them join and notify them
         // The actual restriction will be handled in the PlayerJoinEvent
@@ -36,10 +58,23 @@ public class PlayerLoginListener implements Listener {
 
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerJoin(PlayerJoinEvent event) {
+        long start = System.nanoTime();
+        try {
+            handleJoin(event);
+        } finally {
+            profiler.record("onPlayerJoin", start);
+        }
+    }
+
+    private void handleJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         UUID playerUuid = player.getUniqueId();
 
-        // Check if player is registered
+        // Warm the wallet cache so later wallet checks don't need the database
+        CompletableFuture<Optional<WalletRecord>> wallet = plugin.getWalletCache().loadAsync(playerUuid);
+
+        // Check if player is registered, from the index; a player who registered through another
+        // server is told to register, and /register then finds the password and says so
         boolean isRegistered = plugin.getDatabaseManager().isPlayerRegistered(playerUuid);
 
         // Handle authentication if required
@@ -50,7 +85,12 @@ public class PlayerLoginListener implements Listener {
         // Handle wallet connection if required
         if (isPlayerAuthenticated(playerUuid) &&
                 plugin.getConfig().getBoolean("settings.require-wallet-login", false)) {
-            handleWalletConnection(player, playerUuid);
+            plugin.getBlockingExecutor().deliver(wallet, (record, failure) -> {
+                if (player.isOnline()) {
+                    // A wallet that couldn't be loaded counts as missing
+                    handleWalletConnection(player, playerUuid, record == null ? Optional.empty() : record);
+                }
+            });
         }
     }
 
@@ -98,13 +138,18 @@ public class PlayerLoginListener implements Listener {
         new BukkitRunnable() {
             @Override
             public void run() {
-                // Check if the player is still online and hasn't registered
-                if (player.isOnline() && !plugin.getDatabaseManager().isPlayerRegistered(playerUuid)) {
+                pendingKickTimers.decrement();
+
+                // Check if the player is still online and hasn't registered, or logged in after
+                // finding they had registered through another server
+                if (player.isOnline() && !isPlayerAuthenticated(playerUuid)) {
                     // Using the modern kick API with Component
+                    kicks.increment();
                     player.kick(Component.text(plugin.formatMessage(message)));
                 }
             }
         }.runTaskLater(plugin, timeout * 20L); // Convert seconds to ticks
+        pendingKickTimers.increment();
     }
 
     /**
@@ -125,15 +170,19 @@ public class PlayerLoginListener implements Listener {
         new BukkitRunnable() {
             @Override
             public void run() {
+                pendingKickTimers.decrement();
+
                 // Check if the player is still online and hasn't logged in
                 if (player.isOnline() && !isPlayerAuthenticated(playerUuid)) {
                     String timeoutMessage = plugin.getConfig().getString("messages.login-timeout",
                             "You took too long to login. Please reconnect.");
                     // Using the modern kick API with Component
+                    kicks.increment();
                     player.kick(Component.text(plugin.formatMessage(timeoutMessage)));
                 }
             }
         }.runTaskLater(plugin, timeout * 20L); // Convert seconds to ticks
+        pendingKickTimers.increment();
     }
 
     /**
@@ -141,11 +190,12 @@ public class PlayerLoginListener implements Listener {
      *
      * @param player The player
      * @param playerUuid The player's UUID
+     * @param wallet The player's wallet, as loaded into the wallet cache
      */
-    private void handleWalletConnection(Player player, UUID playerUuid) {
-        if (!plugin.getDatabaseManager().hasWalletConnected(playerUuid)) {
+    private void handleWalletConnection(Player player, UUID playerUuid, Optional<WalletRecord> wallet) {
+        if (!wallet.isPresent()) {
             promptWalletConnection(player, playerUuid);
-        } else if (!plugin.getDatabaseManager().isWalletVerified(playerUuid)) {
+        } else if (!wallet.get().isVerified()) {
             // Notify player they need to verify their wallet
             String message = plugin.getConfig().getString("messages.wallet-verification-pending",
                     "Your wallet verification is pending. Please complete the verification process.");
@@ -171,20 +221,37 @@ public class PlayerLoginListener implements Listener {
         new BukkitRunnable() {
             @Override
             public void run() {
-                // Check if the player is still online and hasn't connected a wallet
-                if (player.isOnline() && !plugin.getDatabaseManager().hasWalletConnected(playerUuid)) {
+                pendingKickTimers.decrement();
+
+                // Check if the player is still online and hasn't connected a wallet; connecting
+                // one updates the wallet cache
+                Optional<WalletRecord> current = plugin.getWalletCache().getIfLoaded(playerUuid);
+                if (player.isOnline() && (current == null || !current.isPresent())) {
                     // Using the modern kick API with Component
+                    kicks.increment();
                     player.kick(Component.text(plugin.formatMessage(message)));
                 }
             }
         }.runTaskLater(plugin, timeout * 20L); // Convert seconds to ticks
+        pendingKickTimers.increment();
     }
 
     @EventHandler(priority = EventPriority.NORMAL)
     public void onPlayerQuit(PlayerQuitEvent event) {
+        long start = System.nanoTime();
+        try {
+            handleQuit(event);
+        } finally {
+            profiler.record("onPlayerQuit", start);
+        }
+    }
+
+    private void handleQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         UUID playerUuid = player.getUniqueId();
 
+        plugin.getWalletCache().invalidate(playerUuid);
+
         // If player has a session but is not authenticated, remove the session
         if (plugin.getSessionManager().hasSession(playerUuid) &&
                 !plugin.getSessionManager().getSession(playerUuid).isAuthenticated()) {
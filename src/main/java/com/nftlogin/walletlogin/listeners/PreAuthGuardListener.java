@@ -0,0 +1,257 @@
+package com.nftlogin.walletlogin.listeners;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.events.PlayerAuthenticatedEvent;
+import com.nftlogin.walletlogin.events.PlayerLoggedOutEvent;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryOpenEvent;
+import org.bukkit.event.player.AsyncPlayerChatEvent;
+import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerInteractEntityEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stops players who haven't logged in from moving, chatting, running commands other than the
+ * allowed ones, interacting, attacking and using inventories.
+ *
+ * Moves alone fire thousands of times a second, so every handler first checks a set of the
+ * players still locked, which is empty most of the time, and returns at once for everyone else.
+ * Players are added when they join without a valid session or log out, and removed when they
+ * authenticate or quit; nothing reads the session or the config per event. Moves only count
+ * once a player crosses into another block column, so a locked player can still look around
+ * and fall, and the allowed commands are compiled into a set when the config is loaded.
+ */
+public class PreAuthGuardListener implements Listener {
+
+    private final SolanaLogin plugin;
+    private final Set<UUID> locked = ConcurrentHashMap.newKeySet();
+    private final Counter blockedMoves;
+    private final Counter blockedChats;
+    private final Counter blockedCommands;
+    private final Counter blockedInteractions;
+    private final Counter blockedInventories;
+    private volatile boolean enabled;
+    private volatile Set<String> allowedCommands = Collections.emptySet();
+    private volatile String reminder;
+
+    public PreAuthGuardListener(SolanaLogin plugin) {
+        this.plugin = plugin;
+        MetricsRegistry metrics = plugin.getMetrics();
+        String help = "Actions of players who haven't logged in that were blocked";
+        this.blockedMoves = metrics.counter("solanalogin_guard_blocked_total", help, "action", "move");
+        this.blockedChats = metrics.counter("solanalogin_guard_blocked_total", help, "action", "chat");
+        this.blockedCommands = metrics.counter("solanalogin_guard_blocked_total", help, "action", "command");
+        this.blockedInteractions = metrics.counter("solanalogin_guard_blocked_total", help, "action", "interact");
+        this.blockedInventories = metrics.counter("solanalogin_guard_blocked_total", help, "action", "inventory");
+        metrics.gauge("solanalogin_guard_locked_players", "Online players who haven't logged in yet", locked::size);
+        reload();
+
+        // Players already online, after a reload of the plugin
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            lockIfUnauthenticated(player.getUniqueId());
+        }
+    }
+
+    /**
+     * Reads the settings again and compiles the allowed commands.
+     */
+    public void reload() {
+        enabled = plugin.getConfig().getBoolean("settings.require-login", true);
+        List<String> commands = plugin.getConfig().getStringList("settings.allowed-commands");
+        Set<String> allowed = new HashSet<>();
+        for (String command : commands) {
+            allowed.add(command.toLowerCase(Locale.ROOT));
+        }
+        allowedCommands = allowed;
+        reminder = plugin.formatMessage(plugin.getConfig().getString("messages.not-authenticated",
+                "&cYou must login or register before doing that."));
+        if (!enabled) {
+            locked.clear();
+        }
+    }
+
+    /**
+     * Checks whether a player is held by the guard.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player hasn't logged in yet
+     */
+    public boolean isLocked(UUID uuid) {
+        return !locked.isEmpty() && locked.contains(uuid);
+    }
+
+    /**
+     * Locks a player unless they have an authenticated session.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is now locked
+     */
+    public boolean lockIfUnauthenticated(UUID uuid) {
+        if (enabled && !(plugin.getSessionManager().hasSession(uuid)
+                && plugin.getSessionManager().getSession(uuid).isAuthenticated())) {
+            locked.add(uuid);
+            return true;
+        }
+        return false;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        lockIfUnauthenticated(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        locked.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAuthenticated(PlayerAuthenticatedEvent event) {
+        locked.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoggedOut(PlayerLoggedOutEvent event) {
+        if (enabled) {
+            locked.add(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent event) {
+        if (!isLocked(event.getPlayer().getUniqueId())) {
+            return;
+        }
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to != null && (from.getBlockX() != to.getBlockX() || from.getBlockZ() != to.getBlockZ())) {
+            event.setCancelled(true);
+            blockedMoves.increment();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onChat(AsyncPlayerChatEvent event) {
+        if (isLocked(event.getPlayer().getUniqueId())) {
+            event.setCancelled(true);
+            blockedChats.increment();
+            event.getPlayer().sendMessage(reminder);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onCommand(PlayerCommandPreprocessEvent event) {
+        if (isLocked(event.getPlayer().getUniqueId()) && !allowedCommands.contains(label(event.getMessage()))) {
+            event.setCancelled(true);
+            blockedCommands.increment();
+            event.getPlayer().sendMessage(reminder);
+        }
+    }
+
+    /**
+     * Gets the command name of a command line, lower case and without a plugin prefix, so
+     * {@code /SolanaLogin:Login secret} becomes {@code login}.
+     */
+    static String label(String message) {
+        int end = message.indexOf(' ');
+        String label = message.substring(message.startsWith("/") ? 1 : 0, end < 0 ? message.length() : end);
+        int colon = label.indexOf(':');
+        return (colon < 0 ? label : label.substring(colon + 1)).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Clicks on air arrive already cancelled but still use the item in hand, so this handler
+     * sees cancelled events too and denies the item use explicitly.
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onInteract(PlayerInteractEvent event) {
+        if (isLocked(event.getPlayer().getUniqueId())) {
+            event.setCancelled(true);
+            event.setUseItemInHand(Event.Result.DENY);
+            event.setUseInteractedBlock(Event.Result.DENY);
+            blockedInteractions.increment();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onInteractEntity(PlayerInteractEntityEvent event) {
+        blockInteraction(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onDropItem(PlayerDropItemEvent event) {
+        blockInteraction(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        blockInteraction(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        blockInteraction(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onAttack(EntityDamageByEntityEvent event) {
+        if (event.getDamager() instanceof Player) {
+            blockInteraction(event.getDamager(), event);
+        }
+    }
+
+    private void blockInteraction(Entity player, Cancellable event) {
+        if (isLocked(player.getUniqueId())) {
+            event.setCancelled(true);
+            blockedInteractions.increment();
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onInventoryOpen(InventoryOpenEvent event) {
+        blockInventory(event.getPlayer(), event);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        blockInventory(event.getWhoClicked(), event);
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        blockInventory(event.getWhoClicked(), event);
+    }
+
+    private void blockInventory(Entity player, Cancellable event) {
+        if (isLocked(player.getUniqueId())) {
+            event.setCancelled(true);
+            blockedInventories.increment();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.nftlogin.walletlogin.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free counter. Registered as a Prometheus counter or, when it can go down, as a gauge.
+ */
+public class Counter {
+
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void decrement() {
+        value.decrement();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,155 @@
+package com.nftlogin.walletlogin.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ *
+ * Values are recorded in nanoseconds. Every power of two is split into 16 linear
+ * sub-buckets, so any recorded value is reported with at most ~6% relative error while the
+ * whole range of a {@code long} fits in under a thousand buckets. Recording is a single
+ * atomic increment and never allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records a single value.
+     *
+     * @param nanos The value in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading.
+     *
+     * @param startNanos The start time
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sum.sum();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * Gets a value at the given percentile over everything recorded so far.
+     *
+     * @param percentile The percentile, between 0 and 1
+     * @return The highest value equivalent to the percentile's bucket, in nanoseconds
+     */
+    public long getPercentile(double percentile) {
+        return percentile(snapshot(), percentile);
+    }
+
+    /**
+     * Copies the current bucket counts, for windowed percentiles computed from two snapshots.
+     *
+     * @return The bucket counts
+     */
+    public long[] snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = buckets.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Gets a percentile from bucket counts returned by {@link #snapshot()}.
+     *
+     * @param counts The bucket counts
+     * @param percentile The percentile, between 0 and 1
+     * @return The highest value equivalent to the percentile's bucket, in nanoseconds
+     */
+    public static long percentile(long[] counts, double percentile) {
+        long total = total(counts);
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(counts.length - 1);
+    }
+
+    /**
+     * Sums bucket counts returned by {@link #snapshot()}.
+     *
+     * @param counts The bucket counts
+     * @return The number of recorded values
+     */
+    public static long total(long[] counts) {
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        return total;
+    }
+
+    /**
+     * Counts the values at or below a bound, used for Prometheus cumulative buckets.
+     *
+     * @param counts The bucket counts
+     * @param boundNanos The inclusive upper bound in nanoseconds
+     * @return The number of recorded values whose bucket lies entirely below the bound
+     */
+    static long countAtOrBelow(long[] counts, long boundNanos) {
+        long total = 0;
+        for (int i = 0; i < counts.length && bucketUpperBound(i) <= boundNanos; i++) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lowerBound = (long) (SUB_BUCKETS + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
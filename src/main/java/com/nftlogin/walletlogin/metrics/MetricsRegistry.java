@@ -0,0 +1,217 @@
+package com.nftlogin.walletlogin.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of the plugin's internal metrics.
+ *
+ * Metrics are grouped in families that share a name, help text and type; each family holds
+ * one metric per label set. Registration is idempotent, so callers can look up a metric
+ * once, keep the reference on a hot path and update it without further map lookups.
+ */
+public class MetricsRegistry {
+
+    /** Prometheus histogram bucket bounds, in seconds. */
+    private static final double[] BUCKET_BOUNDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Gets or creates a monotonic counter.
+     *
+     * @param name The metric name, ending in {@code _total}
+     * @param help The help text
+     * @param labels Alternating label names and values
+     * @return The counter
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").metrics.computeIfAbsent(labels(labels), k -> new Counter());
+    }
+
+    /**
+     * Gets or creates a counter that can go up and down, exported as a gauge.
+     *
+     * @param name The metric name
+     * @param help The help text
+     * @param labels Alternating label names and values
+     * @return The counter
+     */
+    public Counter upDownCounter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "gauge").metrics.computeIfAbsent(labels(labels), k -> new Counter());
+    }
+
+    /**
+     * Registers a gauge whose value is read when metrics are exported.
+     *
+     * @param name The metric name
+     * @param help The help text
+     * @param supplier The value supplier, which must be cheap and thread-safe
+     * @param labels Alternating label names and values
+     */
+    public void gauge(String name, String help, LongSupplier supplier, String... labels) {
+        family(name, help, "gauge").metrics.put(labels(labels), supplier);
+    }
+
+    /**
+     * Gets or creates a latency histogram, exported in seconds.
+     *
+     * @param name The metric name, ending in {@code _seconds}
+     * @param help The help text
+     * @param labels Alternating label names and values
+     * @return The histogram
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, "histogram").metrics
+                .computeIfAbsent(labels(labels), k -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets the current value of a counter or gauge without creating it.
+     *
+     * @param name The metric name
+     * @param labels Alternating label names and values
+     * @return The value, or 0 if the metric has not been registered
+     */
+    public long getValue(String name, String... labels) {
+        Family family = families.get(name);
+        if (family == null) {
+            return 0;
+        }
+        Object metric = family.metrics.get(labels(labels));
+        if (metric instanceof Counter) {
+            return ((Counter) metric).get();
+        }
+        return metric instanceof LongSupplier ? ((LongSupplier) metric).getAsLong() : 0;
+    }
+
+    /**
+     * Gets a registered histogram without creating it.
+     *
+     * @param name The metric name
+     * @param labels Alternating label names and values
+     * @return The histogram, or null if it has not been registered
+     */
+    public LatencyHistogram findHistogram(String name, String... labels) {
+        Family family = families.get(name);
+        if (family == null) {
+            return null;
+        }
+        Object metric = family.metrics.get(labels(labels));
+        return metric instanceof LatencyHistogram ? (LatencyHistogram) metric : null;
+    }
+
+    /**
+     * Gets every histogram of a family, keyed by its rendered label set.
+     *
+     * @param name The metric name
+     * @return The histograms, empty if the family does not exist
+     */
+    public Map<String, LatencyHistogram> findHistograms(String name) {
+        Map<String, LatencyHistogram> result = new ConcurrentSkipListMap<>();
+        Family family = families.get(name);
+        if (family != null) {
+            family.metrics.forEach((labels, metric) -> {
+                if (metric instanceof LatencyHistogram) {
+                    result.put(labels, (LatencyHistogram) metric);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     *
+     * @param out The output buffer
+     */
+    public void writePrometheus(StringBuilder out) {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+
+            for (Map.Entry<String, Object> entry : new ConcurrentSkipListMap<>(family.metrics).entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+
+                if (metric instanceof Counter) {
+                    sample(out, family.name, labels, ((Counter) metric).get());
+                } else if (metric instanceof LongSupplier) {
+                    sample(out, family.name, labels, ((LongSupplier) metric).getAsLong());
+                } else if (metric instanceof LatencyHistogram) {
+                    writeHistogram(out, family.name, labels, (LatencyHistogram) metric);
+                }
+            }
+        }
+    }
+
+    private void writeHistogram(StringBuilder out, String name, String labels, LatencyHistogram histogram) {
+        long[] counts = histogram.snapshot();
+        long total = LatencyHistogram.total(counts);
+
+        for (double bound : BUCKET_BOUNDS) {
+            long cumulative = LatencyHistogram.countAtOrBelow(counts, (long) (bound * 1_000_000_000L));
+            sample(out, name + "_bucket", withLabel(labels, "le", Double.toString(bound)), cumulative);
+        }
+        sample(out, name + "_bucket", withLabel(labels, "le", "+Inf"), total);
+        out.append(name).append("_sum").append(labels).append(' ')
+                .append(histogram.getSumNanos() / 1_000_000_000.0).append('\n');
+        sample(out, name + "_count", labels, total);
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append(labels).append(' ').append(value).append('\n');
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, k -> new Family(name, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    private static String labels(String... labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name/value pairs");
+        }
+
+        StringBuilder rendered = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                rendered.append(',');
+            }
+            rendered.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return rendered.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String name, String value) {
+        String label = name + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final Map<String, Object> metrics = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
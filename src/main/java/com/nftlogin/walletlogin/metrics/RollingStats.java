@@ -0,0 +1,127 @@
+package com.nftlogin.walletlogin.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps a rolling one-minute view of selected counters and histograms.
+ *
+ * {@link #sample()} is called every {@link #SAMPLE_INTERVAL_SECONDS} seconds from a
+ * background task. Counters are kept in a small ring of samples so rates cover the last
+ * minute; histograms keep the bucket counts of the previous rotation, so percentiles cover
+ * between 30 and 60 seconds of recent activity. Everything is in memory.
+ */
+public class RollingStats {
+
+    public static final int SAMPLE_INTERVAL_SECONDS = 5;
+    private static final int SLOTS = 60 / SAMPLE_INTERVAL_SECONDS + 1;
+    private static final int HISTOGRAM_ROTATION_SAMPLES = 30 / SAMPLE_INTERVAL_SECONDS;
+
+    private final Map<String, LongSupplier> counters = new LinkedHashMap<>();
+    private final Map<String, long[]> counterSamples = new LinkedHashMap<>();
+    private final Map<String, HistogramWindow> histograms = new LinkedHashMap<>();
+    private final long[] sampleTimes = new long[SLOTS];
+    private int samples;
+
+    /**
+     * Tracks a cumulative value, such as a counter or a sum of counters.
+     *
+     * @param name The display name
+     * @param supplier The cumulative value
+     */
+    public synchronized void trackCounter(String name, LongSupplier supplier) {
+        counters.put(name, supplier);
+        counterSamples.put(name, new long[SLOTS]);
+    }
+
+    /**
+     * Tracks a histogram, if it isn't tracked already.
+     *
+     * @param name The display name
+     * @param histogram The histogram
+     */
+    public synchronized void trackHistogram(String name, LatencyHistogram histogram) {
+        histograms.computeIfAbsent(name, k -> new HistogramWindow(histogram));
+    }
+
+    /**
+     * Records one sample of every tracked metric.
+     */
+    public synchronized void sample() {
+        int slot = samples % SLOTS;
+        sampleTimes[slot] = System.nanoTime();
+        for (Map.Entry<String, LongSupplier> entry : counters.entrySet()) {
+            counterSamples.get(entry.getKey())[slot] = entry.getValue().getAsLong();
+        }
+
+        if (samples % HISTOGRAM_ROTATION_SAMPLES == 0) {
+            for (HistogramWindow window : histograms.values()) {
+                window.rotate();
+            }
+        }
+        samples++;
+    }
+
+    /**
+     * Gets the rate of a tracked counter over the last minute.
+     *
+     * @param name The display name
+     * @return Events per minute, or 0 if there is not enough data yet
+     */
+    public synchronized double getRatePerMinute(String name) {
+        LongSupplier supplier = counters.get(name);
+        if (supplier == null || samples == 0) {
+            return 0;
+        }
+
+        int oldest = samples < SLOTS ? 0 : samples % SLOTS;
+        long elapsedNanos = System.nanoTime() - sampleTimes[oldest];
+        if (elapsedNanos <= 0) {
+            return 0;
+        }
+        long delta = supplier.getAsLong() - counterSamples.get(name)[oldest];
+        return delta * 60_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * Gets the bucket counts of every tracked histogram that recorded something recently.
+     *
+     * @return The windowed bucket counts by display name, in tracking order
+     */
+    public synchronized Map<String, long[]> getHistogramWindows() {
+        Map<String, long[]> result = new LinkedHashMap<>();
+        for (Map.Entry<String, HistogramWindow> entry : histograms.entrySet()) {
+            long[] window = entry.getValue().window();
+            if (LatencyHistogram.total(window) > 0) {
+                result.put(entry.getKey(), window);
+            }
+        }
+        return result;
+    }
+
+    private static class HistogramWindow {
+        private final LatencyHistogram histogram;
+        private long[] previous;
+        private long[] baseline;
+
+        HistogramWindow(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        void rotate() {
+            baseline = previous;
+            previous = histogram.snapshot();
+        }
+
+        long[] window() {
+            long[] current = histogram.snapshot();
+            if (baseline != null) {
+                for (int i = 0; i < current.length; i++) {
+                    current[i] -= baseline[i];
+                }
+            }
+            return current;
+        }
+    }
+}
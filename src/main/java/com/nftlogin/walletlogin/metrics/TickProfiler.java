@@ -0,0 +1,220 @@
+package com.nftlogin.walletlogin.metrics;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures how much main-thread time the plugin takes per server tick.
+ *
+ * Event handlers and commands call {@link #record(String, long)} when they finish. Time is
+ * only accumulated on the main thread, so the per-tick totals need no synchronization. A
+ * task scheduled every tick closes the current tick: its total goes into a ring buffer
+ * covering the last minute, and ticks over the configured budget are kept together with
+ * the handler that took the most time, so the admin command can show what caused them.
+ */
+public class TickProfiler {
+
+    public static final int HISTORY_TICKS = 1200;
+    private static final int SLOW_TICK_HISTORY = 10;
+
+    private final SolanaLogin plugin;
+    private final boolean enabled;
+    private final long budgetNanos;
+    private final MetricsRegistry metrics;
+    private final Counter ticksOverBudget;
+
+    // Main thread only
+    private final Map<String, Integer> sourceIndexes = new HashMap<>();
+    private final List<String> sourceNames = new ArrayList<>();
+    private final List<LatencyHistogram> sourceTimers = new ArrayList<>();
+    private long[] currentTick = new long[8];
+    private long[] totalNanos = new long[8];
+    private long[] totalCalls = new long[8];
+    private final long[] tickHistory = new long[HISTORY_TICKS];
+    private final SlowTick[] slowTicks = new SlowTick[SLOW_TICK_HISTORY];
+    private long tickCount;
+    private long slowTickCount;
+    private long resetTick;
+
+    public TickProfiler(SolanaLogin plugin) {
+        this.plugin = plugin;
+        this.enabled = plugin.getConfig().getBoolean("profiler.enabled", true);
+        this.budgetNanos = (long) (plugin.getConfig().getDouble("profiler.tick-budget-ms", 2.0) * 1_000_000L);
+        this.metrics = plugin.getMetrics();
+        this.ticksOverBudget = metrics.counter("solanalogin_ticks_over_budget_total",
+                "Server ticks in which the plugin used more main-thread time than the budget");
+    }
+
+    /**
+     * Starts closing ticks. Does nothing if the profiler is disabled.
+     */
+    public void start() {
+        if (enabled) {
+            plugin.getServer().getScheduler().runTaskTimer(plugin, this::endTick, 1L, 1L);
+        }
+    }
+
+    /**
+     * Records main-thread time spent by an event handler or command.
+     * Calls made off the main thread are ignored.
+     *
+     * @param source The handler or command name
+     * @param startNanos The {@link System#nanoTime()} reading taken when the handler started
+     */
+    public void record(String source, long startNanos) {
+        if (!enabled || !plugin.getServer().isPrimaryThread()) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - startNanos;
+        int index = sourceIndex(source);
+        currentTick[index] += elapsed;
+        totalNanos[index] += elapsed;
+        totalCalls[index]++;
+        sourceTimers.get(index).record(elapsed);
+    }
+
+    private int sourceIndex(String source) {
+        Integer index = sourceIndexes.get(source);
+        if (index != null) {
+            return index;
+        }
+
+        int newIndex = sourceNames.size();
+        sourceIndexes.put(source, newIndex);
+        sourceNames.add(source);
+        sourceTimers.add(metrics.histogram("solanalogin_main_thread_seconds",
+                "Main-thread time spent in plugin event handlers and commands", "source", source));
+        if (newIndex == currentTick.length) {
+            currentTick = Arrays.copyOf(currentTick, newIndex * 2);
+            totalNanos = Arrays.copyOf(totalNanos, newIndex * 2);
+            totalCalls = Arrays.copyOf(totalCalls, newIndex * 2);
+        }
+        return newIndex;
+    }
+
+    private void endTick() {
+        long total = 0;
+        int worst = -1;
+        for (int i = 0; i < sourceNames.size(); i++) {
+            total += currentTick[i];
+            if (worst < 0 || currentTick[i] > currentTick[worst]) {
+                worst = i;
+            }
+        }
+
+        tickHistory[(int) (tickCount % HISTORY_TICKS)] = total;
+        if (total > budgetNanos) {
+            ticksOverBudget.increment();
+            slowTicks[(int) (slowTickCount++ % SLOW_TICK_HISTORY)] =
+                    new SlowTick(System.currentTimeMillis(), total, sourceNames.get(worst), currentTick[worst]);
+        }
+        if (total > 0) {
+            Arrays.fill(currentTick, 0, sourceNames.size(), 0);
+        }
+        tickCount++;
+    }
+
+    /**
+     * Clears the per-source totals and the tick history.
+     */
+    public void reset() {
+        Arrays.fill(totalNanos, 0);
+        Arrays.fill(totalCalls, 0);
+        Arrays.fill(tickHistory, 0);
+        Arrays.fill(slowTicks, null);
+        resetTick = tickCount;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Gets the plugin's main-thread time in each of the most recent ticks, oldest first.
+     *
+     * @return Up to {@link #HISTORY_TICKS} per-tick totals in nanoseconds
+     */
+    public long[] getTickHistory() {
+        int length = (int) Math.min(HISTORY_TICKS, tickCount - resetTick);
+        long[] history = new long[length];
+        for (int i = 0; i < length; i++) {
+            history[i] = tickHistory[(int) ((tickCount - length + i) % HISTORY_TICKS)];
+        }
+        return history;
+    }
+
+    /**
+     * Gets the accumulated main-thread time of every source since the last reset.
+     *
+     * @return Source names mapped to {total nanos, calls}, in registration order
+     */
+    public Map<String, long[]> getSourceTotals() {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (int i = 0; i < sourceNames.size(); i++) {
+            if (totalCalls[i] > 0) {
+                totals.put(sourceNames.get(i), new long[] {totalNanos[i], totalCalls[i]});
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Gets the most recent ticks that went over the budget.
+     *
+     * @return The slow ticks, newest first
+     */
+    public List<SlowTick> getSlowTicks() {
+        List<SlowTick> result = new ArrayList<>();
+        for (long i = slowTickCount - 1; i >= 0 && i >= slowTickCount - SLOW_TICK_HISTORY; i--) {
+            SlowTick slowTick = slowTicks[(int) (i % SLOW_TICK_HISTORY)];
+            if (slowTick != null) {
+                result.add(slowTick);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A tick in which the plugin went over its main-thread budget.
+     */
+    public static class SlowTick {
+        private final long timestamp;
+        private final long totalNanos;
+        private final String worstSource;
+        private final long worstSourceNanos;
+
+        SlowTick(long timestamp, long totalNanos, String worstSource, long worstSourceNanos) {
+            this.timestamp = timestamp;
+            this.totalNanos = totalNanos;
+            this.worstSource = worstSource;
+            this.worstSourceNanos = worstSourceNanos;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public String getWorstSource() {
+            return worstSource;
+        }
+
+        public long getWorstSourceNanos() {
+            return worstSourceNanos;
+        }
+    }
+}
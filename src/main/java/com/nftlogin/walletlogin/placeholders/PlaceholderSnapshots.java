@@ -0,0 +1,214 @@
+package com.nftlogin.walletlogin.placeholders;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.events.PlayerAuthenticatedEvent;
+import com.nftlogin.walletlogin.events.PlayerLoggedOutEvent;
+import com.nftlogin.walletlogin.events.WalletLinkedEvent;
+import com.nftlogin.walletlogin.events.WalletUnlinkedEvent;
+import com.nftlogin.walletlogin.session.SessionManager;
+import org.bukkit.ChatColor;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the placeholder values of each online player, formatted in advance.
+ *
+ * Scoreboards and tab lists render placeholders many times a second, so a render only reads a
+ * snapshot. Snapshots are built from the session and the wallet cache the first time a player
+ * is rendered, rebuilt when one of the plugin's events reports a change, and dropped when the
+ * player quits. Nothing here touches the database.
+ */
+public class PlaceholderSnapshots implements Listener {
+
+    private static final int SHORT_WALLET_CHARS = 4;
+
+    private final SolanaLogin plugin;
+    private final Map<UUID, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public PlaceholderSnapshots(SolanaLogin plugin) {
+        this.plugin = plugin;
+        plugin.getMetrics().gauge("solanalogin_placeholder_snapshots", "Players with placeholder values cached",
+                snapshots::size);
+    }
+
+    /**
+     * Gets a player's snapshot, building it from memory if there is none yet.
+     *
+     * @param uuid The player's UUID
+     * @return The snapshot
+     */
+    public Snapshot get(UUID uuid) {
+        Snapshot current = snapshots.get(uuid);
+        if (current != null && System.currentTimeMillis() < current.expiresAt) {
+            return current;
+        }
+
+        Snapshot snapshot = build(uuid);
+        // Until the wallet has loaded there is nothing worth keeping. A snapshot refreshed by
+        // an event meanwhile is newer than this one, so it is not overwritten.
+        if (snapshot.walletLoaded) {
+            if (current == null) {
+                snapshots.putIfAbsent(uuid, snapshot);
+            } else {
+                snapshots.replace(uuid, current, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rebuilds a player's snapshot after their state changed.
+     *
+     * @param uuid The player's UUID
+     */
+    public void refresh(UUID uuid) {
+        Snapshot snapshot = build(uuid);
+        if (snapshot.walletLoaded) {
+            snapshots.put(uuid, snapshot);
+        } else {
+            snapshots.remove(uuid);
+        }
+    }
+
+    /**
+     * Drops every snapshot, so the texts are formatted again after the config is reloaded.
+     */
+    public void clear() {
+        snapshots.clear();
+    }
+
+    public int size() {
+        return snapshots.size();
+    }
+
+    private Snapshot build(UUID uuid) {
+        FileConfiguration config = plugin.getConfig();
+        SessionManager sessions = plugin.getSessionManager();
+        SessionManager.Session session = sessions.hasSession(uuid) ? sessions.getSession(uuid) : null;
+        boolean authenticated = session != null && session.isAuthenticated();
+        long expiresAt = authenticated
+                ? session.getCreationTime() + config.getLong("settings.session-timeout", 1440) * 60 * 1000
+                : Long.MAX_VALUE;
+
+        Optional<WalletRecord> wallet = plugin.getWalletCache().getIfLoaded(uuid);
+        String none = format(config.getString("placeholders.no-wallet", "None"));
+        Snapshot snapshot = new Snapshot(wallet != null, authenticated, expiresAt,
+                format(config.getString(authenticated ? "placeholders.logged-in" : "placeholders.logged-out",
+                        authenticated ? "&aLogged in" : "&cNot logged in")));
+        if (wallet == null || !wallet.isPresent()) {
+            snapshot.wallet = none;
+            snapshot.walletShort = none;
+            snapshot.walletType = none;
+            snapshot.verifiedText = none;
+            return snapshot;
+        }
+
+        WalletRecord record = wallet.get();
+        String address = record.getAddress();
+        snapshot.hasWallet = true;
+        snapshot.verified = record.isVerified();
+        snapshot.wallet = address;
+        snapshot.walletShort = address.length() > SHORT_WALLET_CHARS * 2 + 3
+                ? address.substring(0, SHORT_WALLET_CHARS) + "..."
+                + address.substring(address.length() - SHORT_WALLET_CHARS)
+                : address;
+        snapshot.walletType = record.getType() != null ? record.getType() : none;
+        snapshot.verifiedText = format(config.getString(record.isVerified()
+                ? "placeholders.verified" : "placeholders.unverified",
+                record.isVerified() ? "&aVerified" : "&eUnverified"));
+        return snapshot;
+    }
+
+    private static String format(String text) {
+        return ChatColor.translateAlternateColorCodes('&', text);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAuthenticated(PlayerAuthenticatedEvent event) {
+        refresh(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoggedOut(PlayerLoggedOutEvent event) {
+        refresh(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWalletLinked(WalletLinkedEvent event) {
+        refresh(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWalletUnlinked(WalletUnlinkedEvent event) {
+        refresh(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        snapshots.remove(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * A player's placeholder values, formatted when the snapshot is built.
+     */
+    public static class Snapshot {
+        private final boolean walletLoaded;
+        private final boolean authenticated;
+        private final long expiresAt;
+        private final String status;
+        private boolean hasWallet;
+        private boolean verified;
+        private String wallet;
+        private String walletShort;
+        private String walletType;
+        private String verifiedText;
+
+        Snapshot(boolean walletLoaded, boolean authenticated, long expiresAt, String status) {
+            this.walletLoaded = walletLoaded;
+            this.authenticated = authenticated;
+            this.expiresAt = expiresAt;
+            this.status = status;
+        }
+
+        public boolean isAuthenticated() {
+            return authenticated;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public boolean hasWallet() {
+            return hasWallet;
+        }
+
+        public boolean isVerified() {
+            return verified;
+        }
+
+        public String getWallet() {
+            return wallet;
+        }
+
+        public String getWalletShort() {
+            return walletShort;
+        }
+
+        public String getWalletType() {
+            return walletType;
+        }
+
+        public String getVerifiedText() {
+            return verifiedText;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.nftlogin.walletlogin.placeholders;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import me.clip.placeholderapi.expansion.PlaceholderExpansion;
+import org.bukkit.OfflinePlayer;
+
+/**
+ * Provides the {@code %solanalogin_...%} placeholders to PlaceholderAPI.
+ *
+ * Every value comes from a {@link PlaceholderSnapshots} snapshot, so rendering a scoreboard
+ * or tab list costs a map lookup and never a query.
+ */
+public class SolanaLoginExpansion extends PlaceholderExpansion {
+
+    private final SolanaLogin plugin;
+    private final PlaceholderSnapshots snapshots;
+
+    public SolanaLoginExpansion(SolanaLogin plugin, PlaceholderSnapshots snapshots) {
+        this.plugin = plugin;
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public String getIdentifier() {
+        return "solanalogin";
+    }
+
+    @Override
+    public String getAuthor() {
+        return String.join(", ", plugin.getDescription().getAuthors());
+    }
+
+    @Override
+    public String getVersion() {
+        return plugin.getDescription().getVersion();
+    }
+
+    @Override
+    public boolean persist() {
+        // Registered by the plugin itself, so it survives /papi reload
+        return true;
+    }
+
+    @Override
+    public String onRequest(OfflinePlayer player, String params) {
+        if (player == null) {
+            return null;
+        }
+
+        PlaceholderSnapshots.Snapshot snapshot = snapshots.get(player.getUniqueId());
+        switch (params) {
+            case "authenticated":
+                return String.valueOf(snapshot.isAuthenticated());
+            case "status":
+                return snapshot.getStatus();
+            case "has_wallet":
+                return String.valueOf(snapshot.hasWallet());
+            case "wallet":
+                return snapshot.getWallet();
+            case "wallet_short":
+                return snapshot.getWalletShort();
+            case "wallet_type":
+                return snapshot.getWalletType();
+            case "verified":
+                return String.valueOf(snapshot.isVerified());
+            case "verified_status":
+                return snapshot.getVerifiedText();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.nftlogin.walletlogin.session;
+
+import java.util.UUID;
+
+/**
+ * A signed wallet login link, as issued by {@link NonceService#issueLoginToken}.
+ *
+ * The token carries the player's UUID and name, a random nonce and an expiry time, so the
+ * web server can check it with the shared key instead of looking it up.
+ */
+public class LoginToken {
+
+    private final String token;
+    private final UUID uuid;
+    private final String playerName;
+    private final String nonce;
+    private final long expiresAt;
+
+    public LoginToken(String token, UUID uuid, String playerName, String nonce, long expiresAt) {
+        this.token = token;
+        this.uuid = uuid;
+        this.playerName = playerName;
+        this.nonce = nonce;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Gets the encoded token, which is URL-safe.
+     *
+     * @return The token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /**
+     * Gets the nonce the wallet signs, which also identifies this login.
+     *
+     * @return The nonce, 22 URL-safe characters
+     */
+    public String getNonce() {
+        return nonce;
+    }
+
+    /**
+     * Gets when the token expires.
+     *
+     * @return The time in milliseconds
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+}
@@ -0,0 +1,222 @@
+package com.nftlogin.walletlogin.session;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Signs wallet login links and checks the web server's answer when a wallet has signed in.
+ *
+ * A login link carries a {@link LoginToken}: the player, its expiry and a random nonce, signed
+ * with HMAC-SHA256. Anyone holding the key can verify it, so neither the plugin nor the web
+ * server keeps a table of pending logins. When a wallet signs in, the web server answers with a
+ * proof over the token's nonce and the wallet address, signed with the same key. Tokens and
+ * proofs start with different type bytes, so one can never pass for the other.
+ *
+ * Random bytes come from one shared generator, the DRBG where the JVM has it (Java 9+). It is
+ * never reseeded from a blocking source, and is shared rather than thread-local because the
+ * plugin's background work may run on thousands of short-lived virtual threads.
+ */
+public class NonceService {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final String KEY_FILE = "token-secret.key";
+    private static final int MAC_BYTES = 16;
+    private static final byte LOGIN_TOKEN = 1;
+    private static final byte WALLET_PROOF = 2;
+    private static final int TOKEN_NONCE_BYTES = 16;
+    private static final int TOKEN_HEADER_BYTES = 1 + 2 * Long.BYTES + Long.BYTES + TOKEN_NONCE_BYTES;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final SecureRandom RANDOM = newRandom();
+
+    private final SecretKeySpec key;
+    private final Mac prototype;
+
+    /**
+     * Creates a service signing with the given key.
+     *
+     * @param key The HMAC key, ideally 32 random bytes
+     */
+    public NonceService(byte[] key) {
+        this.key = new SecretKeySpec(key, MAC_ALGORITHM);
+        this.prototype = initMac();
+    }
+
+    private Mac initMac() {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * Creates the shared random generator, without touching a blocking entropy source.
+     */
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            // Java 8: the default is NativePRNG (/dev/urandom) on Linux
+            return new SecureRandom();
+        }
+    }
+
+    /**
+     * Fills an array with random bytes from the shared generator.
+     *
+     * @param bytes The array to fill
+     */
+    public static void nextBytes(byte[] bytes) {
+        RANDOM.nextBytes(bytes);
+    }
+
+    /**
+     * Loads the key shared with the web server: {@code auth.token-secret} if it is set,
+     * otherwise the key in {@code token-secret.key}, which is created on first use.
+     *
+     * @param plugin The plugin
+     * @return The key
+     * @throws IOException If the key file can't be read or created
+     */
+    public static byte[] loadKey(SolanaLogin plugin) throws IOException {
+        String secret = plugin.getConfig().getString("auth.token-secret", "");
+        if (secret != null && !secret.isEmpty()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+
+        File file = new File(plugin.getDataFolder(), KEY_FILE);
+        if (file.isFile()) {
+            return DECODER.decode(new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim());
+        }
+
+        byte[] key = new byte[32];
+        nextBytes(key);
+        Files.createDirectories(plugin.getDataFolder().toPath());
+        Files.write(file.toPath(), ENCODER.encode(key));
+        return key;
+    }
+
+    /**
+     * Issues a signed wallet login link for a player.
+     *
+     * The token is the URL-safe Base64 of a type byte, the UUID, the expiry time, 16 random
+     * bytes and the player's name, then a dot and the first 16 bytes of its HMAC-SHA256.
+     *
+     * @param uuid The player's UUID
+     * @param playerName The player's name, shown on the login page
+     * @param ttlMillis How long the link stays valid
+     * @return The token
+     */
+    public LoginToken issueLoginToken(UUID uuid, String playerName, long ttlMillis) {
+        byte[] name = playerName.getBytes(StandardCharsets.UTF_8);
+        byte[] nonce = new byte[TOKEN_NONCE_BYTES];
+        nextBytes(nonce);
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+
+        ByteBuffer payload = ByteBuffer.allocate(TOKEN_HEADER_BYTES + name.length);
+        payload.put(LOGIN_TOKEN).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits())
+                .putLong(expiresAt).put(nonce).put(name);
+        String token = ENCODER.encodeToString(payload.array()) + '.' + ENCODER.encodeToString(sign(payload.array()));
+        return new LoginToken(token, uuid, playerName, ENCODER.encodeToString(nonce), expiresAt);
+    }
+
+    /**
+     * Checks a login token's signature and expiry.
+     *
+     * @param token The encoded token
+     * @return The token, or empty if it is malformed, forged or expired
+     */
+    public Optional<LoginToken> verifyLoginToken(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return Optional.empty();
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        if (payload.length < TOKEN_HEADER_BYTES || payload[0] != LOGIN_TOKEN
+                || !MessageDigest.isEqual(sign(payload), signature)) {
+            return Optional.empty();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 1, payload.length - 1);
+        UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+        long expiresAt = buffer.getLong();
+        byte[] nonce = new byte[TOKEN_NONCE_BYTES];
+        buffer.get(nonce);
+        String name = new String(payload, TOKEN_HEADER_BYTES, payload.length - TOKEN_HEADER_BYTES,
+                StandardCharsets.UTF_8);
+        if (System.currentTimeMillis() >= expiresAt) {
+            return Optional.empty();
+        }
+        return Optional.of(new LoginToken(token, uuid, name, ENCODER.encodeToString(nonce), expiresAt));
+    }
+
+    /**
+     * Signs the wallet that completed a login, as the web server does in its status response.
+     *
+     * @param token The login token
+     * @param walletAddress The wallet address
+     * @return The proof, 22 URL-safe characters
+     */
+    public String walletProof(LoginToken token, String walletAddress) {
+        byte[] nonce = DECODER.decode(token.getNonce());
+        byte[] address = walletAddress.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer data = ByteBuffer.allocate(1 + nonce.length + address.length);
+        data.put(WALLET_PROOF).put(nonce).put(address);
+        return ENCODER.encodeToString(sign(data.array()));
+    }
+
+    /**
+     * Checks that the web server holding the shared key reported this wallet for this login.
+     *
+     * @param token The login token
+     * @param walletAddress The wallet address from the status response
+     * @param proof The proof from the status response
+     * @return true if the proof matches
+     */
+    public boolean verifyWalletProof(LoginToken token, String walletAddress, String proof) {
+        return proof != null && MessageDigest.isEqual(
+                walletProof(token, walletAddress).getBytes(StandardCharsets.US_ASCII),
+                proof.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private byte[] sign(byte[] data) {
+        byte[] signature = new byte[MAC_BYTES];
+        System.arraycopy(newMac().doFinal(data), 0, signature, 0, MAC_BYTES);
+        return signature;
+    }
+
+    /**
+     * Copies the initialized prototype, which is much cheaper than a provider lookup and key setup.
+     */
+    private Mac newMac() {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            return initMac();
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.nftlogin.walletlogin.session;
 
 import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 /**
  * Manages player authentication sessions.
@@ -17,8 +20,7 @@ public class SessionManager {
     private final Map<UUID, LoginAttempt> loginAttempts;
     private final Map<String, Integer> ipRegistrations;
     private final Map<UUID, String> verificationCodes;
-    private final Map<UUID, String> authNonces;
-    private final Map<UUID, String> authSessions;
+    private final NonceService nonceService;
 
     public SessionManager(SolanaLogin plugin) {
         this.plugin = plugin;
@@ -26,8 +28,27 @@ public class SessionManager {
         this.loginAttempts = new ConcurrentHashMap<>();
         this.ipRegistrations = new ConcurrentHashMap<>();
         this.verificationCodes = new ConcurrentHashMap<>();
-        this.authNonces = new ConcurrentHashMap<>();
-        this.authSessions = new ConcurrentHashMap<>();
+        this.nonceService = createNonceService(plugin);
+        registerMetrics(plugin.getMetrics());
+    }
+
+    private void registerMetrics(MetricsRegistry metrics) {
+        String help = "Number of entries in each session map";
+        metrics.gauge("solanalogin_session_map_entries", help, sessions::size, "map", "sessions");
+        metrics.gauge("solanalogin_session_map_entries", help, loginAttempts::size, "map", "login_attempts");
+        metrics.gauge("solanalogin_session_map_entries", help, ipRegistrations::size, "map", "ip_registrations");
+    }
+
+    private static NonceService createNonceService(SolanaLogin plugin) {
+        try {
+            return new NonceService(NonceService.loadKey(plugin));
+        } catch (IOException e) {
+            // Nonces then only verify until the next restart
+            plugin.getLogger().log(Level.WARNING, "Could not load or save the token secret; using a temporary one", e);
+            byte[] key = new byte[32];
+            NonceService.nextBytes(key);
+            return new NonceService(key);
+        }
     }
 
     /**
@@ -211,68 +232,29 @@ public class SessionManager {
     }
 
     /**
-     * Generates a secure nonce for wallet authentication.
-     *
-     * @param uuid The player's UUID
-     * @return The generated nonce
-     */
-    public String generateAuthNonce(UUID uuid) {
-        // Generate a random nonce (12 characters)
-        StringBuilder nonce = new StringBuilder();
-        String chars = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
-        java.security.SecureRandom random = new java.security.SecureRandom();
-        for (int i = 0; i < 12; i++) {
-            nonce.append(chars.charAt(random.nextInt(chars.length())));
-        }
-
-        String nonceStr = nonce.toString();
-        authNonces.put(uuid, nonceStr);
-        return nonceStr;
-    }
-
-    /**
-     * Verifies an authentication nonce.
-     *
-     * @param uuid The player's UUID
-     * @param nonce The nonce to verify
-     * @return true if the nonce is valid, false otherwise
-     */
-    public boolean verifyAuthNonce(UUID uuid, String nonce) {
-        String storedNonce = authNonces.get(uuid);
-        if (storedNonce != null && storedNonce.equals(nonce)) {
-            authNonces.remove(uuid);
-            return true;
-        }
-        return false;
-    }
-
-    /**
-     * Stores an authentication session ID.
+     * Issues a signed wallet login link, valid for {@code web-server.qr-code-timeout} seconds.
      *
-     * @param uuid The player's UUID
-     * @param sessionId The session ID
-     */
-    public void storeAuthSession(UUID uuid, String sessionId) {
-        authSessions.put(uuid, sessionId);
-    }
-
-    /**
-     * Gets an authentication session ID.
+     * The token carries everything the web server needs, so nothing is stored.
      *
      * @param uuid The player's UUID
-     * @return The session ID, or null if not found
+     * @param playerName The player's name
+     * @return The login token
      */
-    public String getAuthSession(UUID uuid) {
-        return authSessions.get(uuid);
+    public LoginToken issueLoginToken(UUID uuid, String playerName) {
+        long ttlMillis = plugin.getConfig().getLong("web-server.qr-code-timeout", 300) * 1000;
+        return nonceService.issueLoginToken(uuid, playerName, ttlMillis);
     }
 
     /**
-     * Removes an authentication session ID.
+     * Checks the web server's proof that a wallet completed a login.
      *
-     * @param uuid The player's UUID
+     * @param token The login token
+     * @param walletAddress The wallet address the web server reported
+     * @param proof The proof the web server sent with it
+     * @return true if the proof was made with the shared key for this login and wallet
      */
-    public void removeAuthSession(UUID uuid) {
-        authSessions.remove(uuid);
+    public boolean verifyWalletProof(LoginToken token, String walletAddress, String proof) {
+        return nonceService.verifyWalletProof(token, walletAddress, proof);
     }
 
     /**
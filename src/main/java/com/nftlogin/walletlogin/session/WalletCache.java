@@ -0,0 +1,149 @@
+package com.nftlogin.walletlogin.session;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.solana.OwnershipCache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the wallet state of online players.
+ *
+ * Entries are loaded in the background when a player joins, updated when a wallet is
+ * connected or disconnected, and dropped when the player quits. Readers that must not
+ * touch the database use {@link #getIfLoaded(UUID)}; everyone else uses {@link #get(UUID)},
+ * which loads on a miss. When NFT gating is on, the NFT ownership of each wallet that enters
+ * the cache is checked in the background, so it is known before anything gates on it.
+ */
+public class WalletCache {
+
+    private final SolanaLogin plugin;
+    private final Map<UUID, Optional<WalletRecord>> wallets;
+    private final Counter hits;
+    private final Counter misses;
+
+    public WalletCache(SolanaLogin plugin) {
+        this.plugin = plugin;
+        this.wallets = new ConcurrentHashMap<>();
+        this.hits = plugin.getMetrics().counter("solanalogin_wallet_cache_requests_total",
+                "Wallet cache lookups by result", "result", "hit");
+        this.misses = plugin.getMetrics().counter("solanalogin_wallet_cache_requests_total",
+                "Wallet cache lookups by result", "result", "miss");
+        plugin.getMetrics().gauge("solanalogin_wallet_cache_entries", "Players with cached wallet state",
+                wallets::size);
+    }
+
+    /**
+     * Gets a player's cached wallet without touching the database.
+     *
+     * @param uuid The player's UUID
+     * @return The cached wallet state (empty if the player has no wallet), or null if not loaded yet
+     */
+    public Optional<WalletRecord> getIfLoaded(UUID uuid) {
+        Optional<WalletRecord> wallet = wallets.get(uuid);
+        if (wallet != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return wallet;
+    }
+
+    /**
+     * Gets a player's wallet, loading it from the database on a cache miss. Only online
+     * players' wallets are kept.
+     *
+     * @param uuid The player's UUID
+     * @return The wallet, or empty if the player doesn't have a wallet connected
+     */
+    public Optional<WalletRecord> get(UUID uuid) {
+        Optional<WalletRecord> wallet = getIfLoaded(uuid);
+        if (wallet == null) {
+            wallet = plugin.getDatabaseManager().getWallet(uuid);
+            cacheIfOnline(uuid, wallet);
+        }
+        return wallet;
+    }
+
+    /**
+     * Loads a player's wallet in the background.
+     *
+     * @param uuid The player's UUID
+     * @return The player's wallet state once loaded, which is the cached one if it changed meanwhile
+     */
+    public CompletableFuture<Optional<WalletRecord>> loadAsync(UUID uuid) {
+        return plugin.getBlockingExecutor().submit(() -> {
+            Optional<WalletRecord> wallet = plugin.getDatabaseManager().getWallet(uuid);
+            cacheIfOnline(uuid, wallet);
+            Optional<WalletRecord> cached = wallets.get(uuid);
+            return cached != null ? cached : wallet;
+        });
+    }
+
+    /**
+     * Caches a wallet read from the database, if its player is online and not cached yet.
+     * Offline players are never cached, so lookups for them can't fill the cache.
+     *
+     * @param uuid The player's UUID
+     * @param wallet The wallet state read from the database
+     */
+    public void cacheIfOnline(UUID uuid, Optional<WalletRecord> wallet) {
+        // Don't resurrect the entry of a player who left while the query was running
+        if (plugin.getServer().getPlayer(uuid) != null && wallets.putIfAbsent(uuid, wallet) == null) {
+            wallet.ifPresent(this::prefetchOwnership);
+        }
+    }
+
+    /**
+     * Records a newly connected wallet.
+     *
+     * @param uuid The player's UUID
+     * @param wallet The wallet
+     */
+    public void put(UUID uuid, WalletRecord wallet) {
+        wallets.put(uuid, Optional.of(wallet));
+        prefetchOwnership(wallet);
+    }
+
+    private void prefetchOwnership(WalletRecord wallet) {
+        OwnershipCache ownership = plugin.getOwnershipCache();
+        if (ownership != null) {
+            ownership.prefetch(wallet.getAddress());
+        }
+    }
+
+    /**
+     * Records that a player no longer has a wallet.
+     *
+     * @param uuid The player's UUID
+     */
+    public void setNoWallet(UUID uuid) {
+        wallets.put(uuid, Optional.empty());
+    }
+
+    /**
+     * Drops a player's entry, normally when they quit.
+     *
+     * @param uuid The player's UUID
+     */
+    public void invalidate(UUID uuid) {
+        wallets.remove(uuid);
+    }
+
+    public int size() {
+        return wallets.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,34 @@
+package com.nftlogin.walletlogin.solana;
+
+/**
+ * An on-chain account, as returned by {@code getMultipleAccounts} with base64 encoding.
+ */
+public class AccountInfo {
+
+    private final String owner;
+    private final long lamports;
+    private final byte[] data;
+
+    public AccountInfo(String owner, long lamports, byte[] data) {
+        this.owner = owner;
+        this.lamports = lamports;
+        this.data = data;
+    }
+
+    /**
+     * Gets the program that owns the account, such as the SPL Token program.
+     *
+     * @return The owner's address
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getLamports() {
+        return lamports;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,76 @@
+package com.nftlogin.walletlogin.solana;
+
+/**
+ * Stops calling an RPC node that keeps failing.
+ *
+ * After {@code failureThreshold} failures in a row the breaker opens and requests fail at once,
+ * without a thread waiting on the node. Once {@code openMillis} have passed one trial request
+ * is let through: if it succeeds the breaker closes, otherwise it stays open for another period.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The breaker's state.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialRunning;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Asks to send a request. Every {@code true} must be followed by
+     * {@link #recordSuccess()}, {@link #recordFailure()} or {@link #release()}.
+     *
+     * @return true if the request may be sent
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMillis) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN && !trialRunning) {
+            trialRunning = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Gives back a permission from {@link #tryAcquire()} for a request that was never sent.
+     */
+    public synchronized void release() {
+        trialRunning = false;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialRunning = false;
+    }
+
+    public synchronized void recordFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+        trialRunning = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
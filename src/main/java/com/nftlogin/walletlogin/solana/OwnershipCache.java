@@ -0,0 +1,431 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.OwnershipRecord;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.nftlogin.walletlogin.utils.Base58;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Caches which of the configured NFT or token mints each wallet holds, so gating a player on
+ * join is a memory lookup rather than an RPC round trip.
+ *
+ * A wallet is checked with one {@code getTokenAccountsByOwner} call, batched with the checks of
+ * other wallets. Only one check per wallet runs at a time: 200 players joining with the same
+ * wallet, or a lookup during a refresh, share the check already running. Results are kept for
+ * {@code ttl-seconds}, or {@code negative-ttl-seconds} when the wallet holds none of the mints,
+ * and are refreshed in the background once a lookup finds them older than {@code refresh-ahead}
+ * of that time, so wallets that are looked up regularly never expire. When a check fails the
+ * previous result is kept. Results can be persisted, so the cache starts warm after a restart.
+ *
+ * Only accounts of the SPL Token program are checked.
+ */
+public class OwnershipCache {
+
+    /**
+     * The SPL Token program, which owns the token accounts that hold NFTs and fungible tokens.
+     */
+    public static final String TOKEN_PROGRAM = "TokenkegQfeZyiNwAJbNbGKPFXCWuBvf9Ss623VQ5DA";
+
+    // Layout of an SPL token account: mint, owner, then the amount as a little-endian u64
+    private static final int MINT_OFFSET = 0;
+    private static final int AMOUNT_OFFSET = 64;
+    private static final int KEY_LENGTH = 32;
+
+    private final SolanaRpcClient rpc;
+    private final Map<ByteBuffer, String> mints = new HashMap<>();
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final double refreshAhead;
+    private final Consumer<List<OwnershipRecord>> persister;
+    private final Map<String, OwnershipRecord> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<OwnershipRecord>> loading = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshes;
+    private final Counter coalesced;
+    private final Counter checked;
+    private final Counter failed;
+
+    /**
+     * Creates a cache.
+     *
+     * @param rpc The client the checks are sent with
+     * @param mints The mints to look for, as Base58 addresses
+     * @param ttlMillis How long a wallet that holds a mint is cached
+     * @param negativeTtlMillis How long a wallet that holds none of the mints is cached
+     * @param refreshAhead The fraction of the TTL after which a lookup refreshes the entry in the background
+     * @param metrics Where to record lookups and checks
+     * @param persister Called with the results of each batch of checks, or null to keep them in memory only
+     * @throws IllegalArgumentException If a mint isn't a valid address
+     */
+    public OwnershipCache(SolanaRpcClient rpc, Collection<String> mints, long ttlMillis, long negativeTtlMillis,
+                          double refreshAhead, MetricsRegistry metrics, Consumer<List<OwnershipRecord>> persister) {
+        this.rpc = rpc;
+        for (String mint : mints) {
+            byte[] key = Base58.decode(mint);
+            if (key == null || key.length != KEY_LENGTH) {
+                throw new IllegalArgumentException("Invalid mint address: " + mint);
+            }
+            this.mints.put(ByteBuffer.wrap(key), mint);
+        }
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.refreshAhead = Math.max(0, Math.min(1, refreshAhead));
+        this.persister = persister;
+
+        String help = "NFT ownership cache lookups by result";
+        this.hits = metrics.counter("solanalogin_ownership_cache_requests_total", help, "result", "hit");
+        this.misses = metrics.counter("solanalogin_ownership_cache_requests_total", help, "result", "miss");
+        this.refreshes = metrics.counter("solanalogin_ownership_cache_refreshes_total",
+                "NFT ownership entries refreshed ahead of expiry");
+        this.coalesced = metrics.counter("solanalogin_ownership_checks_coalesced_total",
+                "NFT ownership checks answered by a check already running for the wallet");
+        this.checked = metrics.counter("solanalogin_ownership_checks_total",
+                "NFT ownership checks by result", "result", "success");
+        this.failed = metrics.counter("solanalogin_ownership_checks_total",
+                "NFT ownership checks by result", "result", "failure");
+        metrics.gauge("solanalogin_ownership_cache_entries", "Wallets with a cached NFT ownership result",
+                entries::size);
+    }
+
+    /**
+     * Creates a cache from the {@code nft-gating} section of the config, persisting results to
+     * the plugin's database if {@code nft-gating.persist} is on. Invalid mints are skipped with
+     * a warning.
+     *
+     * @param plugin The plugin
+     * @param rpc The client the checks are sent with
+     * @return The cache
+     */
+    public static OwnershipCache fromConfig(SolanaLogin plugin, SolanaRpcClient rpc) {
+        FileConfiguration config = plugin.getConfig();
+        Set<String> mints = new LinkedHashSet<>();
+        for (String mint : config.getStringList("nft-gating.mints")) {
+            byte[] key = Base58.decode(mint.trim());
+            if (key == null || key.length != KEY_LENGTH) {
+                plugin.getLogger().warning("Ignoring invalid mint address in nft-gating.mints: " + mint);
+            } else {
+                mints.add(mint.trim());
+            }
+        }
+
+        Consumer<List<OwnershipRecord>> persister = config.getBoolean("nft-gating.persist", true)
+                ? records -> plugin.getDatabaseManager().saveOwnership(records)
+                : null;
+        return new OwnershipCache(rpc, mints, config.getLong("nft-gating.ttl-seconds", 600) * 1000,
+                config.getLong("nft-gating.negative-ttl-seconds", 120) * 1000,
+                config.getDouble("nft-gating.refresh-ahead", 0.8), plugin.getMetrics(), persister);
+    }
+
+    /**
+     * Gets the mints a wallet holds without waiting. A miss starts a check in the background,
+     * so the answer is normally there by the time the player has finished joining.
+     *
+     * @param address The wallet address
+     * @return The configured mints the wallet holds, or empty if it hasn't been checked yet
+     */
+    public Optional<Set<String>> getIfPresent(String address) {
+        OwnershipRecord record = lookup(address);
+        if (record == null) {
+            load(Collections.singletonList(address));
+            return Optional.empty();
+        }
+        return Optional.of(record.getMints());
+    }
+
+    /**
+     * Gets the mints a wallet holds, checking the chain on a miss. If the check fails, the last
+     * result is used even though it has expired.
+     *
+     * @param address The wallet address
+     * @return The configured mints the wallet holds
+     */
+    public CompletableFuture<Set<String>> get(String address) {
+        OwnershipRecord record = lookup(address);
+        if (record != null) {
+            return CompletableFuture.completedFuture(record.getMints());
+        }
+
+        OwnershipRecord stale = entries.get(address);
+        return load(Collections.singletonList(address)).get(0).handle((loaded, error) -> {
+            if (error == null) {
+                return loaded.getMints();
+            }
+            if (stale != null) {
+                return stale.getMints();
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        });
+    }
+
+    /**
+     * Checks wallets on chain now, whether or not they are cached, batching the checks.
+     *
+     * @param addresses The wallet addresses
+     * @return The results, in the same order as the addresses
+     */
+    public List<CompletableFuture<OwnershipRecord>> load(Collection<String> addresses) {
+        List<CompletableFuture<OwnershipRecord>> results = new ArrayList<>(addresses.size());
+        start(addresses, results, true);
+        return results;
+    }
+
+    /**
+     * Re-checks wallets on chain for a bulk sync, persisting only the results that changed.
+     * Wallets the node reports an error for are skipped; they are checked again on the next sync.
+     *
+     * @param addresses The wallet addresses
+     * @return The number of wallets whose mints changed, or an {@link RpcException} if the node
+     *         couldn't be reached
+     */
+    public CompletableFuture<Integer> resync(Collection<String> addresses) {
+        return start(addresses, new ArrayList<>(addresses.size()), false).thenApply(List::size);
+    }
+
+    /**
+     * Starts checks for the wallets not already being checked.
+     *
+     * @param results Receives the result of every wallet, in order
+     * @param persistAll Whether to persist every result, or only the ones that changed
+     * @return The changed results, once the checks started here are done
+     */
+    private CompletableFuture<List<OwnershipRecord>> start(Collection<String> addresses,
+                                                           List<CompletableFuture<OwnershipRecord>> results,
+                                                           boolean persistAll) {
+        List<String> started = new ArrayList<>();
+        List<CompletableFuture<OwnershipRecord>> startedFutures = new ArrayList<>();
+
+        for (String address : addresses) {
+            CompletableFuture<OwnershipRecord> future = new CompletableFuture<>();
+            CompletableFuture<OwnershipRecord> existing = loading.putIfAbsent(address, future);
+            if (existing != null) {
+                coalesced.increment();
+                results.add(existing);
+                continue;
+            }
+            results.add(future);
+            started.add(address);
+            startedFutures.add(future);
+        }
+
+        if (started.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return check(started, startedFutures, persistAll);
+    }
+
+    private CompletableFuture<List<OwnershipRecord>> check(List<String> addresses,
+                                                           List<CompletableFuture<OwnershipRecord>> futures,
+                                                           boolean persistAll) {
+        List<JsonArray> paramsList = new ArrayList<>(addresses.size());
+        for (String address : addresses) {
+            JsonObject filter = new JsonObject();
+            filter.addProperty("programId", TOKEN_PROGRAM);
+            JsonObject options = new JsonObject();
+            options.addProperty("encoding", "base64");
+            JsonArray params = new JsonArray();
+            params.add(address);
+            params.add(filter);
+            params.add(options);
+            paramsList.add(params);
+        }
+
+        // Written before each future completes, so visible once they all have
+        boolean[] changed = new boolean[addresses.size()];
+        List<CompletableFuture<JsonElement>> calls = rpc.callAll("getTokenAccountsByOwner", paramsList);
+        for (int i = 0; i < calls.size(); i++) {
+            int index = i;
+            String address = addresses.get(i);
+            CompletableFuture<OwnershipRecord> future = futures.get(i);
+            calls.get(i).whenComplete((result, error) -> {
+                OwnershipRecord record = null;
+                Throwable failure = error;
+                if (failure == null) {
+                    try {
+                        record = new OwnershipRecord(address, parseMints(result), System.currentTimeMillis());
+                        OwnershipRecord previous = entries.put(address, record);
+                        changed[index] = previous == null || !previous.getMints().equals(record.getMints());
+                    } catch (RuntimeException e) {
+                        failure = new RpcException("Unexpected getTokenAccountsByOwner answer", e);
+                    }
+                }
+
+                // Stop counting as running before anyone waiting on the check can look again
+                loading.remove(address, future);
+                if (failure == null) {
+                    checked.increment();
+                    future.complete(record);
+                } else {
+                    failed.increment();
+                    future.completeExceptionally(failure);
+                }
+            });
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((done, error) -> {
+            List<OwnershipRecord> persisted = new ArrayList<>(futures.size());
+            List<OwnershipRecord> changedRecords = new ArrayList<>();
+            RpcException unreachable = null;
+            for (int i = 0; i < futures.size(); i++) {
+                CompletableFuture<OwnershipRecord> future = futures.get(i);
+                if (!future.isCompletedExceptionally()) {
+                    if (changed[i]) {
+                        changedRecords.add(future.join());
+                    }
+                    if (persistAll || changed[i]) {
+                        persisted.add(future.join());
+                    }
+                } else if (unreachable == null) {
+                    unreachable = unreachable(future);
+                }
+            }
+
+            if (persister != null && !persisted.isEmpty()) {
+                persister.accept(persisted);
+            }
+            if (unreachable != null) {
+                throw new CompletionException(unreachable);
+            }
+            return changedRecords;
+        });
+    }
+
+    /**
+     * Gets the failure of a check if the node couldn't be reached, rather than just refusing one call.
+     */
+    private static RpcException unreachable(CompletableFuture<OwnershipRecord> future) {
+        try {
+            future.join();
+            return null;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RpcException && ((RpcException) cause).getCode() != 0) {
+                return null;
+            }
+            return cause instanceof RpcException ? (RpcException) cause
+                    : new RpcException("Ownership check failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Finds the configured mints among a wallet's token accounts, without decoding any address.
+     */
+    private Set<String> parseMints(JsonElement result) {
+        Set<String> held = new HashSet<>();
+        for (JsonElement element : result.getAsJsonObject().getAsJsonArray("value")) {
+            JsonArray data = element.getAsJsonObject().getAsJsonObject("account").getAsJsonArray("data");
+            byte[] account = Base64.getDecoder().decode(data.get(0).getAsString());
+            if (account.length < AMOUNT_OFFSET + Long.BYTES) {
+                continue;
+            }
+            String mint = mints.get(ByteBuffer.wrap(account, MINT_OFFSET, KEY_LENGTH));
+            if (mint != null && ByteBuffer.wrap(account, AMOUNT_OFFSET, Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).getLong() != 0) {
+                held.add(mint);
+            }
+        }
+        return held;
+    }
+
+    /**
+     * Gets an entry that hasn't expired, refreshing it in the background if it is due.
+     *
+     * @return The entry, or null on a miss
+     */
+    private OwnershipRecord lookup(String address) {
+        OwnershipRecord record = entries.get(address);
+        long ttl = record == null ? 0 : ttlOf(record);
+        long age = record == null ? 0 : System.currentTimeMillis() - record.getCheckedAt();
+        if (record == null || age >= ttl) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        if (age >= ttl * refreshAhead && !loading.containsKey(address)) {
+            refreshes.increment();
+            load(Collections.singletonList(address));
+        }
+        return record;
+    }
+
+    private long ttlOf(OwnershipRecord record) {
+        return record.getMints().isEmpty() ? negativeTtlMillis : ttlMillis;
+    }
+
+    /**
+     * Starts checking a wallet in the background if it isn't cached or is due for a refresh,
+     * without counting as a lookup.
+     *
+     * @param address The wallet address
+     */
+    public void prefetch(String address) {
+        OwnershipRecord record = entries.get(address);
+        if (record == null || System.currentTimeMillis() - record.getCheckedAt() >= ttlOf(record) * refreshAhead) {
+            load(Collections.singletonList(address));
+        }
+    }
+
+    /**
+     * Adds a result loaded from the database, unless a newer one is already cached.
+     *
+     * @param record The result
+     */
+    public void warm(OwnershipRecord record) {
+        entries.merge(record.getAddress(), record,
+                (cached, loaded) -> loaded.getCheckedAt() > cached.getCheckedAt() ? loaded : cached);
+    }
+
+    /**
+     * Drops a wallet's entry, so the next lookup checks the chain.
+     *
+     * @param address The wallet address
+     */
+    public void invalidate(String address) {
+        entries.remove(address);
+    }
+
+    /**
+     * Gets the mints the cache looks for.
+     *
+     * @return The mint addresses
+     */
+    public Collection<String> getMints() {
+        return Collections.unmodifiableCollection(mints.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,284 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.StorageBackend;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Periodically re-checks the NFT ownership of every linked wallet, not just those of players
+ * who join.
+ *
+ * Wallets are read {@code nft-gating.sync.page-size} at a time in address order, each page
+ * continuing after the last address of the previous one, and checked in RPC batches of
+ * {@code solana.rpc.max-batch-calls}. At most {@code nft-gating.sync.max-in-flight} batches run
+ * at once, so the load on the RPC node stays predictable and leaves room for joins. Only
+ * results that changed are written to the database.
+ *
+ * The last address of which every wallet before it has been checked is saved to a checkpoint
+ * file after each page. A sync cut short by a restart or an unreachable node resumes from there
+ * on the next run; a sync that reaches the last wallet deletes the checkpoint.
+ */
+public class OwnershipSyncTask implements Runnable {
+
+    private static final long TICKS_PER_MINUTE = 20L * 60;
+
+    private final OwnershipCache cache;
+    private final StorageBackend backend;
+    private final File checkpointFile;
+    private final int pageSize;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final BooleanSupplier enabled;
+    private final Logger logger;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Counter walletsChecked;
+    private final Counter walletsChanged;
+    private volatile long lastRun;
+    private volatile long lastChecked;
+    private volatile long lastChanged;
+
+    /**
+     * Creates a sync task.
+     *
+     * @param cache The cache the checks go through
+     * @param backend Where the linked wallets are read from
+     * @param checkpointFile Where progress is saved between runs
+     * @param pageSize The most wallets read per query
+     * @param batchSize The most wallets checked per RPC request
+     * @param maxInFlight The most RPC requests running at once
+     * @param enabled Whether to keep going; a run stops early once this is false
+     * @param metrics Where to record the wallets checked
+     * @param logger Where results and failures are reported
+     */
+    public OwnershipSyncTask(OwnershipCache cache, StorageBackend backend, File checkpointFile, int pageSize,
+                             int batchSize, int maxInFlight, BooleanSupplier enabled, MetricsRegistry metrics,
+                             Logger logger) {
+        this.cache = cache;
+        this.backend = backend;
+        this.checkpointFile = checkpointFile;
+        this.pageSize = Math.max(1, pageSize);
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.enabled = enabled;
+        this.logger = logger;
+        this.walletsChecked = metrics.counter("solanalogin_ownership_sync_wallets_total",
+                "Wallets re-checked by the NFT ownership sync", "result", "checked");
+        this.walletsChanged = metrics.counter("solanalogin_ownership_sync_wallets_total",
+                "Wallets re-checked by the NFT ownership sync", "result", "changed");
+    }
+
+    /**
+     * Creates a sync task from the {@code nft-gating.sync} section of the config.
+     *
+     * @param plugin The plugin
+     * @param cache The cache the checks go through
+     * @return The task
+     */
+    public static OwnershipSyncTask fromConfig(SolanaLogin plugin, OwnershipCache cache) {
+        FileConfiguration config = plugin.getConfig();
+        return new OwnershipSyncTask(cache, plugin.getDatabaseManager().getBackend(),
+                new File(plugin.getDataFolder(), "ownership-sync.checkpoint"),
+                config.getInt("nft-gating.sync.page-size", 1000), plugin.getSolanaRpc().getMaxBatchCalls(),
+                config.getInt("nft-gating.sync.max-in-flight", 4), plugin::isEnabled, plugin.getMetrics(),
+                plugin.getLogger());
+    }
+
+    /**
+     * Schedules the task, if the sync is enabled. The first run is a few minutes after startup.
+     *
+     * @param plugin The plugin
+     */
+    public void start(SolanaLogin plugin) {
+        if (!plugin.getConfig().getBoolean("nft-gating.sync.enabled", true)) {
+            return;
+        }
+        long interval = Math.max(1, plugin.getConfig().getLong("nft-gating.sync.interval-minutes", 360))
+                * TICKS_PER_MINUTE;
+        plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this,
+                Math.min(interval, 5 * TICKS_PER_MINUTE), interval);
+    }
+
+    @Override
+    public void run() {
+        // A manual run and a scheduled one must not walk the wallets side by side
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sync();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Error reading linked wallets for the NFT ownership sync", e);
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Error saving the NFT ownership sync checkpoint", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void sync() throws SQLException, IOException, InterruptedException {
+        long start = System.currentTimeMillis();
+        String after = readCheckpoint();
+        String committed = after;
+        Semaphore slots = new Semaphore(maxInFlight);
+        Deque<Batch> batches = new ArrayDeque<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong changed = new AtomicLong();
+        long checked = 0;
+        boolean finished = false;
+
+        while (enabled.getAsBoolean() && failure.get() == null) {
+            List<String> page = backend.getWalletAddressesAfter(after, pageSize);
+            for (int from = 0; from < page.size(); from += batchSize) {
+                slots.acquire();
+                if (failure.get() != null) {
+                    slots.release();
+                    break;
+                }
+
+                List<String> wallets = new ArrayList<>(page.subList(from, Math.min(page.size(), from + batchSize)));
+                CompletableFuture<Integer> result = cache.resync(wallets);
+                // Done before this runs, so a batch is seen as done once its slot is back
+                result.whenComplete((count, error) -> {
+                    if (error != null) {
+                        failure.compareAndSet(null, error instanceof CompletionException ? error.getCause() : error);
+                    } else {
+                        changed.addAndGet(count);
+                    }
+                    slots.release();
+                });
+                batches.add(new Batch(wallets.get(wallets.size() - 1), result));
+                checked += wallets.size();
+            }
+
+            String progress = advance(batches, committed);
+            if (!progress.equals(committed)) {
+                committed = progress;
+                writeCheckpoint(committed);
+            }
+            if (page.size() < pageSize) {
+                finished = true;
+                break;
+            }
+            after = page.get(page.size() - 1);
+        }
+
+        // Let the batches still running finish
+        slots.acquire(maxInFlight);
+        slots.release(maxInFlight);
+        committed = advance(batches, committed);
+
+        walletsChecked.add(checked);
+        walletsChanged.add(changed.get());
+        lastChecked = checked;
+        lastChanged = changed.get();
+        Throwable error = failure.get();
+        if (finished && error == null) {
+            Files.deleteIfExists(checkpointFile.toPath());
+            lastRun = System.currentTimeMillis();
+            logger.info(String.format("NFT ownership sync: checked %,d wallets, %,d changed, in %.1f s",
+                    checked, changed.get(), (lastRun - start) / 1000.0));
+        } else {
+            writeCheckpoint(committed);
+            if (error != null) {
+                logger.warning(String.format("NFT ownership sync paused after %,d wallets (%s); "
+                        + "the next run resumes from the checkpoint", checked, error.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Moves the checkpoint past the batches that are done, stopping at the first one that
+     * isn't, so every wallet before the checkpoint has been checked.
+     */
+    private static String advance(Deque<Batch> batches, String committed) {
+        String progress = committed;
+        while (!batches.isEmpty() && batches.peekFirst().result.isDone()
+                && !batches.peekFirst().result.isCompletedExceptionally()) {
+            progress = batches.pollFirst().lastAddress;
+        }
+        return progress;
+    }
+
+    private String readCheckpoint() throws IOException {
+        Path path = checkpointFile.toPath();
+        return Files.exists(path) ? new String(Files.readAllBytes(path), StandardCharsets.UTF_8).trim() : "";
+    }
+
+    private void writeCheckpoint(String address) throws IOException {
+        Path path = checkpointFile.toPath();
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporary, address.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks whether a sync is running.
+     *
+     * @return true while a sync is running
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Gets when the last complete sync finished.
+     *
+     * @return The time in milliseconds, or 0 if no sync has reached the last wallet yet
+     */
+    public long getLastRun() {
+        return lastRun;
+    }
+
+    /**
+     * Gets the number of wallets the last run checked.
+     *
+     * @return The number of wallets
+     */
+    public long getLastChecked() {
+        return lastChecked;
+    }
+
+    /**
+     * Gets the number of wallets whose mints changed in the last run.
+     *
+     * @return The number of wallets
+     */
+    public long getLastChanged() {
+        return lastChanged;
+    }
+
+    private static class Batch {
+        private final String lastAddress;
+        private final CompletableFuture<Integer> result;
+
+        Batch(String lastAddress, CompletableFuture<Integer> result) {
+            this.lastAddress = lastAddress;
+            this.result = result;
+        }
+    }
+}
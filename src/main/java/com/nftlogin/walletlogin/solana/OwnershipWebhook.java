@@ -0,0 +1,266 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Receives on-chain transfer webhooks, such as those sent by Helius, and re-checks the NFT
+ * ownership of only the linked wallets they touch.
+ *
+ * Accepts a JSON array of transactions, in Helius' enhanced format ({@code tokenTransfers} and
+ * {@code accountData[].tokenBalanceChanges}) or raw format ({@code meta.preTokenBalances} and
+ * {@code meta.postTokenBalances}). Every wallet whose balance of a gating mint changed is looked
+ * up in the wallet index; wallets nobody has linked are ignored, and the rest are re-checked
+ * in one batch. Their old results are served until the new ones arrive. Freshness then costs
+ * work in proportion to transfers of the gating mints, not to the number of linked wallets.
+ *
+ * Runs on a single daemon thread with the JDK's built-in HTTP server. Requests must carry the
+ * configured token in the {@code Authorization} header, which is how Helius authenticates.
+ */
+public class OwnershipWebhook {
+
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    private final OwnershipCache cache;
+    private final Function<String, UUID> owners;
+    private final byte[] authToken;
+    private final Counter accepted;
+    private final Counter rejected;
+    private final Counter walletsRechecked;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Creates a webhook receiver.
+     *
+     * @param cache The cache whose entries are re-checked
+     * @param owners Finds the player a wallet is linked to, or null if nobody has linked it
+     * @param authToken The expected {@code Authorization} header, or empty to accept any request
+     * @param metrics Where to record requests and re-checks
+     */
+    public OwnershipWebhook(OwnershipCache cache, Function<String, UUID> owners, String authToken,
+                            MetricsRegistry metrics) {
+        this.cache = cache;
+        this.owners = owners;
+        this.authToken = authToken.getBytes(StandardCharsets.UTF_8);
+        String help = "Ownership webhook requests by result";
+        this.accepted = metrics.counter("solanalogin_webhook_requests_total", help, "result", "accepted");
+        this.rejected = metrics.counter("solanalogin_webhook_requests_total", help, "result", "rejected");
+        this.walletsRechecked = metrics.counter("solanalogin_webhook_wallets_rechecked_total",
+                "Linked wallets re-checked because a webhook reported a transfer");
+    }
+
+    /**
+     * Starts the HTTP endpoint.
+     *
+     * @param bindAddress The address to bind to
+     * @param port The port to listen on
+     * @param path The path webhooks are posted to
+     * @throws IOException If the port cannot be bound
+     */
+    public void start(String bindAddress, int port, String path) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext(path, this::handle);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SolanaLogin-Webhook");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Gets the port the endpoint listens on, which is chosen by the system when started with port 0.
+     *
+     * @return The port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, null);
+                return;
+            }
+            String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authToken.length > 0 && (authorization == null
+                    || !MessageDigest.isEqual(authToken, authorization.getBytes(StandardCharsets.UTF_8)))) {
+                rejected.increment();
+                respond(exchange, 401, null);
+                return;
+            }
+
+            byte[] body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                rejected.increment();
+                respond(exchange, 413, null);
+                return;
+            }
+
+            Map<String, UUID> linked;
+            try {
+                linked = linkedWallets(JsonParser.parseString(new String(body, StandardCharsets.UTF_8)));
+            } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+                rejected.increment();
+                respond(exchange, 400, null);
+                return;
+            }
+
+            accepted.increment();
+            if (!linked.isEmpty()) {
+                walletsRechecked.add(linked.size());
+                cache.load(linked.keySet());
+            }
+            JsonObject response = new JsonObject();
+            response.addProperty("rechecked", linked.size());
+            respond(exchange, 200, response.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Finds the linked wallets whose balance of a gating mint the transactions changed.
+     *
+     * @param payload The webhook body
+     * @return The wallets and the players they are linked to
+     */
+    Map<String, UUID> linkedWallets(JsonElement payload) {
+        JsonArray transactions;
+        if (payload.isJsonArray()) {
+            transactions = payload.getAsJsonArray();
+        } else {
+            transactions = new JsonArray();
+            transactions.add(payload.getAsJsonObject());
+        }
+
+        Set<String> mints = new HashSet<>(cache.getMints());
+        Set<String> wallets = new HashSet<>();
+        for (JsonElement element : transactions) {
+            JsonObject transaction = element.getAsJsonObject();
+            // Enhanced format
+            for (JsonElement transfer : array(transaction, "tokenTransfers")) {
+                JsonObject object = transfer.getAsJsonObject();
+                if (mints.contains(string(object, "mint"))) {
+                    addWallet(wallets, string(object, "fromUserAccount"));
+                    addWallet(wallets, string(object, "toUserAccount"));
+                }
+            }
+            for (JsonElement account : array(transaction, "accountData")) {
+                for (JsonElement change : array(account.getAsJsonObject(), "tokenBalanceChanges")) {
+                    JsonObject object = change.getAsJsonObject();
+                    if (mints.contains(string(object, "mint"))) {
+                        addWallet(wallets, string(object, "userAccount"));
+                    }
+                }
+            }
+            // Raw format
+            JsonElement meta = transaction.get("meta");
+            if (meta != null && meta.isJsonObject()) {
+                addBalanceOwners(wallets, mints, array(meta.getAsJsonObject(), "preTokenBalances"));
+                addBalanceOwners(wallets, mints, array(meta.getAsJsonObject(), "postTokenBalances"));
+            }
+        }
+
+        Map<String, UUID> linked = new LinkedHashMap<>();
+        for (String wallet : wallets) {
+            UUID owner = owners.apply(wallet);
+            if (owner != null) {
+                linked.put(wallet, owner);
+            }
+        }
+        return linked;
+    }
+
+    private static void addBalanceOwners(Collection<String> wallets, Set<String> mints, JsonArray balances) {
+        for (JsonElement balance : balances) {
+            JsonObject object = balance.getAsJsonObject();
+            if (mints.contains(string(object, "mint"))) {
+                addWallet(wallets, string(object, "owner"));
+            }
+        }
+    }
+
+    private static void addWallet(Collection<String> wallets, String address) {
+        if (address != null && !address.isEmpty()) {
+            wallets.add(address);
+        }
+    }
+
+    private static JsonArray array(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonArray() ? element.getAsJsonArray() : new JsonArray();
+    }
+
+    private static String string(JsonObject object, String name) {
+        JsonElement element = object.get(name);
+        return element != null && element.isJsonPrimitive() ? element.getAsString() : null;
+    }
+
+    /**
+     * Reads the request body, or returns null if it is larger than any real webhook.
+     */
+    private static byte[] readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            body.write(buffer, 0, read);
+            if (body.size() > MAX_BODY_BYTES) {
+                return null;
+            }
+        }
+        return body.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.nftlogin.walletlogin.solana;
+
+import java.io.IOException;
+
+/**
+ * A failed Solana RPC call: either the node returned a JSON-RPC error, or the request never
+ * got an answer (timeout, HTTP error, open circuit breaker).
+ */
+public class RpcException extends IOException {
+
+    private final int code;
+
+    public RpcException(String message) {
+        this(0, message, null);
+    }
+
+    public RpcException(String message, Throwable cause) {
+        this(0, message, cause);
+    }
+
+    public RpcException(int code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    /**
+     * Gets the JSON-RPC error code.
+     *
+     * @return The code, or 0 if the node never answered
+     */
+    public int getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,386 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.metrics.Counter;
+import com.nftlogin.walletlogin.metrics.LatencyHistogram;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous client for a Solana JSON-RPC node.
+ *
+ * Calls are sent as JSON-RPC batches, up to {@code solana.rpc.max-batch-calls} per HTTP request,
+ * over the JDK's keep-alive connections. A call identical to one still waiting for its answer
+ * shares that answer instead of being sent again. At most {@code solana.rpc.max-in-flight} HTTP
+ * requests run at once and each waits at most {@code solana.rpc.timeout-ms} for the node; beyond
+ * that, and while the {@link CircuitBreaker} is open, calls fail at once with an
+ * {@link RpcException} rather than tying up threads behind a slow node.
+ *
+ * Futures complete on a background thread; callers that touch Bukkit must hop back to the main
+ * thread themselves.
+ */
+public class SolanaRpcClient {
+
+    /**
+     * The most accounts a single {@code getMultipleAccounts} call accepts.
+     */
+    public static final int MAX_ACCOUNTS_PER_CALL = 100;
+
+    private final URL url;
+    private final int timeoutMillis;
+    private final int maxBatchCalls;
+    private final Semaphore permits;
+    private final CircuitBreaker breaker;
+    private final Executor executor;
+    private final Map<String, CompletableFuture<JsonElement>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Counter coalesced;
+    private final LatencyHistogram latency;
+
+    /**
+     * Creates a client.
+     *
+     * @param url The RPC node's URL
+     * @param timeoutMillis How long to wait to connect and for each read
+     * @param maxInFlight The most HTTP requests running at once
+     * @param maxBatchCalls The most calls sent in one HTTP request
+     * @param breaker The circuit breaker
+     * @param executor Where the blocking HTTP requests run
+     * @param metrics Where to record request counts and latency
+     * @throws MalformedURLException If the URL is invalid
+     */
+    public SolanaRpcClient(String url, int timeoutMillis, int maxInFlight, int maxBatchCalls, CircuitBreaker breaker,
+                           Executor executor, MetricsRegistry metrics) throws MalformedURLException {
+        this.url = new URL(url);
+        this.timeoutMillis = timeoutMillis;
+        this.maxBatchCalls = Math.max(1, maxBatchCalls);
+        this.permits = new Semaphore(Math.max(1, maxInFlight));
+        this.breaker = breaker;
+        this.executor = executor;
+
+        String help = "HTTP requests to the Solana RPC node by result";
+        this.succeeded = metrics.counter("solanalogin_rpc_requests_total", help, "result", "success");
+        this.failed = metrics.counter("solanalogin_rpc_requests_total", help, "result", "failure");
+        this.rejected = metrics.counter("solanalogin_rpc_requests_total", help, "result", "rejected");
+        this.coalesced = metrics.counter("solanalogin_rpc_calls_coalesced_total",
+                "RPC calls answered by an identical call already in flight");
+        this.latency = metrics.histogram("solanalogin_rpc_request_seconds", "Solana RPC request latency");
+        metrics.gauge("solanalogin_rpc_circuit_open", "1 while the RPC circuit breaker is open",
+                () -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1);
+    }
+
+    /**
+     * Creates a client from the {@code solana} section of the config, running requests on the
+     * plugin's blocking executor.
+     *
+     * @param plugin The plugin
+     * @return The client
+     * @throws MalformedURLException If {@code solana.rpc-url} is invalid
+     */
+    public static SolanaRpcClient fromConfig(SolanaLogin plugin) throws MalformedURLException {
+        FileConfiguration config = plugin.getConfig();
+        CircuitBreaker breaker = new CircuitBreaker(config.getInt("solana.rpc.breaker-failures", 5),
+                config.getLong("solana.rpc.breaker-open-seconds", 30) * 1000);
+        return new SolanaRpcClient(config.getString("solana.rpc-url", "https://api.devnet.solana.com"),
+                config.getInt("solana.rpc.timeout-ms", 5000), config.getInt("solana.rpc.max-in-flight", 8),
+                config.getInt("solana.rpc.max-batch-calls", 10), breaker, plugin.getBlockingExecutor()::execute,
+                plugin.getMetrics());
+    }
+
+    /**
+     * Calls an RPC method.
+     *
+     * @param method The method, such as {@code getBalance}
+     * @param params The parameters
+     * @return The call's {@code result}
+     */
+    public CompletableFuture<JsonElement> call(String method, JsonArray params) {
+        return callAll(method, Collections.singletonList(params)).get(0);
+    }
+
+    /**
+     * Calls an RPC method once per parameter list, batching the calls into as few HTTP requests
+     * as {@code max-batch-calls} allows.
+     *
+     * @param method The method
+     * @param paramsList The parameters of each call
+     * @return The results, in the same order as the parameters
+     */
+    public List<CompletableFuture<JsonElement>> callAll(String method, List<JsonArray> paramsList) {
+        List<CompletableFuture<JsonElement>> results = new ArrayList<>(paramsList.size());
+        JsonArray batch = new JsonArray();
+        List<CompletableFuture<JsonElement>> batchFutures = new ArrayList<>();
+
+        for (JsonArray params : paramsList) {
+            String key = method + params;
+            CompletableFuture<JsonElement> future = new CompletableFuture<>();
+            CompletableFuture<JsonElement> existing = pending.putIfAbsent(key, future);
+            if (existing != null && existing.isDone()) {
+                // Answered but not removed yet; its callers may be asking again for a fresh answer
+                pending.put(key, future);
+                existing = null;
+            }
+            if (existing != null) {
+                coalesced.increment();
+                results.add(existing);
+                continue;
+            }
+            future.whenComplete((result, error) -> pending.remove(key, future));
+            results.add(future);
+
+            JsonObject request = new JsonObject();
+            request.addProperty("jsonrpc", "2.0");
+            request.addProperty("id", nextId.incrementAndGet());
+            request.addProperty("method", method);
+            request.add("params", params);
+            batch.add(request);
+            batchFutures.add(future);
+
+            if (batchFutures.size() == maxBatchCalls) {
+                dispatch(batch, batchFutures);
+                batch = new JsonArray();
+                batchFutures = new ArrayList<>();
+            }
+        }
+        if (!batchFutures.isEmpty()) {
+            dispatch(batch, batchFutures);
+        }
+        return results;
+    }
+
+    /**
+     * Fetches accounts, {@value #MAX_ACCOUNTS_PER_CALL} per {@code getMultipleAccounts} call.
+     *
+     * @param addresses The account addresses
+     * @return The accounts in the same order, with null for accounts that don't exist
+     */
+    public CompletableFuture<List<AccountInfo>> getMultipleAccounts(List<String> addresses) {
+        List<JsonArray> paramsList = new ArrayList<>();
+        for (int start = 0; start < addresses.size(); start += MAX_ACCOUNTS_PER_CALL) {
+            JsonArray keys = new JsonArray();
+            for (String address : addresses.subList(start, Math.min(addresses.size(), start + MAX_ACCOUNTS_PER_CALL))) {
+                keys.add(address);
+            }
+            JsonObject options = new JsonObject();
+            options.addProperty("encoding", "base64");
+            JsonArray params = new JsonArray();
+            params.add(keys);
+            params.add(options);
+            paramsList.add(params);
+        }
+
+        List<CompletableFuture<JsonElement>> calls = callAll("getMultipleAccounts", paramsList);
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<AccountInfo> accounts = new ArrayList<>(addresses.size());
+            for (CompletableFuture<JsonElement> call : calls) {
+                for (JsonElement account : call.join().getAsJsonObject().getAsJsonArray("value")) {
+                    accounts.add(parseAccount(account));
+                }
+            }
+            return accounts;
+        });
+    }
+
+    private static AccountInfo parseAccount(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            return null;
+        }
+        JsonObject account = element.getAsJsonObject();
+        byte[] data = Base64.getDecoder().decode(account.getAsJsonArray("data").get(0).getAsString());
+        return new AccountInfo(account.get("owner").getAsString(), account.get("lamports").getAsLong(), data);
+    }
+
+    /**
+     * Sends one batch in the background, unless the node is already saturated or failing.
+     */
+    private void dispatch(JsonArray batch, List<CompletableFuture<JsonElement>> futures) {
+        if (!permits.tryAcquire()) {
+            reject(futures, "Too many Solana RPC requests in flight");
+            return;
+        }
+        if (!breaker.tryAcquire()) {
+            permits.release();
+            reject(futures, "Solana RPC circuit breaker is open");
+            return;
+        }
+
+        try {
+            executor.execute(() -> send(batch, futures));
+        } catch (RejectedExecutionException e) {
+            breaker.release();
+            permits.release();
+            reject(futures, "Solana RPC client is shutting down");
+        }
+    }
+
+    private void send(JsonArray batch, List<CompletableFuture<JsonElement>> futures) {
+        long start = System.nanoTime();
+        JsonElement response = null;
+        RpcException error = null;
+        try {
+            response = post(batch);
+            breaker.recordSuccess();
+            succeeded.increment();
+        } catch (IOException | RuntimeException e) {
+            breaker.recordFailure();
+            failed.increment();
+            error = e instanceof RpcException ? (RpcException) e
+                    : new RpcException("Solana RPC request failed: " + e.getMessage(), e);
+        } finally {
+            latency.recordSince(start);
+            // Free the slot before completing the calls, so their callbacks can send the next request
+            permits.release();
+        }
+
+        if (error == null) {
+            try {
+                complete(batch, futures, response);
+                return;
+            } catch (RuntimeException e) {
+                error = new RpcException("Solana RPC node returned an invalid answer", e);
+            }
+        }
+        for (CompletableFuture<JsonElement> future : futures) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private JsonElement post(JsonArray batch) throws IOException {
+        byte[] body = batch.toString().getBytes(StandardCharsets.UTF_8);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setDoOutput(true);
+        // Also stops the JDK from silently retrying the POST on a stale connection
+        connection.setFixedLengthStreamingMode(body.length);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            drain(connection.getErrorStream());
+            throw new RpcException("Solana RPC node returned HTTP " + status);
+        }
+        // Closing the fully read stream returns the connection to the keep-alive cache
+        try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader);
+        } catch (JsonParseException e) {
+            throw new RpcException("Solana RPC node returned invalid JSON", e);
+        }
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        try (InputStream stream = in) {
+            byte[] buffer = new byte[1024];
+            while (stream.read(buffer) >= 0) {
+                // Discard, so the connection can be reused
+            }
+        }
+    }
+
+    /**
+     * Matches the node's answers to the calls by ID; they may come back in any order.
+     */
+    private static void complete(JsonArray batch, List<CompletableFuture<JsonElement>> futures, JsonElement response) {
+        Map<Long, CompletableFuture<JsonElement>> byId = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            byId.put(batch.get(i).getAsJsonObject().get("id").getAsLong(), futures.get(i));
+        }
+
+        if (response.isJsonArray()) {
+            for (JsonElement element : response.getAsJsonArray()) {
+                JsonObject answer = element.getAsJsonObject();
+                JsonElement id = answer.get("id");
+                CompletableFuture<JsonElement> future = id == null || id.isJsonNull() ? null : byId.remove(id.getAsLong());
+                if (future == null) {
+                    continue;
+                }
+                if (answer.has("error")) {
+                    future.completeExceptionally(toException(answer.getAsJsonObject("error")));
+                } else {
+                    future.complete(answer.get("result"));
+                }
+            }
+        }
+
+        // A single error object answers the whole batch
+        RpcException missing = response.isJsonObject() && response.getAsJsonObject().has("error")
+                ? toException(response.getAsJsonObject().getAsJsonObject("error"))
+                : new RpcException("Solana RPC node did not answer the call");
+        for (CompletableFuture<JsonElement> future : byId.values()) {
+            future.completeExceptionally(missing);
+        }
+    }
+
+    private static RpcException toException(JsonObject error) {
+        int code = error.has("code") ? error.get("code").getAsInt() : 0;
+        String message = error.has("message") ? error.get("message").getAsString() : "Unknown error";
+        return new RpcException(code, "Solana RPC error " + code + ": " + message, null);
+    }
+
+    private void reject(List<CompletableFuture<JsonElement>> futures, String message) {
+        rejected.increment();
+        RpcException error = new RpcException(message);
+        for (CompletableFuture<JsonElement> future : futures) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Gets the most calls sent in one HTTP request.
+     *
+     * @return The batch size
+     */
+    public int getMaxBatchCalls() {
+        return maxBatchCalls;
+    }
+
+    public CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    /**
+     * Gets the number of HTTP requests that got an answer.
+     *
+     * @return The number of requests
+     */
+    public long getRequestCount() {
+        return succeeded.get();
+    }
+}
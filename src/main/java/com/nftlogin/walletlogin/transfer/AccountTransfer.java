@@ -0,0 +1,311 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.nftlogin.walletlogin.database.AccountRecord;
+import com.nftlogin.walletlogin.database.AccountSink;
+import com.nftlogin.walletlogin.database.AccountSource;
+import com.nftlogin.walletlogin.database.LogStorageBackend;
+import com.nftlogin.walletlogin.database.MySqlStorageBackend;
+import com.nftlogin.walletlogin.database.QueryTracer;
+import com.nftlogin.walletlogin.database.SqliteStorageBackend;
+import com.nftlogin.walletlogin.database.StorageBackend;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.nftlogin.walletlogin.utils.PasswordUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Bulk import and export of accounts, shared by {@code /solanalogin import|export} and the
+ * offline command-line tool in {@link #main(String[])}.
+ *
+ * Files ending in {@code .json} are read and written as JSON, anything else as CSV. Imports
+ * stream their source and write it in batches, so memory use doesn't grow with the input.
+ */
+public final class AccountTransfer {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -cp SolanaLogin.jar " + AccountTransfer.class.getName()
+                    + " <import|export> <file|authme> <target> [options]",
+            "Targets (the plugin's own storage):",
+            "  --mysql host:port/database --user NAME --password PASSWORD",
+            "  --sqlite FILE",
+            "  --log FILE",
+            "Options:",
+            "  --prefix walletlogin_    Table prefix",
+            "  --batch-size 1000        Accounts per insert and transaction",
+            "  --authme-url JDBC_URL    AuthMe database, when importing from authme",
+            "  --authme-user NAME --authme-password PASSWORD --authme-table authme");
+
+    private AccountTransfer() {
+        // Utility class
+    }
+
+    /**
+     * Gets the UUID an offline-mode server gives a player name.
+     *
+     * @param username The player name
+     * @return The UUID
+     */
+    public static UUID offlineUuid(String username) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + username).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Opens an account file for reading.
+     *
+     * @param file A {@code .json} or CSV file
+     * @return The source
+     * @throws IOException If the file can't be opened or its header is invalid
+     */
+    public static AccountSource openFile(File file) throws IOException {
+        BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+        try {
+            return isJson(file) ? new JsonAccountSource(reader) : new CsvAccountSource(reader);
+        } catch (IOException | RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates an account file, replacing any existing one.
+     *
+     * @param file A {@code .json} or CSV file
+     * @return The sink
+     * @throws IOException If the file can't be created
+     */
+    public static AccountSink createFile(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        return isJson(file)
+                ? new JsonAccountSink(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))
+                : new CsvAccountSink(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    private static boolean isJson(File file) {
+        return file.getName().toLowerCase(Locale.ROOT).endsWith(".json");
+    }
+
+    /**
+     * Imports every account of a source, noting password hashes the plugin can't verify.
+     *
+     * @param backend The plugin's storage
+     * @param source The accounts, closed by the caller
+     * @param batchSize The number of accounts per insert and transaction
+     * @param progress Called after each batch with the number of accounts imported so far
+     * @return What was imported
+     */
+    public static Summary importAccounts(StorageBackend backend, AccountSource source, int batchSize,
+                                         LongConsumer progress) throws SQLException, IOException {
+        Map<String, Long> unsupportedFormats = new TreeMap<>();
+        AccountSource checked = new AccountSource() {
+            @Override
+            public AccountRecord next() throws IOException, SQLException {
+                AccountRecord account = source.next();
+                String hash = account == null ? null : account.getPasswordHash();
+                if (hash != null && !PasswordUtils.isSupportedFormat(hash)) {
+                    unsupportedFormats.merge(PasswordUtils.getFormat(hash), 1L, Long::sum);
+                }
+                return account;
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+
+        long accounts = backend.importAccounts(checked, batchSize, progress);
+        return new Summary(accounts, unsupportedFormats);
+    }
+
+    /**
+     * Outcome of an import.
+     */
+    public static class Summary {
+
+        private final long accounts;
+        private final Map<String, Long> unsupportedFormats;
+
+        Summary(long accounts, Map<String, Long> unsupportedFormats) {
+            this.accounts = accounts;
+            this.unsupportedFormats = unsupportedFormats;
+        }
+
+        public long getAccounts() {
+            return accounts;
+        }
+
+        /**
+         * Gets the password formats that were imported but can't be verified.
+         *
+         * @return The number of accounts per format; these players need a new password
+         */
+        public Map<String, Long> getUnsupportedFormats() {
+            return unsupportedFormats;
+        }
+    }
+
+    /**
+     * Reports the progress of a transfer at most once per interval, with its rate.
+     */
+    static class ProgressReporter implements LongConsumer {
+
+        private final String verb;
+        private final long intervalMillis;
+        private final Consumer<String> output;
+        private final long start = System.currentTimeMillis();
+        private long lastReport = start;
+
+        ProgressReporter(String verb, long intervalMillis, Consumer<String> output) {
+            this.verb = verb;
+            this.intervalMillis = intervalMillis;
+            this.output = output;
+        }
+
+        @Override
+        public void accept(long count) {
+            long now = System.currentTimeMillis();
+            if (now - lastReport >= intervalMillis) {
+                lastReport = now;
+                output.accept(String.format("%s %,d accounts (%,d/s)", verb, count,
+                        count * 1000 / Math.max(1, now - start)));
+            }
+        }
+
+        /**
+         * Reports the end of the transfer.
+         *
+         * @param count The number of accounts transferred
+         */
+        void finish(long count) {
+            output.accept(String.format("%s %,d accounts in %.1f s", verb, count,
+                    (System.currentTimeMillis() - start) / 1000.0));
+        }
+    }
+
+    /**
+     * Runs an import or export without the server, for example before the first start or
+     * when a migration is too large to run while players are online.
+     *
+     * @param args See {@link #USAGE}
+     */
+    public static void main(String[] args) {
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && i + 1 < args.length) {
+                options.put(args[i].substring(2), args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+
+        if (positional.size() != 2 || !("import".equals(positional.get(0)) || "export".equals(positional.get(0)))) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            StorageBackend backend = openBackend(options);
+            backend.connect();
+            try {
+                backend.createTables();
+                if ("import".equals(positional.get(0))) {
+                    runImport(backend, positional.get(1), options);
+                } else {
+                    runExport(backend, new File(positional.get(1)));
+                }
+            } finally {
+                backend.close();
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (SQLException | IOException e) {
+            System.err.println("Transfer failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    private static void runImport(StorageBackend backend, String from, Map<String, String> options)
+            throws SQLException, IOException {
+        int batchSize = Integer.parseInt(options.getOrDefault("batch-size", String.valueOf(DEFAULT_BATCH_SIZE)));
+        ProgressReporter progress = new ProgressReporter("Imported", 1000, System.out::println);
+
+        Summary summary;
+        try (AccountSource source = "authme".equalsIgnoreCase(from) ? openAuthMe(options) : openFile(new File(from))) {
+            summary = importAccounts(backend, source, batchSize, progress);
+        }
+
+        progress.finish(summary.getAccounts());
+        summary.getUnsupportedFormats().forEach((format, count) -> System.out.printf(
+                "%,d accounts have %s password hashes, which can't be verified; they need a new password%n",
+                count, format));
+    }
+
+    private static void runExport(StorageBackend backend, File to) throws SQLException, IOException {
+        ProgressReporter progress = new ProgressReporter("Exported", 1000, System.out::println);
+        long exported;
+        try (AccountSink sink = createFile(to)) {
+            exported = backend.exportAccounts(sink, progress);
+        }
+        progress.finish(exported);
+    }
+
+    private static StorageBackend openBackend(Map<String, String> options) {
+        String prefix = options.getOrDefault("prefix", "walletlogin_");
+        QueryTracer tracer = new QueryTracer(Logger.getLogger("SolanaLogin"), new MetricsRegistry(), 100, 0);
+
+        if (options.containsKey("sqlite")) {
+            return new SqliteStorageBackend(new File(options.get("sqlite")), prefix, tracer);
+        }
+        if (options.containsKey("log")) {
+            return new LogStorageBackend(new File(options.get("log")), 1000);
+        }
+        if (!options.containsKey("mysql")) {
+            throw new IllegalArgumentException("No target: use --mysql, --sqlite or --log");
+        }
+
+        // host:port/database
+        String[] address = options.get("mysql").split("/", 2);
+        String[] hostPort = address[0].split(":", 2);
+        if (address.length != 2) {
+            throw new IllegalArgumentException("--mysql must look like host:port/database");
+        }
+        return new MySqlStorageBackend(hostPort[0], hostPort.length > 1 ? Integer.parseInt(hostPort[1]) : 3306,
+                address[1], options.getOrDefault("user", "root"), options.getOrDefault("password", ""),
+                prefix, tracer);
+    }
+
+    private static AccountSource openAuthMe(Map<String, String> options) throws SQLException {
+        String url = options.get("authme-url");
+        if (url == null) {
+            throw new IllegalArgumentException("Importing from authme needs --authme-url");
+        }
+        return new AuthMeAccountSource(
+                DriverManager.getConnection(url, options.get("authme-user"), options.get("authme-password")),
+                options.get("authme-table"), url.startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : 1000);
+    }
+}
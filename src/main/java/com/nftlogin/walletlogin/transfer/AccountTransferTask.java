@@ -0,0 +1,154 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.AccountSink;
+import com.nftlogin.walletlogin.database.AccountSource;
+import com.nftlogin.walletlogin.database.StorageBackend;
+import org.bukkit.command.CommandSender;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Runs {@code /solanalogin import} and {@code /solanalogin export} in the background.
+ *
+ * Files are resolved against the plugin folder. Importing from {@code authme} reads the
+ * connection settings from AuthMe's own config. Only one transfer runs at a time, and the
+ * sender gets a progress line every few seconds.
+ */
+public class AccountTransferTask {
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 5000;
+
+    private final SolanaLogin plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public AccountTransferTask(SolanaLogin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts an import.
+     *
+     * @param sender Who gets the progress messages
+     * @param from A file in the plugin folder, or {@code authme}
+     * @param batchSize The number of accounts per insert and transaction
+     */
+    public void startImport(CommandSender sender, String from, int batchSize) {
+        start(sender, () -> {
+            AccountTransfer.ProgressReporter progress = reporter(sender, "Imported");
+            AccountTransfer.Summary summary;
+            try (AccountSource source = "authme".equalsIgnoreCase(from) ? openAuthMe()
+                    : AccountTransfer.openFile(new File(plugin.getDataFolder(), from))) {
+                summary = AccountTransfer.importAccounts(backend(), source, batchSize, progress);
+            }
+
+            progress.finish(summary.getAccounts());
+            summary.getUnsupportedFormats().forEach((format, count) -> send(sender, String.format(
+                    "&e%,d accounts have %s password hashes, which can't be verified; they need a new password",
+                    count, format)));
+
+            // Imported wallets and accounts aren't in the indexes yet
+            plugin.getDatabaseManager().loadWalletIndex();
+            plugin.getDatabaseManager().loadRegisteredIndex();
+
+            // Online players may have just been given a wallet
+            plugin.getServer().getScheduler().runTask(plugin, () -> {
+                for (Player player : plugin.getServer().getOnlinePlayers()) {
+                    plugin.getWalletCache().invalidate(player.getUniqueId());
+                    plugin.getWalletCache().loadAsync(player.getUniqueId());
+                }
+            });
+        });
+    }
+
+    /**
+     * Starts an export.
+     *
+     * @param sender Who gets the progress messages
+     * @param to A {@code .json} or CSV file in the plugin folder
+     */
+    public void startExport(CommandSender sender, String to) {
+        start(sender, () -> {
+            AccountTransfer.ProgressReporter progress = reporter(sender, "Exported");
+            long exported;
+            try (AccountSink sink = AccountTransfer.createFile(new File(plugin.getDataFolder(), to))) {
+                exported = backend().exportAccounts(sink, progress);
+            }
+            progress.finish(exported);
+        });
+    }
+
+    private void start(CommandSender sender, Transfer transfer) {
+        if (!running.compareAndSet(false, true)) {
+            sender.sendMessage(plugin.formatMessage("&cAn import or export is already running."));
+            return;
+        }
+
+        sender.sendMessage(plugin.formatMessage("&aTransfer started; progress is reported every few seconds."));
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                transfer.run();
+            } catch (IOException | SQLException | RuntimeException e) {
+                plugin.getLogger().log(Level.SEVERE, "Account transfer failed", e);
+                send(sender, "&cTransfer failed: " + e.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    private StorageBackend backend() {
+        return plugin.getDatabaseManager().getBackend();
+    }
+
+    private AccountTransfer.ProgressReporter reporter(CommandSender sender, String verb) {
+        return new AccountTransfer.ProgressReporter(verb, PROGRESS_INTERVAL_MILLIS, line -> send(sender, "&7" + line));
+    }
+
+    /**
+     * Sends a message from the transfer thread on the main thread.
+     */
+    private void send(CommandSender sender, String message) {
+        plugin.getServer().getScheduler().runTask(plugin, () -> sender.sendMessage(plugin.formatMessage(message)));
+    }
+
+    /**
+     * Opens AuthMe's database using the settings in AuthMe's config.
+     */
+    private AccountSource openAuthMe() throws IOException, SQLException {
+        File folder = new File(plugin.getDataFolder().getParentFile(), "AuthMe");
+        File configFile = new File(folder, "config.yml");
+        if (!configFile.isFile()) {
+            throw new IOException("AuthMe config not found at " + configFile);
+        }
+
+        FileConfiguration config = YamlConfiguration.loadConfiguration(configFile);
+        String database = config.getString("DataSource.mySQLDatabase", "authme");
+        String table = config.getString("DataSource.mySQLTablename", "authme");
+
+        if ("SQLITE".equalsIgnoreCase(config.getString("DataSource.backend", "SQLITE"))) {
+            File file = new File(folder, database + ".db");
+            return new AuthMeAccountSource(DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath()),
+                    table, 1000);
+        }
+
+        String url = "jdbc:mysql://" + config.getString("DataSource.mySQLHost", "127.0.0.1") + ":"
+                + config.getString("DataSource.mySQLPort", "3306") + "/" + database
+                + "?useSSL=false&allowPublicKeyRetrieval=true";
+        return new AuthMeAccountSource(DriverManager.getConnection(url,
+                config.getString("DataSource.mySQLUsername", "authme"),
+                config.getString("DataSource.mySQLPassword", "")), table, Integer.MIN_VALUE);
+    }
+
+    private interface Transfer {
+        void run() throws IOException, SQLException;
+    }
+}
@@ -0,0 +1,77 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.nftlogin.walletlogin.database.AccountRecord;
+import com.nftlogin.walletlogin.database.AccountSource;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Streams the accounts of an AuthMe database through a cursor.
+ *
+ * AuthMe keys players by name, so each account gets the offline-mode UUID of its
+ * {@code realname}. Password hashes are imported as they are; AuthMe's default
+ * {@code $SHA$} format can be verified and is replaced with a native hash on the next login.
+ */
+public class AuthMeAccountSource implements AccountSource {
+
+    private static final String DEFAULT_TABLE = "authme";
+
+    private final Connection connection;
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final String ipColumn;
+
+    /**
+     * Starts reading an AuthMe table.
+     *
+     * @param connection A connection to AuthMe's database, closed with this source
+     * @param table The table name, or null for AuthMe's default
+     * @param fetchSize The driver's fetch size; {@link Integer#MIN_VALUE} streams MySQL results
+     * @throws SQLException If the table can't be read
+     */
+    public AuthMeAccountSource(Connection connection, String table, int fetchSize) throws SQLException {
+        this.connection = connection;
+        this.statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        this.resultSet = statement.executeQuery("SELECT * FROM " + (table == null ? DEFAULT_TABLE : table));
+
+        // AuthMe 5.5 renamed the ip column to last_ip
+        Set<String> columns = new HashSet<>();
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            columns.add(metaData.getColumnLabel(i).toLowerCase(Locale.ROOT));
+        }
+        this.ipColumn = columns.contains("last_ip") ? "last_ip" : columns.contains("ip") ? "ip" : null;
+    }
+
+    @Override
+    public AccountRecord next() throws SQLException {
+        if (!resultSet.next()) {
+            return null;
+        }
+
+        String username = resultSet.getString("realname");
+        if (username == null || username.isEmpty()) {
+            username = resultSet.getString("username");
+        }
+        return new AccountRecord(AccountTransfer.offlineUuid(username), username,
+                resultSet.getString("password"), ipColumn == null ? null : resultSet.getString(ipColumn), null);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (Connection ownedConnection = connection; Statement ownedStatement = statement) {
+            resultSet.close();
+        } catch (SQLException e) {
+            throw new IOException("Failed to close the AuthMe database", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.nftlogin.walletlogin.database.AccountRecord;
+import com.nftlogin.walletlogin.database.AccountSink;
+import com.nftlogin.walletlogin.database.WalletRecord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+
+/**
+ * Writes accounts to a CSV file that {@link CsvAccountSource} can read back.
+ */
+public class CsvAccountSink implements AccountSink {
+
+    private final BufferedWriter writer;
+
+    public CsvAccountSink(BufferedWriter writer) throws IOException {
+        this.writer = writer;
+        writer.write("uuid,username,password,ip,wallet_address,wallet_type,wallet_verified");
+        writer.newLine();
+    }
+
+    @Override
+    public void write(AccountRecord account) throws IOException {
+        WalletRecord wallet = account.getWallet();
+        writer.write(account.getUuid().toString());
+        writeField(account.getUsername());
+        writeField(account.getPasswordHash());
+        writeField(account.getIp());
+        writeField(wallet == null ? null : wallet.getAddress());
+        writeField(wallet == null ? null : wallet.getType());
+        writeField(wallet == null ? null : String.valueOf(wallet.isVerified()));
+        writer.newLine();
+    }
+
+    private void writeField(String value) throws IOException {
+        writer.write(',');
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
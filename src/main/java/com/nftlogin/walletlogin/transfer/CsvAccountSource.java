@@ -0,0 +1,130 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.nftlogin.walletlogin.database.AccountRecord;
+import com.nftlogin.walletlogin.database.AccountSource;
+import com.nftlogin.walletlogin.database.WalletRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads accounts from a CSV file, one line at a time.
+ *
+ * The first line names the columns, in any order: {@code username} is required, and
+ * {@code uuid}, {@code password}, {@code ip}, {@code wallet_address}, {@code wallet_type} and
+ * {@code wallet_verified} are optional. Without a {@code uuid} column, players get their
+ * offline-mode UUID. Fields may be quoted, with quotes doubled inside.
+ */
+public class CsvAccountSource implements AccountSource {
+
+    private final BufferedReader reader;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private final List<String> fields = new ArrayList<>();
+    private long lineNumber;
+
+    public CsvAccountSource(BufferedReader reader) throws IOException {
+        this.reader = reader;
+
+        String header = reader.readLine();
+        lineNumber++;
+        if (header == null) {
+            throw new IOException("The file is empty");
+        }
+        // Skip a UTF-8 byte order mark left by spreadsheet programs
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+
+        split(header);
+        for (int i = 0; i < fields.size(); i++) {
+            columns.put(fields.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username")) {
+            throw new IOException("The header has no username column");
+        }
+    }
+
+    @Override
+    public AccountRecord next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+            if (line == null) {
+                return null;
+            }
+        } while (line.trim().isEmpty());
+
+        split(line);
+        String username = field("username");
+        if (username == null) {
+            throw new IOException("Line " + lineNumber + " has no username");
+        }
+
+        UUID uuid;
+        String uuidField = field("uuid");
+        try {
+            uuid = uuidField == null ? AccountTransfer.offlineUuid(username) : UUID.fromString(uuidField);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Line " + lineNumber + " has an invalid UUID: " + uuidField, e);
+        }
+
+        String walletAddress = field("wallet_address");
+        WalletRecord wallet = walletAddress == null ? null : new WalletRecord(walletAddress,
+                field("wallet_type"), Boolean.parseBoolean(field("wallet_verified")));
+        return new AccountRecord(uuid, username, field("password"), field("ip"), wallet);
+    }
+
+    /**
+     * Gets a field of the current line.
+     *
+     * @return The value, or null if the column is missing or the field is empty
+     */
+    private String field(String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    private void split(String line) {
+        fields.clear();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.google.gson.stream.JsonWriter;
+import com.nftlogin.walletlogin.database.AccountRecord;
+import com.nftlogin.walletlogin.database.AccountSink;
+import com.nftlogin.walletlogin.database.WalletRecord;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes accounts as a JSON array that {@link JsonAccountSource} can read back.
+ */
+public class JsonAccountSink implements AccountSink {
+
+    private final JsonWriter writer;
+
+    public JsonAccountSink(Writer writer) throws IOException {
+        this.writer = new JsonWriter(writer);
+        this.writer.beginArray();
+    }
+
+    @Override
+    public void write(AccountRecord account) throws IOException {
+        writer.beginObject();
+        writer.name("uuid").value(account.getUuid().toString());
+        writer.name("username").value(account.getUsername());
+        writer.name("password").value(account.getPasswordHash());
+        writer.name("ip").value(account.getIp());
+
+        WalletRecord wallet = account.getWallet();
+        if (wallet != null) {
+            writer.name("wallet").beginObject();
+            writer.name("address").value(wallet.getAddress());
+            writer.name("type").value(wallet.getType());
+            writer.name("verified").value(wallet.isVerified());
+            writer.endObject();
+        }
+        writer.endObject();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.endArray();
+        writer.close();
+    }
+}
@@ -0,0 +1,119 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.nftlogin.walletlogin.database.AccountRecord;
+import com.nftlogin.walletlogin.database.AccountSource;
+import com.nftlogin.walletlogin.database.WalletRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.UUID;
+
+/**
+ * Reads accounts from a JSON array of objects, streaming one object at a time.
+ *
+ * Each object has {@code username} and optionally {@code uuid}, {@code password}, {@code ip}
+ * and a {@code wallet} object with {@code address}, {@code type} and {@code verified}, as
+ * written by {@link JsonAccountSink}. Unknown keys are ignored.
+ */
+public class JsonAccountSource implements AccountSource {
+
+    private final JsonReader reader;
+
+    public JsonAccountSource(Reader reader) throws IOException {
+        this.reader = new JsonReader(reader);
+        this.reader.beginArray();
+    }
+
+    @Override
+    public AccountRecord next() throws IOException {
+        if (!reader.hasNext()) {
+            return null;
+        }
+
+        String uuid = null;
+        String username = null;
+        String password = null;
+        String ip = null;
+        WalletRecord wallet = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "uuid":
+                    uuid = nextString();
+                    break;
+                case "username":
+                    username = nextString();
+                    break;
+                case "password":
+                    password = nextString();
+                    break;
+                case "ip":
+                    ip = nextString();
+                    break;
+                case "wallet":
+                    wallet = nextWallet();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (username == null) {
+            throw new IOException("Account without username at " + reader.getPath());
+        }
+        try {
+            return new AccountRecord(uuid == null ? AccountTransfer.offlineUuid(username) : UUID.fromString(uuid),
+                    username, password, ip, wallet);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid UUID " + uuid + " at " + reader.getPath(), e);
+        }
+    }
+
+    private WalletRecord nextWallet() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        String address = null;
+        String type = null;
+        boolean verified = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "address":
+                    address = nextString();
+                    break;
+                case "type":
+                    type = nextString();
+                    break;
+                case "verified":
+                    verified = reader.nextBoolean();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return address == null ? null : new WalletRecord(address, type, verified);
+    }
+
+    private String nextString() throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
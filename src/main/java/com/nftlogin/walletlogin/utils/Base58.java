@@ -0,0 +1,67 @@
+package com.nftlogin.walletlogin.utils;
+
+import java.util.Arrays;
+
+/**
+ * Decoder for the Base58 encoding Solana uses for addresses and signatures.
+ */
+public class Base58 {
+
+    private static final String ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+    private static final int[] INDEXES = new int[128];
+
+    static {
+        Arrays.fill(INDEXES, -1);
+        for (int i = 0; i < ALPHABET.length(); i++) {
+            INDEXES[ALPHABET.charAt(i)] = i;
+        }
+    }
+
+    private Base58() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Decodes a Base58 string.
+     *
+     * @param input The encoded string
+     * @return The decoded bytes, or null if the string contains a character outside the alphabet
+     */
+    public static byte[] decode(String input) {
+        if (input.isEmpty()) {
+            return new byte[0];
+        }
+
+        // Convert to base 256, most significant byte first, one digit at a time
+        byte[] decoded = new byte[input.length()];
+        int length = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            int digit = c < 128 ? INDEXES[c] : -1;
+            if (digit < 0) {
+                return null;
+            }
+
+            int carry = digit;
+            for (int j = 0; j < length; j++) {
+                carry += (decoded[decoded.length - 1 - j] & 0xFF) * 58;
+                decoded[decoded.length - 1 - j] = (byte) carry;
+                carry >>>= 8;
+            }
+            while (carry > 0) {
+                decoded[decoded.length - 1 - length++] = (byte) carry;
+                carry >>>= 8;
+            }
+        }
+
+        // Each leading '1' stands for a leading zero byte
+        int zeros = 0;
+        while (zeros < input.length() && input.charAt(zeros) == '1') {
+            zeros++;
+        }
+
+        byte[] result = new byte[zeros + length];
+        System.arraycopy(decoded, decoded.length - length, result, zeros, length);
+        return result;
+    }
+}
@@ -0,0 +1,181 @@
+package com.nftlogin.walletlogin.utils;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.metrics.Counter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Runs the plugin's blocking database and web server calls off the main thread.
+ *
+ * On Java 21 and later each task gets its own virtual thread, so thousands of calls waiting
+ * on the database or the network cost a few kilobytes each. Older JVMs, or
+ * {@code performance.executor: platform}, use a fixed pool of
+ * {@code performance.platform-threads} threads instead, and queue tasks beyond that rather
+ * than taking a thread from Bukkit's async scheduler per player.
+ *
+ * Database calls wait for the shared connection on a lock in the
+ * {@link com.nftlogin.walletlogin.database.QueryTracer} rather than in the JDBC driver, so a
+ * queue of them doesn't pin every carrier thread and stall the web and RPC calls.
+ */
+public class BlockingExecutor {
+
+    private final SolanaLogin plugin;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final int platformThreads;
+    private final Counter inFlight;
+
+    public BlockingExecutor(SolanaLogin plugin) {
+        this.plugin = plugin;
+        String mode = plugin.getConfig().getString("performance.executor", "auto");
+        this.platformThreads = Math.max(1, plugin.getConfig().getInt("performance.platform-threads", 16));
+        this.inFlight = plugin.getMetrics().upDownCounter("solanalogin_blocking_tasks_in_flight",
+                "Blocking database and web server calls queued or running");
+
+        ExecutorService virtualThreads = "platform".equalsIgnoreCase(mode) ? null
+                : VirtualThreads.newExecutor("SolanaLogin-io-");
+        if (virtualThreads == null && "virtual".equalsIgnoreCase(mode)) {
+            plugin.getLogger().warning("Virtual threads need Java 21 or later; using "
+                    + platformThreads + " platform threads instead");
+        }
+        this.virtual = virtualThreads != null;
+        this.executor = virtual ? virtualThreads : newPlatformExecutor(platformThreads);
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "SolanaLogin-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), factory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Runs a blocking task in the background.
+     *
+     * @param task The task
+     */
+    public void execute(Runnable task) {
+        inFlight.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    plugin.getLogger().log(Level.SEVERE, "Background task failed", e);
+                } finally {
+                    inFlight.decrement();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Only after shutdown, while the plugin is being disabled
+            inFlight.decrement();
+            plugin.getLogger().log(Level.WARNING, "Dropped a background task during shutdown", e);
+        }
+    }
+
+    /**
+     * Runs a blocking call in the background and hands its result to the main thread.
+     *
+     * @param task The blocking call
+     * @param callback Called on the main thread with the result, or with null and the failure if
+     *                 the call threw or the executor is shut down, unless the plugin was disabled meanwhile
+     * @param <T> The result type
+     */
+    public <T> void supply(Supplier<T> task, BiConsumer<T, Throwable> callback) {
+        deliver(submit(task), callback);
+    }
+
+    /**
+     * Hands the outcome of a background call to the main thread once it completes.
+     *
+     * @param future The background call
+     * @param callback Called on the main thread with the result, or with null and the failure,
+     *                 unless the plugin was disabled meanwhile
+     * @param <T> The result type
+     */
+    public <T> void deliver(CompletableFuture<T> future, BiConsumer<T, Throwable> callback) {
+        future.whenComplete((result, failure) -> {
+            if (failure != null) {
+                plugin.getLogger().log(Level.SEVERE, "Background task failed", failure);
+            }
+            if (plugin.isEnabled()) {
+                plugin.getServer().getScheduler().runTask(plugin, () -> callback.accept(result, failure));
+            }
+        });
+    }
+
+    /**
+     * Runs a blocking call in the background and returns its result as a future, which
+     * completes on the thread that ran the call.
+     *
+     * @param task The blocking call
+     * @param <T> The result type
+     * @return The result, or a future that fails if the call threw or the executor is shut down
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        inFlight.increment();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    inFlight.decrement();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.decrement();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Gets a short description of where tasks run, for {@code /solanalogin info}.
+     *
+     * @return The description
+     */
+    public String getName() {
+        return virtual ? "virtual threads" : platformThreads + " platform threads";
+    }
+
+    /**
+     * Stops accepting tasks and waits for queued ones, so their writes reach the database
+     * before it is closed.
+     *
+     * @param timeoutMillis How long to wait
+     */
+    public void shutdown(long timeoutMillis) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                plugin.getLogger().warning(inFlight.get() + " background tasks were still running at shutdown");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
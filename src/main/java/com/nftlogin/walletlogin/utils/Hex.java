@@ -0,0 +1,52 @@
+package com.nftlogin.walletlogin.utils;
+
+/**
+ * Lowercase hex encoding.
+ *
+ * On Java 17 and later this delegates to {@code Hex17}, which uses {@code java.util.HexFormat},
+ * when the jar was built with JDK 17 or later; see {@link Overlays}.
+ */
+final class Hex {
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+    private static final Encoder OVERLAY = Overlays.load("Hex17", Encoder.class);
+
+    private Hex() {
+        // Utility class
+    }
+
+    /**
+     * Encodes bytes as lowercase hex.
+     *
+     * @param bytes The bytes
+     * @return Two characters per byte
+     */
+    static String encode(byte[] bytes) {
+        if (OVERLAY != null) {
+            return OVERLAY.encode(bytes);
+        }
+
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+
+    /**
+     * Checks whether the Java 17 version is in use.
+     *
+     * @return true if {@code Hex17} was loaded
+     */
+    static boolean isOverlaid() {
+        return OVERLAY != null;
+    }
+
+    /**
+     * The Java 17 version.
+     */
+    interface Encoder {
+        String encode(byte[] bytes);
+    }
+}
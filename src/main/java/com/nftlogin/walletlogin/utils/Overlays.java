@@ -0,0 +1,33 @@
+package com.nftlogin.walletlogin.utils;
+
+/**
+ * Loads the versions of a few classes written for newer Java releases.
+ *
+ * Bukkit reads plugin classes from the base entries of the jar only, so the versioned entries of
+ * a multi-release jar would never be used. Instead, {@code src/main/java17} and
+ * {@code src/main/java21} are compiled next to the Java 8 classes under names of their own, such
+ * as {@code Hex17}, and the Java 8 class asks for its overlay here when it is initialized.
+ */
+final class Overlays {
+
+    private Overlays() {
+        // Utility class
+    }
+
+    /**
+     * Creates an instance of an overlay class, if the running JVM can load it.
+     *
+     * @param name The overlay's class name, in this package
+     * @param type The interface it implements
+     * @return The instance, or null if the jar was built without it or the JVM is too old
+     */
+    static <T> T load(String name, Class<T> type) {
+        try {
+            Class<?> overlay = Class.forName(Overlays.class.getPackage().getName() + "." + name);
+            return type.cast(overlay.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // UnsupportedClassVersionError on a JVM older than the overlay
+            return null;
+        }
+    }
+}
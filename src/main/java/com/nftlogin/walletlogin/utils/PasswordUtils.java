@@ -2,16 +2,23 @@ package com.nftlogin.walletlogin.utils;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Utility class for password hashing and verification.
+ *
+ * Hashes made by this plugin are stored as {@code iterations:salt:hash}. Hashes imported from
+ * other plugins keep their own format and are recognised by their {@code $format$} prefix;
+ * they can be verified but should be replaced with a native hash on the next login.
  */
 public class PasswordUtils {
 
@@ -22,6 +29,16 @@ public class PasswordUtils {
     private static final int KEY_LENGTH = 256;
     private static final int SALT_LENGTH = 16;
 
+    /**
+     * Format of hashes made by this plugin.
+     */
+    public static final String NATIVE_FORMAT = "pbkdf2";
+
+    /**
+     * Prefix of AuthMe's default format: {@code $SHA$salt$sha256(sha256(password) + salt)}.
+     */
+    public static final String AUTHME_SHA256_PREFIX = "$SHA$";
+
     private PasswordUtils() {
         // Private constructor to prevent instantiation
     }
@@ -81,6 +98,14 @@ public class PasswordUtils {
      * @return true if the password matches, false otherwise
      */
     public static boolean verifyPassword(String password, String storedHash) {
+        if (storedHash.startsWith(AUTHME_SHA256_PREFIX)) {
+            return verifyAuthMeSha256(password, storedHash);
+        }
+        if (storedHash.startsWith("$")) {
+            LOGGER.warning("Can't verify password hash of unsupported format " + getFormat(storedHash));
+            return false;
+        }
+
         try {
             // Split the stored hash into its components
             String[] parts = storedHash.split(":");
@@ -99,6 +124,59 @@ public class PasswordUtils {
         }
     }
 
+    /**
+     * Gets the format of a stored hash.
+     *
+     * @param storedHash The stored hash
+     * @return {@link #NATIVE_FORMAT}, or the name between the dollar signs of a foreign prefix
+     */
+    public static String getFormat(String storedHash) {
+        if (storedHash.startsWith("$")) {
+            int end = storedHash.indexOf('$', 1);
+            return end > 1 ? storedHash.substring(1, end) : "unknown";
+        }
+        return NATIVE_FORMAT;
+    }
+
+    /**
+     * Checks if a stored hash can be verified by {@link #verifyPassword(String, String)}.
+     *
+     * @param storedHash The stored hash
+     * @return true for native hashes and supported foreign formats
+     */
+    public static boolean isSupportedFormat(String storedHash) {
+        return !storedHash.startsWith("$") || storedHash.startsWith(AUTHME_SHA256_PREFIX);
+    }
+
+    /**
+     * Checks if a stored hash should be replaced with a native one once the password is known.
+     *
+     * @param storedHash The stored hash
+     * @return true if the hash was imported from another plugin
+     */
+    public static boolean needsRehash(String storedHash) {
+        return !NATIVE_FORMAT.equals(getFormat(storedHash));
+    }
+
+    private static boolean verifyAuthMeSha256(String password, String storedHash) {
+        // Format: $SHA$salt$hash
+        String[] parts = storedHash.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        String hash = sha256Hex(sha256Hex(password) + parts[2]);
+        return MessageDigest.isEqual(hash.getBytes(StandardCharsets.US_ASCII),
+                parts[3].toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            return Hex.encode(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
     /**
      * Generates a random verification code.
      *
@@ -0,0 +1,48 @@
+package com.nftlogin.walletlogin.utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates virtual-thread executors on JVMs that have them.
+ *
+ * On Java 21 and later this delegates to {@code VirtualThreads21}, which calls the API directly
+ * and names the threads, when the jar was built with JDK 21; see {@link Overlays}. Otherwise the
+ * factory is looked up by reflection and the threads are left unnamed.
+ */
+final class VirtualThreads {
+
+    private static final Factory OVERLAY = Overlays.load("VirtualThreads21", Factory.class);
+
+    private VirtualThreads() {
+        // Utility class
+    }
+
+    /**
+     * Creates an executor that runs each task on a new virtual thread.
+     *
+     * @param namePrefix The thread name prefix, where supported
+     * @return The executor, or null if the JVM has no virtual threads
+     */
+    static ExecutorService newExecutor(String namePrefix) {
+        if (OVERLAY != null) {
+            return OVERLAY.newExecutor(namePrefix);
+        }
+
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Missing before Java 19, and a disabled preview feature on 19 and 20
+            return null;
+        }
+    }
+
+    /**
+     * The Java 21 version.
+     */
+    interface Factory {
+        ExecutorService newExecutor(String namePrefix);
+    }
+}
@@ -0,0 +1,17 @@
+package com.nftlogin.walletlogin.utils;
+
+import java.util.HexFormat;
+
+/**
+ * Lowercase hex encoding with {@code java.util.HexFormat}, loaded by {@link Hex} on Java 17
+ * and later.
+ */
+final class Hex17 implements Hex.Encoder {
+
+    private static final HexFormat FORMAT = HexFormat.of();
+
+    @Override
+    public String encode(byte[] bytes) {
+        return FORMAT.formatHex(bytes);
+    }
+}
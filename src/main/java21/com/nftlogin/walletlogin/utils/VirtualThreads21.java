@@ -0,0 +1,16 @@
+package com.nftlogin.walletlogin.utils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates named virtual-thread executors without reflection, loaded by {@link VirtualThreads}
+ * on Java 21 and later.
+ */
+final class VirtualThreads21 implements VirtualThreads.Factory {
+
+    @Override
+    public ExecutorService newExecutor(String namePrefix) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 1).factory());
+    }
+}
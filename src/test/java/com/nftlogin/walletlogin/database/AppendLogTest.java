@@ -0,0 +1,65 @@
+package com.nftlogin.walletlogin.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Test class for AppendLog
+ *
+ * It needs no server or database, only a temporary directory.
+ */
+public class AppendLogTest {
+
+    @Test
+    void rewritesAndRecovers() throws Exception {
+        File dir = Files.createTempDirectory("solanalogin-append").toFile();
+        Path path = new File(dir, "journal.log").toPath();
+
+        // Rewriting replaces the records and keeps the log open for appends
+        AppendLog log = new AppendLog(path);
+        log.open(payload -> { });
+        log.append(bytes("a"));
+        log.append(bytes("b"));
+        log.rewrite(Arrays.asList(bytes("c")));
+        log.append(bytes("d"));
+        assertEquals(2, log.getRecordCount(), "appends after rewrite");
+        log.close();
+        assertEquals(Arrays.asList("c", "d"), read(path), "rewritten records read back");
+        assertFalse(Files.exists(path.resolveSibling("journal.log.snapshot")), "snapshot moved");
+
+        // A complete snapshot left by an interrupted rewrite replaces the log on open
+        Path other = new File(dir, "other.log").toPath();
+        AppendLog snapshot = new AppendLog(other);
+        snapshot.open(payload -> { });
+        snapshot.append(bytes("e"));
+        snapshot.close();
+        Files.move(other, path.resolveSibling("journal.log.snapshot"));
+        assertEquals(Arrays.asList("e"), read(path), "interrupted rewrite finished");
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> read(Path path) throws Exception {
+        List<String> records = new ArrayList<>();
+        AppendLog log = new AppendLog(path);
+        log.open(payload -> {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            records.add(new String(bytes, StandardCharsets.UTF_8));
+        });
+        log.close();
+        return records;
+    }
+}
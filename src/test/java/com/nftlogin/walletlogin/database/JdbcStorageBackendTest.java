@@ -0,0 +1,217 @@
+package com.nftlogin.walletlogin.database;
+
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for JdbcStorageBackend
+ *
+ * It links wallets through a fake JDBC connection whose wallets table enforces the primary key
+ * and the unique address index the way MySQL and SQLite report them, and checks that replayed
+ * links and concurrent first links are told apart from wallets linked to other players.
+ */
+public class JdbcStorageBackendTest {
+
+    private static final String WALLET = "DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK";
+    private static final String OTHER_WALLET = "11111111111111111111111111111111";
+
+    @Test
+    void mysqlWalletConflicts() throws Exception {
+        WalletsTable table = new WalletsTable(column -> new SQLIntegrityConstraintViolationException("Duplicate "
+                + "entry 'x' for key 'walletlogin_wallets." + ("uuid".equals(column) ? "PRIMARY" : "walletlogin_wallets_"
+                + column) + "'", "23000", 1062));
+        JdbcStorageBackend backend = new MySqlStorageBackend("localhost", 3306, "test", "user", "password",
+                "walletlogin_", tracer()) {
+            @Override
+            protected Connection openConnection() {
+                return table.connection();
+            }
+        };
+        checkConflicts(backend, table);
+        assertEquals("INSERT INTO walletlogin_wallets (uuid, wallet_address) VALUES (?, ?) ON DUPLICATE KEY UPDATE "
+                + "wallet_address = IF(uuid = VALUES(uuid), VALUES(wallet_address), wallet_address)",
+                backend.upsert("wallets", new String[] {"uuid", "wallet_address"}, new String[] {"wallet_address"}),
+                "upsert only updates the row with the same uuid");
+    }
+
+    @Test
+    void sqliteWalletConflicts() throws Exception {
+        WalletsTable table = new WalletsTable(column -> new SQLException("[SQLITE_CONSTRAINT] Abort due to "
+                + "constraint violation (UNIQUE constraint failed: walletlogin_wallets." + column + ")", null, 19));
+        JdbcStorageBackend backend = new SqliteStorageBackend(new File("unused.db"), "walletlogin_", tracer()) {
+            @Override
+            protected Connection openConnection() {
+                return table.connection();
+            }
+        };
+        checkConflicts(backend, table);
+    }
+
+    private static void checkConflicts(JdbcStorageBackend backend, WalletsTable table) throws Exception {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        backend.connect();
+
+        // Bob linked the wallet through another server, so this server's index doesn't know
+        table.rows.put(bob.toString(), row(WALLET, "Phantom", false, null));
+        assertThrows(SQLIntegrityConstraintViolationException.class,
+                () -> backend.connectWallet(alice, WALLET, "Phantom"), "cross-server duplicate");
+        assertThrows(SQLIntegrityConstraintViolationException.class,
+                () -> backend.linkVerifiedWallet(alice, WALLET, "Phantom", "s1"), "cross-server duplicate verified");
+        assertFalse(table.rows.containsKey(alice.toString()), "no row for the refused player");
+        assertEquals(WALLET, table.rows.get(bob.toString()).get("wallet_address"), "other player's row kept");
+        assertEquals(2, table.rollbacks, "refused writes rolled back");
+
+        // A player with a wallet can switch to a free one, but not to a taken one
+        assertTrue(backend.linkVerifiedWallet(alice, OTHER_WALLET, "Solana", "s2"), "free wallet linked");
+        assertTrue(backend.connectWallet(alice, OTHER_WALLET, "Phantom"), "own wallet relinked");
+        assertThrows(SQLIntegrityConstraintViolationException.class,
+                () -> backend.connectWallet(alice, WALLET, "Phantom"), "switch to taken wallet");
+        assertEquals(OTHER_WALLET, table.rows.get(alice.toString()).get("wallet_address"), "own wallet kept");
+
+        // A replayed link leaves the row alone, while a new link writes it
+        UUID carol = UUID.randomUUID();
+        String carolWallet = "So11111111111111111111111111111111111111112";
+        assertTrue(backend.linkVerifiedWallet(carol, carolWallet, "Phantom", "s3"), "first link");
+        table.rows.get(carol.toString()).put("wallet_type", "Edited");
+        assertTrue(backend.linkVerifiedWallet(carol, carolWallet, "Phantom", "s3"), "replayed link");
+        assertEquals("Edited", table.rows.get(carol.toString()).get("wallet_type"), "replay wrote nothing");
+        assertTrue(backend.connectWallet(carol, carolWallet, "Phantom"), "connected without a login");
+        assertNull(table.rows.get(carol.toString()).get("link_id"), "connect clears the link ID");
+
+        // A first link that loses the insert to another server's first link for the same player
+        // updates that row instead of being reported as someone else's wallet
+        UUID dave = UUID.randomUUID();
+        table.beforeInsert = () -> table.rows.put(dave.toString(), row(WALLET + "x", "Phantom", false, null));
+        assertTrue(backend.linkVerifiedWallet(dave, OTHER_WALLET + "x", "Solana", "s4"), "concurrent first link");
+        assertEquals(OTHER_WALLET + "x", table.rows.get(dave.toString()).get("wallet_address"), "updated after retry");
+    }
+
+    private static Map<String, Object> row(String address, String type, boolean verified, String linkId) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("wallet_address", address);
+        row.put("wallet_type", type);
+        row.put("verified", verified);
+        row.put("link_id", linkId);
+        return row;
+    }
+
+    private static QueryTracer tracer() {
+        return new QueryTracer(Logger.getLogger("test"), new MetricsRegistry(), 1000, 0);
+    }
+
+    /**
+     * A wallets table with a primary key on the UUID and a unique index on the address, which
+     * understands the statements the backend sends for wallet links. Rows are only written when
+     * no constraint fails, so a rolled back transaction leaves nothing behind.
+     */
+    private static class WalletsTable {
+        final Map<String, Map<String, Object>> rows = new HashMap<>();
+        Runnable beforeInsert;
+        int rollbacks;
+        private final Function<String, SQLException> duplicate;
+
+        WalletsTable(Function<String, SQLException> duplicate) {
+            this.duplicate = duplicate;
+        }
+
+        Connection connection() {
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        if ("prepareStatement".equals(method.getName())) {
+                            return statement((String) args[0]);
+                        }
+                        if ("rollback".equals(method.getName())) {
+                            rollbacks++;
+                        }
+                        return null;
+                    });
+        }
+
+        private PreparedStatement statement(String sql) {
+            Map<Integer, Object> parameters = new HashMap<>();
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        if (method.getName().startsWith("set")) {
+                            parameters.put((Integer) args[0], args[1]);
+                        } else if ("executeUpdate".equals(method.getName())) {
+                            return execute(sql, parameters);
+                        } else if ("executeQuery".equals(method.getName())) {
+                            return query(rows.get((String) parameters.get(1)));
+                        }
+                        return null;
+                    });
+        }
+
+        private ResultSet query(Map<String, Object> row) {
+            boolean[] read = {false};
+            return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {ResultSet.class},
+                    (proxy, method, args) -> {
+                        if ("next".equals(method.getName())) {
+                            boolean next = row != null && !read[0];
+                            read[0] = true;
+                            return next;
+                        }
+                        return "getString".equals(method.getName()) ? row.get((String) args[0]) : null;
+                    });
+        }
+
+        private int execute(String sql, Map<Integer, Object> parameters) throws SQLException {
+            boolean update = sql.startsWith("UPDATE ");
+            List<String> columns = new ArrayList<>();
+            Matcher matcher = Pattern.compile(update ? "(\\w+) = \\?" : "(\\w+)[,)]")
+                    .matcher(update ? sql : sql.substring(0, sql.indexOf(" VALUES")));
+            while (matcher.find()) {
+                columns.add(matcher.group(1));
+            }
+
+            Map<String, Object> values = new HashMap<>();
+            for (int i = 0; i < columns.size(); i++) {
+                values.put(columns.get(i), parameters.get(i + 1));
+            }
+            String uuid = (String) values.remove("uuid");
+            if (update && !rows.containsKey(uuid)) {
+                return 0;
+            }
+            if (!update && beforeInsert != null) {
+                beforeInsert.run();
+                beforeInsert = null;
+            }
+            if (!update && rows.containsKey(uuid)) {
+                throw duplicate.apply("uuid");
+            }
+            for (Map.Entry<String, Map<String, Object>> row : rows.entrySet()) {
+                if (!row.getKey().equals(uuid)
+                        && row.getValue().get("wallet_address").equals(values.get("wallet_address"))) {
+                    throw duplicate.apply("wallet_address");
+                }
+            }
+            rows.computeIfAbsent(uuid, key -> new HashMap<>()).putAll(values);
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.nftlogin.walletlogin.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.sql.SQLRecoverableException;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for JournaledStorageBackend
+ *
+ * The "database" is an in-memory store that can be switched off.
+ */
+public class JournaledStorageBackendTest {
+
+    private static volatile boolean databaseDown;
+
+    @Test
+    void queuesWritesDuringOutage() throws Exception {
+        File dir = Files.createTempDirectory("solanalogin-journal").toFile();
+        File snapshotFile = new File(dir, "snapshot.log");
+        File journalFile = new File(dir, "outage-journal.log");
+        LogStorageBackend database = new LogStorageBackend(null, 0);
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+
+        JournaledStorageBackend backend = new JournaledStorageBackend(flaky(database), snapshotFile,
+                journalFile, 0, 50, Logger.getLogger("test"));
+        backend.connect();
+        backend.registerPlayer(alice, "alice", "hash-1", "127.0.0.1");
+        assertFalse(backend.isDegraded(), "not degraded");
+
+        // Take the database down: logins use the snapshot, writes are queued
+        databaseDown = true;
+        assertEquals("hash-1", backend.getPasswordHash(alice), "login from snapshot");
+        assertTrue(backend.isDegraded(), "degraded");
+        backend.updatePassword(alice, "hash-2");
+        backend.registerPlayer(bob, "bob", "hash-3", "127.0.0.2");
+        backend.connectWallet(bob, "DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK", "Phantom");
+        backend.linkVerifiedWallet(alice, "11111111111111111111111111111111", "Solana", "session-1");
+        assertEquals(4, backend.getPendingWrites(), "writes queued");
+        assertEquals("hash-2", backend.getPasswordHash(alice), "queued write readable");
+        assertEquals("hash-1", database.getPasswordHash(alice), "database untouched");
+
+        // Restart while the database is still down: the queue must survive
+        backend.close();
+        backend = new JournaledStorageBackend(flaky(database), snapshotFile, journalFile, 0, 50,
+                Logger.getLogger("test"));
+        backend.connect();
+        assertEquals(4, backend.getPendingWrites(), "queue survives restart");
+        assertEquals("hash-3", backend.getPasswordHash(bob), "snapshot survives restart");
+
+        // Bring the database back: the queue is replayed in order
+        databaseDown = false;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (backend.isDegraded() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(backend.isDegraded(), "recovered");
+        assertEquals(0, backend.getPendingWrites(), "queue replayed");
+        assertEquals("hash-2", database.getPasswordHash(alice), "password replayed");
+        assertEquals("hash-3", database.getPasswordHash(bob), "registration replayed");
+        assertTrue(database.getWallet(bob).isPresent(), "wallet replayed");
+        assertTrue(database.getWallet(alice).map(WalletRecord::isVerified).orElse(false), "verified link replayed");
+        backend.close();
+    }
+
+    /**
+     * Wraps a store so every call fails like a lost connection while {@link #databaseDown} is set.
+     */
+    private static StorageBackend flaky(StorageBackend target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (databaseDown && !"getName".equals(method.getName()) && !"close".equals(method.getName())) {
+                throw new SQLRecoverableException("Communications link failure", "08S01");
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (StorageBackend) Proxy.newProxyInstance(StorageBackend.class.getClassLoader(),
+                new Class<?>[] {StorageBackend.class}, handler);
+    }
+}
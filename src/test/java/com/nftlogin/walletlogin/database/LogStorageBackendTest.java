@@ -0,0 +1,139 @@
+package com.nftlogin.walletlogin.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for LogStorageBackend
+ *
+ * It needs no server or database, only a temporary directory.
+ */
+public class LogStorageBackendTest {
+
+    @Test
+    void writesReplaysAndPrunes() throws Exception {
+        File dir = Files.createTempDirectory("solanalogin-log").toFile();
+        File file = new File(dir, "accounts.log");
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+
+        // Write some rows and close
+        LogStorageBackend backend = new LogStorageBackend(file, 0);
+        backend.connect();
+        backend.registerPlayer(alice, "alice", "hash-1", "127.0.0.1");
+        backend.updatePassword(alice, "hash-2");
+        backend.connectWallet(alice, "DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK", "Phantom");
+        backend.setWalletVerified(alice, true);
+        backend.savePlayer(bob, "bob", "127.0.0.2");
+        backend.saveSession(bob, "127.0.0.2");
+        backend.saveOwnership(Arrays.asList(
+                new OwnershipRecord("wallet-1", new HashSet<>(Arrays.asList("mint-a", "mint-b")), 1000),
+                new OwnershipRecord("wallet-2", Collections.emptySet(), 2000)));
+        assertThrows(SQLException.class, () -> backend.connectWallet(UUID.randomUUID(), "addr", "Phantom"),
+                "wallet needs a player");
+        backend.close();
+
+        // Reopen and check the rows were replayed
+        LogStorageBackend reopened = new LogStorageBackend(file, 0);
+        reopened.connect();
+        assertEquals("hash-2", reopened.getPasswordHash(alice), "password replayed");
+        Optional<WalletRecord> wallet = reopened.getWallet(alice);
+        assertTrue(wallet.isPresent(), "wallet replayed");
+        assertTrue(wallet.get().isVerified(), "wallet verification replayed");
+        assertEquals("Phantom", wallet.get().getType(), "wallet type replayed");
+        assertNull(reopened.getPasswordHash(bob), "player without password");
+        List<OwnershipRecord> ownership = new ArrayList<>();
+        reopened.forEachOwnership(ownership::add);
+        assertEquals(2, ownership.size(), "ownership records replayed");
+        assertTrue(ownership.stream().anyMatch(record -> "wallet-1".equals(record.getAddress())
+                && record.getMints().size() == 2 && record.getCheckedAt() == 1000), "ownership replayed");
+        reopened.disconnectWallet(alice);
+        reopened.close();
+
+        // Corrupt the last record: everything before it must survive
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            int lastRecordEnd = 0;
+            while (raw.length() > lastRecordEnd + 8) {
+                raw.seek(lastRecordEnd);
+                int length = raw.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                lastRecordEnd += 8 + length;
+            }
+            raw.seek(lastRecordEnd - 1);
+            int lastByte = raw.read();
+            raw.seek(lastRecordEnd - 1);
+            raw.write(lastByte ^ 0xFF);
+        }
+
+        LogStorageBackend recovered = new LogStorageBackend(file, 0);
+        recovered.connect();
+        assertTrue(recovered.getWallet(alice).isPresent(), "torn record ignored");
+        assertEquals("hash-2", recovered.getPasswordHash(alice), "earlier records kept");
+        recovered.close();
+
+        // Pure in-memory mode
+        LogStorageBackend memory = new LogStorageBackend(null, 0);
+        memory.connect();
+        memory.registerPlayer(alice, "alice", "hash", "127.0.0.1");
+        assertEquals("hash", memory.getPasswordHash(alice), "in-memory read");
+        assertFalse(memory.registerPlayer(alice, "alice", "other", "127.0.0.1"), "second registration refused");
+        assertEquals("hash", memory.getPasswordHash(alice), "password never replaced by a registration");
+
+        // Retention: only unregistered players without a wallet are pruned, in batches
+        UUID carol = UUID.randomUUID();
+        memory.savePlayer(bob, "bob", "127.0.0.2");
+        memory.savePlayer(carol, "carol", "127.0.0.3");
+        memory.connectWallet(carol, "DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK", "Phantom");
+        memory.saveSession(alice, "127.0.0.1");
+        memory.saveSession(bob, "127.0.0.2");
+        assertEquals(0, memory.pruneSessions(3600, 10), "recent sessions kept");
+        assertEquals(1, memory.pruneSessions(-1, 1), "first batch of sessions pruned");
+        assertEquals(1, memory.pruneSessions(-1, 1), "second batch of sessions pruned");
+        UUID dave = UUID.randomUUID();
+        memory.registerPlayer(dave, "dave", "", "127.0.0.4");
+        assertEquals(2, memory.pruneUnregisteredPlayers(-1, 10), "unregistered players pruned");
+        assertNotNull(memory.getPasswordHash(alice), "registered player kept");
+        assertTrue(memory.getWallet(carol).isPresent(), "player with a wallet kept");
+
+        // Linking a verified wallet is a single write, and can be repeated
+        assertTrue(memory.linkVerifiedWallet(alice, "11111111111111111111111111111111", "Solana", "s1"),
+                "verified link");
+        assertTrue(memory.getWallet(alice).map(WalletRecord::isVerified).orElse(false), "link verified");
+        assertTrue(memory.linkVerifiedWallet(alice, "11111111111111111111111111111111", "Solana", "s1"),
+                "repeated link");
+        assertEquals("Solana", memory.getWallet(alice).map(WalletRecord::getType).orElse(null), "link kept");
+
+        // Bulk lookup: only players with a wallet are in the result
+        Map<UUID, WalletRecord> bulk = memory.getWallets(Arrays.asList(alice, bob, carol, UUID.randomUUID()));
+        assertEquals(2, bulk.size(), "bulk wallet lookup");
+        assertEquals("DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK", bulk.get(carol).getAddress(), "bulk wallet address");
+        assertTrue(bulk.get(alice).isVerified(), "bulk wallet verification");
+
+        // Only players with a password are registered
+        List<UUID> registered = new ArrayList<>();
+        memory.forEachRegisteredPlayer(registered::add);
+        assertEquals(Collections.singletonList(alice), registered, "registered players streamed");
+        memory.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.nftlogin.walletlogin.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for RegisteredIndex
+ *
+ * It checks membership across resizes and the nil UUID.
+ */
+public class RegisteredIndexTest {
+
+    @Test
+    void membership() throws Exception {
+        RegisteredIndex index = new RegisteredIndex();
+        UUID alice = UUID.randomUUID();
+        assertFalse(index.contains(alice), "empty index");
+        assertEquals(0, index.size(), "empty index size");
+        assertTrue(index.add(alice), "first add");
+        assertTrue(index.contains(alice), "found after first add");
+        assertFalse(index.add(alice), "repeated add");
+        assertEquals(1, index.size(), "size after repeated add");
+
+        // Enough players to grow the table several times
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            UUID uuid = UUID.randomUUID();
+            players.add(uuid);
+            index.add(uuid);
+        }
+        for (UUID uuid : players) {
+            assertTrue(index.contains(uuid), "found after resizes");
+        }
+        assertTrue(index.contains(alice), "first player found after resizes");
+        assertEquals(10001, index.size(), "size after resizes");
+
+        for (int i = 0; i < 10000; i++) {
+            assertFalse(index.contains(UUID.randomUUID()), "unknown players missing");
+        }
+
+        // Offline-mode UUIDs differ only in their hash bits
+        RegisteredIndex offline = new RegisteredIndex(100);
+        UUID steve = UUID.nameUUIDFromBytes("OfflinePlayer:Steve".getBytes("UTF-8"));
+        offline.add(steve);
+        assertTrue(offline.contains(steve), "offline uuid");
+        assertFalse(offline.contains(UUID.nameUUIDFromBytes("OfflinePlayer:Alex".getBytes("UTF-8"))),
+                "other offline uuid");
+
+        // The nil UUID is all zeros, like an empty slot
+        UUID nil = new UUID(0, 0);
+        assertFalse(offline.contains(nil), "nil missing");
+        assertTrue(offline.add(nil), "nil added");
+        assertTrue(offline.contains(nil), "nil found");
+        assertEquals(2, offline.size(), "size with nil");
+        assertFalse(offline.contains(new UUID(0, 1)), "half-zero uuid missing");
+        assertTrue(offline.add(new UUID(0, 1)), "half-zero uuid added");
+        assertTrue(offline.contains(new UUID(0, 1)), "half-zero uuid found");
+    }
+}
@@ -0,0 +1,67 @@
+package com.nftlogin.walletlogin.database;
+
+import com.nftlogin.walletlogin.utils.Base58;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Test class for WalletIndex
+ *
+ * It checks the Base58 keys and how claims and links interact.
+ */
+public class WalletIndexTest {
+
+    private static final String WALLET = "DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK";
+    private static final String OTHER_WALLET = "11111111111111111111111111111111";
+
+    @Test
+    void claimsAndLinks() throws Exception {
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+
+        // Base58 keys
+        byte[] decoded = Base58.decode(WALLET);
+        assertNotNull(decoded, "address decodes");
+        assertEquals(32, decoded.length, "address decodes to 32 bytes");
+        assertArrayEquals(new byte[32], Base58.decode(OTHER_WALLET), "leading ones are zero bytes");
+        assertEquals('a', Base58.decode("2g")[0], "small number");
+        assertNull(Base58.decode("0OIl"), "invalid character rejected");
+
+        // Claims before the write, links after it
+        WalletIndex index = new WalletIndex();
+        assertNull(index.claim(WALLET, alice), "claim free wallet");
+        assertEquals(alice, index.claim(WALLET, bob), "claim taken wallet");
+        index.link(alice, WALLET);
+        assertEquals(alice, index.getOwner(WALLET), "owner found");
+        assertNull(index.claim("not-a-wallet", bob), "non-base58 address indexed");
+        index.release("not-a-wallet", bob);
+        assertNull(index.getOwner("not-a-wallet"), "failed write released");
+
+        // A failed relink keeps the current wallet
+        assertNull(index.claim(WALLET, alice), "relink own wallet");
+        index.release(WALLET, alice);
+        assertEquals(alice, index.getOwner(WALLET), "own wallet kept");
+
+        // Switching wallets frees the old one
+        index.claim(OTHER_WALLET, alice);
+        index.link(alice, OTHER_WALLET);
+        assertNull(index.getOwner(WALLET), "old wallet freed");
+        assertEquals(1, index.size(), "one wallet left");
+        assertEquals(alice, index.link(bob, OTHER_WALLET), "duplicate reported");
+        index.unlink(alice);
+        assertNull(index.getOwner(OTHER_WALLET), "unlinked");
+
+        // A wallet linked on another server passes the claim; the database rejects the write
+        assertNull(index.claim(WALLET, bob), "cross-server claim passes");
+        index.release(WALLET, bob);
+        assertNull(index.getOwner(WALLET), "cross-server duplicate released");
+        assertEquals(0, index.size(), "no wallets left");
+    }
+}
@@ -0,0 +1,200 @@
+package com.nftlogin.walletlogin.loadtest;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.database.DatabaseManager;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.utils.PasswordUtils;
+import org.bukkit.entity.Player;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory stand-in for {@link DatabaseManager} used by the join-storm harness.
+ *
+ * Every call counts as one query and blocks for a configurable round-trip time, so the
+ * harness measures the same call pattern the plugin would issue against MySQL. Password
+ * hashing still goes through {@link PasswordUtils} to keep the real CPU cost.
+ */
+public class CountingDatabaseManager extends DatabaseManager {
+
+    private final long roundTripNanos;
+    private final Map<String, LongAdder> queryCounts = new ConcurrentHashMap<>();
+    private final AtomicLong totalQueries = new AtomicLong();
+
+    private final Map<UUID, String> passwords = new ConcurrentHashMap<>();
+    private final Map<UUID, String[]> wallets = new ConcurrentHashMap<>();
+    private final Map<UUID, Boolean> verified = new ConcurrentHashMap<>();
+    private final Map<UUID, String> sessions = new ConcurrentHashMap<>();
+
+    public CountingDatabaseManager(SolanaLogin plugin, long roundTripMicros) {
+        super(plugin);
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    }
+
+    /**
+     * Registers an account without counting a query, used to seed returning players.
+     *
+     * @param uuid The player's UUID
+     * @param hashedPassword The stored password hash
+     */
+    public void seedAccount(UUID uuid, String hashedPassword) {
+        passwords.put(uuid, hashedPassword);
+    }
+
+    public long getTotalQueries() {
+        return totalQueries.get();
+    }
+
+    public Map<String, LongAdder> getQueryCounts() {
+        return queryCounts;
+    }
+
+    private void query(String operation) {
+        totalQueries.incrementAndGet();
+        queryCounts.computeIfAbsent(operation, k -> new LongAdder()).increment();
+        if (roundTripNanos > 0) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+    }
+
+    @Override
+    public void connect() {
+        // Nothing to connect to
+    }
+
+    @Override
+    public void createTables() {
+        // Nothing to create
+    }
+
+    @Override
+    public void closeConnection() {
+        // Nothing to close
+    }
+
+    @Override
+    public boolean isPlayerRegistered(UUID uuid) {
+        query("isPlayerRegistered");
+        return passwords.containsKey(uuid);
+    }
+
+    @Override
+    public boolean isPlayerRegisteredInDatabase(UUID uuid) {
+        query("isPlayerRegisteredInDatabase");
+        return passwords.containsKey(uuid);
+    }
+
+    @Override
+    public boolean registerPlayer(Player player, String password) {
+        query("registerPlayer");
+        passwords.put(player.getUniqueId(), PasswordUtils.hashPassword(password));
+        return true;
+    }
+
+    @Override
+    public boolean authenticatePlayer(UUID uuid, String password) {
+        query("authenticatePlayer");
+        String stored = passwords.get(uuid);
+        return stored != null && PasswordUtils.verifyPassword(password, stored);
+    }
+
+    @Override
+    public boolean updatePassword(UUID uuid, String newPassword) {
+        query("updatePassword");
+        return passwords.replace(uuid, PasswordUtils.hashPassword(newPassword)) != null;
+    }
+
+    @Override
+    public void updateLastLogin(UUID uuid, String ip) {
+        query("updateLastLogin");
+    }
+
+    @Override
+    public void saveSession(UUID uuid, String ip) {
+        query("saveSession");
+        sessions.put(uuid, ip);
+    }
+
+    @Override
+    public void removeSession(UUID uuid) {
+        query("removeSession");
+        sessions.remove(uuid);
+    }
+
+    @Override
+    public void savePlayer(Player player) {
+        query("savePlayer");
+    }
+
+    @Override
+    public boolean connectWallet(UUID uuid, String walletAddress, String walletType) {
+        query("connectWallet");
+        wallets.put(uuid, new String[] {walletAddress, walletType});
+        return true;
+    }
+
+    @Override
+    public boolean linkVerifiedWallet(UUID uuid, String walletAddress, String walletType, String linkId) {
+        query("linkVerifiedWallet");
+        wallets.put(uuid, new String[] {walletAddress, walletType});
+        verified.put(uuid, true);
+        return true;
+    }
+
+    @Override
+    public boolean disconnectWallet(UUID uuid) {
+        query("disconnectWallet");
+        verified.remove(uuid);
+        return wallets.remove(uuid) != null;
+    }
+
+    @Override
+    public Optional<String> getWalletAddress(UUID uuid) {
+        query("getWalletAddress");
+        String[] wallet = wallets.get(uuid);
+        return wallet == null ? Optional.empty() : Optional.of(wallet[0]);
+    }
+
+    @Override
+    public Optional<String> getWalletType(UUID uuid) {
+        query("getWalletType");
+        String[] wallet = wallets.get(uuid);
+        return wallet == null ? Optional.empty() : Optional.ofNullable(wallet[1]);
+    }
+
+    @Override
+    public boolean hasWalletConnected(UUID uuid) {
+        return getWalletAddress(uuid).isPresent();
+    }
+
+    @Override
+    public boolean setWalletVerified(UUID uuid, boolean verified) {
+        query("setWalletVerified");
+        if (!wallets.containsKey(uuid)) {
+            return false;
+        }
+        this.verified.put(uuid, verified);
+        return true;
+    }
+
+    @Override
+    public boolean isWalletVerified(UUID uuid) {
+        query("isWalletVerified");
+        return verified.getOrDefault(uuid, false);
+    }
+
+    @Override
+    public Optional<WalletRecord> getWallet(UUID uuid) {
+        query("getWallet");
+        String[] wallet = wallets.get(uuid);
+        return wallet == null ? Optional.empty()
+                : Optional.of(new WalletRecord(wallet[0], wallet[1], verified.getOrDefault(uuid, false)));
+    }
+}
@@ -0,0 +1,389 @@
+package com.nftlogin.walletlogin.loadtest;
+
+import com.nftlogin.walletlogin.SolanaLogin;
+import com.nftlogin.walletlogin.commands.ConnectWalletCommand;
+import com.nftlogin.walletlogin.commands.LoginCommand;
+import com.nftlogin.walletlogin.commands.RegisterCommand;
+import com.nftlogin.walletlogin.listeners.PlayerLoginListener;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.nftlogin.walletlogin.metrics.TickProfiler;
+import com.nftlogin.walletlogin.session.LoginToken;
+import com.nftlogin.walletlogin.session.NonceService;
+import com.nftlogin.walletlogin.session.SessionManager;
+import com.nftlogin.walletlogin.session.WalletCache;
+import com.nftlogin.walletlogin.utils.BlockingExecutor;
+import com.nftlogin.walletlogin.utils.PasswordUtils;
+import com.sun.net.httpserver.HttpServer;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.java.JavaPluginLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Synthetic join-storm load generator.
+ *
+ * Drives {@link PlayerLoginListener}, {@link RegisterCommand}, {@link LoginCommand} and
+ * {@link ConnectWalletCommand} with scripted bot players on a headless {@link StubServer},
+ * then reports command latency percentiles, tick overruns, database query counts and peak
+ * heap. The database is replaced by {@link CountingDatabaseManager} and the web server by a
+ * local status endpoint that reports every wallet session as connected, signed with the
+ * token secret it shares with the plugin like the real web server.
+ *
+ * Run with {@code mvn -Pload-test test-compile exec:java}. Scenario knobs are system
+ * properties (see {@link #main(String[])}); when {@code storm.maxP99Ms} or
+ * {@code storm.maxOverrunTicks} is set the process exits with status 1 if the run exceeds
+ * them, so the harness can be used as a regression gate.
+ */
+public class JoinStormHarness {
+
+    private static final String PASSWORD = "stormpass";
+    private static final String TOKEN_SECRET = "join-storm-token-secret";
+    private static final String BASE58 = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(StubServer.TICK_MILLIS);
+
+    private final int players = Integer.getInteger("storm.players", 1000);
+    private final int arrivalsPerSecond = Integer.getInteger("storm.arrivalsPerSecond", 200);
+    private final double returningFraction = Double.parseDouble(System.getProperty("storm.returningFraction", "0.7"));
+    private final double walletFraction = Double.parseDouble(System.getProperty("storm.walletFraction", "0.2"));
+    private final long dbLatencyMicros = Long.getLong("storm.dbLatencyMicros", 500L);
+    private final int thinkTicks = Integer.getInteger("storm.thinkTicks", 20);
+    private final int settleSeconds = Integer.getInteger("storm.settleSeconds", 5);
+    private final double maxP99Ms = Double.parseDouble(System.getProperty("storm.maxP99Ms", "0"));
+    private final int maxOverrunTicks = Integer.getInteger("storm.maxOverrunTicks", -1);
+
+    private final Map<String, List<Long>> latencies = new LinkedHashMap<>();
+    private final Random random = new Random(42);
+
+    private StubServer stubServer;
+    private SolanaLogin plugin;
+    private CountingDatabaseManager databaseManager;
+    private PlayerLoginListener listener;
+    private Map<String, CommandExecutor> commands;
+    private HttpServer statusServer;
+    private final NonceService nonceService = new NonceService(TOKEN_SECRET.getBytes(StandardCharsets.UTF_8));
+
+    private long ticks;
+    private long overrunTicks;
+    private long worstTickNanos;
+    private long peakHeapBytes;
+
+    public static void main(String[] args) throws Exception {
+        JoinStormHarness harness = new JoinStormHarness();
+        boolean passed;
+        try {
+            harness.setUp();
+            harness.run();
+            passed = harness.report();
+        } finally {
+            harness.tearDown();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private void setUp() throws Exception {
+        stubServer = new StubServer(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        if (Bukkit.getServer() == null) {
+            Bukkit.setServer(stubServer.getServer());
+        }
+
+        statusServer = startStatusServer();
+
+        File dataFolder = Files.createTempDirectory("solanalogin-storm").toFile();
+        plugin = loadPlugin(dataFolder);
+        plugin.getLogger().setLevel(Level.WARNING);
+        plugin.getConfig().set("web-server.url", "http://127.0.0.1:" + statusServer.getAddress().getPort());
+        plugin.getConfig().set("web-server.check-interval", 1);
+        plugin.getConfig().set("web-server.qr-code-timeout", 30);
+        plugin.getConfig().set("auth.token-secret", TOKEN_SECRET);
+
+        inject("metrics", new MetricsRegistry());
+        inject("tickProfiler", new TickProfiler(plugin));
+        inject("blockingExecutor", new BlockingExecutor(plugin));
+        databaseManager = new CountingDatabaseManager(plugin, dbLatencyMicros);
+        inject("sessionManager", new SessionManager(plugin));
+        inject("databaseManager", databaseManager);
+        inject("walletCache", new WalletCache(plugin));
+
+        listener = new PlayerLoginListener(plugin);
+        commands = new LinkedHashMap<>();
+        commands.put("register", new RegisterCommand(plugin));
+        commands.put("login", new LoginCommand(plugin));
+        commands.put("connectwallet", new ConnectWalletCommand(plugin));
+    }
+
+    private SolanaLogin loadPlugin(File dataFolder) throws Exception {
+        PluginDescriptionFile description;
+        try (InputStream in = JoinStormHarness.class.getClassLoader().getResourceAsStream("plugin.yml")) {
+            if (in == null) {
+                throw new IllegalStateException("plugin.yml not found on the test classpath");
+            }
+            description = new PluginDescriptionFile(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        Constructor<SolanaLogin> constructor = SolanaLogin.class.getDeclaredConstructor(
+                JavaPluginLoader.class, PluginDescriptionFile.class, File.class, File.class);
+        constructor.setAccessible(true);
+        @SuppressWarnings("deprecation")
+        JavaPluginLoader loader = new JavaPluginLoader(stubServer.getServer());
+        return constructor.newInstance(loader, description, dataFolder, new File(dataFolder, "SolanaLogin.jar"));
+    }
+
+    private void inject(String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = SolanaLogin.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(plugin, value);
+    }
+
+    private HttpServer startStatusServer() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/status", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            Optional<LoginToken> token = query != null && query.startsWith("session=")
+                    ? nonceService.verifyLoginToken(query.substring("session=".length())) : Optional.empty();
+            if (!token.isPresent()) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            String walletAddress = walletAddressFor(query);
+            byte[] body = ("{\"connected\":true,\"walletAddress\":\"" + walletAddress + "\",\"proof\":\""
+                    + nonceService.walletProof(token.get(), walletAddress) + "\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static String walletAddressFor(String seed) {
+        Random walletRandom = new Random(seed == null ? 0 : seed.hashCode());
+        char[] address = new char[44];
+        for (int i = 0; i < address.length; i++) {
+            address[i] = BASE58.charAt(walletRandom.nextInt(BASE58.length()));
+        }
+        return new String(address);
+    }
+
+    private void run() {
+        List<StubPlayer> bots = new ArrayList<>(players);
+        String seededHash = PasswordUtils.hashPassword(PASSWORD);
+        for (int i = 0; i < players; i++) {
+            StubPlayer bot = new StubPlayer(i, random.nextDouble() < returningFraction);
+            if (bot.isReturning()) {
+                databaseManager.seedAccount(bot.getUniqueId(), seededHash);
+            }
+            bots.add(bot);
+        }
+
+        System.gc();
+        double arrivalsPerTick = arrivalsPerSecond / 20.0;
+        double arrivalCredit = 0;
+        int arrived = 0;
+        long settleTicks = settleSeconds * 20L;
+        long idleSince = -1;
+
+        while (true) {
+            long tickStart = System.nanoTime();
+
+            arrivalCredit += arrivalsPerTick;
+            while (arrivalCredit >= 1 && arrived < bots.size()) {
+                join(bots.get(arrived++));
+                arrivalCredit--;
+            }
+
+            boolean busy = arrived < bots.size();
+            for (int i = 0; i < arrived; i++) {
+                busy |= act(bots.get(i));
+            }
+
+            stubServer.tick();
+            recordTick(System.nanoTime() - tickStart);
+
+            if (busy) {
+                idleSince = -1;
+            } else if (idleSince < 0) {
+                idleSince = ticks;
+            } else if (ticks - idleSince >= settleTicks) {
+                break;
+            }
+
+            long sleepNanos = TICK_NANOS - (System.nanoTime() - tickStart);
+            if (sleepNanos > 0) {
+                sleepQuietly(sleepNanos);
+            }
+        }
+
+        for (StubPlayer bot : bots) {
+            if (bot.isOnline()) {
+                bot.quit();
+            }
+            timed("onPlayerQuit", () -> listener.onPlayerQuit(new PlayerQuitEvent(bot.getPlayer(), Component.empty())));
+            stubServer.removePlayer(bot.getUniqueId());
+        }
+    }
+
+    private void join(StubPlayer bot) {
+        stubServer.addPlayer(bot.getPlayer());
+        timed("onPlayerLogin", () -> listener.onPlayerLogin(new PlayerLoginEvent(bot.getPlayer(), "localhost",
+                bot.getPlayer().getAddress().getAddress())));
+        timed("onPlayerJoin", () -> listener.onPlayerJoin(new PlayerJoinEvent(bot.getPlayer(), Component.empty())));
+        bot.nextActionTick = stubServer.getCurrentTick() + 1 + random.nextInt(Math.max(1, thinkTicks));
+    }
+
+    /**
+     * Advances a bot's script by at most one command.
+     *
+     * @return true if the bot still has scripted work left
+     */
+    private boolean act(StubPlayer bot) {
+        if (!bot.isOnline() || bot.step >= 2) {
+            return false;
+        }
+        if (stubServer.getCurrentTick() < bot.nextActionTick) {
+            return true;
+        }
+
+        if (bot.step == 0) {
+            if (bot.isReturning()) {
+                command(bot, "login", PASSWORD);
+            } else {
+                command(bot, "register", PASSWORD, PASSWORD);
+            }
+            bot.step = random.nextDouble() < walletFraction ? 1 : 2;
+        } else {
+            command(bot, "connectwallet");
+            bot.step = 2;
+        }
+        bot.nextActionTick = stubServer.getCurrentTick() + 1 + random.nextInt(Math.max(1, thinkTicks));
+        return bot.step < 2;
+    }
+
+    private void command(StubPlayer bot, String label, String... args) {
+        CommandExecutor executor = commands.get(label);
+        Command command = new Command(label) {
+            @Override
+            public boolean execute(CommandSender sender, String commandLabel, String[] arguments) {
+                return executor.onCommand(sender, this, commandLabel, arguments);
+            }
+        };
+        timed("/" + label, () -> executor.onCommand(bot.getPlayer(), command, label, args));
+    }
+
+    private void timed(String name, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            latencies.computeIfAbsent(name, k -> new ArrayList<>()).add(System.nanoTime() - start);
+        }
+    }
+
+    private void recordTick(long tickNanos) {
+        ticks++;
+        if (tickNanos > TICK_NANOS) {
+            overrunTicks++;
+        }
+        worstTickNanos = Math.max(worstTickNanos, tickNanos);
+
+        Runtime runtime = Runtime.getRuntime();
+        peakHeapBytes = Math.max(peakHeapBytes, runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    private boolean report() {
+        boolean passed = true;
+
+        System.out.println("=== SolanaLogin join storm ===");
+        System.out.printf("players=%d arrivals/s=%d returning=%.2f wallet=%.2f dbLatency=%dus%n",
+                players, arrivalsPerSecond, returningFraction, walletFraction, dbLatencyMicros);
+        System.out.printf("%-16s %8s %10s %10s %10s%n", "handler", "count", "p50(ms)", "p99(ms)", "max(ms)");
+
+        for (Map.Entry<String, List<Long>> entry : latencies.entrySet()) {
+            long[] sorted = entry.getValue().stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(sorted);
+            double p99 = millis(percentile(sorted, 0.99));
+            System.out.printf("%-16s %8d %10.3f %10.3f %10.3f%n", entry.getKey(), sorted.length,
+                    millis(percentile(sorted, 0.50)), p99, millis(sorted[sorted.length - 1]));
+
+            if (maxP99Ms > 0 && p99 > maxP99Ms) {
+                System.out.printf("  FAIL: %s p99 %.3f ms exceeds %.3f ms%n", entry.getKey(), p99, maxP99Ms);
+                passed = false;
+            }
+        }
+
+        System.out.printf("ticks=%d overrun=%d (%.1f%%) worst=%.3f ms budget=%d ms%n", ticks, overrunTicks,
+                ticks == 0 ? 0 : 100.0 * overrunTicks / ticks, millis(worstTickNanos), StubServer.TICK_MILLIS);
+        if (maxOverrunTicks >= 0 && overrunTicks > maxOverrunTicks) {
+            System.out.printf("  FAIL: %d overrun ticks exceeds %d%n", overrunTicks, maxOverrunTicks);
+            passed = false;
+        }
+
+        System.out.printf("db queries=%d (%.2f per player)%n", databaseManager.getTotalQueries(),
+                players == 0 ? 0 : (double) databaseManager.getTotalQueries() / players);
+        new TreeMap<>(databaseManager.getQueryCounts()).forEach((operation, count) ->
+                System.out.printf("  %-20s %d%n", operation, count.sum()));
+
+        System.out.printf("peak heap=%.1f MB pending sync tasks=%d%n", peakHeapBytes / (1024.0 * 1024.0),
+                stubServer.getPendingSyncTaskCount());
+        System.out.println(passed ? "RESULT: PASSED" : "RESULT: FAILED");
+        return passed;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static void sleepQuietly(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void tearDown() {
+        if (statusServer != null) {
+            statusServer.stop(0);
+        }
+        if (stubServer != null) {
+            stubServer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.nftlogin.walletlogin.loadtest;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import org.bukkit.entity.Player;
+
+import java.net.InetSocketAddress;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scripted bot player backed by a {@link Player} proxy.
+ *
+ * The proxy answers the handful of calls the plugin makes (identity, address, online state,
+ * messages and kicks). Everything else returns a type-appropriate default.
+ */
+public class StubPlayer {
+
+    private final UUID uuid;
+    private final String name;
+    private final InetSocketAddress address;
+    private final boolean returning;
+    private final Player player;
+    private final AtomicInteger messages = new AtomicInteger();
+    private volatile boolean online = true;
+    private volatile boolean kicked;
+
+    /** Tick at which the bot issues its next scripted command. */
+    long nextActionTick;
+    /** Position in the bot's script: 0 = authenticate, 1 = connect wallet, 2 = idle. */
+    int step;
+
+    public StubPlayer(int index, boolean returning) {
+        this.uuid = UUID.nameUUIDFromBytes(("storm-bot-" + index).getBytes());
+        this.name = "bot" + index;
+        this.address = new InetSocketAddress("10." + ((index >> 16) & 0xFF) + "." + ((index >> 8) & 0xFF) + "."
+                + (index & 0xFF), 25565);
+        this.returning = returning;
+
+        Player.Spigot spigot = new Player.Spigot() {
+            @Override
+            public void sendMessage(BaseComponent component) {
+                messages.incrementAndGet();
+            }
+        };
+
+        this.player = StubServer.proxy(Player.class, (method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "getName":
+                    return name;
+                case "getAddress":
+                    return address;
+                case "isOnline":
+                    return online;
+                case "sendMessage":
+                    messages.incrementAndGet();
+                    return null;
+                case "kick":
+                case "kickPlayer":
+                    kicked = true;
+                    online = false;
+                    return null;
+                case "spigot":
+                    return spigot;
+                case "hasPermission":
+                    return true;
+                default:
+                    return null;
+            }
+        });
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public UUID getUniqueId() {
+        return uuid;
+    }
+
+    public boolean isReturning() {
+        return returning;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public boolean isKicked() {
+        return kicked;
+    }
+
+    public int getMessageCount() {
+        return messages.get();
+    }
+
+    public void quit() {
+        online = false;
+    }
+}
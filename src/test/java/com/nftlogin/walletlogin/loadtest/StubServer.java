@@ -0,0 +1,316 @@
+package com.nftlogin.walletlogin.loadtest;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Minimal headless {@link Server} for the join-storm harness.
+ *
+ * Only the parts the plugin touches are implemented: online players, the scheduler and
+ * the plugin manager. Synchronous tasks run on the thread that calls {@link #tick()},
+ * which plays the role of the server main thread; asynchronous tasks run on a small
+ * scheduled pool with one tick mapped to 50 ms of wall time.
+ */
+public class StubServer {
+
+    static final long TICK_MILLIS = 50L;
+
+    private final Logger logger = Logger.getLogger("StubServer");
+    private final Map<UUID, Player> onlinePlayers = new ConcurrentHashMap<>();
+    private final List<SyncTask> syncTasks = new ArrayList<>();
+    private final List<SyncTask> pendingSyncTasks = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Integer, SyncTask> syncTasksById = new ConcurrentHashMap<>();
+    private final Map<Integer, ScheduledFuture<?>> asyncTasks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService asyncPool;
+    private final AtomicInteger taskIds = new AtomicInteger();
+    private final Server server;
+    private final BukkitScheduler scheduler;
+    private final PluginManager pluginManager;
+    private volatile Thread mainThread;
+    private long currentTick;
+
+    public StubServer(int asyncThreads) {
+        this.asyncPool = Executors.newScheduledThreadPool(asyncThreads);
+        this.server = proxy(Server.class, this::handleServer);
+        this.scheduler = proxy(BukkitScheduler.class, this::handleScheduler);
+        this.pluginManager = proxy(PluginManager.class, (method, args) -> null);
+    }
+
+    public Server getServer() {
+        return server;
+    }
+
+    public Logger getLogger() {
+        return logger;
+    }
+
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    public void addPlayer(Player player) {
+        onlinePlayers.put(player.getUniqueId(), player);
+    }
+
+    public void removePlayer(UUID uuid) {
+        onlinePlayers.remove(uuid);
+    }
+
+    /**
+     * Runs every synchronous task that is due in the current tick, then advances the clock.
+     */
+    public void tick() {
+        mainThread = Thread.currentThread();
+        synchronized (pendingSyncTasks) {
+            syncTasks.addAll(pendingSyncTasks);
+            pendingSyncTasks.clear();
+        }
+
+        List<SyncTask> due = new ArrayList<>();
+        for (Iterator<SyncTask> it = syncTasks.iterator(); it.hasNext(); ) {
+            SyncTask task = it.next();
+            if (task.cancelled) {
+                it.remove();
+                syncTasksById.remove(task.id);
+            } else if (task.nextRunTick <= currentTick) {
+                due.add(task);
+                if (task.period > 0) {
+                    task.nextRunTick = currentTick + task.period;
+                } else {
+                    it.remove();
+                    syncTasksById.remove(task.id);
+                }
+            }
+        }
+
+        for (SyncTask task : due) {
+            if (!task.cancelled) {
+                task.runnable.run();
+            }
+        }
+        currentTick++;
+    }
+
+    public int getPendingSyncTaskCount() {
+        return syncTasksById.size();
+    }
+
+    public void shutdown() {
+        asyncPool.shutdownNow();
+    }
+
+    private Object handleServer(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "getLogger":
+                return logger;
+            case "getName":
+                return "StubServer";
+            case "getVersion":
+            case "getBukkitVersion":
+                return "load-test";
+            case "getScheduler":
+                return scheduler;
+            case "getPluginManager":
+                return pluginManager;
+            case "getOnlinePlayers":
+                return Collections.unmodifiableCollection(onlinePlayers.values());
+            case "getPlayer":
+            case "getOfflinePlayer":
+                return args[0] instanceof UUID ? onlinePlayers.get(args[0]) : null;
+            case "isPrimaryThread":
+                return Thread.currentThread() == mainThread;
+            default:
+                return null;
+        }
+    }
+
+    private Object handleScheduler(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "runTask":
+                return scheduleSync((Runnable) args[1], 0, 0);
+            case "runTaskLater":
+                return scheduleSync((Runnable) args[1], (Long) args[2], 0);
+            case "runTaskTimer":
+                return scheduleSync((Runnable) args[1], (Long) args[2], (Long) args[3]);
+            case "runTaskAsynchronously":
+                return scheduleAsync((Runnable) args[1], 0, 0);
+            case "runTaskLaterAsynchronously":
+                return scheduleAsync((Runnable) args[1], (Long) args[2], 0);
+            case "runTaskTimerAsynchronously":
+                return scheduleAsync((Runnable) args[1], (Long) args[2], (Long) args[3]);
+            case "cancelTask":
+                cancel((Integer) args[0]);
+                return null;
+            case "getPendingTasks":
+            case "getActiveWorkers":
+                return new ArrayList<>();
+            default:
+                return null;
+        }
+    }
+
+    private BukkitTask scheduleSync(Runnable runnable, long delay, long period) {
+        SyncTask task = new SyncTask(taskIds.incrementAndGet(), runnable, currentTick + Math.max(delay, 0), period);
+        syncTasksById.put(task.id, task);
+        pendingSyncTasks.add(task);
+        return task;
+    }
+
+    private BukkitTask scheduleAsync(Runnable runnable, long delay, long period) {
+        int id = taskIds.incrementAndGet();
+        ScheduledFuture<?> future;
+        if (period > 0) {
+            future = asyncPool.scheduleAtFixedRate(runnable, delay * TICK_MILLIS, period * TICK_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            future = asyncPool.schedule(runnable, delay * TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        asyncTasks.put(id, future);
+        return new AsyncTask(id, future);
+    }
+
+    private void cancel(int taskId) {
+        ScheduledFuture<?> future = asyncTasks.remove(taskId);
+        if (future != null) {
+            future.cancel(false);
+            return;
+        }
+        SyncTask task = syncTasksById.get(taskId);
+        if (task != null) {
+            task.cancelled = true;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, Handler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return type.getSimpleName() + "@stub";
+                default:
+                    Object result = handler.handle(method, args);
+                    return result != null ? result : defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0D;
+        } else if (type == float.class) {
+            return 0F;
+        } else if (type == Collection.class || type == List.class) {
+            return Collections.emptyList();
+        }
+        return null;
+    }
+
+    interface Handler {
+        Object handle(Method method, Object[] args) throws Exception;
+    }
+
+    private class SyncTask implements BukkitTask {
+        private final int id;
+        private final Runnable runnable;
+        private final long period;
+        private long nextRunTick;
+        private volatile boolean cancelled;
+
+        SyncTask(int id, Runnable runnable, long nextRunTick, long period) {
+            this.id = id;
+            this.runnable = runnable;
+            this.nextRunTick = nextRunTick;
+            this.period = period;
+        }
+
+        @Override
+        public int getTaskId() {
+            return id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return null;
+        }
+
+        @Override
+        public boolean isSync() {
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            StubServer.this.cancel(id);
+        }
+    }
+
+    private class AsyncTask implements BukkitTask {
+        private final int id;
+        private final ScheduledFuture<?> future;
+
+        AsyncTask(int id, ScheduledFuture<?> future) {
+            this.id = id;
+            this.future = future;
+        }
+
+        @Override
+        public int getTaskId() {
+            return id;
+        }
+
+        @Override
+        public Plugin getOwner() {
+            return null;
+        }
+
+        @Override
+        public boolean isSync() {
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isCancelled();
+        }
+
+        @Override
+        public void cancel() {
+            StubServer.this.cancel(id);
+        }
+    }
+}
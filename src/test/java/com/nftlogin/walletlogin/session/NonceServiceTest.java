@@ -0,0 +1,53 @@
+package com.nftlogin.walletlogin.session;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for NonceService
+ */
+public class NonceServiceTest {
+
+    @Test
+    void tokensAndProofs() {
+        NonceService service = new NonceService("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8));
+        NonceService other = new NonceService("fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8));
+        UUID alice = UUID.randomUUID();
+
+        // Login tokens
+        LoginToken token = service.issueLoginToken(alice, "Alice_01", 60_000);
+        LoginToken parsed = service.verifyLoginToken(token.getToken()).orElse(null);
+        assertTrue(token.getToken().matches("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]{22}"), "token url-safe");
+        assertNotNull(parsed, "token round trip");
+        assertEquals(alice, parsed.getUuid(), "token uuid");
+        assertEquals("Alice_01", parsed.getPlayerName(), "token player name");
+        assertEquals(token.getNonce(), parsed.getNonce(), "token nonce");
+        assertEquals(token.getExpiresAt(), parsed.getExpiresAt(), "token expiry");
+        assertFalse(service.verifyLoginToken(service.issueLoginToken(alice, "Alice_01", -1).getToken())
+                .isPresent(), "token expired");
+        assertFalse(other.verifyLoginToken(token.getToken()).isPresent(), "token other key");
+        assertFalse(service.verifyLoginToken("").isPresent(), "token empty");
+        assertFalse(service.verifyLoginToken("a.b").isPresent(), "token garbage");
+        String[] parts = token.getToken().split("\\.");
+        assertFalse(service.verifyLoginToken(parts[0]).isPresent(), "token without signature");
+        String renamed = service.issueLoginToken(alice, "Mallory", 60_000).getToken().split("\\.")[0];
+        assertFalse(service.verifyLoginToken(renamed + "." + parts[1]).isPresent(), "token signature bound");
+
+        // Wallet proofs
+        String wallet = "DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK";
+        String proof = service.walletProof(token, wallet);
+        assertTrue(service.verifyWalletProof(token, wallet, proof), "proof verifies");
+        assertFalse(service.verifyWalletProof(token, "11111111111111111111111111111111", proof), "proof other wallet");
+        assertFalse(service.verifyWalletProof(
+                service.issueLoginToken(alice, "Alice_01", 60_000), wallet, proof), "proof other login");
+        assertFalse(other.verifyWalletProof(token, wallet, proof), "proof other key");
+        assertFalse(service.verifyWalletProof(token, wallet, null), "proof missing");
+    }
+}
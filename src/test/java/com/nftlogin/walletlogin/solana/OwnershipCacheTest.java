@@ -0,0 +1,221 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.nftlogin.walletlogin.database.LogStorageBackend;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.nftlogin.walletlogin.utils.Base58;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for OwnershipCache
+ *
+ * It talks to a stub RPC server on a local port, where "alice" holds one unit of the gating
+ * mint and none of the second mint, and every other wallet holds nothing.
+ */
+public class OwnershipCacheTest {
+
+    private static final String MINT = "EPjFWdd5AufqSSqeM2qN1xzybapC8G4wEGGkZwyTDt1v";
+    private static final String EMPTY_MINT = OwnershipCache.TOKEN_PROGRAM;
+
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static final AtomicInteger calls = new AtomicInteger();
+    private static volatile boolean fail;
+    private static volatile CountDownLatch hold = new CountDownLatch(0);
+
+    @Test
+    void cachesAndRefreshes() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", OwnershipCacheTest::handle);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try {
+            SolanaRpcClient rpc = new SolanaRpcClient(url, 2000, 4, 10, new CircuitBreaker(100, 1000),
+                    executor, new MetricsRegistry());
+            LogStorageBackend storage = new LogStorageBackend(null, 0);
+            OwnershipCache cache = new OwnershipCache(rpc, Arrays.asList(MINT, EMPTY_MINT), 400, 400, 0.5,
+                    new MetricsRegistry(), records -> {
+                        try {
+                            storage.saveOwnership(records);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    });
+
+            // Single flight: 200 simultaneous lookups of one wallet are one check
+            hold = new CountDownLatch(1);
+            List<CompletableFuture<Set<String>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                lookups.add(cache.get("alice"));
+            }
+            hold.countDown();
+            for (CompletableFuture<Set<String>> lookup : lookups) {
+                assertEquals(Collections.singleton(MINT), lookup.get(5, TimeUnit.SECONDS), "single flight result");
+            }
+            assertEquals(1, requests.get(), "single flight requests");
+            assertEquals(1, calls.get(), "single flight");
+            assertEquals(Optional.of(Collections.singleton(MINT)), cache.getIfPresent("alice"), "memory lookup");
+            assertEquals(1, requests.get(), "memory lookup without a request");
+
+            // Negative caching: a wallet without the mints is cached as such
+            reset();
+            assertTrue(cache.get("bob").get(5, TimeUnit.SECONDS).isEmpty(), "negative result");
+            assertEquals(Optional.of(Collections.emptySet()), cache.getIfPresent("bob"), "negative cached");
+            assertEquals(1, requests.get(), "negative cached without a request");
+
+            // Batching: checks of several wallets share a request
+            reset();
+            cache.invalidate("alice");
+            cache.invalidate("bob");
+            CompletableFuture.allOf(cache.load(Arrays.asList("alice", "bob", "carol"))
+                    .toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            assertEquals(1, requests.get(), "batched");
+            assertEquals(3, calls.get(), "batched calls");
+            assertEquals(3, cache.size(), "batched results cached");
+
+            // Refresh ahead: past half the TTL a lookup answers at once and refreshes in the background
+            Thread.sleep(250);
+            reset();
+            boolean answered = cache.getIfPresent("alice").isPresent();
+            waitFor(() -> requests.get() == 1);
+            Thread.sleep(200);
+            assertTrue(answered, "refresh ahead");
+            assertEquals(1, requests.get(), "refreshed in the background");
+            assertTrue(cache.getIfPresent("alice").isPresent(), "refreshed result");
+
+            // A failed check keeps serving the last result. The miss starts a check in the background,
+            // which the lookup joins, so no check is left running for the next step to count.
+            Thread.sleep(450);
+            fail = true;
+            assertFalse(cache.getIfPresent("alice").isPresent(), "miss after expiry");
+            assertEquals(Collections.singleton(MINT), cache.get("alice").get(5, TimeUnit.SECONDS), "stale on error");
+            fail = false;
+
+            // Persistence: a new cache warmed from storage needs no checks
+            reset();
+            OwnershipCache restarted = new OwnershipCache(rpc, Collections.singletonList(MINT), 60_000, 60_000,
+                    0.8, new MetricsRegistry(), null);
+            storage.forEachOwnership(restarted::warm);
+            assertEquals(3, restarted.size(), "warm start");
+            assertEquals(Optional.of(Collections.singleton(MINT)), restarted.getIfPresent("alice"), "warm result");
+            assertEquals(0, requests.get(), "warm start without a request");
+
+            assertThrows(IllegalArgumentException.class, () -> new OwnershipCache(rpc,
+                    Collections.singletonList("not-a-mint"), 1, 1, 0.5, new MetricsRegistry(), null), "invalid mint");
+        } finally {
+            hold.countDown();
+            server.stop(0);
+            serverThreads.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        JsonArray batch = JsonParser.parseReader(new InputStreamReader(exchange.getRequestBody(),
+                StandardCharsets.UTF_8)).getAsJsonArray();
+        try {
+            hold.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (fail) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        JsonArray answers = new JsonArray();
+        for (JsonElement element : batch) {
+            calls.incrementAndGet();
+            JsonObject call = element.getAsJsonObject();
+            JsonArray value = new JsonArray();
+            if ("alice".equals(call.getAsJsonArray("params").get(0).getAsString())) {
+                value.add(tokenAccount(MINT, 1));
+                value.add(tokenAccount(EMPTY_MINT, 0));
+            }
+            JsonObject result = new JsonObject();
+            result.add("value", value);
+            JsonObject answer = new JsonObject();
+            answer.addProperty("jsonrpc", "2.0");
+            answer.add("id", call.get("id"));
+            answer.add("result", result);
+            answers.add(answer);
+        }
+
+        byte[] body = answers.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Builds an SPL token account holding an amount of a mint.
+     */
+    private static JsonObject tokenAccount(String mint, long amount) {
+        ByteBuffer data = ByteBuffer.allocate(165).order(ByteOrder.LITTLE_ENDIAN);
+        data.put(Base58.decode(mint));
+        data.put(new byte[32]);
+        data.putLong(amount);
+        JsonArray encoded = new JsonArray();
+        encoded.add(Base64.getEncoder().encodeToString(data.array()));
+        encoded.add("base64");
+        JsonObject account = new JsonObject();
+        account.add("data", encoded);
+        account.addProperty("owner", OwnershipCache.TOKEN_PROGRAM);
+        JsonObject keyed = new JsonObject();
+        keyed.addProperty("pubkey", "account");
+        keyed.add("account", account);
+        return keyed;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void reset() {
+        requests.set(0);
+        calls.set(0);
+    }
+}
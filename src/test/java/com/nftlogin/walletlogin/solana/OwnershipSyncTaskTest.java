@@ -0,0 +1,201 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.nftlogin.walletlogin.database.LogStorageBackend;
+import com.nftlogin.walletlogin.database.OwnershipRecord;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.nftlogin.walletlogin.utils.Base58;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for OwnershipSyncTask
+ *
+ * It syncs 250 wallets from an in-memory store against a stub RPC server on a local port,
+ * where wallets with an even number hold the gating mint.
+ */
+public class OwnershipSyncTaskTest {
+
+    private static final String MINT = "EPjFWdd5AufqSSqeM2qN1xzybapC8G4wEGGkZwyTDt1v";
+    private static final int WALLETS = 250;
+
+    private static final AtomicInteger calls = new AtomicInteger();
+    private static final AtomicInteger running = new AtomicInteger();
+    private static final AtomicInteger maxRunning = new AtomicInteger();
+    private static volatile String failFrom;
+    private static volatile boolean oddHoldToo;
+
+    @Test
+    void checksEveryWallet() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", OwnershipSyncTaskTest::handle);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        ExecutorService executor = Executors.newCachedThreadPool();
+        File checkpoint = new File(Files.createTempDirectory("solanalogin-sync").toFile(), "sync.checkpoint");
+
+        try {
+            LogStorageBackend storage = new LogStorageBackend(null, 0);
+            for (int i = 0; i < WALLETS; i++) {
+                UUID uuid = UUID.randomUUID();
+                storage.savePlayer(uuid, "player" + i, "127.0.0.1");
+                storage.connectWallet(uuid, wallet(i), "Phantom");
+            }
+            List<List<OwnershipRecord>> writes = Collections.synchronizedList(new ArrayList<>());
+            SolanaRpcClient rpc = new SolanaRpcClient(url, 2000, 8, 10, new CircuitBreaker(1000, 1000),
+                    executor, new MetricsRegistry());
+            OwnershipCache cache = new OwnershipCache(rpc, Collections.singletonList(MINT), 60_000, 60_000, 0.8,
+                    new MetricsRegistry(), writes::add);
+            OwnershipSyncTask sync = new OwnershipSyncTask(cache, storage, checkpoint, 100, 10, 3, () -> true,
+                    new MetricsRegistry(), Logger.getLogger("OwnershipSyncTaskTest"));
+
+            // Full sync: every wallet checked once, with bounded concurrency
+            sync.run();
+            assertEquals(WALLETS, calls.get(), "every wallet checked");
+            assertEquals(WALLETS, sync.getLastChecked(), "checked count");
+            assertEquals(WALLETS, cache.size(), "every result cached");
+            assertTrue(maxRunning.get() <= 3, "bounded concurrency");
+            assertEquals(Collections.singleton(MINT), cache.getIfPresent(wallet(2)).get(), "holder result");
+            assertEquals(Collections.emptySet(), cache.getIfPresent(wallet(3)).get(), "non-holder result");
+            assertEquals(WALLETS, sync.getLastChanged(), "new results counted");
+            assertEquals(WALLETS, written(writes), "new results written");
+            assertFalse(checkpoint.exists(), "checkpoint cleared");
+            assertTrue(sync.getLastRun() > 0, "run time recorded");
+
+            // Nothing changed: nothing written
+            writes.clear();
+            sync.run();
+            assertEquals(0, sync.getLastChanged(), "nothing changed");
+            assertEquals(0, written(writes), "unchanged not written");
+
+            // Half the wallets changed: only they are written
+            writes.clear();
+            oddHoldToo = true;
+            sync.run();
+            assertEquals(WALLETS / 2, sync.getLastChanged(), "changes counted");
+            assertEquals(WALLETS / 2, written(writes), "only changes written");
+            oddHoldToo = false;
+
+            // The node fails part way: the checkpoint keeps the progress, the next run resumes
+            calls.set(0);
+            failFrom = wallet(150);
+            sync.run();
+            String saved = checkpoint.exists()
+                    ? new String(Files.readAllBytes(checkpoint.toPath()), StandardCharsets.UTF_8) : "";
+            assertTrue(saved.compareTo(wallet(100)) >= 0 && saved.compareTo(wallet(150)) < 0, "checkpoint saved");
+            failFrom = null;
+            calls.set(0);
+            sync.run();
+            assertEquals(WALLETS - Integer.parseInt(saved.substring(6)) - 1, calls.get(), "resumed");
+            assertFalse(checkpoint.exists(), "checkpoint cleared after resuming");
+        } finally {
+            server.stop(0);
+            serverThreads.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private static String wallet(int i) {
+        return String.format("wallet%03d", i);
+    }
+
+    private static int written(List<List<OwnershipRecord>> writes) {
+        int total = 0;
+        synchronized (writes) {
+            for (List<OwnershipRecord> write : writes) {
+                total += write.size();
+            }
+        }
+        return total;
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        int now = running.incrementAndGet();
+        maxRunning.accumulateAndGet(now, Math::max);
+        try {
+            JsonArray batch = JsonParser.parseReader(new InputStreamReader(exchange.getRequestBody(),
+                    StandardCharsets.UTF_8)).getAsJsonArray();
+            Thread.sleep(5);
+            String first = batch.get(0).getAsJsonObject().getAsJsonArray("params").get(0).getAsString();
+            if (failFrom != null && first.compareTo(failFrom) >= 0) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+
+            JsonArray answers = new JsonArray();
+            for (JsonElement element : batch) {
+                calls.incrementAndGet();
+                JsonObject call = element.getAsJsonObject();
+                int number = Integer.parseInt(call.getAsJsonArray("params").get(0).getAsString().substring(6));
+                JsonArray value = new JsonArray();
+                if (number % 2 == 0 || oddHoldToo) {
+                    value.add(tokenAccount());
+                }
+                JsonObject result = new JsonObject();
+                result.add("value", value);
+                JsonObject answer = new JsonObject();
+                answer.addProperty("jsonrpc", "2.0");
+                answer.add("id", call.get("id"));
+                answer.add("result", result);
+                answers.add(answer);
+            }
+
+            byte[] body = answers.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private static JsonObject tokenAccount() {
+        ByteBuffer data = ByteBuffer.allocate(165).order(ByteOrder.LITTLE_ENDIAN);
+        data.put(Base58.decode(MINT));
+        data.put(new byte[32]);
+        data.putLong(1);
+        JsonArray encoded = new JsonArray();
+        encoded.add(Base64.getEncoder().encodeToString(data.array()));
+        encoded.add("base64");
+        JsonObject account = new JsonObject();
+        account.add("data", encoded);
+        JsonObject keyed = new JsonObject();
+        keyed.add("account", account);
+        return keyed;
+    }
+}
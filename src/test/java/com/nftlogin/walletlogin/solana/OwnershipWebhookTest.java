@@ -0,0 +1,187 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for OwnershipWebhook
+ *
+ * It posts webhooks to the endpoint on a local port; the ownership checks they trigger go to
+ * a stub RPC server, where every wallet holds nothing.
+ */
+public class OwnershipWebhookTest {
+
+    private static final String MINT = "EPjFWdd5AufqSSqeM2qN1xzybapC8G4wEGGkZwyTDt1v";
+    private static final String OTHER_MINT = "So11111111111111111111111111111111111111112";
+    private static final String TOKEN = "secret-token";
+
+    private static final Set<String> checked = ConcurrentHashMap.newKeySet();
+
+    @Test
+    void rechecksPostedWallets() throws Exception {
+        HttpServer rpcServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService serverThreads = Executors.newCachedThreadPool();
+        rpcServer.setExecutor(serverThreads);
+        rpcServer.createContext("/", OwnershipWebhookTest::handle);
+        rpcServer.start();
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        Map<String, UUID> index = new HashMap<>();
+        index.put("alice-wallet", UUID.randomUUID());
+        index.put("bob-wallet", UUID.randomUUID());
+        index.put("carol-wallet", UUID.randomUUID());
+
+        OwnershipWebhook webhook = null;
+        try {
+            SolanaRpcClient rpc = new SolanaRpcClient("http://127.0.0.1:" + rpcServer.getAddress().getPort() + "/",
+                    2000, 4, 10, new CircuitBreaker(5, 1000), executor, new MetricsRegistry());
+            OwnershipCache cache = new OwnershipCache(rpc, Collections.singletonList(MINT), 60_000, 60_000, 0.8,
+                    new MetricsRegistry(), null);
+            webhook = new OwnershipWebhook(cache, index::get, TOKEN, new MetricsRegistry());
+            webhook.start("127.0.0.1", 0, "/webhook");
+            String url = "http://127.0.0.1:" + webhook.getPort() + "/webhook";
+
+            // Enhanced format: a gating mint moves from alice to a stranger, another mint moves to bob
+            String enhanced = "[{\"signature\":\"sig1\",\"tokenTransfers\":["
+                    + "{\"mint\":\"" + MINT + "\",\"fromUserAccount\":\"alice-wallet\",\"toUserAccount\":\"stranger\"},"
+                    + "{\"mint\":\"" + OTHER_MINT + "\",\"fromUserAccount\":\"stranger\",\"toUserAccount\":\"bob-wallet\"}"
+                    + "]}]";
+            Response response = post(url, TOKEN, enhanced);
+            waitFor("alice-wallet");
+            assertEquals(200, response.status, "enhanced webhook");
+            assertTrue(response.body.contains("\"rechecked\":1"), "enhanced webhook count");
+            assertEquals(Collections.singleton("alice-wallet"), checked, "enhanced webhook re-checks");
+            assertEquals(Optional.of(Collections.<String>emptySet()), cache.getIfPresent("alice-wallet"), "cache updated");
+
+            // Raw format: balances before and after the transaction
+            checked.clear();
+            String raw = "{\"meta\":{\"preTokenBalances\":[{\"owner\":\"carol-wallet\",\"mint\":\"" + MINT + "\"}],"
+                    + "\"postTokenBalances\":[{\"owner\":\"bob-wallet\",\"mint\":\"" + MINT + "\"}]}}";
+            response = post(url, TOKEN, raw);
+            waitFor("bob-wallet");
+            waitFor("carol-wallet");
+            assertEquals(200, response.status, "raw webhook");
+            assertTrue(response.body.contains("\"rechecked\":2"), "raw webhook count");
+            assertEquals(2, checked.size(), "raw webhook re-checks");
+
+            // Unrelated activity costs nothing
+            checked.clear();
+            response = post(url, TOKEN, "[{\"tokenTransfers\":[{\"mint\":\"" + MINT
+                    + "\",\"fromUserAccount\":\"stranger\",\"toUserAccount\":\"someone\"}]},{\"type\":\"SWAP\"}]");
+            assertEquals(200, response.status, "unrelated activity");
+            assertTrue(response.body.contains("\"rechecked\":0"), "unlinked wallets ignored");
+
+            assertEquals(401, post(url, "guess", enhanced).status, "wrong token");
+            assertEquals(401, post(url, null, enhanced).status, "no token");
+            assertEquals(400, post(url, TOKEN, "{not json").status, "malformed");
+            Thread.sleep(100);
+            assertTrue(checked.isEmpty(), "nothing re-checked");
+        } finally {
+            if (webhook != null) {
+                webhook.stop();
+            }
+            rpcServer.stop(0);
+            serverThreads.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private static Response post(String url, String token, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        if (token != null) {
+            connection.setRequestProperty("Authorization", token);
+        }
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (in != null) {
+            try (InputStream stream = in) {
+                byte[] buffer = new byte[1024];
+                int read;
+                while ((read = stream.read(buffer)) >= 0) {
+                    bytes.write(buffer, 0, read);
+                }
+            }
+        }
+        return new Response(status, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        JsonArray batch = JsonParser.parseReader(new InputStreamReader(exchange.getRequestBody(),
+                StandardCharsets.UTF_8)).getAsJsonArray();
+        JsonArray answers = new JsonArray();
+        for (JsonElement element : batch) {
+            JsonObject call = element.getAsJsonObject();
+            checked.add(call.getAsJsonArray("params").get(0).getAsString());
+            JsonObject result = new JsonObject();
+            result.add("value", new JsonArray());
+            JsonObject answer = new JsonObject();
+            answer.addProperty("jsonrpc", "2.0");
+            answer.add("id", call.get("id"));
+            answer.add("result", result);
+            answers.add(answer);
+        }
+
+        byte[] body = answers.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void waitFor(String wallet) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!checked.contains(wallet) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        // Let the answer reach the cache
+        Thread.sleep(50);
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
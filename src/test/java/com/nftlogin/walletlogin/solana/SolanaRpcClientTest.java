@@ -0,0 +1,232 @@
+package com.nftlogin.walletlogin.solana;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.nftlogin.walletlogin.metrics.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for SolanaRpcClient
+ *
+ * It talks to a stub RPC server on a local port, which answers {@code getMultipleAccounts}
+ * with an account for every even-numbered key.
+ */
+public class SolanaRpcClientTest {
+
+    private static final String TOKEN_PROGRAM = "TokenkegQfeZyiNwAJbNbGKPFXCWuBvf9Ss623VQ5DA";
+
+    private static final AtomicInteger requests = new AtomicInteger();
+    private static final AtomicInteger calls = new AtomicInteger();
+    private static volatile String mode = "normal";
+    private static volatile CountDownLatch hold = new CountDownLatch(0);
+
+    @Test
+    void batchesCoalescesAndBreaks() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        ExecutorService serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", SolanaRpcClientTest::handle);
+        server.start();
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        try {
+            // Batching: 250 keys are 3 calls in one HTTP request
+            SolanaRpcClient client = new SolanaRpcClient(url, 2000, 4, 10, new CircuitBreaker(2, 200),
+                    executor, new MetricsRegistry());
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < 250; i++) {
+                keys.add("key" + i);
+            }
+            List<AccountInfo> accounts = client.getMultipleAccounts(keys).get(5, TimeUnit.SECONDS);
+            assertEquals(1, requests.get(), "one request");
+            assertEquals(3, calls.get(), "three calls");
+            assertEquals(250, accounts.size(), "one result per key");
+            assertNull(accounts.get(1), "missing account");
+            assertEquals("key248", new String(accounts.get(248).getData(), StandardCharsets.UTF_8), "results in order");
+            assertEquals(TOKEN_PROGRAM, accounts.get(0).getOwner(), "account owner");
+
+            // Coalescing: identical calls in flight share one request
+            reset();
+            hold = new CountDownLatch(1);
+            CompletableFuture<JsonElement> first = client.call("getBalance", params("alice"));
+            CompletableFuture<JsonElement> second = client.call("getBalance", params("alice"));
+            hold.countDown();
+            assertSame(first, second, "coalesced");
+            assertEquals(42, first.get(5, TimeUnit.SECONDS).getAsLong(), "coalesced result");
+            assertEquals(1, requests.get(), "coalesced request");
+            assertEquals(42, client.call("getBalance", params("alice")).get(5, TimeUnit.SECONDS).getAsLong(),
+                    "result after completion");
+            assertEquals(2, requests.get(), "not cached after completion");
+
+            // JSON-RPC errors fail the call but not the node
+            RpcException error = failure(client.call("noSuchMethod", new JsonArray()));
+            assertNotNull(error, "rpc error");
+            assertEquals(-32601, error.getCode(), "rpc error code");
+            assertEquals(CircuitBreaker.State.CLOSED, client.getState(), "breaker closed after rpc error");
+
+            // Circuit breaker: opens after two failed requests, then rejects without sending
+            reset();
+            mode = "fail";
+            failure(client.call("getBalance", params("bob")));
+            failure(client.call("getBalance", params("carol")));
+            assertEquals(CircuitBreaker.State.OPEN, client.getState(), "breaker opens");
+            assertEquals(2, requests.get(), "failed requests sent");
+            RpcException rejected = failure(client.call("getBalance", params("dave")));
+            assertNotNull(rejected, "rejected while open");
+            assertTrue(rejected.getMessage().contains("circuit"), "rejected by the breaker");
+            assertEquals(2, requests.get(), "nothing sent while open");
+            mode = "normal";
+            Thread.sleep(250);
+            assertEquals(42, client.call("getBalance", params("dave")).get(5, TimeUnit.SECONDS).getAsLong(),
+                    "trial call");
+            assertEquals(CircuitBreaker.State.CLOSED, client.getState(), "trial closes breaker");
+
+            // Timeout: a node slower than the timeout fails the call instead of holding the thread
+            SolanaRpcClient impatient = new SolanaRpcClient(url, 200, 1, 10, new CircuitBreaker(5, 1000),
+                    executor, new MetricsRegistry());
+            mode = "slow";
+            long start = System.nanoTime();
+            RpcException timeout = failure(impatient.call("getBalance", params("erin")));
+            assertNotNull(timeout, "timeout");
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "timeout without waiting");
+
+            // In-flight limit: a second request while the only slot is busy fails at once
+            mode = "normal";
+            hold = new CountDownLatch(1);
+            CompletableFuture<JsonElement> busy = impatient.call("getBalance", params("frank"));
+            RpcException saturated = failure(impatient.call("getBalance", params("grace")));
+            hold.countDown();
+            assertNotNull(saturated, "in-flight limit");
+            assertTrue(saturated.getMessage().contains("in flight"), "rejected by the in-flight limit");
+            assertEquals(42, busy.get(5, TimeUnit.SECONDS).getAsLong(), "busy call completes");
+        } finally {
+            hold.countDown();
+            server.stop(0);
+            serverThreads.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        JsonArray batch = JsonParser.parseReader(new InputStreamReader(exchange.getRequestBody(),
+                StandardCharsets.UTF_8)).getAsJsonArray();
+        try {
+            hold.await(5, TimeUnit.SECONDS);
+            if ("slow".equals(mode)) {
+                Thread.sleep(1000);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if ("fail".equals(mode)) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        JsonArray answers = new JsonArray();
+        for (JsonElement element : batch) {
+            calls.incrementAndGet();
+            JsonObject call = element.getAsJsonObject();
+            JsonObject answer = new JsonObject();
+            answer.addProperty("jsonrpc", "2.0");
+            answer.add("id", call.get("id"));
+            String method = call.get("method").getAsString();
+            if ("getMultipleAccounts".equals(method)) {
+                JsonArray value = new JsonArray();
+                for (JsonElement key : call.getAsJsonArray("params").get(0).getAsJsonArray()) {
+                    value.add(account(key.getAsString()));
+                }
+                JsonObject result = new JsonObject();
+                result.add("value", value);
+                answer.add("result", result);
+            } else if ("getBalance".equals(method)) {
+                answer.addProperty("result", 42);
+            } else {
+                JsonObject error = new JsonObject();
+                error.addProperty("code", -32601);
+                error.addProperty("message", "Method not found");
+                answer.add("error", error);
+            }
+            // Answer in reverse order, as batches may come back in any order
+            JsonArray reordered = new JsonArray();
+            reordered.add(answer);
+            reordered.addAll(answers);
+            answers = reordered;
+        }
+
+        byte[] body = answers.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static JsonElement account(String key) {
+        if (Integer.parseInt(key.substring(3)) % 2 != 0) {
+            return JsonNull.INSTANCE;
+        }
+        JsonObject account = new JsonObject();
+        account.addProperty("owner", TOKEN_PROGRAM);
+        account.addProperty("lamports", 2039280);
+        JsonArray data = new JsonArray();
+        data.add(Base64.getEncoder().encodeToString(key.getBytes(StandardCharsets.UTF_8)));
+        data.add("base64");
+        account.add("data", data);
+        return account;
+    }
+
+    private static JsonArray params(String address) {
+        JsonArray params = new JsonArray();
+        params.add(address);
+        return params;
+    }
+
+    private static RpcException failure(CompletableFuture<JsonElement> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof RpcException ? (RpcException) e.getCause() : null;
+        } catch (TimeoutException e) {
+            return null;
+        }
+    }
+
+    private static void reset() {
+        requests.set(0);
+        calls.set(0);
+    }
+}
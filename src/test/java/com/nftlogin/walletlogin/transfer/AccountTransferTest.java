@@ -0,0 +1,95 @@
+package com.nftlogin.walletlogin.transfer;
+
+import com.nftlogin.walletlogin.database.AccountSink;
+import com.nftlogin.walletlogin.database.AccountSource;
+import com.nftlogin.walletlogin.database.LogStorageBackend;
+import com.nftlogin.walletlogin.database.WalletRecord;
+import com.nftlogin.walletlogin.utils.PasswordUtils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for AccountTransfer
+ *
+ * It imports and exports through an in-memory store and temporary files.
+ */
+public class AccountTransferTest {
+
+    private static final String AUTHME_HASH =
+            "$SHA$a1b2c3d4e5f6a7b8$db136337234cc82d6d0363b07ec32e8cd4a8fc7900ba6b1b227f1d6e6afc50d4";
+
+    @Test
+    void importsAndExports() throws Exception {
+        File dir = Files.createTempDirectory("solanalogin-transfer").toFile();
+        UUID alice = UUID.randomUUID();
+
+        // Foreign hash formats
+        assertTrue(PasswordUtils.verifyPassword("hunter22", AUTHME_HASH), "authme hash verifies");
+        assertFalse(PasswordUtils.verifyPassword("hunter23", AUTHME_HASH), "authme hash rejects");
+        assertTrue(PasswordUtils.needsRehash(AUTHME_HASH), "authme hash needs rehash");
+        assertFalse(PasswordUtils.needsRehash(PasswordUtils.hashPassword("hunter22")), "native hash kept");
+        assertFalse(PasswordUtils.isSupportedFormat("$2a$10$abcdefghijklmnopqrstuv"), "bcrypt unsupported");
+        assertEquals("2a", PasswordUtils.getFormat("$2a$10$abcdefghijklmnopqrstuv"), "bcrypt format");
+
+        // CSV import: column order, quoting, missing UUIDs and wallets
+        File csv = new File(dir, "accounts.csv");
+        Files.write(csv.toPath(), Arrays.asList(
+                "username,uuid,password,wallet_address,wallet_verified",
+                "alice," + alice + ",\"" + AUTHME_HASH + "\",DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK,true",
+                "",
+                "\"bob, the builder\",,$2a$10$abcdefghijklmnopqrstuv,,"), StandardCharsets.UTF_8);
+
+        LogStorageBackend backend = new LogStorageBackend(null, 0);
+        backend.connect();
+        AccountTransfer.Summary summary;
+        try (AccountSource source = AccountTransfer.openFile(csv)) {
+            summary = AccountTransfer.importAccounts(backend, source, 1, count -> { });
+        }
+        assertEquals(2, summary.getAccounts(), "csv imported");
+        assertEquals(1L, (long) summary.getUnsupportedFormats().get("2a"), "unsupported format counted");
+        assertEquals(AUTHME_HASH, backend.getPasswordHash(alice), "hash preserved");
+        Optional<WalletRecord> wallet = backend.getWallet(alice);
+        assertTrue(wallet.isPresent(), "wallet imported");
+        assertTrue(wallet.get().isVerified(), "wallet verification imported");
+        assertNotNull(backend.getPasswordHash(AccountTransfer.offlineUuid("bob, the builder")), "offline uuid");
+
+        // Export to JSON and back into a fresh store
+        File json = new File(dir, "accounts.json");
+        try (AccountSink sink = AccountTransfer.createFile(json)) {
+            assertEquals(2, backend.exportAccounts(sink, count -> { }), "json exported");
+        }
+        LogStorageBackend copy = new LogStorageBackend(null, 0);
+        copy.connect();
+        try (AccountSource source = AccountTransfer.openFile(json)) {
+            AccountTransfer.importAccounts(copy, source, 1000, count -> { });
+        }
+        assertEquals(AUTHME_HASH, copy.getPasswordHash(alice), "json round trip");
+        assertTrue(copy.getWallet(alice).isPresent(), "json round trip wallet");
+
+        // And through CSV
+        File exported = new File(dir, "exported.csv");
+        try (AccountSink sink = AccountTransfer.createFile(exported)) {
+            copy.exportAccounts(sink, count -> { });
+        }
+        LogStorageBackend second = new LogStorageBackend(null, 0);
+        second.connect();
+        try (AccountSource source = AccountTransfer.openFile(exported)) {
+            AccountTransfer.importAccounts(second, source, 1000, count -> { });
+        }
+        assertEquals(AUTHME_HASH, second.getPasswordHash(alice), "csv round trip");
+        assertEquals("DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK",
+                second.getWallet(alice).map(WalletRecord::getAddress).orElse(null), "csv round trip wallet");
+    }
+}
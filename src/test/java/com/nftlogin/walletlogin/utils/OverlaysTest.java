@@ -0,0 +1,58 @@
+package com.nftlogin.walletlogin.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test class for the Java 17 and 21 overlays
+ *
+ * It checks that the overlays compiled into the build are used on a new enough JVM and ignored
+ * on older ones. Run it on other Java versions with {@code mvn test -Djvm=/path/to/jdk/bin/java}.
+ */
+public class OverlaysTest {
+
+    private static final String AUTHME_HASH =
+            "$SHA$a1b2c3d4e5f6a7b8$db136337234cc82d6d0363b07ec32e8cd4a8fc7900ba6b1b227f1d6e6afc50d4";
+
+    @Test
+    void loadsVersionForRunningJava() throws Exception {
+        int java = javaVersion();
+
+        // Hashing: every version gives the same output
+        assertEquals("00ff10ab", Hex.encode(new byte[] {0, -1, 16, (byte) 0xab}), "hex encoding");
+        assertTrue(PasswordUtils.verifyPassword("hunter22", AUTHME_HASH), "authme hash verifies");
+        assertEquals(built("Hex17") && java >= 17, Hex.isOverlaid(), "hex version");
+
+        // Executor: virtual threads from Java 21, named by the overlay
+        ExecutorService executor = VirtualThreads.newExecutor("SolanaLogin-io-");
+        if (java < 21) {
+            assertNull(executor, "no virtual threads");
+        } else {
+            AtomicReference<Thread> thread = new AtomicReference<>();
+            executor.submit(() -> thread.set(Thread.currentThread())).get(5, TimeUnit.SECONDS);
+            executor.shutdown();
+            assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread.get()), "virtual thread");
+            assertEquals(built("VirtualThreads21"), thread.get().getName().startsWith("SolanaLogin-io-"),
+                    "executor version");
+        }
+    }
+
+    private static int javaVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    /**
+     * Checks whether the JDK that ran the build was new enough to compile an overlay.
+     */
+    private static boolean built(String overlay) {
+        return OverlaysTest.class.getResource(overlay + ".class") != null;
+    }
+}
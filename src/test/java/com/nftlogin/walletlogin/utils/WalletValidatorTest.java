@@ -1,16 +1,16 @@
 package com.nftlogin.walletlogin.utils;
 
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 /**
  * Test class for WalletValidator
- *
- * Note: This is a simple test class that can be run manually.
- * In a real project, you would use JUnit or another testing framework.
- *
- * @SuppressWarnings("java:S2187") // Suppress SonarLint warning about missing test methods
  */
 public class WalletValidatorTest {
 
-    public static void main(String[] args) {
+    @Test
+    void walletAddresses() {
         // Test Solana wallet addresses
         testWalletAddress("DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK", true, "Phantom");
         testWalletAddress("EPjFWdd5AufqSSqeM2qN1xzybapC8G4wEGGkZwyTDt1v", true, "Phantom");
@@ -30,9 +30,10 @@ public class WalletValidatorTest {
         testWalletAddress("", false, "Unknown");
         testWalletAddress(null, false, "Unknown");
         testWalletAddress("not-a-wallet-address", false, "Unknown");
+    }
 
-        // Test Phantom wallet specific validation
-        System.out.println("\nTesting Phantom wallet specific validation:");
+    @Test
+    void phantomWallets() {
         testPhantomWallet("DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSKK", true);
         testPhantomWallet("EPjFWdd5AufqSSqeM2qN1xzybapC8G4wEGGkZwyTDt1v", true);
         testPhantomWallet("DYw8jCTfwHNRJhhmFcbXvVDTqWMEVFBX6ZKUmG5CNSK", false); // 43 chars
@@ -45,31 +46,13 @@ public class WalletValidatorTest {
         boolean isValid = WalletValidator.isValidWalletAddress(address);
         String type = WalletValidator.getWalletType(address);
 
-        System.out.println("Address: " + address);
-        System.out.println("  Expected valid: " + expectedValid + ", Actual: " + isValid);
-        System.out.println("  Expected type: " + expectedType + ", Actual: " + type);
-
-        if (isValid != expectedValid || !type.equals(expectedType)) {
-            System.out.println("  TEST FAILED!");
-        } else {
-            System.out.println("  TEST PASSED!");
-        }
-
-        System.out.println();
+        assertEquals(expectedValid, isValid, "Valid: " + address);
+        assertEquals(expectedType, type, "Type: " + address);
     }
 
     private static void testPhantomWallet(String address, boolean expectedValid) {
         boolean isValid = WalletValidator.isValidPhantomWallet(address);
 
-        System.out.println("Phantom wallet test - Address: " + address);
-        System.out.println("  Expected valid: " + expectedValid + ", Actual: " + isValid);
-
-        if (isValid != expectedValid) {
-            System.out.println("  TEST FAILED!");
-        } else {
-            System.out.println("  TEST PASSED!");
-        }
-
-        System.out.println();
+        assertEquals(expectedValid, isValid, "Phantom wallet: " + address);
     }
 }
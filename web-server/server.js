@@ -1,5 +1,7 @@
 const express = require('express');
 const cors = require('cors');
+const crypto = require('crypto');
+const fs = require('fs');
 const path = require('path');
 const QRCode = require('qrcode');
 const nacl = require('tweetnacl');
@@ -12,9 +14,112 @@ process.env.NODE_ENV = 'development';
 const app = express();
 const PORT = process.env.PORT || 3000;
 
-// In-memory storage for sessions and nonces
-// In a production environment, use Redis or a database
-const sessions = new Map();
+// Login links are tokens signed by the plugin with a key both sides share, so there is no
+// session table to look up or sweep. Set TOKEN_SECRET to the plugin's auth.token-secret, or
+// TOKEN_SECRET_FILE to its plugins/SolanaLogin/token-secret.key
+const LOGIN_TOKEN = 1;
+const WALLET_PROOF = 2;
+const TOKEN_HEADER_BYTES = 41; // type, UUID, expiry, nonce; the player name follows
+const DEMO_TTL = 5 * 60 * 1000;
+const TOKEN_SECRET = loadTokenSecret();
+
+// Wallets that signed in, by login nonce, until the link expires.
+// Several instances behind a load balancer need sticky sessions for /api/verify and /status
+const verifiedWallets = new Map();
+// Demo sessions are keyed by a string of the caller's choosing, which could be a real login's
+// nonce, so their wallets are kept apart and never get a proof
+const demoWallets = new Map();
+
+function loadTokenSecret() {
+  if (process.env.TOKEN_SECRET) {
+    return Buffer.from(process.env.TOKEN_SECRET, 'utf8');
+  }
+  if (process.env.TOKEN_SECRET_FILE) {
+    return Buffer.from(fs.readFileSync(process.env.TOKEN_SECRET_FILE, 'ascii').trim(), 'base64');
+  }
+  console.warn('TOKEN_SECRET is not set; login links from the plugin will be rejected');
+  return crypto.randomBytes(32);
+}
+
+function base64url(buffer) {
+  return buffer.toString('base64').replace(/\+/g, '-').replace(/\//g, '_').replace(/=+$/, '');
+}
+
+function sign(data) {
+  return crypto.createHmac('sha256', TOKEN_SECRET).update(data).digest().subarray(0, 16);
+}
+
+// Mirrors NonceService.issueLoginToken; only used for demo sessions
+function issueLoginToken(player, ttl) {
+  const name = Buffer.from(player, 'utf8');
+  const payload = Buffer.alloc(TOKEN_HEADER_BYTES + name.length);
+  payload[0] = LOGIN_TOKEN;
+  crypto.randomBytes(16).copy(payload, 1);
+  payload.writeBigInt64BE(BigInt(Date.now() + ttl), 17);
+  crypto.randomBytes(16).copy(payload, 25);
+  name.copy(payload, TOKEN_HEADER_BYTES);
+  return `${base64url(payload)}.${base64url(sign(payload))}`;
+}
+
+// Returns the token's claims, or null if it is malformed, forged or expired
+function verifyLoginToken(token) {
+  const parts = typeof token === 'string' ? token.split('.') : [];
+  if (parts.length !== 2) {
+    return null;
+  }
+
+  const payload = Buffer.from(parts[0], 'base64');
+  const signature = Buffer.from(parts[1], 'base64');
+  if (payload.length < TOKEN_HEADER_BYTES || payload[0] !== LOGIN_TOKEN || signature.length !== 16
+      || !crypto.timingSafeEqual(sign(payload), signature)) {
+    return null;
+  }
+
+  const expiresAt = Number(payload.readBigInt64BE(17));
+  if (Date.now() >= expiresAt) {
+    return null;
+  }
+
+  const uuid = payload.toString('hex', 1, 17).replace(/^(.{8})(.{4})(.{4})(.{4})/, '$1-$2-$3-$4-');
+  return {
+    uuid,
+    player: payload.toString('utf8', TOKEN_HEADER_BYTES),
+    nonce: base64url(payload.subarray(25, TOKEN_HEADER_BYTES)),
+    expiresAt
+  };
+}
+
+// Resolves a session parameter to its claims; in development, unsigned sessions become demos
+function getSession(session) {
+  const claims = verifyLoginToken(session);
+  if (claims || process.env.NODE_ENV === 'production' || !session) {
+    return claims;
+  }
+  return { player: 'TestPlayer', nonce: session, expiresAt: Date.now() + DEMO_TTL, isDemo: true };
+}
+
+function walletsFor(claims) {
+  return claims.isDemo ? demoWallets : verifiedWallets;
+}
+
+// Mirrors NonceService.walletProof: tells the plugin this server saw the wallet sign this login
+function walletProof(claims, walletAddress) {
+  return base64url(sign(Buffer.concat([
+    Buffer.from([WALLET_PROOF]),
+    Buffer.from(claims.nonce, 'base64'),
+    Buffer.from(walletAddress, 'utf8')
+  ])));
+}
+
+function sessionStatus(claims) {
+  const result = walletsFor(claims).get(claims.nonce);
+  return {
+    connected: !!result,
+    walletAddress: result?.walletAddress,
+    player: claims.player,
+    proof: result && !claims.isDemo ? walletProof(claims, result.walletAddress) : undefined
+  };
+}
 
 // Middleware
 app.use(cors());
@@ -35,35 +140,22 @@ app.get('/login', (req, res) => {
     console.error('Missing required parameters for login:', { session: !!session, nonce: !!nonce, player: !!player });
     // Instead of returning error, create a demo session for testing
     if (process.env.NODE_ENV !== 'production') {
-      const demoSession = 'demo-' + Date.now();
-      const demoNonce = 'nonce-' + Date.now();
       const demoPlayer = player || 'TestPlayer';
+      const demoSession = issueLoginToken(demoPlayer, DEMO_TTL);
+      const demoNonce = verifyLoginToken(demoSession).nonce;
 
       console.log('Creating demo session for testing:', { demoSession, demoNonce, demoPlayer });
 
-      // Store demo session data
-      sessions.set(demoSession, {
-        nonce: demoNonce,
-        player: demoPlayer,
-        connected: false,
-        createdAt: Date.now(),
-        isDemo: true
-      });
-
       // Redirect to login page with demo parameters
-      return res.redirect(`/login?session=${demoSession}&nonce=${demoNonce}&player=${demoPlayer}${qr === 'true' ? '&qr=true' : ''}`);
+      return res.redirect(`/login?session=${demoSession}&nonce=${demoNonce}&player=${encodeURIComponent(demoPlayer)}${qr === 'true' ? '&qr=true' : ''}`);
     }
 
     return res.status(400).send('Missing required parameters');
   }
 
-  // Store session data
-  sessions.set(session, {
-    nonce,
-    player,
-    connected: false,
-    createdAt: Date.now()
-  });
+  if (!getSession(session)) {
+    return res.status(410).send('This login link is invalid or has expired. Run /connectwallet again.');
+  }
 
   // If QR code is requested, show QR page
   if (qr === 'true') {
@@ -77,28 +169,26 @@ app.get('/login', (req, res) => {
 // Get session data
 app.get('/api/session/:sessionId', (req, res) => {
   const { sessionId } = req.params;
-  const session = sessions.get(sessionId);
+  const claims = getSession(sessionId);
 
-  if (!session) {
+  if (!claims) {
     return res.status(404).json({ error: 'Session not found' });
   }
 
-  // Don't expose the nonce
-  const { nonce, ...sessionData } = session;
-
-  res.json(sessionData);
+  const { connected, walletAddress, player } = sessionStatus(claims);
+  res.json({ connected, walletAddress, player, expiresAt: claims.expiresAt, isDemo: claims.isDemo });
 });
 
 // Get nonce for a session
 app.get('/api/nonce/:sessionId', (req, res) => {
   const { sessionId } = req.params;
-  const session = sessions.get(sessionId);
+  const claims = getSession(sessionId);
 
-  if (!session) {
+  if (!claims) {
     return res.status(404).json({ error: 'Session not found' });
   }
 
-  res.json({ nonce: session.nonce });
+  res.json({ nonce: claims.nonce });
 });
 
 // Generate QR code
@@ -111,21 +201,12 @@ app.get('/api/qr', (req, res) => {
 
     // For testing, create a demo session if parameters are missing
     if (process.env.NODE_ENV !== 'production') {
-      const demoSession = session || ('demo-' + Date.now());
-      const demoNonce = nonce || ('nonce-' + Date.now());
       const demoPlayer = player || 'TestPlayer';
+      const demoSession = session || issueLoginToken(demoPlayer, DEMO_TTL);
+      const demoNonce = nonce || getSession(demoSession).nonce;
 
       console.log('Creating demo session for QR code:', { demoSession, demoNonce, demoPlayer });
 
-      // Store demo session
-      sessions.set(demoSession, {
-        nonce: demoNonce,
-        player: demoPlayer,
-        connected: false,
-        createdAt: Date.now(),
-        isDemo: true
-      });
-
       // Continue with the demo session
       req.query.session = demoSession;
       req.query.nonce = demoNonce;
@@ -137,6 +218,9 @@ app.get('/api/qr', (req, res) => {
 
   // Get session from updated query params
   const sessionId = req.query.session;
+  if (!getSession(sessionId)) {
+    return res.status(410).json({ error: 'Login link is invalid or has expired' });
+  }
 
   // Create deep link for Phantom wallet
   const redirectUrl = `${req.protocol}://${req.get('host')}/phantom-redirect?session=${sessionId}`;
@@ -214,28 +298,20 @@ app.post('/api/verify', (req, res) => {
     }
   }
 
-  let sessionData = sessions.get(session);
+  const sessionData = getSession(session);
   if (!sessionData) {
-    console.error('Session not found:', session);
-
-    // For testing, create a demo session if it doesn't exist
-    if (process.env.NODE_ENV !== 'production') {
-      console.log('Creating demo session for verification:', session);
-      sessionData = {
-        nonce: 'demo-nonce-' + Date.now(),
-        player: 'TestPlayer',
-        connected: false,
-        createdAt: Date.now(),
-        isDemo: true
-      };
-      sessions.set(session, sessionData);
-    } else {
-      return res.status(404).json({ error: 'Session not found' });
-    }
+    console.error('Session not found or expired');
+    return res.status(404).json({ error: 'Session not found' });
   }
 
   console.log('Session data:', { ...sessionData, nonce: sessionData.nonce?.substring(0, 8) + '...' });
 
+  // The signed message must name this login, or a signature could be replayed from another one
+  if (!sessionData.isDemo && !message.includes(sessionData.nonce)) {
+    console.error('Signed message does not contain the session nonce');
+    return res.status(400).json({ error: 'Message does not match this login' });
+  }
+
   try {
     // Verify signature
     const messageBytes = new TextEncoder().encode(message);
@@ -302,11 +378,11 @@ app.post('/api/verify', (req, res) => {
     console.log('Signature verification result:', verified);
 
     if (verified) {
-      // Update session
-      sessionData.connected = true;
-      sessionData.walletAddress = publicKey;
-      sessionData.verifiedAt = Date.now();
-      sessions.set(session, sessionData);
+      // Remember the wallet until the link expires
+      const wallets = walletsFor(sessionData);
+      wallets.set(sessionData.nonce, { walletAddress: publicKey, verifiedAt: Date.now() });
+      setTimeout(() => wallets.delete(sessionData.nonce),
+        Math.max(0, sessionData.expiresAt - Date.now())).unref();
 
       console.log('Session updated successfully, wallet connected');
       return res.json({ success: true });
@@ -342,30 +418,14 @@ app.get('/status', (req, res) => {
     return res.status(400).json({ error: 'Missing session parameter' });
   }
 
-  const sessionData = sessions.get(session);
+  const sessionData = getSession(session);
   if (!sessionData) {
     return res.status(404).json({ error: 'Session not found' });
   }
 
-  res.json({
-    connected: sessionData.connected,
-    walletAddress: sessionData.walletAddress,
-    player: sessionData.player
-  });
+  res.json(sessionStatus(sessionData));
 });
 
-// Clean up expired sessions every 5 minutes
-setInterval(() => {
-  const now = Date.now();
-  const expirationTime = 5 * 60 * 1000; // 5 minutes
-
-  for (const [sessionId, session] of sessions.entries()) {
-    if (now - session.createdAt > expirationTime) {
-      sessions.delete(sessionId);
-    }
-  }
-}, 60 * 1000);
-
 // Start server
 app.listen(PORT, () => {
   console.log(`Server running on port ${PORT}`);